@@ -0,0 +1,140 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Computes the statistics added in V2 for all measurements that were stored before.
+ *
+ * <p>Only plain SQL is used and the statistics are computed here instead of in the application
+ * code, so this migration keeps working on fresh databases even if the schema classes or the
+ * statistics code change later on.
+ *
+ * <p>Successful measurements without any values are turned into failed measurements with the
+ * error message {@value #NO_VALUES_ERROR}, as their statistics are undefined. The application
+ * stores such measurements as failed ones from V2 onwards as well.
+ */
+@SuppressWarnings("CheckStyle")
+public class V3__backfill_measurement_statistics extends BaseJavaMigration {
+
+	private static final int MEASUREMENTS_PER_BATCH = 1000;
+	private static final String NO_VALUES_ERROR = "the benchmark reported no values";
+
+	private static final String SELECT_MEASUREMENTS = ""
+		+ "SELECT id FROM run_measurement "
+		+ "WHERE error_message IS NULL AND value_count IS NULL "
+		+ "ORDER BY id LIMIT ?";
+	private static final String SELECT_VALUES = ""
+		+ "SELECT measurement_id, value FROM run_measurement_value "
+		+ "WHERE measurement_id IN (" + SELECT_MEASUREMENTS + ")";
+	private static final String UPDATE_STATISTICS = ""
+		+ "UPDATE run_measurement SET value_count = ?, value_average = ?, value_median = ?, "
+		+ "value_min = ?, value_max = ?, value_stddev = ? WHERE id = ?";
+	private static final String UPDATE_ERROR = ""
+		+ "UPDATE run_measurement SET error_message = ? WHERE id = ?";
+
+	@Override
+	public void migrate(Context context) throws SQLException {
+		Connection connection = context.getConnection();
+
+		try (
+			PreparedStatement selectMeasurements = connection.prepareStatement(SELECT_MEASUREMENTS);
+			PreparedStatement selectValues = connection.prepareStatement(SELECT_VALUES);
+			PreparedStatement updateStatistics = connection.prepareStatement(UPDATE_STATISTICS);
+			PreparedStatement updateError = connection.prepareStatement(UPDATE_ERROR)
+		) {
+			selectMeasurements.setInt(1, MEASUREMENTS_PER_BATCH);
+			selectValues.setInt(1, MEASUREMENTS_PER_BATCH);
+
+			while (true) {
+				List<String> measurementIds = new ArrayList<>();
+				try (ResultSet resultSet = selectMeasurements.executeQuery()) {
+					while (resultSet.next()) {
+						measurementIds.add(resultSet.getString(1));
+					}
+				}
+
+				if (measurementIds.isEmpty()) {
+					return;
+				}
+
+				Map<String, List<Double>> valueMap = new HashMap<>();
+				try (ResultSet resultSet = selectValues.executeQuery()) {
+					while (resultSet.next()) {
+						valueMap.computeIfAbsent(resultSet.getString(1), id -> new ArrayList<>())
+							.add(resultSet.getDouble(2));
+					}
+				}
+
+				for (String measurementId : measurementIds) {
+					List<Double> values = valueMap.get(measurementId);
+
+					if (values == null) {
+						updateError.setString(1, NO_VALUES_ERROR);
+						updateError.setString(2, measurementId);
+						updateError.addBatch();
+					} else {
+						setStatistics(updateStatistics, values);
+						updateStatistics.setString(7, measurementId);
+						updateStatistics.addBatch();
+					}
+				}
+
+				updateStatistics.executeBatch();
+				updateError.executeBatch();
+			}
+		}
+	}
+
+	/**
+	 * Sets the first six parameters of the statement to the count, average, median, min, max and
+	 * sample standard deviation of the values.
+	 */
+	private static void setStatistics(PreparedStatement statement, List<Double> values)
+		throws SQLException {
+
+		List<Double> sorted = new ArrayList<>(values);
+		Collections.sort(sorted);
+
+		int count = sorted.size();
+
+		double sum = 0;
+		for (double value : sorted) {
+			sum += value;
+		}
+		double average = sum / count;
+
+		double median;
+		if (count % 2 == 0) {
+			median = (sorted.get(count / 2 - 1) + sorted.get(count / 2)) / 2;
+		} else {
+			median = sorted.get(count / 2);
+		}
+
+		double standardDeviation = 0;
+		if (count > 1) {
+			double squaredDifferences = 0;
+			for (double value : sorted) {
+				squaredDifferences += (value - average) * (value - average);
+			}
+			standardDeviation = Math.sqrt(squaredDifferences / (count - 1));
+		}
+
+		statement.setInt(1, count);
+		statement.setDouble(2, average);
+		statement.setDouble(3, median);
+		statement.setDouble(4, sorted.get(0));
+		statement.setDouble(5, sorted.get(count - 1));
+		statement.setDouble(6, standardDeviation);
+	}
+
+}
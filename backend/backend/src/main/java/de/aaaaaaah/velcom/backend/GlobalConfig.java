@@ -1,5 +1,6 @@
 package de.aaaaaaah.velcom.backend;
 
+import de.aaaaaaah.velcom.backend.storage.db.DatabaseStorage;
 import io.dropwizard.Configuration;
 import io.dropwizard.server.ServerFactory;
 import java.time.Duration;
@@ -13,12 +14,26 @@ import org.hibernate.validator.constraints.NotEmpty;
  */
 public class GlobalConfig extends Configuration {
 
+	private static final long DEFAULT_ARCHIVE_CACHE_MAX_BYTES = 5L * 1024 * 1024 * 1024;
+	private static final long DEFAULT_PREFETCH_MAX_BYTES_PER_SECOND = 10L * 1024 * 1024;
+	private static final long DEFAULT_MAX_POLL_INTERVAL = 600;
+	private static final int DEFAULT_LISTENER_THREADS = 4;
+
 	@NotEmpty
 	private String jdbcUrl;
 
+	@Min(1)
+	private int databaseReadConnections = DatabaseStorage.DEFAULT_READ_POOL_SIZE;
+
 	@NotNull
 	private long pollInterval;
 
+	@Min(0)
+	private long maxPollInterval = DEFAULT_MAX_POLL_INTERVAL;
+
+	@Min(1)
+	private int listenerThreads = DEFAULT_LISTENER_THREADS;
+
 	@NotEmpty
 	private String webAdminToken;
 
@@ -52,6 +67,16 @@ public class GlobalConfig extends Configuration {
 	@NotEmpty
 	private String archivesRootDir;
 
+	@Min(0)
+	private long archiveCacheMaxBytes = DEFAULT_ARCHIVE_CACHE_MAX_BYTES;
+
+	private boolean archiveWithGitDir = true;
+
+	private boolean prefetchWork;
+
+	@Min(0)
+	private long prefetchMaxBytesPerSecond = DEFAULT_PREFETCH_MAX_BYTES_PER_SECOND;
+
 	public GlobalConfig() {
 		RunnerAwareServerFactory.getInstance().setConfig(this);
 	}
@@ -63,6 +88,14 @@ public class GlobalConfig extends Configuration {
 		return jdbcUrl;
 	}
 
+	/**
+	 * @return the maximum amount of read-only database connections that may be open at the same
+	 * 	time
+	 */
+	public int getDatabaseReadConnections() {
+		return databaseReadConnections;
+	}
+
 	/**
 	 * @return the interval between listener updates (in seconds)
 	 */
@@ -70,6 +103,21 @@ public class GlobalConfig extends Configuration {
 		return pollInterval;
 	}
 
+	/**
+	 * @return the longest interval between checks of a repo without new commits (in seconds). Is at
+	 * 	least the {@link #getPollInterval()}.
+	 */
+	public long getMaxPollInterval() {
+		return Math.max(pollInterval, maxPollInterval);
+	}
+
+	/**
+	 * @return the maximum amount of repos the listener checks for new commits at the same time
+	 */
+	public int getListenerThreads() {
+		return listenerThreads;
+	}
+
 	/**
 	 * @return the token used to authorize as a web administrator
 	 */
@@ -144,6 +192,38 @@ public class GlobalConfig extends Configuration {
 		return archivesRootDir;
 	}
 
+	/**
+	 * @return the maximum amount of bytes that cached repo archives may use on disk. If this is 0,
+	 * 	archives are not cached.
+	 */
+	public long getArchiveCacheMaxBytes() {
+		return archiveCacheMaxBytes;
+	}
+
+	/**
+	 * @return whether repo archives are created from a full clone so that they contain the ".git"
+	 * 	directory. If false, archives are created directly from the commit's tree, which is faster.
+	 */
+	public boolean isArchiveWithGitDir() {
+		return archiveWithGitDir;
+	}
+
+	/**
+	 * @return whether runners receive the repo of their next task while they are still working on
+	 * 	their current one
+	 */
+	public boolean isPrefetchWork() {
+		return prefetchWork;
+	}
+
+	/**
+	 * @return the maximum average amount of bytes per second repos are sent to working runners
+	 * 	with. If this is 0, the rate is not limited.
+	 */
+	public long getPrefetchMaxBytesPerSecond() {
+		return prefetchMaxBytesPerSecond;
+	}
+
 	@Override
 	public ServerFactory getServerFactory() {
 		if (RunnerAwareServerFactory.getInstance().lacksFactory()) {
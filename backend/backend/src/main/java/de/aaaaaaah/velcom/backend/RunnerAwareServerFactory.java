@@ -2,8 +2,10 @@ package de.aaaaaaah.velcom.backend;
 
 import de.aaaaaaah.velcom.backend.runner.Dispatcher;
 import de.aaaaaaah.velcom.backend.runner.single.protocol.ServerMasterWebsocketServlet;
+import de.aaaaaaah.velcom.runner.shared.protocol.serialization.BinarySerializer;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.Serializer;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.SimpleJsonSerializer;
+import de.aaaaaaah.velcom.runner.shared.protocol.serialization.SmileSerializer;
 import io.dropwizard.jetty.HttpConnectorFactory;
 import io.dropwizard.jetty.MutableServletContextHandler;
 import io.dropwizard.jetty.RoutingHandler;
@@ -32,9 +34,11 @@ public class RunnerAwareServerFactory implements ServerFactory {
 	private GlobalConfig config;
 	private Dispatcher dispatcher;
 	private final Serializer serializer;
+	private final BinarySerializer binarySerializer;
 
 	private RunnerAwareServerFactory() {
 		this.serializer = new SimpleJsonSerializer();
+		this.binarySerializer = new SmileSerializer();
 	}
 
 	@Override
@@ -59,7 +63,9 @@ public class RunnerAwareServerFactory implements ServerFactory {
 		MutableServletContextHandler handler = new MutableServletContextHandler();
 		handler.getServletContext().addServlet(
 			"Runner Websocket servlet",
-			new ServerMasterWebsocketServlet(dispatcher, serializer, config.getRunnerToken())
+			new ServerMasterWebsocketServlet(
+				dispatcher, serializer, binarySerializer, config.getRunnerToken()
+			)
 		)
 			.addMapping("/runner-connector");
 		handlerMap.put(connector, handler);
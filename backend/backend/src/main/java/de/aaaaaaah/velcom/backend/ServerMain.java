@@ -10,9 +10,10 @@ import de.aaaaaaah.velcom.backend.access.TokenWriteAccess;
 import de.aaaaaaah.velcom.backend.access.entities.AuthToken;
 import de.aaaaaaah.velcom.backend.access.entities.RemoteUrl;
 import de.aaaaaaah.velcom.backend.data.commitcomparison.CommitComparer;
+import de.aaaaaaah.velcom.backend.data.linearlog.CachedLinearLog;
 import de.aaaaaaah.velcom.backend.data.linearlog.CommitAccessBasedLinearLog;
-import de.aaaaaaah.velcom.backend.data.linearlog.LinearLog;
-import de.aaaaaaah.velcom.backend.data.queue.PolicyManualFilo;
+import de.aaaaaaah.velcom.backend.data.onboarding.RepoOnboarding;
+import de.aaaaaaah.velcom.backend.data.queue.ConcurrentPolicyManualFilo;
 import de.aaaaaaah.velcom.backend.data.queue.Queue;
 import de.aaaaaaah.velcom.backend.data.repocomparison.RepoComparison;
 import de.aaaaaaah.velcom.backend.data.repocomparison.TimesliceComparison;
@@ -23,6 +24,7 @@ import de.aaaaaaah.velcom.backend.restapi.endpoints.AllReposEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.CommitCompareEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.CommitHistoryEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.MeasurementsEndpoint;
+import de.aaaaaaah.velcom.backend.restapi.endpoints.PushHookEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.QueueEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.RecentlyBenchmarkedCommitsEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.RepoComparisonGraphEndpoint;
@@ -116,8 +118,11 @@ public class ServerMain extends Application<GlobalConfig> {
 		RepoWriteAccess repoAccess = new RepoWriteAccess(
 			databaseStorage,
 			repoStorage,
+			commitAccess,
 			new RemoteUrl(configuration.getBenchmarkRepoRemoteUrl()),
-			Paths.get(configuration.getArchivesRootDir())
+			Paths.get(configuration.getArchivesRootDir()),
+			configuration.getArchiveCacheMaxBytes(),
+			configuration.isArchiveWithGitDir()
 		);
 		TokenWriteAccess tokenAccess = new TokenWriteAccess(
 			databaseStorage,
@@ -128,10 +133,14 @@ public class ServerMain extends Application<GlobalConfig> {
 
 		// Data layer
 		CommitComparer commitComparer = new CommitComparer(configuration.getSignificantFactor());
-		LinearLog linearLog = new CommitAccessBasedLinearLog(commitAccess, repoAccess);
+		CachedLinearLog linearLog = new CachedLinearLog(
+			new CommitAccessBasedLinearLog(commitAccess, repoAccess),
+			commitAccess,
+			repoAccess
+		);
 		RepoComparison repoComparison = new TimesliceComparison(commitAccess, benchmarkAccess);
 
-		Queue queue = new Queue(knownCommitAccess, new PolicyManualFilo());
+		Queue queue = new Queue(knownCommitAccess, new ConcurrentPolicyManualFilo());
 		knownCommitAccess.getAllCommitsRequiringBenchmark()
 			.stream()
 			.map((repoIdHashPair ->
@@ -141,15 +150,20 @@ public class ServerMain extends Application<GlobalConfig> {
 
 		// Listener
 		Listener listener = new Listener(
-			configuration, repoAccess, commitAccess, knownCommitAccess, queue
+			configuration, repoAccess, commitAccess, knownCommitAccess, linearLog, queue
 		);
 
+		// Onboarding
+		RepoOnboarding repoOnboarding = new RepoOnboarding(repoAccess, tokenAccess, listener);
+
 		// Dispatcher
 		Dispatcher dispatcher = new DispatcherImpl(
 			queue,
 			repoAccess,
 			benchmarkAccess,
-			configuration.getDisconnectedRunnerGracePeriod()
+			configuration.getDisconnectedRunnerGracePeriod(),
+			configuration.isPrefetchWork(),
+			configuration.getPrefetchMaxBytesPerSecond()
 		);
 		RunnerAwareServerFactory.getInstance().setDispatcher(dispatcher);
 
@@ -169,8 +183,10 @@ public class ServerMain extends Application<GlobalConfig> {
 		environment.jersey().register(
 			new CommitCompareEndpoint(benchmarkAccess, commitAccess, commitComparer, linearLog));
 		environment.jersey().register(
-			new CommitHistoryEndpoint(benchmarkAccess, repoAccess, linearLog, commitComparer));
+			new CommitHistoryEndpoint(benchmarkAccess, commitAccess, repoAccess, linearLog,
+				commitComparer));
 		environment.jersey().register(new MeasurementsEndpoint(benchmarkAccess));
+		environment.jersey().register(new PushHookEndpoint(repoAccess, listener));
 		environment.jersey()
 			.register(new QueueEndpoint(commitAccess, queue, dispatcher, linearLog, repoAccess));
 		environment.jersey().register(
@@ -178,7 +194,7 @@ public class ServerMain extends Application<GlobalConfig> {
 				benchmarkAccess, commitAccess, commitComparer, linearLog));
 		environment.jersey().register(new RepoComparisonGraphEndpoint(repoComparison));
 		environment.jersey().register(new RepoEndpoint(
-			repoAccess, tokenAccess, queue, listener, benchmarkAccess));
+			repoAccess, tokenAccess, queue, repoOnboarding, benchmarkAccess));
 		environment.jersey().register(new TestTokenEndpoint());
 	}
 
@@ -15,12 +15,16 @@ import de.aaaaaaah.velcom.backend.access.entities.Interpretation;
 import de.aaaaaaah.velcom.backend.access.entities.Measurement;
 import de.aaaaaaah.velcom.backend.access.entities.MeasurementError;
 import de.aaaaaaah.velcom.backend.access.entities.MeasurementName;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementSeries;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementSeriesBuilder;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementStatistics;
 import de.aaaaaaah.velcom.backend.access.entities.MeasurementValues;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import de.aaaaaaah.velcom.backend.access.entities.Run;
 import de.aaaaaaah.velcom.backend.access.entities.RunId;
 import de.aaaaaaah.velcom.backend.access.entities.Unit;
 import de.aaaaaaah.velcom.backend.storage.db.DatabaseStorage;
+import de.aaaaaaah.velcom.backend.util.Pair;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -33,7 +37,11 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.Result;
 import org.jooq.codegen.db.tables.records.RunMeasurementRecord;
 import org.jooq.codegen.db.tables.records.RunRecord;
 
@@ -45,12 +53,21 @@ public class BenchmarkReadAccess {
 	protected static final Caffeine<Object, Object> RUN_CACHE_BUILDER = Caffeine.newBuilder()
 		.maximumSize(10000);
 	protected static final int RECENT_RUN_CACHE_SIZE = 10;
+	protected static final Caffeine<Object, Object> SERIES_CACHE_BUILDER = Caffeine.newBuilder()
+		.maximumSize(1000);
+	protected static final Caffeine<Object, Object> LATEST_RUN_CACHE_BUILDER = Caffeine.newBuilder()
+		.maximumSize(100);
 
 	protected final DatabaseStorage databaseStorage;
 
 	protected final Map<RepoId, Cache<CommitHash, Run>> runCache = new ConcurrentHashMap<>();
 	protected final List<Run> recentRunCache = new ArrayList<>();
 	protected final Comparator<Run> recentRunCacheOrder = comparing(Run::getStartTime).reversed();
+	protected final Cache<Pair<RepoId, MeasurementName>, MeasurementSeries> seriesCache =
+		SERIES_CACHE_BUILDER.build();
+	// Unlike the runs in the run cache, these runs include the individual values
+	protected final Cache<Pair<RepoId, CommitHash>, Run> latestRunCache =
+		LATEST_RUN_CACHE_BUILDER.build();
 
 	public BenchmarkReadAccess(DatabaseStorage databaseStorage) {
 		this.databaseStorage = Objects.requireNonNull(databaseStorage);
@@ -60,7 +77,8 @@ public class BenchmarkReadAccess {
 	}
 
 	/**
-	 * Gets the most recent runs ordered by their start time.
+	 * Gets the most recent runs ordered by their start time. The measurements of the runs only
+	 * contain the {@link MeasurementStatistics}, not the individual values.
 	 *
 	 * @param skip how many recent runs to skip
 	 * @param amount how many recent runs to collect
@@ -95,13 +113,13 @@ public class BenchmarkReadAccess {
 			int dbSkip = Math.max(skip, recentRunCache.size());
 			int dbAmount = amount - runList.size();
 
-			try (DSLContext db = databaseStorage.acquireContext()) {
+			try (DSLContext db = databaseStorage.acquireReadContext()) {
 				Map<String, RunRecord> runRecordMap = db.selectFrom(RUN)
 					.orderBy(RUN.START_TIME.desc())
 					.limit(dbSkip, dbAmount)
 					.fetchMap(RUN.ID);
 
-				runList.addAll(loadRunData(db, runRecordMap));
+				runList.addAll(loadRunData(db, runRecordMap, false));
 			}
 		}
 
@@ -110,7 +128,8 @@ public class BenchmarkReadAccess {
 	}
 
 	/**
-	 * Gets the latest run for the given commit
+	 * Gets the latest run for the given commit. In contrast to the other methods, the run's
+	 * measurements include their individual values.
 	 *
 	 * @param repoId the id of the repository
 	 * @param commitHash the hash of the commit
@@ -118,13 +137,29 @@ public class BenchmarkReadAccess {
 	 * 	exists yet.
 	 */
 	public Optional<Run> getLatestRun(RepoId repoId, CommitHash commitHash) {
-		Map<CommitHash, Run> resultMap = getLatestRuns(repoId, List.of(commitHash));
-		return resultMap.containsKey(commitHash) ? Optional.of(resultMap.get(commitHash))
-			: Optional.empty();
+		// Commits without a run are not cached, they will likely get one soon
+		return Optional.ofNullable(latestRunCache.get(
+			new Pair<>(repoId, commitHash),
+			key -> loadLatestRun(repoId, commitHash).orElse(null)
+		));
+	}
+
+	private Optional<Run> loadLatestRun(RepoId repoId, CommitHash commitHash) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
+			Map<String, RunRecord> runRecordMap = db.selectFrom(RUN)
+				.where(RUN.REPO_ID.eq(repoId.getId().toString()))
+				.and(RUN.COMMIT_HASH.eq(commitHash.getHash()))
+				.orderBy(RUN.START_TIME.desc())
+				.limit(1)
+				.fetchMap(RUN.ID);
+
+			return loadRunData(db, runRecordMap, true).stream().findAny();
+		}
 	}
 
 	/**
-	 * Gets the latest runs for the given commits.
+	 * Gets the latest runs for the given commits. The measurements of the runs only contain the
+	 * {@link MeasurementStatistics}, not the individual values.
 	 *
 	 * @param repoId the id of the repository that the commits are from
 	 * @param commitHashes the hashes of the commits
@@ -147,14 +182,14 @@ public class BenchmarkReadAccess {
 			.collect(toSet());
 
 		if (!uncachedCommitHashes.isEmpty()) {
-			try (DSLContext db = databaseStorage.acquireContext()) {
+			try (DSLContext db = databaseStorage.acquireReadContext()) {
 				// Get all data from database
 				Map<String, RunRecord> runRecordMap = db.selectFrom(RUN)
 					.where(RUN.REPO_ID.eq(repoId.getId().toString()))
 					.and(RUN.COMMIT_HASH.in(uncachedCommitHashes))
 					.fetchMap(RUN.ID);
 
-				loadRunData(db, runRecordMap).forEach(run -> {
+				loadRunData(db, runRecordMap, false).forEach(run -> {
 					resultMap.put(run.getCommitHash(), run);
 
 					// Insert run into cache
@@ -173,7 +208,7 @@ public class BenchmarkReadAccess {
 	 * @return a collection of measurements
 	 */
 	public Collection<MeasurementName> getAvailableMeasurements(RepoId repoId) {
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			return db.selectDistinct(RUN_MEASUREMENT.BENCHMARK, RUN_MEASUREMENT.METRIC)
 				.from(RUN_MEASUREMENT)
 				.join(RUN).on(RUN_MEASUREMENT.RUN_ID.eq(RUN.ID))
@@ -184,16 +219,73 @@ public class BenchmarkReadAccess {
 		}
 	}
 
-	private List<Run> loadRunData(DSLContext db, Map<String, RunRecord> runRecordMap) {
+	/**
+	 * Gets the values of a measurement over time. Each commit is represented by the values of its
+	 * most recent run that successfully produced the measurement.
+	 *
+	 * <p> Prefer this over loading whole runs if only a single measurement is of interest.
+	 *
+	 * @param repoId the id of the repository
+	 * @param measurementName the name of the measurement
+	 * @return the series, or {@link Optional#empty()} if no run successfully produced the
+	 * 	measurement yet
+	 */
+	public Optional<MeasurementSeries> getMeasurementSeries(RepoId repoId,
+		MeasurementName measurementName) {
+
+		return Optional.ofNullable(seriesCache.get(
+			new Pair<>(repoId, measurementName),
+			key -> loadMeasurementSeries(repoId, measurementName).orElse(null)
+		));
+	}
+
+	private Optional<MeasurementSeries> loadMeasurementSeries(RepoId repoId,
+		MeasurementName measurementName) {
+
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
+			Condition isSeriesMeasurement = RUN.REPO_ID.eq(repoId.getId().toString())
+				.and(RUN_MEASUREMENT.BENCHMARK.eq(measurementName.getBenchmark()))
+				.and(RUN_MEASUREMENT.METRIC.eq(measurementName.getMetric()))
+				.and(RUN_MEASUREMENT.ERROR_MESSAGE.isNull());
+
+			// 1.) Load the statistics of the measurements along with the commit and start time of
+			// their run
+			Result<Record> records = db.select(RUN.COMMIT_HASH, RUN.START_TIME)
+				.select(RUN_MEASUREMENT.fields())
+				.from(RUN_MEASUREMENT)
+				.join(RUN).on(RUN_MEASUREMENT.RUN_ID.eq(RUN.ID))
+				.where(isSeriesMeasurement)
+				.fetch();
+
+			// 2.) Build series
+			MeasurementSeriesBuilder builder = new MeasurementSeriesBuilder(repoId, measurementName);
+
+			for (Record record : records) {
+				builder.addValues(
+					new CommitHash(record.get(RUN.COMMIT_HASH)),
+					record.get(RUN.START_TIME).toInstant(),
+					loadMeasurementValues(record.into(RUN_MEASUREMENT), null)
+				);
+			}
+
+			return builder.build();
+		}
+	}
+
+	private List<Run> loadRunData(DSLContext db, Map<String, RunRecord> runRecordMap,
+		boolean withValues) {
+
 		// 1.) Load measurements from database
 		Map<String, RunMeasurementRecord> measurementRecordMap = db.selectFrom(RUN_MEASUREMENT)
 			.where(RUN_MEASUREMENT.RUN_ID.in(runRecordMap.keySet()))
 			.fetchMap(RUN_MEASUREMENT.ID);
 
-		// 2.) Load measurement values from database
-		Map<String, List<Double>> valueMap = db.selectFrom(RUN_MEASUREMENT_VALUE)
+		// 2.) Load measurement values from database, if they are needed at all
+		Map<String, List<Double>> valueMap = withValues
+			? db.selectFrom(RUN_MEASUREMENT_VALUE)
 			.where(RUN_MEASUREMENT_VALUE.MEASUREMENT_ID.in(measurementRecordMap.keySet()))
-			.fetchGroups(RUN_MEASUREMENT_VALUE.MEASUREMENT_ID, RUN_MEASUREMENT_VALUE.VALUE);
+			.fetchGroups(RUN_MEASUREMENT_VALUE.MEASUREMENT_ID, RUN_MEASUREMENT_VALUE.VALUE)
+			: Map.of();
 
 		// 3.) Create measurement entities
 		Map<RunId, List<Measurement>> runToMeasurementMap = new HashMap<>();
@@ -213,13 +305,9 @@ public class BenchmarkReadAccess {
 				var measurementError = new MeasurementError(measurementRecord.getErrorMessage());
 				measurement = new Measurement(runId, measurementName, measurementError);
 			} else {
-				List<Double> values = valueMap.get(measurementRecord.getId());
-				Unit unit = new Unit(measurementRecord.getUnit());
-				Interpretation interpretation = Interpretation.fromTextualRepresentation(
-					measurementRecord.getInterpretation()
+				var measurementValues = loadMeasurementValues(
+					measurementRecord, valueMap.get(measurementRecord.getId())
 				);
-
-				var measurementValues = new MeasurementValues(values, unit, interpretation);
 				measurement = new Measurement(runId, measurementName, measurementValues);
 			}
 
@@ -263,6 +351,59 @@ public class BenchmarkReadAccess {
 			.collect(toList());
 	}
 
+	private static MeasurementValues loadMeasurementValues(RunMeasurementRecord record,
+		@Nullable List<Double> values) {
+
+		MeasurementStatistics statistics = new MeasurementStatistics(
+			record.getValueCount(),
+			record.getValueAverage(),
+			record.getValueMedian(),
+			record.getValueMin(),
+			record.getValueMax(),
+			record.getValueStddev()
+		);
+
+		return new MeasurementValues(
+			statistics,
+			values,
+			new Unit(record.getUnit()),
+			Interpretation.fromTextualRepresentation(record.getInterpretation())
+		);
+	}
+
+	/**
+	 * Removes the individual values from all measurements of a run, so that it matches the runs
+	 * loaded from the database.
+	 *
+	 * @param run the run
+	 * @return the run without any individual measurement values
+	 */
+	protected static Run withoutValues(Run run) {
+		if (run.getMeasurements().isEmpty()) {
+			return run;
+		}
+
+		List<Measurement> measurements = run.getMeasurements().get().stream()
+			.map(measurement -> measurement.getContent().getRight()
+				.map(values -> new Measurement(
+					measurement.getRunId(),
+					measurement.getMeasurementName(),
+					values.withoutValues()
+				))
+				.orElse(measurement)
+			)
+			.collect(toList());
+
+		return new Run(
+			run.getId(),
+			run.getRepoId(),
+			run.getCommitHash(),
+			run.getStartTime(),
+			run.getStopTime(),
+			measurements
+		);
+	}
+
 	protected void reloadRecentRunCache() {
 		synchronized (this.recentRunCache) {
 			this.recentRunCache.clear();
@@ -11,18 +11,26 @@ import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.entities.Measurement;
 import de.aaaaaaah.velcom.backend.access.entities.MeasurementError;
 import de.aaaaaaah.velcom.backend.access.entities.MeasurementName;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementSeriesBuilder;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementStatistics;
 import de.aaaaaaah.velcom.backend.access.entities.MeasurementValues;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import de.aaaaaaah.velcom.backend.access.entities.Run;
 import de.aaaaaaah.velcom.backend.storage.db.DatabaseStorage;
+import de.aaaaaaah.velcom.backend.util.Pair;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import org.jooq.BatchBindStep;
 import org.jooq.DSLContext;
+import org.jooq.Table;
+import org.jooq.TableRecord;
 import org.jooq.codegen.db.tables.records.RunMeasurementRecord;
+import org.jooq.codegen.db.tables.records.RunMeasurementValueRecord;
 import org.jooq.codegen.db.tables.records.RunRecord;
+import org.jooq.impl.DSL;
 
 public class BenchmarkWriteAccess extends BenchmarkReadAccess {
 
@@ -36,81 +44,164 @@ public class BenchmarkWriteAccess extends BenchmarkReadAccess {
 	 * @param run the run to insert
 	 */
 	public void insertRun(Run run) {
-		try (DSLContext db = databaseStorage.acquireContext()) {
-			// 1.) Insert run into database
-			RunRecord runRecord = db.newRecord(RUN);
+		insertRuns(List.of(run));
+	}
+
+	/**
+	 * Inserts the specified runs into the database. All runs are inserted in a single transaction:
+	 * Either all of them are stored or none of them are.
+	 *
+	 * <p> Rows are written using batched inserts, so this is considerably faster than inserting
+	 * the runs one by one. Prefer it when importing many runs at once.
+	 *
+	 * @param runs the runs to insert
+	 */
+	public void insertRuns(Collection<Run> runs) {
+		if (runs.isEmpty()) {
+			return;
+		}
+
+		List<RunRecord> runRecords = new ArrayList<>();
+		List<RunMeasurementRecord> measurementRecords = new ArrayList<>();
+		List<RunMeasurementValueRecord> valueRecords = new ArrayList<>();
+
+		for (Run run : runs) {
+			RunRecord runRecord = new RunRecord();
 			runRecord.setId(run.getId().getId().toString());
 			runRecord.setRepoId(run.getRepoId().getId().toString());
 			runRecord.setCommitHash(run.getCommitHash().getHash());
 			runRecord.setStartTime(Timestamp.from(run.getStartTime()));
 			runRecord.setStopTime(Timestamp.from(run.getStopTime()));
 			runRecord.setErrorMessage(run.getErrorMessage().orElse(null));
+			runRecords.add(runRecord);
 
-			runRecord.insert();
-
-			// 2.) Insert measurements into database
-			if (run.getMeasurements().isPresent()) {
-				Collection<Measurement> measurements = run.getMeasurements().get();
-
-				for (Measurement measurement : measurements) {
-					String measurementId = UUID.randomUUID().toString();
-
-					RunMeasurementRecord measurementRecord = db.newRecord(RUN_MEASUREMENT);
-					measurementRecord.setId(measurementId);
-					measurementRecord.setRunId(run.getId().getId().toString());
-					measurementRecord.setBenchmark(measurement.getMeasurementName().getBenchmark());
-					measurementRecord.setMetric(measurement.getMeasurementName().getMetric());
-
-					if (measurement.getContent().isLeft()) {
-						MeasurementError error = measurement.getContent().getLeft().orElseThrow();
-
-						measurementRecord.setErrorMessage(error.getErrorMessage());
-						measurementRecord.insert();
-					} else {
-						MeasurementValues values = measurement.getContent().getRight()
-							.orElseThrow();
-
-						measurementRecord.setUnit(values.getUnit().getName());
-						measurementRecord.setInterpretation(
-							values.getInterpretation().getTextualRepresentation()
-						);
-						measurementRecord.insert();
-
-						// 2.1.) Insert values into database
-						var valuesInsertStep = db.insertInto(RUN_MEASUREMENT_VALUE)
-							.columns(
-								RUN_MEASUREMENT_VALUE.MEASUREMENT_ID,
-								RUN_MEASUREMENT_VALUE.VALUE
-							);
-
-						values.getValues().forEach(value -> valuesInsertStep.values(
-							measurementId, value
-						));
-
-						valuesInsertStep.execute();
-					}
-				}
+			if (run.getMeasurements().isEmpty()) {
+				continue;
 			}
 
-			// 3.) Insert run into cache
-			synchronized (recentRunCache) {
-				recentRunCache.add(run);
+			for (Measurement measurement : run.getMeasurements().get()) {
+				String measurementId = UUID.randomUUID().toString();
+
+				RunMeasurementRecord measurementRecord = new RunMeasurementRecord();
+				measurementRecord.setId(measurementId);
+				measurementRecord.setRunId(run.getId().getId().toString());
+				measurementRecord.setBenchmark(measurement.getMeasurementName().getBenchmark());
+				measurementRecord.setMetric(measurement.getMeasurementName().getMetric());
 
-				// Need to sort again because this run may have been started before
-				// the most recent run that is already in the cache
-				recentRunCache.sort(recentRunCacheOrder);
+				if (measurement.getContent().isLeft()) {
+					MeasurementError error = measurement.getContent().getLeft().orElseThrow();
 
-				while (recentRunCache.size() > RECENT_RUN_CACHE_SIZE) {
-					recentRunCache.remove(recentRunCache.size() - 1);
+					measurementRecord.setErrorMessage(error.getErrorMessage());
+				} else {
+					MeasurementValues values = measurement.getContent().getRight().orElseThrow();
+
+					MeasurementStatistics statistics = values.getStatistics();
+
+					measurementRecord.setUnit(values.getUnit().getName());
+					measurementRecord.setInterpretation(
+						values.getInterpretation().getTextualRepresentation()
+					);
+					measurementRecord.setValueCount(statistics.getCount());
+					measurementRecord.setValueAverage(statistics.getAverage());
+					measurementRecord.setValueMedian(statistics.getMedian());
+					measurementRecord.setValueMin(statistics.getMin());
+					measurementRecord.setValueMax(statistics.getMax());
+					measurementRecord.setValueStddev(statistics.getStandardDeviation());
+
+					values.getValues().orElse(List.of()).forEach(value -> valueRecords.add(
+						new RunMeasurementValueRecord(measurementId, value)
+					));
 				}
+
+				measurementRecords.add(measurementRecord);
+			}
+		}
+
+		// 1.) Insert runs, measurements and values into database
+		try (DSLContext db = databaseStorage.acquireWriteContext()) {
+			db.transaction(configuration -> {
+				DSLContext ts = DSL.using(configuration);
+
+				insertBatched(ts, RUN, runRecords);
+				insertBatched(ts, RUN_MEASUREMENT, measurementRecords);
+				insertBatched(ts, RUN_MEASUREMENT_VALUE, valueRecords);
+			});
+		}
+
+		// 2.) Insert runs into cache, now that they are committed. Cached runs never contain
+		// individual values, just like the ones loaded from the database.
+		List<Run> cachedRuns = runs.stream()
+			.map(BenchmarkReadAccess::withoutValues)
+			.collect(toList());
+
+		synchronized (recentRunCache) {
+			recentRunCache.addAll(cachedRuns);
+
+			// Need to sort again because these runs may have been started before
+			// the most recent run that is already in the cache
+			recentRunCache.sort(recentRunCacheOrder);
+
+			while (recentRunCache.size() > RECENT_RUN_CACHE_SIZE) {
+				recentRunCache.remove(recentRunCache.size() - 1);
 			}
+		}
 
+		for (Run run : cachedRuns) {
 			final Cache<CommitHash, Run> cache = runCache.computeIfAbsent(run.getRepoId(),
 				r -> RUN_CACHE_BUILDER.build()
 			);
 
 			cache.put(run.getCommitHash(), run);
+			latestRunCache.invalidate(new Pair<>(run.getRepoId(), run.getCommitHash()));
+		}
+
+		// 3.) Extend already loaded series. Series that are not loaded yet will pick up the new
+		// runs from the database once they are requested.
+		for (Run run : runs) {
+			if (run.getMeasurements().isEmpty()) {
+				continue;
+			}
+
+			for (Measurement measurement : run.getMeasurements().get()) {
+				measurement.getContent().getRight().ifPresent(values -> seriesCache.asMap()
+					.computeIfPresent(
+						new Pair<>(run.getRepoId(), measurement.getMeasurementName()),
+						(key, series) -> MeasurementSeriesBuilder.from(series)
+							.addValues(run.getCommitHash(), run.getStartTime(), values)
+							.build()
+							.orElseThrow()
+					)
+				);
+			}
+		}
+	}
+
+	/**
+	 * Inserts the records using a single prepared statement that is executed as a JDBC batch, so
+	 * the SQL only needs to be rendered and prepared once instead of once per row.
+	 *
+	 * @param db the context to insert with
+	 * @param table the table to insert into
+	 * @param records the records to insert. All of them must belong to the given table.
+	 * @param <R> the record type
+	 */
+	private static <R extends TableRecord<R>> void insertBatched(DSLContext db, Table<R> table,
+		List<R> records) {
+
+		if (records.isEmpty()) {
+			return;
 		}
+
+		Object[] placeholders = new Object[table.fields().length];
+		BatchBindStep batch = db.batch(
+			db.insertInto(table).columns(table.fields()).values(placeholders)
+		);
+
+		for (R record : records) {
+			batch = batch.bind(record.intoArray());
+		}
+
+		batch.execute();
 	}
 
 	/**
@@ -123,7 +214,7 @@ public class BenchmarkWriteAccess extends BenchmarkReadAccess {
 	 */
 	public void deleteAllMeasurementsOfName(RepoId repoId, MeasurementName measurementName) {
 		// Update database
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireWriteContext()) {
 			db.deleteFrom(RUN_MEASUREMENT)
 				.where(
 					exists(db.selectOne().from(RUN)
@@ -145,6 +236,10 @@ public class BenchmarkWriteAccess extends BenchmarkReadAccess {
 			recentRunCache.sort(recentRunCacheOrder);
 		}
 
+		// Drop series and latest run caches
+		seriesCache.invalidate(new Pair<>(repoId, measurementName));
+		latestRunCache.asMap().keySet().removeIf(key -> key.getFirst().equals(repoId));
+
 		// Update repo run cache
 		Cache<CommitHash, Run> repoRunCache = runCache.computeIfAbsent(repoId,
 			i -> RUN_CACHE_BUILDER.build());
@@ -177,12 +272,16 @@ public class BenchmarkWriteAccess extends BenchmarkReadAccess {
 	 * @param repoId the id of the repository
 	 */
 	public void deleteAllRunsOfRepo(RepoId repoId) {
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireWriteContext()) {
 			db.deleteFrom(RUN).where(RUN.REPO_ID.eq(repoId.getId().toString()));
 		}
 
 		// Invalidate recent run cache and reload it from database
 		this.reloadRecentRunCache();
+
+		// Invalidate series cache
+		seriesCache.asMap().keySet().removeIf(key -> key.getFirst().equals(repoId));
+		latestRunCache.asMap().keySet().removeIf(key -> key.getFirst().equals(repoId));
 	}
 
 }
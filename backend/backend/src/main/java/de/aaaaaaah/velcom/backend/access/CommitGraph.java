@@ -0,0 +1,442 @@
+package de.aaaaaaah.velcom.backend.access;
+
+import de.aaaaaaah.velcom.backend.access.entities.BranchName;
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * An immutable in-memory index of the commit graph of a repository. It contains the structure of
+ * all commits reachable from the repo's branches, but none of their messages, authors etc.
+ *
+ * <p> Every commit is assigned a dense int id. Ids are assigned in topological order, so a
+ * commit's id is always larger than the ids of all its parents. Parent ids, author and committer
+ * times are stored in primitive arrays indexed by that id. Commits are also indexed by their
+ * author time, which allows for time range queries in O(log n).
+ *
+ * <p> Instances are obtained via {@link CommitReadAccess#getCommitGraph(RepoId)}. Once a repo is
+ * fetched, a new graph is derived from the old one by only walking the new commits.
+ */
+public class CommitGraph {
+
+	private final RepoId repoId;
+
+	private final CommitHash[] hashes;
+	private final int[] parentOffsets;
+	private final int[] parentIds;
+	private final long[] authorTimes;
+	private final long[] committerTimes;
+	private final int[] idsByAuthorTime;
+
+	private final Map<CommitHash, Integer> ids;
+	private final Map<BranchName, Integer> branchHeads;
+
+	private CommitGraph(RepoId repoId, CommitHash[] hashes, int[] parentOffsets, int[] parentIds,
+		long[] authorTimes, long[] committerTimes, int[] idsByAuthorTime, Map<CommitHash, Integer> ids,
+		Map<BranchName, Integer> branchHeads) {
+
+		this.repoId = repoId;
+		this.hashes = hashes;
+		this.parentOffsets = parentOffsets;
+		this.parentIds = parentIds;
+		this.authorTimes = authorTimes;
+		this.committerTimes = committerTimes;
+		this.idsByAuthorTime = idsByAuthorTime;
+		this.ids = ids;
+		this.branchHeads = branchHeads;
+	}
+
+	/**
+	 * Creates a graph without any commits or branches.
+	 *
+	 * @param repoId the repo the graph belongs to
+	 * @return the empty graph
+	 */
+	static CommitGraph empty(RepoId repoId) {
+		return new CommitGraph(
+			Objects.requireNonNull(repoId),
+			new CommitHash[0],
+			new int[1],
+			new int[0],
+			new long[0],
+			new long[0],
+			new int[0],
+			Collections.emptyMap(),
+			Collections.emptyMap()
+		);
+	}
+
+	public RepoId getRepoId() {
+		return repoId;
+	}
+
+	/**
+	 * @return the amount of commits in this graph. All ids are in the range {@code [0, size())}.
+	 */
+	public int size() {
+		return hashes.length;
+	}
+
+	/**
+	 * Finds the id of a commit.
+	 *
+	 * @param commitHash the hash of the commit
+	 * @return the commit's id, or {@link OptionalInt#empty()} if the commit is not part of the graph
+	 */
+	public OptionalInt getId(CommitHash commitHash) {
+		Integer id = ids.get(commitHash);
+		return id == null ? OptionalInt.empty() : OptionalInt.of(id);
+	}
+
+	public CommitHash getHash(int id) {
+		return hashes[id];
+	}
+
+	/**
+	 * @param id the id of the commit
+	 * @return the ids of the commit's parents, in the order they are listed in the commit
+	 */
+	public int[] getParentIds(int id) {
+		return Arrays.copyOfRange(parentIds, parentOffsets[id], parentOffsets[id + 1]);
+	}
+
+	public Instant getAuthorTime(int id) {
+		return Instant.ofEpochMilli(authorTimes[id]);
+	}
+
+	public Instant getCommitterTime(int id) {
+		return Instant.ofEpochMilli(committerTimes[id]);
+	}
+
+	/**
+	 * @return the id of the commit every branch of the repo points to
+	 */
+	public Map<BranchName, Integer> getBranchHeads() {
+		return branchHeads;
+	}
+
+	/**
+	 * Finds all commits reachable from (and including) the heads of the given branches. Branches
+	 * that don't exist in the repo are ignored.
+	 *
+	 * @param branches the branches to start at
+	 * @return a set containing the ids of all reachable commits
+	 */
+	public BitSet getReachableFrom(Collection<BranchName> branches) {
+		BitSet reachable = new BitSet(size());
+
+		for (BranchName branch : branches) {
+			Integer head = branchHeads.get(branch);
+			if (head != null) {
+				reachable.set(head);
+			}
+		}
+
+		// Parents always have smaller ids than their children, so a single sweep from the top
+		// visits every commit after all of its children
+		for (int id = reachable.length() - 1; id >= 0; id = reachable.previousSetBit(id - 1)) {
+			for (int i = parentOffsets[id]; i < parentOffsets[id + 1]; i++) {
+				reachable.set(parentIds[i]);
+			}
+		}
+
+		return reachable;
+	}
+
+	/**
+	 * Orders the commits reachable from the given branches like jgit's log command does, without
+	 * walking the repo. Starting at the branch heads, the pending commit with the most recent
+	 * committer time is always returned next and its parents become pending. Commits with equal
+	 * committer times are returned in the order they became pending.
+	 *
+	 * @param branches the branches to start at, in the order they are added to the log. Branches
+	 * 	that don't exist in the repo are ignored.
+	 * @return the ids of all reachable commits, starting with the most recent one
+	 */
+	public int[] getLogOrder(List<BranchName> branches) {
+		BitSet seen = new BitSet(size());
+		int[] pendingSince = new int[size()];
+		PriorityQueue<Integer> pending = new PriorityQueue<>(
+			Comparator.comparingLong((Integer id) -> -committerTimes[id])
+				.thenComparingInt(id -> pendingSince[id])
+		);
+		int pendingCount = 0;
+
+		for (BranchName branch : branches) {
+			Integer head = branchHeads.get(branch);
+			if (head != null && !seen.get(head)) {
+				seen.set(head);
+				pendingSince[head] = pendingCount++;
+				pending.add(head);
+			}
+		}
+
+		int[] order = new int[size()];
+		int orderLength = 0;
+
+		while (!pending.isEmpty()) {
+			int id = pending.poll();
+			order[orderLength++] = id;
+
+			for (int i = parentOffsets[id]; i < parentOffsets[id + 1]; i++) {
+				int parentId = parentIds[i];
+				if (!seen.get(parentId)) {
+					seen.set(parentId);
+					pendingSince[parentId] = pendingCount++;
+					pending.add(parentId);
+				}
+			}
+		}
+
+		return Arrays.copyOf(order, orderLength);
+	}
+
+	/**
+	 * Finds all commits authored strictly between two points in time. This uses the author time
+	 * index and runs in O(log n + k), where k is the amount of matching commits.
+	 *
+	 * @param startTime the exclusive lower bound. If null, the author time is not limited in that
+	 * 	direction.
+	 * @param stopTime the exclusive upper bound. If null, the author time is not limited in that
+	 * 	direction.
+	 * @return the ids of the matching commits, ordered by their author time (oldest first)
+	 */
+	public int[] getIdsAuthoredBetween(@Nullable Instant startTime, @Nullable Instant stopTime) {
+		int from = startTime == null ? 0 : firstAuthoredAfter(startTime.toEpochMilli());
+		int to = stopTime == null ? size() : firstAuthoredAfter(stopTime.toEpochMilli() - 1);
+
+		if (from >= to) {
+			return new int[0];
+		}
+
+		return Arrays.copyOfRange(idsByAuthorTime, from, to);
+	}
+
+	/**
+	 * @param time a point in time in epoch milliseconds
+	 * @return the first position in the author time index whose commit was authored after the
+	 * 	given time
+	 */
+	private int firstAuthoredAfter(long time) {
+		int low = 0;
+		int high = size();
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (authorTimes[idsByAuthorTime[middle]] <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Brings this graph up to date with the branches of the repository. Only commits that are not
+	 * reachable from the branch heads known to this graph are walked.
+	 *
+	 * <p> Commits that are no longer reachable (e. g. after a force push) are kept in the graph,
+	 * but they are not reachable from any branch head anymore.
+	 *
+	 * @param repo the repo this graph belongs to
+	 * @return this graph if the branches didn't change, a new updated graph otherwise
+	 * @throws IOException if the repo could not be read
+	 */
+	CommitGraph update(Repository repo) throws IOException {
+		Map<BranchName, ObjectId> currentHeads = readHeads(repo);
+
+		if (headsEqual(currentHeads)) {
+			return this;
+		}
+
+		Map<CommitHash, Integer> newIds = new HashMap<>(ids);
+		List<RevCommit> newCommits = new ArrayList<>();
+
+		try (RevWalk walk = new RevWalk(repo)) {
+			walk.sort(RevSort.TOPO);
+			walk.sort(RevSort.REVERSE, true);
+
+			for (ObjectId head : currentHeads.values()) {
+				if (!ids.containsKey(new CommitHash(head.getName()))) {
+					walk.markStart(walk.parseCommit(head));
+				}
+			}
+
+			for (int oldHead : branchHeads.values()) {
+				ObjectId oldHeadId = ObjectId.fromString(hashes[oldHead].getHash());
+				try {
+					walk.markUninteresting(walk.parseCommit(oldHeadId));
+				} catch (MissingObjectException ignored) {
+					// The old head was garbage collected after a force push
+				}
+			}
+
+			// Parents are returned before their children
+			for (RevCommit revCommit : walk) {
+				CommitHash hash = new CommitHash(revCommit.getName());
+				if (!newIds.containsKey(hash)) {
+					newIds.put(hash, size() + newCommits.size());
+					newCommits.add(revCommit);
+				}
+			}
+		}
+
+		return extend(newCommits, newIds, currentHeads);
+	}
+
+	/**
+	 * Checks whether the branches of the repository still point to the same commits as in this
+	 * graph. This only reads the repo's refs and doesn't walk any commits.
+	 *
+	 * @param repo the repo this graph belongs to
+	 * @return true if {@link #update(Repository)} would return this graph
+	 * @throws IOException if the repo could not be read
+	 */
+	boolean isUpToDate(Repository repo) throws IOException {
+		return headsEqual(readHeads(repo));
+	}
+
+	private static Map<BranchName, ObjectId> readHeads(Repository repo) throws IOException {
+		Map<BranchName, ObjectId> heads = new HashMap<>();
+		for (Ref ref : repo.getRefDatabase().getRefsByPrefix(Constants.R_HEADS)) {
+			if (ref.getObjectId() != null) {
+				heads.put(BranchName.fromFullName(ref.getName()), ref.getObjectId());
+			}
+		}
+		return heads;
+	}
+
+	private boolean headsEqual(Map<BranchName, ObjectId> heads) {
+		if (heads.size() != branchHeads.size()) {
+			return false;
+		}
+
+		for (Map.Entry<BranchName, ObjectId> entry : heads.entrySet()) {
+			Integer id = branchHeads.get(entry.getKey());
+			if (id == null || !hashes[id].getHash().equals(entry.getValue().getName())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private CommitGraph extend(List<RevCommit> newCommits, Map<CommitHash, Integer> newIds,
+		Map<BranchName, ObjectId> heads) {
+
+		int oldSize = size();
+		int newSize = oldSize + newCommits.size();
+
+		CommitHash[] newHashes = Arrays.copyOf(hashes, newSize);
+		int[] newParentOffsets = Arrays.copyOf(parentOffsets, newSize + 1);
+		long[] newAuthorTimes = Arrays.copyOf(authorTimes, newSize);
+		long[] newCommitterTimes = Arrays.copyOf(committerTimes, newSize);
+
+		int parentCount = parentIds.length;
+		for (RevCommit revCommit : newCommits) {
+			parentCount += revCommit.getParentCount();
+		}
+		int[] newParentIds = Arrays.copyOf(parentIds, parentCount);
+
+		int parentPosition = parentIds.length;
+		for (int i = 0; i < newCommits.size(); i++) {
+			RevCommit revCommit = newCommits.get(i);
+			int id = oldSize + i;
+
+			newHashes[id] = new CommitHash(revCommit.getName());
+			newAuthorTimes[id] = revCommit.getAuthorIdent().getWhen().getTime();
+			newCommitterTimes[id] = revCommit.getCommitterIdent().getWhen().getTime();
+
+			for (RevCommit parent : revCommit.getParents()) {
+				Integer parentId = newIds.get(new CommitHash(parent.getName()));
+				// Parents outside of the graph only exist in shallow repos
+				if (parentId != null) {
+					newParentIds[parentPosition++] = parentId;
+				}
+			}
+			newParentOffsets[id + 1] = parentPosition;
+		}
+		if (parentPosition < parentCount) {
+			newParentIds = Arrays.copyOf(newParentIds, parentPosition);
+		}
+
+		Map<BranchName, Integer> newBranchHeads = new HashMap<>();
+		heads.forEach((branch, head) -> {
+			Integer id = newIds.get(new CommitHash(head.getName()));
+			if (id != null) {
+				newBranchHeads.put(branch, id);
+			}
+		});
+
+		return new CommitGraph(
+			repoId,
+			newHashes,
+			newParentOffsets,
+			newParentIds,
+			newAuthorTimes,
+			newCommitterTimes,
+			mergeAuthorTimeIndex(oldSize, newAuthorTimes),
+			Collections.unmodifiableMap(newIds),
+			Collections.unmodifiableMap(newBranchHeads)
+		);
+	}
+
+	/**
+	 * Adds the ids from {@code oldSize} onwards to the (already sorted) author time index.
+	 */
+	private int[] mergeAuthorTimeIndex(int oldSize, long[] newAuthorTimes) {
+		int newSize = newAuthorTimes.length;
+
+		List<Integer> addedIds = new ArrayList<>(newSize - oldSize);
+		for (int id = oldSize; id < newSize; id++) {
+			addedIds.add(id);
+		}
+		addedIds.sort((a, b) -> Long.compare(newAuthorTimes[a], newAuthorTimes[b]));
+
+		int[] merged = new int[newSize];
+		int oldPos = 0;
+		int addedPos = 0;
+		for (int i = 0; i < newSize; i++) {
+			boolean takeOld = addedPos >= addedIds.size() || (oldPos < oldSize
+				&& newAuthorTimes[idsByAuthorTime[oldPos]] <= newAuthorTimes[addedIds.get(addedPos)]);
+
+			merged[i] = takeOld ? idsByAuthorTime[oldPos++] : addedIds.get(addedPos++);
+		}
+
+		return merged;
+	}
+
+	@Override
+	public String toString() {
+		return "CommitGraph{" +
+			"repoId=" + repoId +
+			", size=" + size() +
+			", branchHeads=" + branchHeads.size() +
+			'}';
+	}
+
+}
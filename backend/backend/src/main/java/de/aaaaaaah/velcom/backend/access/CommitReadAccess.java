@@ -8,31 +8,28 @@ import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import de.aaaaaaah.velcom.backend.access.exceptions.CommitAccessException;
 import de.aaaaaaah.velcom.backend.access.exceptions.CommitLogException;
 import de.aaaaaaah.velcom.backend.access.exceptions.RepoAccessException;
-import de.aaaaaaah.velcom.backend.access.filter.AuthorTimeRevFilter;
 import de.aaaaaaah.velcom.backend.storage.repo.RepoStorage;
 import de.aaaaaaah.velcom.backend.storage.repo.exception.RepositoryAcquisitionException;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Spliterator;
-import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.LogCommand;
-import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.PersonIdent;
-import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
@@ -41,6 +38,9 @@ public class CommitReadAccess {
 
 	private final RepoStorage repoStorage;
 
+	private final Map<RepoId, CommitGraph> commitGraphs = new ConcurrentHashMap<>();
+	private final Map<RepoId, Lock> commitGraphLocks = new ConcurrentHashMap<>();
+
 	public CommitReadAccess(RepoStorage repoStorage) {
 		this.repoStorage = repoStorage;
 	}
@@ -137,34 +137,6 @@ public class CommitReadAccess {
 		return commits;
 	}
 
-	/**
-	 * Constructs a new commit walk instance starting at the specified commit.
-	 *
-	 * @param startCommit the commit to start at
-	 * @return the commit walk instance
-	 */
-	public CommitWalk getCommitWalk(Commit startCommit) {
-		RepoId repoId = startCommit.getRepoId();
-		Repository repo = null;
-		RevWalk walk = null;
-
-		try {
-			repo = repoStorage.acquireRepository(repoId.getDirectoryName());
-			walk = new RevWalk(repo);
-
-			return new CommitWalk(repoId, repo, walk, startCommit);
-		} catch (Exception e) {
-			if (walk != null) {
-				walk.close();
-			}
-			if (repo != null) {
-				repo.close();
-			}
-			throw new CommitAccessException("Failed to create commit walk", e,
-				startCommit.getRepoId(), startCommit.getHash());
-		}
-	}
-
 	/**
 	 * Collects all commits from the specified repository that 1.) were authored between the given
 	 * startTime and stopTime and 2.) are reachable from the given branches
@@ -195,88 +167,175 @@ public class CommitReadAccess {
 			return Collections.emptyMap();
 		}
 
-		try (Repository repo = repoStorage.acquireRepository(repoId.getDirectoryName())) {
-			RevWalk walk = new RevWalk(repo);
-			Git git = Git.wrap(repo);
+		try (
+			Repository repo = repoStorage.acquireRepository(repoId.getDirectoryName());
+			RevWalk walk = new RevWalk(repo)
+		) {
+			CommitGraph graph = getCommitGraph(repoId, repo);
+			BitSet reachable = graph.getReachableFrom(branches);
 
-			// Start the walk from the specified branches
+			// Only the matching commits need to be parsed
 			Map<CommitHash, Commit> commitMap = new HashMap<>();
 
-			for (Ref branchRef : git.branchList().call()) {
-				BranchName branchName = BranchName.fromFullName(branchRef.getName());
-
-				if (branches.contains(branchName)) {
-					ObjectId branchObjectId = branchRef.getObjectId();
-					RevCommit revCommit = walk.parseCommit(branchObjectId); // Doesn't load body
-
-					walk.markStart(revCommit);
+			for (int id : graph.getIdsAuthoredBetween(startTime, stopTime)) {
+				if (reachable.get(id)) {
+					ObjectId commitId = ObjectId.fromString(graph.getHash(id).getHash());
+					Commit commit = commitFromRevCommit(repoId, walk.parseCommit(commitId));
+					commitMap.put(commit.getHash(), commit);
 				}
 			}
 
-			// Restrict the search results
-			if (startTime != null && stopTime != null) {
-				walk.setRevFilter(AuthorTimeRevFilter.between(startTime, stopTime));
-			} else if (startTime != null) {
-				walk.setRevFilter(AuthorTimeRevFilter.after(startTime));
-			} else if (stopTime != null) {
-				walk.setRevFilter(AuthorTimeRevFilter.before(stopTime));
-			}
+			return commitMap;
+		} catch (RepositoryAcquisitionException | IOException e) {
+			throw new RepoAccessException(repoId, e);
+		}
+	}
 
-			for (RevCommit revCommit : walk) {
-				Commit commit = commitFromRevCommit(repoId, revCommit);
-				commitMap.put(commit.getHash(), commit);
-			}
+	/**
+	 * Returns the {@link CommitGraph} of a repo. The graph is kept in memory and is brought up to
+	 * date with the repo's branches before it is returned. This only walks commits that were added
+	 * since the last call, so it is cheap if the repo was not fetched in the meantime.
+	 *
+	 * @param repoId the id of the repository
+	 * @return the repo's current commit graph
+	 * @throws RepoAccessException if the repo could not be read
+	 */
+	public CommitGraph getCommitGraph(RepoId repoId) {
+		Objects.requireNonNull(repoId);
 
-			return commitMap;
-		} catch (RepositoryAcquisitionException | GitAPIException | IOException e) {
+		try (Repository repo = repoStorage.acquireRepository(repoId.getDirectoryName())) {
+			return getCommitGraph(repoId, repo);
+		} catch (RepositoryAcquisitionException e) {
+			// The repo was probably deleted, so its graph is of no use anymore
+			forgetCommitGraph(repoId);
+			throw new RepoAccessException(repoId, e);
+		} catch (IOException e) {
 			throw new RepoAccessException(repoId, e);
 		}
 	}
 
+	private CommitGraph getCommitGraph(RepoId repoId, Repository repo) throws IOException {
+		CommitGraph graph = commitGraphs.get(repoId);
+		if (graph != null && graph.isUpToDate(repo)) {
+			return graph;
+		}
+
+		// Only one thread per repo should walk the new commits, the others can use its result
+		Lock lock = commitGraphLocks.computeIfAbsent(repoId, id -> new ReentrantLock());
+		lock.lock();
+		try {
+			graph = commitGraphs.getOrDefault(repoId, CommitGraph.empty(repoId));
+			CommitGraph updatedGraph = graph.update(repo);
+			commitGraphs.put(repoId, updatedGraph);
+			return updatedGraph;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Forgets the {@link CommitGraph} of a repo. Must be called when the repo is deleted.
+	 *
+	 * @param repoId the id of the repository
+	 */
+	void forgetCommitGraph(RepoId repoId) {
+		commitGraphs.remove(repoId);
+		commitGraphLocks.remove(repoId);
+	}
+
+	/**
+	 * Returns the commits reachable from the given branches in the order jgit's log command would
+	 * return them (see {@link CommitGraph#getLogOrder(List)}). The order is taken from the repo's
+	 * {@link CommitGraph}, so only the returned commits themselves are read from the repo.
+	 *
+	 * @param repoId the id of the repository
+	 * @param branches the branches to start at
+	 * @return a stream of the commits, starting with the most recent one. The stream must be
+	 * 	closed manually once it is no longer used
+	 * @throws CommitLogException if the repo could not be read or a branch doesn't exist
+	 */
 	public Stream<Commit> getCommitLog(RepoId repoId, Collection<BranchName> branches)
 		throws CommitLogException {
 
-		// Step -1: Check arguments
 		Objects.requireNonNull(repoId);
 		Objects.requireNonNull(branches);
 		if (branches.isEmpty()) {
 			return Stream.empty();
 		}
 
-		// Step 0: Sort branches so that the outcome is deterministic
-		List<BranchName> sortedBranches = new ArrayList<>(branches);
-		Collections.sort(sortedBranches);
-
-		// Step 1: Acquire repository
 		Repository jgitRepo;
-
 		try {
-			String directoryName = repoId.getDirectoryName();
-			jgitRepo = repoStorage.acquireRepository(directoryName);
+			jgitRepo = repoStorage.acquireRepository(repoId.getDirectoryName());
 		} catch (RepositoryAcquisitionException e) {
 			throw new CommitLogException(repoId, branches, e);
 		}
 
 		try {
-			// Step 2: Run log command
-			LogCommand logCommand = Git.wrap(jgitRepo).log();
+			CommitGraph graph = getCommitGraph(repoId, jgitRepo);
+			int[] ids = getLogOrder(graph, branches);
+			RevWalk walk = new RevWalk(jgitRepo);
+
+			return Arrays.stream(ids)
+				.mapToObj(graph::getHash)
+				.map(hash -> {
+					try {
+						RevCommit revCommit = walk.parseCommit(ObjectId.fromString(hash.getHash()));
+						return commitFromRevCommit(repoId, revCommit);
+					} catch (IOException e) {
+						throw new CommitAccessException("Failed to read commit", e, repoId, hash);
+					}
+				})
+				.onClose(() -> {
+					walk.close();
+					jgitRepo.close();
+				});
+		} catch (Exception e) {
+			jgitRepo.close(); // Release repo storage lock if this fails
+			throw new CommitLogException(repoId, branches, e);
+		}
+	}
 
-			for (BranchName branchName : sortedBranches) {
-				ObjectId branchId = jgitRepo.resolve(branchName.getFullName());
-				logCommand.add(branchId);
-			}
+	/**
+	 * Same as {@link #getCommitLog(RepoId, Collection)}, but only returns the hashes. This doesn't
+	 * read any commits from the repo if its {@link CommitGraph} is up to date.
+	 *
+	 * @param repoId the id of the repository
+	 * @param branches the branches to start at
+	 * @return the hashes of the commits, starting with the most recent one
+	 * @throws CommitLogException if the repo could not be read or a branch doesn't exist
+	 */
+	public List<CommitHash> getCommitLogHashes(RepoId repoId, Collection<BranchName> branches)
+		throws CommitLogException {
 
-			// Step 3: Prepare stream
-			Spliterator<RevCommit> commitSpliterator = Spliterators.spliteratorUnknownSize(
-				logCommand.call().iterator(), 0);
+		Objects.requireNonNull(repoId);
+		Objects.requireNonNull(branches);
+		if (branches.isEmpty()) {
+			return Collections.emptyList();
+		}
 
-			return StreamSupport.stream(commitSpliterator, false)
-				.map(revCommit -> commitFromRevCommit(repoId, revCommit))
-				.onClose(jgitRepo::close);
-		} catch (Exception e) {
-			jgitRepo.close(); // Release repo storage lock if this fails
+		try (Repository repo = repoStorage.acquireRepository(repoId.getDirectoryName())) {
+			CommitGraph graph = getCommitGraph(repoId, repo);
+
+			return Arrays.stream(getLogOrder(graph, branches))
+				.mapToObj(graph::getHash)
+				.collect(Collectors.toList());
+		} catch (RepositoryAcquisitionException | IOException | IllegalArgumentException e) {
 			throw new CommitLogException(repoId, branches, e);
 		}
 	}
 
+	private static int[] getLogOrder(CommitGraph graph, Collection<BranchName> branches) {
+		// Sort branches so that the outcome is deterministic
+		List<BranchName> sortedBranches = new ArrayList<>(branches);
+		Collections.sort(sortedBranches);
+
+		for (BranchName branch : sortedBranches) {
+			if (!graph.getBranchHeads().containsKey(branch)) {
+				throw new IllegalArgumentException("unknown branch " + branch.getName());
+			}
+		}
+
+		return graph.getLogOrder(sortedBranches);
+	}
+
 }
@@ -27,7 +27,7 @@ public class KnownCommitReadAccess {
 	}
 
 	public boolean isKnown(RepoId repoId, CommitHash commitHash) {
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			return db.fetchExists(db.selectFrom(KNOWN_COMMIT)
 				.where(KNOWN_COMMIT.REPO_ID.eq(repoId.getId().toString()))
 				.and(KNOWN_COMMIT.HASH.eq(commitHash.getHash())));
@@ -35,14 +35,14 @@ public class KnownCommitReadAccess {
 	}
 
 	public boolean hasKnownCommits(RepoId repoId) {
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			return db.fetchExists(db.selectFrom(KNOWN_COMMIT)
 				.where(KNOWN_COMMIT.REPO_ID.eq(repoId.getId().toString())));
 		}
 	}
 
 	public BenchmarkStatus getBenchmarkStatus(RepoId repoId, CommitHash commitHash) {
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			return db.select(KNOWN_COMMIT.STATUS).from(KNOWN_COMMIT)
 				.where(KNOWN_COMMIT.REPO_ID.eq(repoId.getId().toString()))
 				.and(KNOWN_COMMIT.HASH.eq(commitHash.getHash()))
@@ -54,7 +54,7 @@ public class KnownCommitReadAccess {
 	}
 
 	public Set<Pair<RepoId, CommitHash>> getAllCommitsRequiringBenchmark() {
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			return db.select(KNOWN_COMMIT.REPO_ID, KNOWN_COMMIT.HASH)
 				.from(KNOWN_COMMIT)
 				.where(KNOWN_COMMIT.STATUS.eq(BENCHMARK_REQUIRED.getNumericalValue()))
@@ -32,7 +32,7 @@ public class KnownCommitWriteAccess extends KnownCommitReadAccess {
 	public void setBenchmarkStatus(RepoId repoId, Collection<CommitHash> commitHashes,
 		BenchmarkStatus benchmarkStatus) {
 
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireWriteContext()) {
 			final InsertValuesStep5<KnownCommitRecord, String, String, Integer, Timestamp, Timestamp> step = db
 				.insertInto(KNOWN_COMMIT, KNOWN_COMMIT.REPO_ID, KNOWN_COMMIT.HASH,
 					KNOWN_COMMIT.STATUS, KNOWN_COMMIT.UPDATE_TIME, KNOWN_COMMIT.INSERT_TIME);
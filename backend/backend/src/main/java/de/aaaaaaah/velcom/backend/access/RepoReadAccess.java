@@ -82,7 +82,7 @@ public class RepoReadAccess {
 		// Check database
 		RepositoryRecord repoRecord;
 
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			repoRecord = db.fetchOne(REPOSITORY,
 				REPOSITORY.ID.eq(repoId.getId().toString())
 			);
@@ -111,7 +111,7 @@ public class RepoReadAccess {
 			.map(repo -> repo.getRepoId().getId().toString())
 			.collect(toList());
 
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			db.fetch(REPOSITORY, REPOSITORY.ID.notIn(cachedRepoIdList))
 				.stream()
 				.map(record -> loadRepoData(db, record))
@@ -125,7 +125,7 @@ public class RepoReadAccess {
 	 * @return Gets a list of the ids of all tracked repositories.
 	 */
 	public Collection<RepoId> getAllRepoIds() {
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			return db.fetch(REPOSITORY)
 				.stream()
 				.map(record -> new RepoId(UUID.fromString(record.getId())))
@@ -142,7 +142,7 @@ public class RepoReadAccess {
 	 * @return a list of tracked branches
 	 */
 	public Collection<Branch> getTrackedBranches(RepoId repoId) {
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			return db.selectFrom(TRACKED_BRANCH)
 				.where(TRACKED_BRANCH.REPO_ID.eq(repoId.getId().toString()))
 				.fetch()
@@ -214,7 +214,7 @@ public class RepoReadAccess {
 		}
 
 		// Check database
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			return db.select(REPOSITORY.REMOTE_URL)
 				.from(REPOSITORY)
 				.where(REPOSITORY.ID.eq(repoId.getId().toString()))
@@ -1,11 +1,13 @@
 package de.aaaaaaah.velcom.backend.access;
 
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.jooq.codegen.db.tables.Repository.REPOSITORY;
 import static org.jooq.codegen.db.tables.TrackedBranch.TRACKED_BRANCH;
 
 import de.aaaaaaah.velcom.backend.access.archive.ArchiveException;
 import de.aaaaaaah.velcom.backend.access.archive.Archiver;
+import de.aaaaaaah.velcom.backend.access.archive.Bundler;
 import de.aaaaaaah.velcom.backend.access.entities.Branch;
 import de.aaaaaaah.velcom.backend.access.entities.BranchName;
 import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
@@ -27,6 +29,9 @@ import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.Repository;
 import org.jooq.DSLContext;
 import org.jooq.codegen.db.tables.records.RepositoryRecord;
@@ -42,13 +47,22 @@ public class RepoWriteAccess extends RepoReadAccess {
 	private static final Logger LOGGER = LoggerFactory.getLogger(RepoWriteAccess.class);
 
 	private final Archiver archiver;
+	private final Bundler bundler;
+	private final boolean archiveWithGitDir;
+	private final CommitReadAccess commitAccess;
 
 	public RepoWriteAccess(DatabaseStorage databaseStorage, RepoStorage repoStorage,
-		RemoteUrl benchRepoUrl, Path archivesRootDir) {
+		CommitReadAccess commitAccess, RemoteUrl benchRepoUrl, Path archivesRootDir,
+		long archiveCacheMaxBytes, boolean archiveWithGitDir) {
 
 		super(databaseStorage, repoStorage, benchRepoUrl);
 
-		this.archiver = new Archiver(repoStorage, archivesRootDir);
+		this.archiver = new Archiver(
+			repoStorage, archivesRootDir, archiveCacheMaxBytes, archiveWithGitDir
+		);
+		this.bundler = new Bundler(repoStorage);
+		this.archiveWithGitDir = archiveWithGitDir;
+		this.commitAccess = commitAccess;
 
 		// Clone benchmark repo if needed
 		if (!repoStorage.containsRepository(benchRepoDirName)) {
@@ -89,7 +103,7 @@ public class RepoWriteAccess extends RepoReadAccess {
 	 * @param newName the new name
 	 */
 	public void setName(RepoId repoId, String newName) {
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireWriteContext()) {
 			db.update(REPOSITORY).set(REPOSITORY.NAME, newName)
 				.where(REPOSITORY.ID.eq(repoId.getId().toString()))
 				.execute();
@@ -131,7 +145,7 @@ public class RepoWriteAccess extends RepoReadAccess {
 		}
 
 		// (3): Update database
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireWriteContext()) {
 			db.update(REPOSITORY)
 				.set(REPOSITORY.REMOTE_URL, newRemoteUrl.getUrl())
 				.where(REPOSITORY.ID.eq(repoId.getId().toString()))
@@ -162,7 +176,7 @@ public class RepoWriteAccess extends RepoReadAccess {
 	public void setTrackedBranches(RepoId repoId, Collection<BranchName> branches) {
 		String repoIdStr = repoId.getId().toString();
 
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireWriteContext()) {
 			db.transaction((configuration) -> {
 				DSLContext ts = DSL.using(configuration);
 
@@ -207,8 +221,19 @@ public class RepoWriteAccess extends RepoReadAccess {
 	 * @throws AddRepoException if an error occurs while trying to add the repository
 	 */
 	public Repo addRepo(String name, RemoteUrl remoteUrl) throws AddRepoException {
-		RepoId repoId = new RepoId();
+		return addRepo(new RepoId(), name, remoteUrl);
+	}
 
+	/**
+	 * Adds a new repository with a predetermined id by cloning it to the local file system.
+	 *
+	 * @param repoId the id of the new repository. Must not be used by any other repository.
+	 * @param name the name of the repository
+	 * @param remoteUrl the remote url of the repository
+	 * @return a new {@link Repo} instance
+	 * @throws AddRepoException if an error occurs while trying to add the repository
+	 */
+	public Repo addRepo(RepoId repoId, String name, RemoteUrl remoteUrl) throws AddRepoException {
 		// 1.) Clone repository (this may take a while)
 		try {
 			repoStorage.addRepository(repoId.getDirectoryName(), remoteUrl.getUrl());
@@ -217,7 +242,7 @@ public class RepoWriteAccess extends RepoReadAccess {
 		}
 
 		// 2.) Insert repo into database
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireWriteContext()) {
 			RepositoryRecord record = db.newRecord(REPOSITORY);
 			record.setId(repoId.getId().toString());
 			record.setName(name);
@@ -257,7 +282,7 @@ public class RepoWriteAccess extends RepoReadAccess {
 	 */
 	public void deleteRepo(RepoId repoId) throws DeleteRepoException {
 		// Delete from database
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireWriteContext()) {
 			db.deleteFrom(REPOSITORY)
 				.where(REPOSITORY.ID.eq(repoId.getId().toString()))
 				.execute();
@@ -269,28 +294,47 @@ public class RepoWriteAccess extends RepoReadAccess {
 		} catch (IOException e) {
 			throw new DeleteRepoException(repoId, e);
 		}
+		archiver.deleteArchives(repoId.getDirectoryName());
 
-		// Remove from cache
+		// Remove from caches
 		this.repoCache.invalidate(repoId);
+		commitAccess.forgetCommitGraph(repoId);
 	}
 
 	// --- Update Operations ----------------------------------------------------------------------
 
 	/**
 	 * Performs either a fetch operation on the specified repository, or a clone operation if the
-	 * repository has not been cloned to the local repo storage yet.
+	 * repository has not been cloned to the local repo storage yet. Nothing is fetched if no ref
+	 * moved on the remote.
 	 *
 	 * @param repoId the id of the repository
+	 * @return the branches that were created or moved by the update. Contains all branches if the
+	 * 	repository was cloned.
 	 * @throws RepoAccessException if an error occurs during the fetch/clone operation
 	 * @throws NoSuchRepoException if no repository with that id exists
 	 */
-	public void updateRepo(RepoId repoId) throws RepoAccessException, NoSuchRepoException {
+	public Set<BranchName> updateRepo(RepoId repoId)
+		throws RepoAccessException, NoSuchRepoException {
+
+		Set<String> changedRefs;
 		try {
 			RemoteUrl remoteUrl = getRemoteUrl(repoId);
-			fetchOrCloneLocalRepo(repoId.getDirectoryName(), remoteUrl);
+			changedRefs = fetchOrCloneLocalRepo(repoId.getDirectoryName(), remoteUrl);
 		} catch (RepositoryAcquisitionException | CloneException | AddRepositoryException e) {
 			throw new RepoAccessException(repoId, e);
 		}
+
+		if (changedRefs == null) {
+			return getBranches(repoId).stream()
+				.map(Branch::getName)
+				.collect(toSet());
+		}
+
+		return changedRefs.stream()
+			.filter(name -> name.startsWith(Constants.R_HEADS))
+			.map(BranchName::fromFullName)
+			.collect(toSet());
 	}
 
 	/**
@@ -305,9 +349,11 @@ public class RepoWriteAccess extends RepoReadAccess {
 				// Check if remote url changed
 
 				final String remoteUrl;
+				final String headRefName;
 
 				try (Repository repo = repoStorage.acquireRepository(benchRepoDirName)) {
 					remoteUrl = repo.getConfig().getString("remote", "origin", "url");
+					headRefName = repo.getFullBranch();
 				}
 
 				if (!remoteUrl.equals(this.benchRepoRemoteUrl.getUrl())) {
@@ -320,12 +366,12 @@ public class RepoWriteAccess extends RepoReadAccess {
 
 					fetchOrCloneLocalRepo(benchRepoDirName, benchRepoRemoteUrl);
 				} else {
-					// remote url has not changed => just fetch and check if hash changed
-					final CommitHash oldHash = getLatestBenchmarkRepoHash();
-					fetchOrCloneLocalRepo(benchRepoDirName, benchRepoRemoteUrl);
-					final CommitHash newHash = getLatestBenchmarkRepoHash();
+					// remote url has not changed => just fetch and check if HEAD moved
+					Set<String> changedRefs = fetchOrCloneLocalRepo(
+						benchRepoDirName, benchRepoRemoteUrl
+					);
 
-					if (!oldHash.equals(newHash)) {
+					if (changedRefs == null || changedRefs.contains(headRefName)) {
 						// benchmark repo was updated => remove old cloned archives since a new
 						// clone will be created with the newest hash once it is required.
 						archiver.deleteArchives(benchRepoDirName);
@@ -344,27 +390,40 @@ public class RepoWriteAccess extends RepoReadAccess {
 		}
 	}
 
-	private void fetchOrCloneLocalRepo(String dirName, RemoteUrl remoteUrl)
+	/**
+	 * @return the full names of the refs changed by the fetch or null if the repo was cloned
+	 */
+	@Nullable
+	private Set<String> fetchOrCloneLocalRepo(String dirName, RemoteUrl remoteUrl)
 		throws RepositoryAcquisitionException, AddRepositoryException, CloneException {
 
 		if (repoStorage.containsRepository(dirName)) {
 			// local repo exists => just fetch
 			LOGGER.info("fetching from {} into {}", remoteUrl, dirName);
 
+			Set<String> changedRefs = null;
 			try (Repository repo = repoStorage.acquireRepository(dirName)) {
-				GuickCloning.getInstance().updateBareRepo(repo.getDirectory().toPath());
+				Path repoDir = repo.getDirectory().toPath();
+				changedRefs = GuickCloning.getInstance().updateBareRepo(repoDir);
+			} finally {
+				// The shared repository only needs to be reopened if something was fetched
+				if (changedRefs == null || !changedRefs.isEmpty()) {
+					repoStorage.invalidateRepository(dirName);
+				}
 			}
+			return changedRefs;
 		} else {
 			// local repo does not exist => clone
 			LOGGER.info("local repository {} is missing! cloning it from: {}", dirName, remoteUrl);
 			repoStorage.addRepository(dirName, remoteUrl.getUrl());
+			return null;
 		}
 	}
 
 	// --- Archive Operations ---------------------------------------------------------------------
 
 	/**
-	 * Write an uncompressed tar archive containing the (recursively cloned) working directory for
+	 * Write an uncompressed tar archive containing the working directory (including submodules) for
 	 * the specified commit to the output stream.
 	 *
 	 * @param repoId the id of the repo
@@ -382,6 +441,41 @@ public class RepoWriteAccess extends RepoReadAccess {
 		archiver.archive(dirName, commitHash, outputStream, false);
 	}
 
+	/**
+	 * Checks whether the specified commit can be sent using {@link #streamNormalRepoBundle(RepoId,
+	 * CommitHash, CommitHash, OutputStream)}. This is not possible for commits with submodules.
+	 * It is also not possible if archives contain the ".git" directory, as runners export the
+	 * commit's files from their mirror without it.
+	 *
+	 * @param repoId the id of the repo
+	 * @param commitHash the hash of the commit
+	 * @return true if the commit can be bundled
+	 * @throws ArchiveException if the repo could not be read
+	 */
+	public boolean canBundleNormalRepo(RepoId repoId, CommitHash commitHash)
+		throws ArchiveException {
+
+		return !archiveWithGitDir && bundler.canBundle(repoId.getDirectoryName(), commitHash);
+	}
+
+	/**
+	 * Write a git bundle containing the specified commit to the output stream. The bundle only
+	 * contains the objects not reachable from the base commit.
+	 *
+	 * @param repoId the id of the repo
+	 * @param commitHash the hash of commit to send
+	 * @param baseHash the hash of a commit the receiver already has. May be null.
+	 * @param outputStream where to write the bundle
+	 * @throws ArchiveException if the bundle could not be written
+	 * @throws de.aaaaaaah.velcom.backend.access.exceptions.ArchiveFailedPermanently if it failed
+	 * 	with a more permanent cause
+	 */
+	public void streamNormalRepoBundle(RepoId repoId, CommitHash commitHash,
+		@Nullable CommitHash baseHash, OutputStream outputStream) throws ArchiveException {
+
+		bundler.bundle(repoId.getDirectoryName(), commitHash, baseHash, outputStream);
+	}
+
 	/**
 	 * Does the same as {@link #streamNormalRepoArchive(RepoId, CommitHash, OutputStream)}, but for
 	 * the latest commit on the master branch in the benchmark repo.
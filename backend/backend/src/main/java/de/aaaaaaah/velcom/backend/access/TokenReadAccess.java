@@ -55,7 +55,7 @@ public class TokenReadAccess {
 		Objects.requireNonNull(repoId);
 		Objects.requireNonNull(token);
 
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			RepoTokenRecord tokenRecord = db.selectFrom(REPO_TOKEN)
 				.where(REPO_TOKEN.REPO_ID.eq(repoId.getId().toString()))
 				.fetchOptional()
@@ -105,7 +105,7 @@ public class TokenReadAccess {
 	 */
 	public boolean hasToken(RepoId id) {
 		Objects.requireNonNull(id);
-		try (DSLContext db = databaseStorage.acquireContext()) {
+		try (DSLContext db = databaseStorage.acquireReadContext()) {
 			return db.fetchExists(selectFrom(REPO_TOKEN)
 				.where(REPO_TOKEN.REPO_ID.eq(id.getId().toString()))
 			);
@@ -119,7 +119,7 @@ public class TokenReadAccess {
 
 		if (authToken == null) {
 			// Remove from database
-			try (DSLContext db = databaseStorage.acquireContext()) {
+			try (DSLContext db = databaseStorage.acquireWriteContext()) {
 				db.deleteFrom(REPO_TOKEN)
 					.where(REPO_TOKEN.REPO_ID.eq(id.getId().toString()))
 					.execute();
@@ -128,7 +128,7 @@ public class TokenReadAccess {
 			String hash = currentHashAlgorithm.generateHash(authToken);
 
 			// Insert hash into database
-			try (DSLContext db = databaseStorage.acquireContext()) {
+			try (DSLContext db = databaseStorage.acquireWriteContext()) {
 				db.insertInto(REPO_TOKEN)
 					.set(REPO_TOKEN.REPO_ID, id.getId().toString())
 					.set(REPO_TOKEN.HASH_ALGO, currentHashAlgorithmId)
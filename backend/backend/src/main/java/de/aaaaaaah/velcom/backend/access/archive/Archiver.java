@@ -1,5 +1,12 @@
 package de.aaaaaaah.velcom.backend.access.archive;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+import de.aaaaaaah.velcom.backend.ServerMain;
 import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.exceptions.ArchiveFailedPermanently;
 import de.aaaaaaah.velcom.backend.storage.repo.GuickCloning;
@@ -13,20 +20,46 @@ import de.aaaaaaah.velcom.runner.shared.util.compression.PermissionsHelper;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.compress.utils.IOUtils;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Provides the functionality to archive local repositories.
+ *
+ * <p>Archives are built on a bounded pool of worker threads. Different commits are archived in
+ * parallel, while concurrent requests for the same commit share the result of a single build.
+ *
  * <p>This class is thread safe.</p>
  */
 public class Archiver {
@@ -35,40 +68,116 @@ public class Archiver {
 
 	private final RepoStorage repoStorage;
 	private final Path archivesRootDir;
+	private final TarballCache tarballCache;
+	private final TreeWalkArchiver treeWalkArchiver;
+	private final boolean archiveWithGitDir;
+
+	private final ThreadPoolExecutor buildPool;
+	private final Path buildsDir;
+	private final Map<String, RunningBuild> runningBuilds;
+	private final Map<String, ReadWriteLock> repoLocks;
+
+	private final Timer buildTimer;
+	private final Histogram archiveSizesHistogram;
+	private final Meter cacheHitsMeter;
 
 	/**
 	 * Constructs a new instance of {@link Archiver}.
 	 *
 	 * @param repoStorage the storage containing the local repositories
+	 * @param archivesRootDir the directory to place clones and cached archives in
+	 * @param archiveCacheMaxBytes the maximum size of all cached archives in bytes. 0 disables the
+	 * 	cache.
+	 * @param archiveWithGitDir whether archives are created from a full clone and contain the
+	 * 	".git" directory. If false, they are created from the commit's tree without any clone.
 	 */
-	public Archiver(RepoStorage repoStorage, Path archivesRootDir) {
+	public Archiver(RepoStorage repoStorage, Path archivesRootDir, long archiveCacheMaxBytes,
+		boolean archiveWithGitDir) {
+
 		this.repoStorage = repoStorage;
 		this.archivesRootDir = archivesRootDir;
+		this.tarballCache = new TarballCache(
+			archivesRootDir.resolve("tarball-cache"), archiveCacheMaxBytes
+		);
+		this.treeWalkArchiver = new TreeWalkArchiver(repoStorage);
+		this.archiveWithGitDir = archiveWithGitDir;
+
+		int buildThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		this.buildPool = new ThreadPoolExecutor(
+			buildThreads, buildThreads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()
+		);
+		this.buildsDir = archivesRootDir.resolve("tarball-builds");
+		if (Files.exists(buildsDir)) {
+			try {
+				// Left over from builds that were interrupted by a shutdown
+				DirectoryRemover.deleteDirectoryRecursive(buildsDir);
+			} catch (IOException e) {
+				LOGGER.warn("Failed to delete unfinished archives in {}", buildsDir, e);
+			}
+		}
+		this.runningBuilds = new ConcurrentHashMap<>();
+		this.repoLocks = new ConcurrentHashMap<>();
+
+		MetricRegistry metricRegistry = ServerMain.getMetricRegistry();
+		this.buildTimer = metricRegistry.timer(MetricRegistry.name(getClass(), "build_time"));
+		this.archiveSizesHistogram = metricRegistry
+			.histogram(MetricRegistry.name(getClass(), "archive_bytes"));
+		this.cacheHitsMeter = metricRegistry.meter(MetricRegistry.name(getClass(), "cache_hits"));
+		metricRegistry.register(
+			MetricRegistry.name(getClass(), "build_queue_depth"),
+			(Gauge<Integer>) () -> buildPool.getQueue().size()
+		);
+		metricRegistry.register(
+			MetricRegistry.name(getClass(), "cache_bytes"),
+			(Gauge<Long>) tarballCache::getCurrentBytes
+		);
 	}
 
 	/**
 	 * Tries to delete all local clones that were created for the archival of the local repository
 	 * referenced under {@code dirName} which were not automatically deleted because {@code
 	 * keepDeepClone} was set to {@code true} in {@link #archive(String, CommitHash, OutputStream,
-	 * boolean)}.
+	 * boolean)}. Also removes all cached archives of that repository.
 	 *
 	 * @param dirName the directory name of the repository
 	 */
-	public synchronized void deleteArchives(String dirName) {
-		Path archivesDir = archivesRootDir.resolve(dirName);
+	public void deleteArchives(String dirName) {
+		Lock lock = getRepoLock(dirName).writeLock();
+		lock.lock();
 
 		try {
-			DirectoryRemover.deleteDirectoryRecursive(archivesDir);
-		} catch (IOException e) {
-			LOGGER.warn("Failed to delete archives in: {}", archivesDir);
+			tarballCache.invalidate(dirName);
+
+			Path archivesDir = archivesRootDir.resolve(dirName);
+
+			try {
+				DirectoryRemover.deleteDirectoryRecursive(archivesDir);
+			} catch (IOException e) {
+				LOGGER.warn("Failed to delete archives in: {}", archivesDir);
+			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
+	private ReadWriteLock getRepoLock(String dirName) {
+		return repoLocks.computeIfAbsent(dirName, ignored -> new ReentrantReadWriteLock());
+	}
+
 	/**
 	 * Archives the local repository at the state of the given commit and writes the archive to the
-	 * given output stream. This is done by cloning the original local repository and changing the
-	 * HEAD state of the clone to the given commit and subsequently writing the tar archived version
-	 * of the clone into the given output stream.
+	 * given output stream. By default, this is done by walking the commit's tree in the local
+	 * repository and writing every file into the archive. If the archiver was configured to include
+	 * the ".git" directory, the original local repository is cloned instead, the HEAD of the clone
+	 * is changed to the given commit and the clone is archived.
+	 *
+	 * <p>Finished archives are cached by repository, commit and state of the commit's submodules.
+	 * If the archive is cached, it is streamed from the cache without cloning the repository.
+	 *
+	 * <p>Archives are first built into a temporary file on the build pool. Only then is the file
+	 * streamed to {@code out} on the calling thread, so slow receivers neither occupy a build
+	 * thread nor hold the repository's lock. Concurrent requests for the same archive share that
+	 * file, even if it could not be cached.
 	 *
 	 * <p>Note that the given output stream is closed after the archive operation has ended.</p>
 	 *
@@ -76,17 +185,151 @@ public class Archiver {
 	 * @param commitHash the state at which the repository shall be archived
 	 * @param out where the archive is written to
 	 * @param keepDeepClone whether or not to remove the clone of the local repository after the
-	 * 	archive process is finished
+	 * 	archive process is finished. Only relevant when archiving with the ".git" directory.
 	 * @throws ArchiveException if an error occurs while archiving or cloning the repository
 	 * @throws ArchiveFailedPermanently if an error occurs that will probably not get better when
 	 * 	retrying
 	 */
-	public synchronized void archive(String dirName, CommitHash commitHash, OutputStream out,
+	public void archive(String dirName, CommitHash commitHash, OutputStream out,
 		boolean keepDeepClone) throws ArchiveException {
 
 		LOGGER.info("Creating archive for: {}/{} (keepDeepClone = {})", dirName,
 			commitHash.getHash(), keepDeepClone);
 
+		try (out) {
+			final String cacheEntryName;
+			try {
+				cacheEntryName = commitHash.getHash() + "-" + getSubmoduleState(dirName, commitHash)
+					+ (archiveWithGitDir ? "-git" : "");
+			} catch (Exception e) {
+				throw new ArchiveFailedPermanently(e, dirName, commitHash);
+			}
+
+			Optional<InputStream> cachedArchive = tarballCache.open(dirName, cacheEntryName);
+			if (cachedArchive.isPresent()) {
+				LOGGER.info("Streaming cached archive for: {}/{}", dirName, commitHash.getHash());
+				cacheHitsMeter.mark();
+
+				try (InputStream in = cachedArchive.get()) {
+					IOUtils.copy(in, out);
+				}
+				return;
+			}
+
+			String buildKey = dirName + "/" + cacheEntryName;
+			RunningBuild build = joinBuild(dirName, commitHash, keepDeepClone, cacheEntryName,
+				buildKey);
+
+			try (InputStream in = Files.newInputStream(build.awaitFile(dirName, commitHash))) {
+				IOUtils.copy(in, out);
+			} finally {
+				leaveBuild(buildKey, build);
+			}
+		} catch (ArchiveException e) {
+			throw e;
+		} catch (IOException e) {
+			// Most likely the connection to the runner
+			throw new ArchiveException(e, dirName, commitHash);
+		}
+	}
+
+	/**
+	 * Joins the running build of an archive or starts a new one if there is none.
+	 */
+	private RunningBuild joinBuild(String dirName, CommitHash commitHash, boolean keepDeepClone,
+		String cacheEntryName, String buildKey) {
+
+		RunningBuild newBuild = new RunningBuild();
+		RunningBuild build = runningBuilds.compute(buildKey, (key, existing) -> {
+			if (existing == null) {
+				return newBuild;
+			}
+			existing.users++;
+			return existing;
+		});
+
+		if (build != newBuild) {
+			LOGGER.info("Waiting for running build of archive {}", buildKey);
+			return build;
+		}
+
+		try {
+			buildPool.execute(() -> {
+				try {
+					build.file.complete(
+						buildArchive(dirName, commitHash, keepDeepClone, cacheEntryName)
+					);
+				} catch (Throwable e) {
+					build.file.completeExceptionally(e);
+				}
+			});
+		} catch (RuntimeException e) {
+			build.file.completeExceptionally(e);
+		}
+		return build;
+	}
+
+	/**
+	 * Stops using a build. Once nobody uses it anymore, the build is forgotten and its file is
+	 * deleted. Later requests for the same archive will then find it in the cache or build it
+	 * again.
+	 */
+	private void leaveBuild(String buildKey, RunningBuild build) {
+		runningBuilds.computeIfPresent(buildKey, (key, existing) -> {
+			if (existing != build) {
+				return existing;
+			}
+			existing.users--;
+			if (existing.users > 0) {
+				return existing;
+			}
+			// The file might still be written to if all users were interrupted
+			existing.file.thenAccept(Archiver::deleteQuietly);
+			return null;
+		});
+	}
+
+	/**
+	 * Builds an archive into a new temporary file and adds it to the cache. Holds the read lock of
+	 * the repository while doing so.
+	 *
+	 * @return the file the archive was written to
+	 */
+	private Path buildArchive(String dirName, CommitHash commitHash, boolean keepDeepClone,
+		String cacheEntryName) throws ArchiveException {
+
+		Path file = buildsDir.resolve(UUID.randomUUID() + ".tar");
+
+		Lock lock = getRepoLock(dirName).readLock();
+		lock.lock();
+
+		try (Context ignored = buildTimer.time()) {
+			try {
+				Files.createDirectories(buildsDir);
+			} catch (IOException e) {
+				throw new ArchiveException(e, dirName, commitHash);
+			}
+
+			if (archiveWithGitDir) {
+				archiveClone(dirName, commitHash, file, keepDeepClone);
+			} else {
+				archiveTree(dirName, commitHash, file);
+			}
+
+			archiveSizesHistogram.update(file.toFile().length());
+			tarballCache.put(dirName, cacheEntryName, file);
+			return file;
+		} catch (Exception e) {
+			deleteQuietly(file);
+			throw e;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void archiveClone(String dirName, CommitHash commitHash, Path file,
+		boolean keepDeepClone) throws ArchiveException {
+
 		Path cloneDir = archivesRootDir.resolve(dirName).resolve(commitHash.getHash());
 
 		try {
@@ -98,7 +341,7 @@ public class Archiver {
 
 		try {
 			// (2): Tar repository
-			tarDirectory(cloneDir, out);
+			tarDirectory(cloneDir, Files.newOutputStream(file));
 		} catch (Exception e) {
 			throw new ArchiveException(e, dirName, commitHash);
 		} finally {
@@ -113,6 +356,20 @@ public class Archiver {
 		}
 	}
 
+	private void archiveTree(String dirName, CommitHash commitHash, Path file)
+		throws ArchiveException {
+
+		try {
+			treeWalkArchiver.archive(dirName, commitHash, Files.newOutputStream(file));
+		} catch (MissingObjectException e) {
+			throw new ArchiveFailedPermanently(e, dirName, commitHash);
+		} catch (IOException e) {
+			throw new ArchiveException(e, dirName, commitHash);
+		} catch (Exception e) {
+			throw new ArchiveFailedPermanently(e, dirName, commitHash);
+		}
+	}
+
 	private void tarDirectory(Path cloneDir, OutputStream out) throws IOException {
 		long start = System.currentTimeMillis();
 
@@ -190,6 +447,61 @@ public class Archiver {
 		}
 	}
 
+	/**
+	 * Computes a digest of the submodules of a commit, consisting of their paths, urls and the
+	 * commits they point to. If the commit has no submodules, this is the digest of no data.
+	 *
+	 * @param dirName the directory name of the repository
+	 * @param hash the commit hash
+	 * @return the digest as hex string
+	 */
+	private String getSubmoduleState(String dirName, CommitHash hash)
+		throws IOException, RepositoryAcquisitionException, ConfigInvalidException,
+		NoSuchAlgorithmException {
+
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+		try (Repository repository = repoStorage.acquireRepository(dirName);
+			RevWalk revWalk = new RevWalk(repository)) {
+
+			ObjectId commitId = repository.resolve(hash.getHash());
+			Objects.requireNonNull(commitId, "unknown commit hash "
+				+ hash + " for local repo " + dirName);
+
+			RevCommit commit = revWalk.parseCommit(commitId);
+			RevTree tree = commit.getTree();
+
+			Map<String, String> submoduleUrls = TreeWalkArchiver.readSubmoduleUrls(repository, tree);
+			for (Map.Entry<String, String> submodule : submoduleUrls.entrySet()) {
+				String path = submodule.getKey();
+
+				String submoduleCommit = "";
+				try (TreeWalk submoduleWalk = TreeWalk.forPath(repository, path, tree)) {
+					if (submoduleWalk != null && submoduleWalk.getFileMode(0) == FileMode.GITLINK) {
+						submoduleCommit = submoduleWalk.getObjectId(0).getName();
+					}
+				}
+
+				String line = path + " " + submodule.getValue() + " " + submoduleCommit + "\n";
+				digest.update(line.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to delete {}", file, e);
+		}
+	}
+
 	private Consumer<Path> handleError(CheckedConsumer<Path, Exception> checkedConsumer) {
 		return path -> {
 			try {
@@ -200,4 +512,28 @@ public class Archiver {
 		};
 	}
 
+	/**
+	 * A build of an archive that is shared by all requests for the same archive. Its {@link
+	 * #users} are guarded by the {@link #runningBuilds} map.
+	 */
+	private static class RunningBuild {
+
+		private final CompletableFuture<Path> file = new CompletableFuture<>();
+		private int users = 1;
+
+		private Path awaitFile(String dirName, CommitHash commitHash) throws ArchiveException {
+			try {
+				return file.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ArchiveException(e, dirName, commitHash);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof ArchiveException) {
+					throw (ArchiveException) e.getCause();
+				}
+				throw new ArchiveException(e.getCause(), dirName, commitHash);
+			}
+		}
+	}
+
 }
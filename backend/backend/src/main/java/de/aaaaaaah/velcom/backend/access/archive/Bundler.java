@@ -0,0 +1,137 @@
+package de.aaaaaaah.velcom.backend.access.archive;
+
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.exceptions.ArchiveFailedPermanently;
+import de.aaaaaaah.velcom.backend.storage.repo.RepoStorage;
+import de.aaaaaaah.velcom.backend.storage.repo.exception.RepositoryAcquisitionException;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.annotation.Nullable;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.BundleWriter;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes git bundles of single commits. If the receiver already has a related commit, the bundle
+ * only contains the objects that are not reachable from that commit, which is usually far less
+ * than an archive of the whole working tree.
+ *
+ * <p>Bundles never contain submodules, so commits with submodules have to be archived instead.
+ */
+public class Bundler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(Bundler.class);
+
+	private final RepoStorage repoStorage;
+
+	/**
+	 * Creates a new bundler.
+	 *
+	 * @param repoStorage the storage containing the local repositories
+	 */
+	public Bundler(RepoStorage repoStorage) {
+		this.repoStorage = repoStorage;
+	}
+
+	/**
+	 * Checks whether a commit can be sent as a bundle, i.e. whether it exists and does not contain
+	 * any submodules.
+	 *
+	 * @param dirName the directory name of the repository
+	 * @param commitHash the commit
+	 * @return true if the commit can be bundled
+	 * @throws ArchiveException if the repository could not be read
+	 */
+	public boolean canBundle(String dirName, CommitHash commitHash) throws ArchiveException {
+		try (Repository repository = repoStorage.acquireRepository(dirName);
+			RevWalk revWalk = new RevWalk(repository)) {
+
+			RevCommit commit = revWalk.parseCommit(ObjectId.fromString(commitHash.getHash()));
+
+			try (TreeWalk walk = TreeWalk.forPath(
+				repository, Constants.DOT_GIT_MODULES, commit.getTree())) {
+				return walk == null;
+			}
+		} catch (MissingObjectException | IncorrectObjectTypeException
+			| IllegalArgumentException e) {
+			return false;
+		} catch (IOException | RepositoryAcquisitionException e) {
+			throw new ArchiveException(e, dirName, commitHash);
+		}
+	}
+
+	/**
+	 * Writes a bundle containing a commit as {@link RepoTransferFormat#BUNDLE_REF} to the output
+	 * stream. The output stream is closed afterwards.
+	 *
+	 * @param dirName the directory name of the repository
+	 * @param commitHash the commit to bundle
+	 * @param baseHash a commit the receiver already has. Only objects not reachable from it are
+	 * 	bundled. If this is null or the commit is unknown, all objects reachable from the bundled
+	 * 	commit are included.
+	 * @param out where the bundle is written to
+	 * @throws ArchiveException if writing the bundle failed
+	 * @throws ArchiveFailedPermanently if the commit could not be found
+	 */
+	public void bundle(String dirName, CommitHash commitHash, @Nullable CommitHash baseHash,
+		OutputStream out) throws ArchiveException {
+
+		long start = System.currentTimeMillis();
+
+		try (out;
+			Repository repository = repoStorage.acquireRepository(dirName);
+			RevWalk revWalk = new RevWalk(repository)) {
+
+			RevCommit commit = revWalk.parseCommit(ObjectId.fromString(commitHash.getHash()));
+
+			BundleWriter writer = new BundleWriter(repository);
+			writer.include(RepoTransferFormat.BUNDLE_REF, commit);
+
+			RevCommit base = parseBaseCommit(revWalk, baseHash);
+			if (base != null) {
+				writer.assume(base);
+			}
+
+			writer.writeBundle(NullProgressMonitor.INSTANCE, out);
+		} catch (MissingObjectException | IncorrectObjectTypeException
+			| IllegalArgumentException e) {
+			throw new ArchiveFailedPermanently(e, dirName, commitHash);
+		} catch (IOException | RepositoryAcquisitionException e) {
+			// Most likely the connection to the runner
+			throw new ArchiveException(e, dirName, commitHash);
+		} finally {
+			long end = System.currentTimeMillis();
+			LOGGER.info("Bundle took {} ms... ({}/{} based on {})", end - start, dirName,
+				commitHash.getHash(), baseHash == null ? "nothing" : baseHash.getHash());
+		}
+	}
+
+	@Nullable
+	private static RevCommit parseBaseCommit(RevWalk revWalk, @Nullable CommitHash baseHash)
+		throws IOException {
+
+		if (baseHash == null) {
+			return null;
+		}
+
+		try {
+			return revWalk.parseCommit(ObjectId.fromString(baseHash.getHash()));
+		} catch (MissingObjectException | IncorrectObjectTypeException
+			| IllegalArgumentException e) {
+			// E.g. the branch was force pushed and the commit garbage collected
+			LOGGER.debug("Unknown base commit {}, bundling everything", baseHash.getHash());
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,249 @@
+package de.aaaaaaah.velcom.backend.access.archive;
+
+import de.aaaaaaah.velcom.backend.util.DirectoryRemover;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A size-bounded on-disk cache of finished tar archives. Every archive is stored as a single file
+ * inside a directory per repository. When the total size of all archives exceeds the budget, the
+ * least recently used archives are deleted.
+ *
+ * <p>Archives are only added once they were built completely. Adding them is atomic, so
+ * incomplete archives are never read from the cache.
+ *
+ * <p>This class is thread safe.</p>
+ */
+public class TarballCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TarballCache.class);
+
+	private static final String ARCHIVE_SUFFIX = ".tar";
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private final Path cacheDir;
+	private final long maxBytes;
+
+	// Archive file -> size in bytes, ordered from least to most recently used
+	private final LinkedHashMap<Path, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long currentBytes;
+
+	/**
+	 * Creates a new tarball cache. Archives that are already in the cache directory are reused.
+	 *
+	 * @param cacheDir the directory to store the archives in
+	 * @param maxBytes the maximum amount of bytes all archives may use together. If this is 0, no
+	 * 	archives are cached.
+	 */
+	public TarballCache(Path cacheDir, long maxBytes) {
+		this.cacheDir = cacheDir;
+		this.maxBytes = maxBytes;
+
+		if (isEnabled()) {
+			loadExistingEntries();
+		}
+	}
+
+	private void loadExistingEntries() {
+		List<Path> files;
+		try (Stream<Path> walk = Files.walk(cacheDir)) {
+			files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+		} catch (NoSuchFileException e) {
+			return;
+		} catch (IOException e) {
+			LOGGER.warn("Failed to read existing archives in {}", cacheDir, e);
+			return;
+		}
+
+		List<Path> archives = new ArrayList<>();
+		for (Path file : files) {
+			if (file.getFileName().toString().endsWith(ARCHIVE_SUFFIX)) {
+				archives.add(file);
+			} else {
+				// Left over from an archive that was interrupted
+				deleteQuietly(file);
+			}
+		}
+
+		archives.sort(Comparator.comparing(file -> file.toFile().lastModified()));
+
+		synchronized (this) {
+			for (Path archive : archives) {
+				long size = archive.toFile().length();
+				entries.put(archive, size);
+				currentBytes += size;
+			}
+			evictIfNecessary();
+		}
+
+		LOGGER.info("Loaded {} cached archives ({} bytes)", entries.size(), currentBytes);
+	}
+
+	/**
+	 * @return true if archives are cached at all
+	 */
+	public boolean isEnabled() {
+		return maxBytes > 0;
+	}
+
+	/**
+	 * Opens a cached archive and marks it as recently used.
+	 *
+	 * @param dirName the directory name of the archived repository
+	 * @param entryName the name uniquely identifying the archive within its repository
+	 * @return a stream of the archive if it is cached, empty otherwise
+	 */
+	public synchronized Optional<InputStream> open(String dirName, String entryName) {
+		Path archive = archivePath(dirName, entryName);
+		// get() instead of containsKey() as only get() marks the entry as recently used
+		if (entries.get(archive) == null) {
+			return Optional.empty();
+		}
+
+		try {
+			return Optional.of(Files.newInputStream(archive));
+		} catch (IOException e) {
+			LOGGER.warn("Failed to open cached archive {}, removing it", archive, e);
+			remove(archive);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Adds a finished archive to the cache. The file itself is left untouched, the cache stores a
+	 * hard link to or a copy of it instead. Archives larger than the whole cache are not cached.
+	 *
+	 * <p>Failing to store the archive is only logged, the archive is just not cached in that case.
+	 *
+	 * @param dirName the directory name of the archived repository
+	 * @param entryName the name uniquely identifying the archive within its repository
+	 * @param file the finished archive
+	 */
+	public void put(String dirName, String entryName, Path file) {
+		if (!isEnabled()) {
+			return;
+		}
+
+		Path archive = archivePath(dirName, entryName);
+		if (file.toFile().length() > maxBytes) {
+			LOGGER.info("Not caching {} as it is larger than the whole cache", archive);
+			return;
+		}
+
+		Path tempFile = archive.resolveSibling(
+			archive.getFileName() + "-" + UUID.randomUUID() + TEMP_SUFFIX
+		);
+
+		try {
+			Files.createDirectories(tempFile.getParent());
+			try {
+				Files.createLink(tempFile, file);
+			} catch (IOException | UnsupportedOperationException e) {
+				Files.copy(file, tempFile);
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Failed to create cache entry {}", tempFile, e);
+			deleteQuietly(tempFile);
+			return;
+		}
+
+		add(archive, tempFile);
+	}
+
+	/**
+	 * Removes all cached archives of a repository.
+	 *
+	 * @param dirName the directory name of the repository
+	 */
+	public synchronized void invalidate(String dirName) {
+		Path repoDir = cacheDir.resolve(dirName);
+
+		List<Path> archives = entries.keySet().stream()
+			.filter(archive -> archive.startsWith(repoDir))
+			.collect(Collectors.toList());
+		archives.forEach(this::remove);
+
+		try {
+			DirectoryRemover.deleteDirectoryRecursive(repoDir);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to delete cached archives in {}", repoDir, e);
+		}
+	}
+
+	/**
+	 * @return the total size of all cached archives in bytes
+	 */
+	public synchronized long getCurrentBytes() {
+		return currentBytes;
+	}
+
+	private Path archivePath(String dirName, String entryName) {
+		return cacheDir.resolve(dirName).resolve(entryName + ARCHIVE_SUFFIX);
+	}
+
+	private synchronized void add(Path archive, Path tempFile) {
+		long size = tempFile.toFile().length();
+
+		try {
+			Files.move(tempFile, archive, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to add {} to the cache", archive, e);
+			deleteQuietly(tempFile);
+			return;
+		}
+
+		Long previousSize = entries.put(archive, size);
+		if (previousSize != null) {
+			currentBytes -= previousSize;
+		}
+		currentBytes += size;
+
+		evictIfNecessary();
+	}
+
+	private synchronized void remove(Path archive) {
+		Long size = entries.remove(archive);
+		if (size != null) {
+			currentBytes -= size;
+		}
+		deleteQuietly(archive);
+	}
+
+	private synchronized void evictIfNecessary() {
+		Iterator<Map.Entry<Path, Long>> iterator = entries.entrySet().iterator();
+
+		while (currentBytes > maxBytes && iterator.hasNext()) {
+			Map.Entry<Path, Long> entry = iterator.next();
+			iterator.remove();
+			currentBytes -= entry.getValue();
+
+			LOGGER.debug("Evicting {} from the cache", entry.getKey());
+			deleteQuietly(entry.getKey());
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to delete {}", file, e);
+		}
+	}
+
+}
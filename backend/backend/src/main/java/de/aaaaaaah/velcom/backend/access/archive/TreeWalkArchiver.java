@@ -0,0 +1,290 @@
+package de.aaaaaaah.velcom.backend.access.archive;
+
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.storage.repo.GuickCloning;
+import de.aaaaaaah.velcom.backend.storage.repo.GuickCloning.CloneException;
+import de.aaaaaaah.velcom.backend.storage.repo.RepoStorage;
+import de.aaaaaaah.velcom.backend.storage.repo.exception.AddRepositoryException;
+import de.aaaaaaah.velcom.backend.storage.repo.exception.RepositoryAcquisitionException;
+import de.aaaaaaah.velcom.backend.util.Pair;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.BlobBasedConfig;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.submodule.SubmoduleWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Archives a commit by walking its tree in the bare repository and writing every blob directly
+ * into the tar archive. Unlike cloning the repository, this needs no working tree on disk. The
+ * archive does not contain a ".git" directory.
+ *
+ * <p>Submodules are read from bare mirrors of their remotes, which are stored in the {@link
+ * RepoStorage} next to the normal repositories. A mirror is cloned when a submodule is first
+ * encountered and fetched whenever it is missing a commit. All mirrors are prepared before the
+ * archive is written, as adding a mirror to the storage is not possible while a repository of the
+ * storage is acquired.
+ */
+class TreeWalkArchiver {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TreeWalkArchiver.class);
+
+	private static final String SUBMODULE_MIRROR_PREFIX = "submodule_";
+	private static final int REGULAR_FILE_MODE = 0644;
+	private static final int EXECUTABLE_FILE_MODE = 0755;
+
+	private final RepoStorage repoStorage;
+
+	/**
+	 * Creates a new tree walk archiver.
+	 *
+	 * @param repoStorage the storage containing the local repositories. Submodule mirrors are
+	 * 	placed in here as well.
+	 */
+	TreeWalkArchiver(RepoStorage repoStorage) {
+		this.repoStorage = repoStorage;
+	}
+
+	/**
+	 * Writes a tar archive of the given commit to the output stream. The output stream is closed
+	 * afterwards.
+	 *
+	 * @param dirName the directory name of the repository to archive
+	 * @param commitHash the commit to archive
+	 * @param out where the archive is written to
+	 */
+	void archive(String dirName, CommitHash commitHash, OutputStream out)
+		throws IOException, RepositoryAcquisitionException, AddRepositoryException, CloneException,
+		ConfigInvalidException {
+
+		long start = System.currentTimeMillis();
+
+		try (out) {
+			ObjectId commitId;
+			try (Repository repository = repoStorage.acquireRepository(dirName)) {
+				commitId = repository.resolve(commitHash.getHash());
+			}
+			Objects.requireNonNull(commitId, "unknown commit hash "
+				+ commitHash + " for local repo " + dirName);
+
+			prepareSubmoduleMirrors(dirName, commitId);
+
+			try (Repository repository = repoStorage.acquireRepository(dirName)) {
+				TarArchiveOutputStream tarOut = new TarArchiveOutputStream(out);
+				tarOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+				tarOut.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+
+				writeCommit(repository, commitId, "", tarOut);
+
+				tarOut.finish();
+			}
+		} finally {
+			long end = System.currentTimeMillis();
+			LOGGER.info("Tree walk archive took {} ms... ({}/{})", end - start, dirName,
+				commitHash.getHash());
+		}
+	}
+
+	/**
+	 * Recursively makes sure that there is an up-to-date mirror for every submodule of a commit.
+	 *
+	 * @param dirName the directory name of the repository containing the commit
+	 * @param commitId the commit
+	 */
+	private void prepareSubmoduleMirrors(String dirName, ObjectId commitId)
+		throws IOException, RepositoryAcquisitionException, AddRepositoryException, CloneException,
+		ConfigInvalidException {
+
+		List<Pair<String, ObjectId>> submoduleCommits = new ArrayList<>();
+
+		try (Repository repository = repoStorage.acquireRepository(dirName);
+			RevWalk revWalk = new RevWalk(repository)) {
+
+			RevTree tree = revWalk.parseCommit(commitId).getTree();
+			for (Map.Entry<String, String> submodule : readSubmoduleUrls(repository, tree).entrySet()) {
+				try (TreeWalk walk = TreeWalk.forPath(repository, submodule.getKey(), tree)) {
+					if (walk != null && walk.getFileMode(0) == FileMode.GITLINK) {
+						// Relative urls are relative to the parent's remote
+						String remoteUrl = SubmoduleWalk.getSubmoduleRemoteUrl(
+							repository, submodule.getValue()
+						);
+						submoduleCommits.add(new Pair<>(remoteUrl, walk.getObjectId(0)));
+					}
+				}
+			}
+		}
+
+		for (Pair<String, ObjectId> submodule : submoduleCommits) {
+			String mirrorDirName = prepareMirror(submodule.getFirst(), submodule.getSecond());
+			prepareSubmoduleMirrors(mirrorDirName, submodule.getSecond());
+		}
+	}
+
+	private void writeCommit(Repository repository, ObjectId commitId, String prefix,
+		TarArchiveOutputStream tarOut)
+		throws IOException, RepositoryAcquisitionException, ConfigInvalidException {
+
+		try (RevWalk revWalk = new RevWalk(repository);
+			TreeWalk treeWalk = new TreeWalk(repository)) {
+
+			RevCommit commit = revWalk.parseCommit(commitId);
+			Date modTime = new Date(commit.getCommitTime() * 1000L);
+			Map<String, String> submoduleUrls = null;
+
+			treeWalk.addTree(commit.getTree());
+			treeWalk.setRecursive(true);
+			ObjectReader reader = treeWalk.getObjectReader();
+
+			while (treeWalk.next()) {
+				String path = prefix + treeWalk.getPathString();
+				FileMode mode = treeWalk.getFileMode(0);
+				ObjectId objectId = treeWalk.getObjectId(0);
+
+				if (mode == FileMode.GITLINK) {
+					if (submoduleUrls == null) {
+						submoduleUrls = readSubmoduleUrls(repository, commit.getTree());
+					}
+					String url = submoduleUrls.get(treeWalk.getPathString());
+					if (url == null) {
+						throw new ConfigInvalidException("no url for submodule at " + path);
+					}
+					writeSubmodule(repository, url, objectId, path + "/", tarOut);
+				} else if (mode == FileMode.SYMLINK) {
+					TarArchiveEntry entry = new TarArchiveEntry(path, TarConstants.LF_SYMLINK);
+					entry.setLinkName(
+						new String(reader.open(objectId).getBytes(), StandardCharsets.UTF_8)
+					);
+					entry.setModTime(modTime);
+					tarOut.putArchiveEntry(entry);
+					tarOut.closeArchiveEntry();
+				} else {
+					ObjectLoader loader = reader.open(objectId, Constants.OBJ_BLOB);
+					TarArchiveEntry entry = new TarArchiveEntry(path);
+					entry.setSize(loader.getSize());
+					entry.setMode(
+						mode == FileMode.EXECUTABLE_FILE ? EXECUTABLE_FILE_MODE : REGULAR_FILE_MODE
+					);
+					entry.setModTime(modTime);
+					tarOut.putArchiveEntry(entry);
+					loader.copyTo(tarOut);
+					tarOut.closeArchiveEntry();
+				}
+			}
+		}
+	}
+
+	private void writeSubmodule(Repository parent, String url, ObjectId commitId, String prefix,
+		TarArchiveOutputStream tarOut)
+		throws IOException, RepositoryAcquisitionException, ConfigInvalidException {
+
+		String remoteUrl = SubmoduleWalk.getSubmoduleRemoteUrl(parent, url);
+		String mirrorDirName = getMirrorDirName(remoteUrl);
+
+		try (Repository mirror = repoStorage.acquireRepository(mirrorDirName)) {
+			writeCommit(mirror, commitId, prefix, tarOut);
+		}
+	}
+
+	/**
+	 * Makes sure that there is a bare mirror of the given remote that contains the given commit.
+	 *
+	 * @param remoteUrl the url of the submodule's remote
+	 * @param commitId the commit the mirror needs to contain
+	 * @return the directory name of the mirror
+	 */
+	private synchronized String prepareMirror(String remoteUrl, ObjectId commitId)
+		throws IOException, RepositoryAcquisitionException, AddRepositoryException, CloneException {
+
+		String mirrorDirName = getMirrorDirName(remoteUrl);
+
+		if (!repoStorage.containsRepository(mirrorDirName)) {
+			LOGGER.info("Cloning submodule mirror for {}", remoteUrl);
+			repoStorage.addRepository(mirrorDirName, remoteUrl);
+			return mirrorDirName;
+		}
+
+		boolean fetched = false;
+		try (Repository mirror = repoStorage.acquireRepository(mirrorDirName)) {
+			if (!mirror.getObjectDatabase().has(commitId)) {
+				LOGGER.info("Fetching submodule mirror for {}", remoteUrl);
+				fetched = true;
+				GuickCloning.getInstance().updateBareRepo(mirror.getDirectory().toPath());
+			}
+		} finally {
+			if (fetched) {
+				repoStorage.invalidateRepository(mirrorDirName);
+			}
+		}
+
+		return mirrorDirName;
+	}
+
+	private static String getMirrorDirName(String remoteUrl) {
+		return SUBMODULE_MIRROR_PREFIX + sha1(remoteUrl);
+	}
+
+	/**
+	 * Reads the paths and urls of all submodules from the ".gitmodules" file in a tree.
+	 *
+	 * @param repository the repository containing the tree
+	 * @param tree the tree
+	 * @return a map from submodule path to url, sorted by path. Empty if there is no
+	 * 	".gitmodules" file.
+	 */
+	static Map<String, String> readSubmoduleUrls(Repository repository, RevTree tree)
+		throws IOException, ConfigInvalidException {
+
+		Map<String, String> urls = new TreeMap<>();
+
+		try (TreeWalk walk = TreeWalk.forPath(repository, Constants.DOT_GIT_MODULES, tree)) {
+			if (walk == null) {
+				return urls;
+			}
+
+			BlobBasedConfig gitmodules = new BlobBasedConfig(null, repository, walk.getObjectId(0));
+			for (String submodule : gitmodules.getSubsections("submodule")) {
+				String path = gitmodules.getString("submodule", submodule, "path");
+				String url = gitmodules.getString("submodule", submodule, "url");
+				if (path != null && url != null) {
+					urls.put(path, url);
+				}
+			}
+		}
+
+		return urls;
+	}
+
+	private static String sha1(String text) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			return ObjectId.fromRaw(digest.digest(text.getBytes(StandardCharsets.UTF_8))).getName();
+		} catch (NoSuchAlgorithmException e) {
+			// Every java implementation has to support SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
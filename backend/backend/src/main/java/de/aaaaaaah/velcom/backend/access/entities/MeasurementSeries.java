@@ -0,0 +1,155 @@
+package de.aaaaaaah.velcom.backend.access.entities;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalInt;
+
+/**
+ * The values of a single measurement in a repository over time. Contains one point per commit,
+ * taken from the most recent run that successfully produced the measurement for that commit.
+ *
+ * <p> The points are stored column-wise in primitive arrays and ordered by the start time of their
+ * runs (oldest first). This way, a graph can be built for thousands of commits without loading a
+ * single {@link Run}.
+ *
+ * <p> Use a {@link MeasurementSeriesBuilder} to create new series.
+ */
+public class MeasurementSeries {
+
+	private final RepoId repoId;
+	private final MeasurementName measurementName;
+	private final Unit unit;
+	private final Interpretation interpretation;
+
+	private final CommitHash[] commits;
+	private final long[] runStartTimes;
+	private final double[] averages;
+	private final double[] minimums;
+	private final double[] maximums;
+	private final double[] standardDeviations;
+
+	private final Map<CommitHash, Integer> commitIndices;
+
+	/**
+	 * Creates a new series. All arrays must have the same length and are not copied, so they must
+	 * not be modified afterwards.
+	 *
+	 * @param repoId the repo the measurement belongs to
+	 * @param measurementName the name of the measurement
+	 * @param unit the unit of the most recent point
+	 * @param interpretation the interpretation of the most recent point
+	 * @param commits the commit of each point
+	 * @param runStartTimes the start time of each point's run in epoch milliseconds
+	 * @param averages the average value of each point
+	 * @param minimums the minimum value of each point
+	 * @param maximums the maximum value of each point
+	 * @param standardDeviations the standard deviation of each point
+	 */
+	MeasurementSeries(RepoId repoId, MeasurementName measurementName, Unit unit,
+		Interpretation interpretation, CommitHash[] commits, long[] runStartTimes, double[] averages,
+		double[] minimums, double[] maximums, double[] standardDeviations) {
+
+		this.repoId = Objects.requireNonNull(repoId);
+		this.measurementName = Objects.requireNonNull(measurementName);
+		this.unit = Objects.requireNonNull(unit);
+		this.interpretation = Objects.requireNonNull(interpretation);
+		this.commits = Objects.requireNonNull(commits);
+		this.runStartTimes = Objects.requireNonNull(runStartTimes);
+		this.averages = Objects.requireNonNull(averages);
+		this.minimums = Objects.requireNonNull(minimums);
+		this.maximums = Objects.requireNonNull(maximums);
+		this.standardDeviations = Objects.requireNonNull(standardDeviations);
+
+		int size = commits.length;
+		if (runStartTimes.length != size || averages.length != size || minimums.length != size
+			|| maximums.length != size || standardDeviations.length != size) {
+			throw new IllegalArgumentException("all columns must have the same length");
+		}
+
+		Map<CommitHash, Integer> indices = new HashMap<>(size * 2);
+		for (int i = 0; i < size; i++) {
+			indices.put(commits[i], i);
+		}
+		this.commitIndices = Collections.unmodifiableMap(indices);
+	}
+
+	public RepoId getRepoId() {
+		return repoId;
+	}
+
+	public MeasurementName getMeasurementName() {
+		return measurementName;
+	}
+
+	/**
+	 * @return the unit of the most recent point in this series
+	 */
+	public Unit getUnit() {
+		return unit;
+	}
+
+	/**
+	 * @return the interpretation of the most recent point in this series
+	 */
+	public Interpretation getInterpretation() {
+		return interpretation;
+	}
+
+	/**
+	 * @return the amount of points (and thus commits) in this series
+	 */
+	public int size() {
+		return commits.length;
+	}
+
+	/**
+	 * Finds the point belonging to a commit.
+	 *
+	 * @param commitHash the hash of the commit
+	 * @return the index of the commit's point, or {@link OptionalInt#empty()} if this series has
+	 * 	no point for that commit
+	 */
+	public OptionalInt indexOf(CommitHash commitHash) {
+		Integer index = commitIndices.get(commitHash);
+		return index == null ? OptionalInt.empty() : OptionalInt.of(index);
+	}
+
+	public CommitHash getCommit(int index) {
+		return commits[index];
+	}
+
+	public Instant getRunStartTime(int index) {
+		return Instant.ofEpochMilli(runStartTimes[index]);
+	}
+
+	public double getAverage(int index) {
+		return averages[index];
+	}
+
+	public double getMinimum(int index) {
+		return minimums[index];
+	}
+
+	public double getMaximum(int index) {
+		return maximums[index];
+	}
+
+	public double getStandardDeviation(int index) {
+		return standardDeviations[index];
+	}
+
+	@Override
+	public String toString() {
+		return "MeasurementSeries{" +
+			"repoId=" + repoId +
+			", measurementName=" + measurementName +
+			", unit=" + unit +
+			", interpretation=" + interpretation +
+			", size=" + size() +
+			'}';
+	}
+
+}
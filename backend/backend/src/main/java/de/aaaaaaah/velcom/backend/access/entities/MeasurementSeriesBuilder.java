@@ -0,0 +1,168 @@
+package de.aaaaaaah.velcom.backend.access.entities;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A builder that allows the creation of new {@link MeasurementSeries} as well as extending
+ * existing ones.
+ */
+public class MeasurementSeriesBuilder {
+
+	/**
+	 * Creates a new builder containing all points of an existing series.
+	 *
+	 * @param series the series to copy the points from
+	 * @return a new builder instance
+	 */
+	public static MeasurementSeriesBuilder from(MeasurementSeries series) {
+		MeasurementSeriesBuilder builder = new MeasurementSeriesBuilder(
+			series.getRepoId(), series.getMeasurementName()
+		);
+
+		for (int i = 0; i < series.size(); i++) {
+			builder.addPoint(new Point(
+				series.getCommit(i),
+				series.getRunStartTime(i).toEpochMilli(),
+				series.getAverage(i),
+				series.getMinimum(i),
+				series.getMaximum(i),
+				series.getStandardDeviation(i),
+				series.getUnit(),
+				series.getInterpretation()
+			));
+		}
+
+		return builder;
+	}
+
+	private final RepoId repoId;
+	private final MeasurementName measurementName;
+	private final Map<CommitHash, Point> points;
+
+	/**
+	 * Creates a new builder for an empty series.
+	 *
+	 * @param repoId the repo the measurement belongs to
+	 * @param measurementName the name of the measurement
+	 */
+	public MeasurementSeriesBuilder(RepoId repoId, MeasurementName measurementName) {
+		this.repoId = Objects.requireNonNull(repoId);
+		this.measurementName = Objects.requireNonNull(measurementName);
+		this.points = new HashMap<>();
+	}
+
+	/**
+	 * Adds the values of a run to the series. If the series already contains a point for the
+	 * commit, only the values of the more recent run are kept.
+	 *
+	 * @param commitHash the commit the run belongs to
+	 * @param runStartTime the start time of the run
+	 * @param values the values the run produced for this series' measurement
+	 * @return this builder
+	 */
+	public MeasurementSeriesBuilder addValues(CommitHash commitHash, Instant runStartTime,
+		MeasurementValues values) {
+
+		MeasurementStatistics statistics = values.getStatistics();
+
+		addPoint(new Point(
+			commitHash,
+			runStartTime.toEpochMilli(),
+			statistics.getAverage(),
+			statistics.getMin(),
+			statistics.getMax(),
+			statistics.getStandardDeviation(),
+			values.getUnit(),
+			values.getInterpretation()
+		));
+
+		return this;
+	}
+
+	private void addPoint(Point point) {
+		points.merge(point.commitHash, point,
+			(oldPoint, newPoint) -> newPoint.runStartTime >= oldPoint.runStartTime ? newPoint : oldPoint
+		);
+	}
+
+	/**
+	 * Builds the series.
+	 *
+	 * @return the series, or {@link Optional#empty()} if no values were added
+	 */
+	public Optional<MeasurementSeries> build() {
+		if (points.isEmpty()) {
+			return Optional.empty();
+		}
+
+		List<Point> sortedPoints = new ArrayList<>(points.values());
+		sortedPoints.sort((a, b) -> Long.compare(a.runStartTime, b.runStartTime));
+
+		int size = sortedPoints.size();
+		CommitHash[] commits = new CommitHash[size];
+		long[] runStartTimes = new long[size];
+		double[] averages = new double[size];
+		double[] minimums = new double[size];
+		double[] maximums = new double[size];
+		double[] standardDeviations = new double[size];
+
+		for (int i = 0; i < size; i++) {
+			Point point = sortedPoints.get(i);
+			commits[i] = point.commitHash;
+			runStartTimes[i] = point.runStartTime;
+			averages[i] = point.average;
+			minimums[i] = point.minimum;
+			maximums[i] = point.maximum;
+			standardDeviations[i] = point.standardDeviation;
+		}
+
+		// The unit and interpretation of a measurement can change over time, the most recent ones
+		// are the most relevant
+		Point mostRecent = sortedPoints.get(size - 1);
+
+		return Optional.of(new MeasurementSeries(
+			repoId,
+			measurementName,
+			mostRecent.unit,
+			mostRecent.interpretation,
+			commits,
+			runStartTimes,
+			averages,
+			minimums,
+			maximums,
+			standardDeviations
+		));
+	}
+
+	private static class Point {
+
+		private final CommitHash commitHash;
+		private final long runStartTime;
+		private final double average;
+		private final double minimum;
+		private final double maximum;
+		private final double standardDeviation;
+		private final Unit unit;
+		private final Interpretation interpretation;
+
+		private Point(CommitHash commitHash, long runStartTime, double average, double minimum,
+			double maximum, double standardDeviation, Unit unit, Interpretation interpretation) {
+
+			this.commitHash = commitHash;
+			this.runStartTime = runStartTime;
+			this.average = average;
+			this.minimum = minimum;
+			this.maximum = maximum;
+			this.standardDeviation = standardDeviation;
+			this.unit = unit;
+			this.interpretation = interpretation;
+		}
+	}
+
+}
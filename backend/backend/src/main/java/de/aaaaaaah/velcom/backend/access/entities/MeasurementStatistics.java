@@ -0,0 +1,135 @@
+package de.aaaaaaah.velcom.backend.access.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Aggregated values of a successful {@link Measurement}. These are computed once when a
+ * measurement is created and stored alongside it, so they do not need to be recomputed from the
+ * individual values every time they are needed.
+ */
+public class MeasurementStatistics {
+
+	/**
+	 * Computes the statistics of the given values.
+	 *
+	 * @param values the values. Must not be empty.
+	 * @return the statistics of the values
+	 * @throws IllegalArgumentException if the values are empty
+	 */
+	public static MeasurementStatistics of(List<Double> values) {
+		if (values.isEmpty()) {
+			throw new IllegalArgumentException("values must not be empty");
+		}
+
+		List<Double> sorted = new ArrayList<>(values);
+		Collections.sort(sorted);
+
+		int count = sorted.size();
+
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		double average = sum / count;
+
+		double median;
+		if (count % 2 == 0) {
+			median = (sorted.get(count / 2 - 1) + sorted.get(count / 2)) / 2;
+		} else {
+			median = sorted.get(count / 2);
+		}
+
+		// Sample standard deviation
+		double standardDeviation = 0;
+		if (count > 1) {
+			double squaredDifferences = 0;
+			for (double value : sorted) {
+				squaredDifferences += (value - average) * (value - average);
+			}
+			standardDeviation = Math.sqrt(squaredDifferences / (count - 1));
+		}
+
+		return new MeasurementStatistics(count, average, median, sorted.get(0),
+			sorted.get(count - 1), standardDeviation);
+	}
+
+	private final int count;
+	private final double average;
+	private final double median;
+	private final double min;
+	private final double max;
+	private final double standardDeviation;
+
+	public MeasurementStatistics(int count, double average, double median, double min, double max,
+		double standardDeviation) {
+
+		this.count = count;
+		this.average = average;
+		this.median = median;
+		this.min = min;
+		this.max = max;
+		this.standardDeviation = standardDeviation;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public double getAverage() {
+		return average;
+	}
+
+	public double getMedian() {
+		return median;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	public double getStandardDeviation() {
+		return standardDeviation;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		MeasurementStatistics that = (MeasurementStatistics) o;
+		return count == that.count &&
+			Double.compare(that.average, average) == 0 &&
+			Double.compare(that.median, median) == 0 &&
+			Double.compare(that.min, min) == 0 &&
+			Double.compare(that.max, max) == 0 &&
+			Double.compare(that.standardDeviation, standardDeviation) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(count, average, median, min, max, standardDeviation);
+	}
+
+	@Override
+	public String toString() {
+		return "MeasurementStatistics{" +
+			"count=" + count +
+			", average=" + average +
+			", median=" + median +
+			", min=" + min +
+			", max=" + max +
+			", standardDeviation=" + standardDeviation +
+			'}';
+	}
+
+}
@@ -3,34 +3,61 @@ package de.aaaaaaah.velcom.backend.access.entities;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.Nullable;
 
 /**
  * This class represents a successful {@link Measurement}'s state, which contains the measurement
  * values as well as their {@link Unit} and {@link Interpretation}.
+ *
+ * <p> The {@link MeasurementStatistics} are always available. The individual values may be left
+ * out if they were not needed when loading the measurement.
  */
 public class MeasurementValues {
 
-	public static double calculateAverage(List<Double> values) {
-		double sum = 0;
-		for (Double value : values) {
-			sum += value;
-		}
-
-		return sum / values.size();
-	}
-
+	private final MeasurementStatistics statistics;
+	@Nullable
 	private final List<Double> values;
 	private final Unit unit;
 	private final Interpretation interpretation;
 
+	/**
+	 * Creates new measurement values and computes their statistics.
+	 *
+	 * @param values the individual values. Must not be empty.
+	 * @param unit the unit
+	 * @param interpretation the interpretation
+	 */
 	public MeasurementValues(List<Double> values, Unit unit, Interpretation interpretation) {
-		this.values = Collections.unmodifiableList(Objects.requireNonNull(values));
+		this(MeasurementStatistics.of(values), values, unit, interpretation);
+	}
+
+	/**
+	 * Creates new measurement values from already computed statistics.
+	 *
+	 * @param statistics the statistics of the values
+	 * @param values the individual values, or null if they are not available
+	 * @param unit the unit
+	 * @param interpretation the interpretation
+	 */
+	public MeasurementValues(MeasurementStatistics statistics, @Nullable List<Double> values,
+		Unit unit, Interpretation interpretation) {
+
+		this.statistics = Objects.requireNonNull(statistics);
+		this.values = values == null ? null : Collections.unmodifiableList(values);
 		this.unit = Objects.requireNonNull(unit);
 		this.interpretation = Objects.requireNonNull(interpretation);
 	}
 
-	public List<Double> getValues() {
-		return values;
+	public MeasurementStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return the individual values, or {@link Optional#empty()} if they were not loaded
+	 */
+	public Optional<List<Double>> getValues() {
+		return Optional.ofNullable(values);
 	}
 
 	public Unit getUnit() {
@@ -42,7 +69,14 @@ public class MeasurementValues {
 	}
 
 	public double getAverageValue() {
-		return calculateAverage(values);
+		return statistics.getAverage();
+	}
+
+	/**
+	 * @return a copy of these measurement values without the individual values
+	 */
+	public MeasurementValues withoutValues() {
+		return values == null ? this : new MeasurementValues(statistics, null, unit, interpretation);
 	}
 
 	@Override
@@ -54,20 +88,22 @@ public class MeasurementValues {
 			return false;
 		}
 		MeasurementValues that = (MeasurementValues) o;
-		return values.equals(that.values) &&
+		return statistics.equals(that.statistics) &&
+			Objects.equals(values, that.values) &&
 			unit.equals(that.unit) &&
 			interpretation == that.interpretation;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(values, unit, interpretation);
+		return Objects.hash(statistics, values, unit, interpretation);
 	}
 
 	@Override
 	public String toString() {
 		return "MeasurementValues{" +
-			"values=" + values +
+			"statistics=" + statistics +
+			", values=" + values +
 			", unit=" + unit +
 			", interpretation=" + interpretation +
 			'}';
@@ -0,0 +1,180 @@
+package de.aaaaaaah.velcom.backend.data.linearlog;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.aaaaaaah.velcom.backend.access.CommitReadAccess;
+import de.aaaaaaah.velcom.backend.access.RepoReadAccess;
+import de.aaaaaaah.velcom.backend.access.entities.Branch;
+import de.aaaaaaah.velcom.backend.access.entities.BranchName;
+import de.aaaaaaah.velcom.backend.access.entities.Commit;
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import de.aaaaaaah.velcom.backend.util.Pair;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A linear log that remembers the order of another linear log in a {@link LinearLogIndex} per repo
+ * and set of branches. Finding the neighbours of a commit or the commit at an offset doesn't
+ * require walking the log again.
+ *
+ * <p> Indices are only rebuilt once they are invalidated via {@link #invalidate(RepoId)}, which
+ * must be called whenever the branches of a repo change.
+ */
+public class CachedLinearLog implements LinearLog {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CachedLinearLog.class);
+
+	private final LinearLog linearLog;
+	private final CommitReadAccess commitAccess;
+	private final RepoReadAccess repoAccess;
+
+	private final Cache<Pair<RepoId, Set<BranchName>>, VersionedIndex> indexCache = Caffeine
+		.newBuilder()
+		.maximumSize(100)
+		.build();
+	private final Map<RepoId, Long> versions = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a new cached linear log.
+	 *
+	 * @param linearLog the linear log whose order to cache
+	 * @param commitAccess used to load the commits of an index
+	 * @param repoAccess used to find a repo's tracked branches
+	 */
+	public CachedLinearLog(LinearLog linearLog, CommitReadAccess commitAccess,
+		RepoReadAccess repoAccess) {
+
+		this.linearLog = linearLog;
+		this.commitAccess = commitAccess;
+		this.repoAccess = repoAccess;
+	}
+
+	@Override
+	public Stream<Commit> walk(RepoId repo, Collection<BranchName> branches)
+		throws LinearLogException {
+
+		return linearLog.walk(repo, branches);
+	}
+
+	@Override
+	public List<CommitHash> walkHashes(RepoId repo, Collection<BranchName> branches)
+		throws LinearLogException {
+
+		return linearLog.walkHashes(repo, branches);
+	}
+
+	/**
+	 * Returns the index of a repo's linear log. The index is cached until the repo is invalidated.
+	 *
+	 * @param repoId the repo to take the commits from
+	 * @param branches the branches to restrict the commits to
+	 * @return the index of the linear log
+	 * @throws LinearLogException if the log could not be walked to build the index
+	 */
+	public LinearLogIndex getIndex(RepoId repoId, Collection<BranchName> branches)
+		throws LinearLogException {
+
+		Pair<RepoId, Set<BranchName>> key = new Pair<>(repoId, Set.copyOf(branches));
+		long version = versions.getOrDefault(repoId, 0L);
+
+		VersionedIndex cached = indexCache.getIfPresent(key);
+		if (cached != null && cached.version == version) {
+			return cached.index;
+		}
+
+		LinearLogIndex index = new LinearLogIndex(linearLog.walkHashes(repoId, branches));
+		// If the repo was invalidated while walking, the next call will just build the index again
+		indexCache.put(key, new VersionedIndex(version, index));
+
+		return index;
+	}
+
+	/**
+	 * Same as {@link #getIndex(RepoId, Collection)}, but for the repo's tracked branches.
+	 *
+	 * @param repoId the repo to take the commits from
+	 * @return the index of the linear log of the repo's tracked branches
+	 * @throws LinearLogException if the log could not be walked to build the index
+	 */
+	public LinearLogIndex getTrackedIndex(RepoId repoId) throws LinearLogException {
+		List<BranchName> trackedBranches = repoAccess.getTrackedBranches(repoId).stream()
+			.map(Branch::getName)
+			.collect(Collectors.toUnmodifiableList());
+
+		return getIndex(repoId, trackedBranches);
+	}
+
+	/**
+	 * Forgets all indices of a repo. Must be called whenever the repo's branches change.
+	 *
+	 * @param repoId the repo whose indices to forget
+	 */
+	public void invalidate(RepoId repoId) {
+		versions.merge(repoId, 1L, Long::sum);
+		indexCache.asMap().keySet().removeIf(key -> key.getFirst().equals(repoId));
+	}
+
+	@Override
+	public Optional<Commit> getPreviousCommit(Commit commit) {
+		return getPrevNextCommits(commit).getFirst();
+	}
+
+	@Override
+	public Pair<Optional<Commit>, Optional<Commit>> getPrevNextCommits(Commit commit) {
+		RepoId repoId = commit.getRepoId();
+
+		LinearLogIndex index;
+		try {
+			index = getTrackedIndex(repoId);
+		} catch (LinearLogException e) {
+			LOGGER.warn("Could not build linear log index for repo {}", repoId, e);
+			return new Pair<>(Optional.empty(), Optional.empty());
+		}
+
+		OptionalInt position = index.indexOf(commit.getHash());
+		if (position.isEmpty()) {
+			return new Pair<>(Optional.empty(), Optional.empty());
+		}
+
+		// The log starts with the most recent commit, so the previous commit comes after it
+		int prevPosition = position.getAsInt() + 1;
+		int nextPosition = position.getAsInt() - 1;
+
+		CommitHash prevHash = prevPosition < index.size() ? index.get(prevPosition) : null;
+		CommitHash nextHash = nextPosition >= 0 ? index.get(nextPosition) : null;
+
+		List<CommitHash> neighbours = Stream.of(prevHash, nextHash)
+			.filter(Objects::nonNull)
+			.collect(Collectors.toList());
+		Map<CommitHash, Commit> commits = commitAccess.getCommits(repoId, neighbours).stream()
+			.collect(Collectors.toMap(Commit::getHash, c -> c, (a, b) -> a));
+
+		Optional<Commit> prevCommit = Optional.ofNullable(prevHash).map(commits::get);
+		Optional<Commit> nextCommit = Optional.ofNullable(nextHash).map(commits::get);
+
+		return new Pair<>(prevCommit, nextCommit);
+	}
+
+	private static class VersionedIndex {
+
+		private final long version;
+		private final LinearLogIndex index;
+
+		private VersionedIndex(long version, LinearLogIndex index) {
+			this.version = version;
+			this.index = index;
+		}
+	}
+
+}
@@ -5,17 +5,19 @@ import de.aaaaaaah.velcom.backend.access.RepoReadAccess;
 import de.aaaaaaah.velcom.backend.access.entities.Branch;
 import de.aaaaaaah.velcom.backend.access.entities.BranchName;
 import de.aaaaaaah.velcom.backend.access.entities.Commit;
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import de.aaaaaaah.velcom.backend.access.exceptions.CommitLogException;
 import de.aaaaaaah.velcom.backend.util.Pair;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 /**
  * This is a linear log that is based on the log at {@link CommitReadAccess#getCommitLog(RepoId,
- * Collection)}, which is based on jgit's git log command.
+ * Collection)}, which orders commits like jgit's git log command.
  */
 public class CommitAccessBasedLinearLog implements LinearLog {
 
@@ -38,6 +40,17 @@ public class CommitAccessBasedLinearLog implements LinearLog {
 		}
 	}
 
+	@Override
+	public List<CommitHash> walkHashes(RepoId repoId, Collection<BranchName> branches)
+		throws LinearLogException {
+
+		try {
+			return commitAccess.getCommitLogHashes(repoId, branches);
+		} catch (CommitLogException e) {
+			throw new LinearLogException(e);
+		}
+	}
+
 	@Override
 	public Optional<Commit> getPreviousCommit(Commit commit) {
 		RepoId repoId = commit.getRepoId();
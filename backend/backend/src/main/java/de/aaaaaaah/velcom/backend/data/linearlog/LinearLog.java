@@ -3,6 +3,7 @@ package de.aaaaaaah.velcom.backend.data.linearlog;
 import de.aaaaaaah.velcom.backend.access.entities.Branch;
 import de.aaaaaaah.velcom.backend.access.entities.BranchName;
 import de.aaaaaaah.velcom.backend.access.entities.Commit;
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import de.aaaaaaah.velcom.backend.util.Pair;
 import java.util.Collection;
@@ -33,6 +34,24 @@ public interface LinearLog {
 	 */
 	Stream<Commit> walk(RepoId repo, Collection<BranchName> branches) throws LinearLogException;
 
+	/**
+	 * The hashes of the commits in a repo's linear log, in the same order as {@link #walk(RepoId,
+	 * Collection)}. Implementations may override this if they can find the order without loading
+	 * the commits.
+	 *
+	 * @param repo the repo to take the commits from
+	 * @param branches the branches to restrict the commits to
+	 * @return the hashes of the commits in the linear log
+	 * @throws LinearLogException if anything goes wrong
+	 */
+	default List<CommitHash> walkHashes(RepoId repo, Collection<BranchName> branches)
+		throws LinearLogException {
+
+		try (Stream<Commit> commits = walk(repo, branches)) {
+			return commits.map(Commit::getHash).collect(Collectors.toList());
+		}
+	}
+
 	/**
 	 * A helper function for {@link #walk(RepoId, Collection)} that takes {@link Branch}es instead of
 	 * {@link BranchName}s.
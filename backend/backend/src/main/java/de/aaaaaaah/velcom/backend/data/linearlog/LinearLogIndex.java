@@ -0,0 +1,74 @@
+package de.aaaaaaah.velcom.backend.data.linearlog;
+
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * A snapshot of a linear log, stored as an array of commit hashes plus a map from each hash to its
+ * position in the array. Position 0 is the first commit of the log (i. e. the most recent one).
+ *
+ * <p> All lookups, including finding a commit's neighbours, are O(1).
+ */
+public class LinearLogIndex {
+
+	private final CommitHash[] hashes;
+	private final Map<CommitHash, Integer> positions;
+
+	/**
+	 * Creates a new index. The list is copied.
+	 *
+	 * @param hashes the commits in the order of the linear log
+	 */
+	public LinearLogIndex(List<CommitHash> hashes) {
+		this.hashes = hashes.toArray(new CommitHash[0]);
+
+		Map<CommitHash, Integer> positions = new HashMap<>(this.hashes.length * 2);
+		for (int i = 0; i < this.hashes.length; i++) {
+			positions.put(this.hashes[i], i);
+		}
+		this.positions = Collections.unmodifiableMap(positions);
+	}
+
+	/**
+	 * @return the amount of commits in the linear log
+	 */
+	public int size() {
+		return hashes.length;
+	}
+
+	/**
+	 * @param commitHash the hash of the commit
+	 * @return the position of the commit in the linear log, or {@link OptionalInt#empty()} if it is
+	 * 	not part of the log
+	 */
+	public OptionalInt indexOf(CommitHash commitHash) {
+		Integer position = positions.get(commitHash);
+		return position == null ? OptionalInt.empty() : OptionalInt.of(position);
+	}
+
+	public CommitHash get(int index) {
+		return hashes[index];
+	}
+
+	/**
+	 * Returns the commits in a range of the log. The range is clamped to the size of the log.
+	 *
+	 * @param from the first position (inclusive)
+	 * @param to the last position (exclusive)
+	 * @return the hashes of the commits in that range, in the order of the log
+	 */
+	public List<CommitHash> getRange(int from, int to) {
+		int clampedFrom = Math.max(0, Math.min(from, hashes.length));
+		int clampedTo = Math.max(clampedFrom, Math.min(to, hashes.length));
+
+		return Collections.unmodifiableList(
+			Arrays.asList(Arrays.copyOfRange(hashes, clampedFrom, clampedTo))
+		);
+	}
+
+}
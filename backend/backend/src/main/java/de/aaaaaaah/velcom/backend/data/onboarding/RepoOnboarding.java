@@ -0,0 +1,234 @@
+package de.aaaaaaah.velcom.backend.data.onboarding;
+
+import de.aaaaaaah.velcom.backend.access.RepoWriteAccess;
+import de.aaaaaaah.velcom.backend.access.TokenWriteAccess;
+import de.aaaaaaah.velcom.backend.access.entities.AuthToken;
+import de.aaaaaaah.velcom.backend.access.entities.RemoteUrl;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import de.aaaaaaah.velcom.backend.listener.Listener;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adds new repos in the background, as cloning a large repo can take minutes. The status of an
+ * onboarding can be queried by the id of the new repo until some time after it finished.
+ */
+public class RepoOnboarding {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RepoOnboarding.class);
+
+	private static final int ONBOARDING_THREADS = 2;
+	private static final Duration FINISHED_RETENTION = Duration.ofHours(1);
+
+	private final RepoWriteAccess repoAccess;
+	private final TokenWriteAccess tokenAccess;
+	private final Listener listener;
+
+	private final ExecutorService executor;
+	private final Map<RepoId, OnboardingStatus> statuses;
+
+	public RepoOnboarding(RepoWriteAccess repoAccess, TokenWriteAccess tokenAccess,
+		Listener listener) {
+
+		this.repoAccess = repoAccess;
+		this.tokenAccess = tokenAccess;
+		this.listener = listener;
+
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(ONBOARDING_THREADS, runnable -> {
+			Thread thread = new Thread(runnable, "RepoOnboarding-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.statuses = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Starts adding a new repo. Once the repo is cloned and added, the listener searches it for
+	 * commits to benchmark.
+	 *
+	 * @param name the name of the repo
+	 * @param remoteUrl the remote url of the repo
+	 * @param token the token of the repo, if any
+	 * @return the status of the onboarding. Contains the id the repo will have.
+	 */
+	public OnboardingStatus startOnboarding(String name, RemoteUrl remoteUrl,
+		@Nullable AuthToken token) {
+
+		removeOldStatuses();
+
+		RepoId repoId = new RepoId();
+		OnboardingStatus status = new OnboardingStatus(
+			repoId, name, remoteUrl, OnboardingState.CLONING, null, Instant.now()
+		);
+		statuses.put(repoId, status);
+
+		executor.execute(() -> onboard(status, token));
+
+		return status;
+	}
+
+	/**
+	 * Returns the status of an onboarding.
+	 *
+	 * @param repoId the id of the repo that is onboarded
+	 * @return the status or an empty optional if no repo with that id was onboarded recently
+	 */
+	public Optional<OnboardingStatus> getStatus(RepoId repoId) {
+		return Optional.ofNullable(statuses.get(repoId));
+	}
+
+	private void onboard(OnboardingStatus status, @Nullable AuthToken token) {
+		RepoId repoId = status.getRepoId();
+
+		try {
+			repoAccess.addRepo(repoId, status.getName(), status.getRemoteUrl());
+		} catch (Exception e) {
+			LOGGER.warn("Failed to add repo {} from {}", repoId, status.getRemoteUrl(), e);
+			statuses.put(repoId, status.finish(
+				OnboardingState.FAILED, "Could not clone url: " + status.getRemoteUrl().getUrl()
+			));
+			return;
+		}
+
+		if (token != null) {
+			try {
+				tokenAccess.setToken(repoId, token);
+			} catch (Exception e) {
+				LOGGER.warn("Failed to set token of new repo {}, removing it again", repoId, e);
+				removeRepo(repoId);
+				statuses.put(repoId, status.finish(
+					OnboardingState.FAILED, "Could not set the repo token: " + e.getMessage()
+				));
+				return;
+			}
+		}
+
+		statuses.put(repoId, status.finish(OnboardingState.DONE, null));
+
+		try {
+			listener.checkForUnknownCommits(repoId);
+		} catch (Exception e) {
+			LOGGER.warn("Failed to run listener for new repo: " + repoId, e);
+		}
+	}
+
+	private void removeRepo(RepoId repoId) {
+		try {
+			repoAccess.deleteRepo(repoId);
+		} catch (Exception e) {
+			LOGGER.warn("Failed to remove repo {} after a failed onboarding", repoId, e);
+		}
+	}
+
+	private void removeOldStatuses() {
+		Instant threshold = Instant.now().minus(FINISHED_RETENTION);
+		statuses.values().removeIf(status -> status.getFinishTime()
+			.map(finishTime -> finishTime.isBefore(threshold))
+			.orElse(false)
+		);
+	}
+
+	/**
+	 * The states an onboarding goes through.
+	 */
+	public enum OnboardingState {
+		/**
+		 * The repo is being cloned.
+		 */
+		CLONING,
+		/**
+		 * The repo was added successfully.
+		 */
+		DONE,
+		/**
+		 * The repo could not be added.
+		 */
+		FAILED
+	}
+
+	/**
+	 * The status of a single onboarding.
+	 */
+	public static class OnboardingStatus {
+
+		private final RepoId repoId;
+		private final String name;
+		private final RemoteUrl remoteUrl;
+		private final OnboardingState state;
+		@Nullable
+		private final String error;
+		private final Instant startTime;
+		@Nullable
+		private final Instant finishTime;
+
+		private OnboardingStatus(RepoId repoId, String name, RemoteUrl remoteUrl,
+			OnboardingState state, @Nullable String error, Instant startTime) {
+
+			this(repoId, name, remoteUrl, state, error, startTime, null);
+		}
+
+		private OnboardingStatus(RepoId repoId, String name, RemoteUrl remoteUrl,
+			OnboardingState state, @Nullable String error, Instant startTime,
+			@Nullable Instant finishTime) {
+
+			this.repoId = Objects.requireNonNull(repoId);
+			this.name = Objects.requireNonNull(name);
+			this.remoteUrl = Objects.requireNonNull(remoteUrl);
+			this.state = Objects.requireNonNull(state);
+			this.error = error;
+			this.startTime = Objects.requireNonNull(startTime);
+			this.finishTime = finishTime;
+		}
+
+		private OnboardingStatus finish(OnboardingState state, @Nullable String error) {
+			return new OnboardingStatus(
+				repoId, name, remoteUrl, state, error, startTime, Instant.now()
+			);
+		}
+
+		public RepoId getRepoId() {
+			return repoId;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public RemoteUrl getRemoteUrl() {
+			return remoteUrl;
+		}
+
+		public OnboardingState getState() {
+			return state;
+		}
+
+		/**
+		 * @return the reason the onboarding failed, if it failed
+		 */
+		public Optional<String> getError() {
+			return Optional.ofNullable(error);
+		}
+
+		public Instant getStartTime() {
+			return startTime;
+		}
+
+		/**
+		 * @return the time the onboarding finished, if it finished
+		 */
+		public Optional<Instant> getFinishTime() {
+			return Optional.ofNullable(finishTime);
+		}
+	}
+}
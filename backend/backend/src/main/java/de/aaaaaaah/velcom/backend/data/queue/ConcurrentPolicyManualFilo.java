@@ -0,0 +1,289 @@
+package de.aaaaaaah.velcom.backend.data.queue;
+
+import de.aaaaaaah.velcom.backend.access.entities.Commit;
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import de.aaaaaaah.velcom.backend.util.Pair;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * A policy with the same order as {@link PolicyManualFilo} that is built on concurrent data
+ * structures.
+ *
+ * <p> Every task is indexed by its repo and commit hash, so checking whether a commit is already
+ * queued and aborting a task are O(1). Aborted tasks are only marked as such and stay in their
+ * stack until they would be returned by {@link #getNextTask()}, at which point they are skipped.
+ *
+ * <p> Adding, aborting and viewing tasks never block. Only {@link #getNextTask()} is synchronized
+ * since it needs to advance the round-robin over the repos.
+ */
+public class ConcurrentPolicyManualFilo implements QueuePolicy {
+
+	private final Map<Pair<RepoId, CommitHash>, Task> index = new ConcurrentHashMap<>();
+	private final Deque<Task> manualTasks = new ConcurrentLinkedDeque<>();
+	private final Map<RepoId, Deque<Task>> tasks = new ConcurrentHashMap<>();
+	private final Queue<RepoId> repoIdQueue = new ConcurrentLinkedQueue<>();
+
+	private static Pair<RepoId, CommitHash> keyOf(Commit commit) {
+		return new Pair<>(commit.getRepoId(), commit.getHash());
+	}
+
+	private Deque<Task> getRepoStack(RepoId repoId) {
+		return tasks.computeIfAbsent(repoId, id -> {
+			repoIdQueue.add(id);
+			return new ConcurrentLinkedDeque<>();
+		});
+	}
+
+	/**
+	 * Removes tasks from the top of the stack until a task is found that was not aborted.
+	 *
+	 * @return the first task that was not aborted, or null if there is no such task
+	 */
+	@Nullable
+	private Task pollTask(@Nullable Deque<Task> stack) {
+		if (stack == null) {
+			return null;
+		}
+
+		while (true) {
+			Task task = stack.pollFirst();
+			if (task == null || task.claim()) {
+				return task;
+			}
+		}
+	}
+
+	@Override
+	public boolean addTask(Commit commit) {
+		Task task = new Task(commit);
+
+		while (true) {
+			Task existingTask = index.putIfAbsent(keyOf(commit), task);
+			if (existingTask == null) {
+				break;
+			} else if (existingTask.isActive()) {
+				return false;
+			}
+
+			// The existing task was just returned by getNextTask() but not yet removed from the index
+			index.remove(keyOf(commit), existingTask);
+		}
+
+		getRepoStack(commit.getRepoId()).addFirst(task);
+		return true;
+	}
+
+	@Override
+	public boolean addManualTask(Commit commit) {
+		Task task = new Task(commit);
+		Task oldTask = index.put(keyOf(commit), task);
+		if (oldTask != null) {
+			oldTask.claim();
+		}
+
+		manualTasks.addFirst(task);
+		return true;
+	}
+
+	@Override
+	public synchronized Optional<Commit> getNextTask() {
+		Task task = pollTask(manualTasks);
+
+		final RepoId startRepoId = repoIdQueue.peek();
+		if (task == null && startRepoId != null) {
+			do {
+				repoIdQueue.add(repoIdQueue.remove());
+				task = pollTask(tasks.get(repoIdQueue.peek()));
+			} while (task == null && !startRepoId.equals(repoIdQueue.peek()));
+		}
+
+		if (task == null) {
+			return Optional.empty();
+		}
+
+		index.remove(keyOf(task.commit), task);
+		return Optional.of(task.commit);
+	}
+
+	/**
+	 * The returned list is only a weakly consistent view of the queue if tasks are added or removed
+	 * concurrently.
+	 *
+	 * @return sorted list of all current tasks
+	 */
+	@Override
+	public List<Commit> viewAllCurrentTasks() {
+		return viewTasks(0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Like {@link #viewAllCurrentTasks()}, this is only weakly consistent. Only the tasks up to the
+	 * end of the returned part are looked at.
+	 */
+	@Override
+	public List<Commit> viewTasks(int skip, int amount) {
+		Page page = new Page(skip, amount);
+		if (page.isFull()) {
+			return page.commits;
+		}
+
+		Iterator<Task> manualIterator = manualTasks.iterator();
+		for (Task task = nextActiveTask(manualIterator); task != null;
+			task = nextActiveTask(manualIterator)) {
+
+			if (!page.offer(task)) {
+				return page.commits;
+			}
+		}
+
+		// getNextTask() starts with the repo after the first one
+		List<RepoId> repoIds = new ArrayList<>(repoIdQueue);
+		Collections.rotate(repoIds, -1);
+
+		List<Iterator<Task>> stacks = repoIds.stream()
+			.map(tasks::get)
+			.filter(Objects::nonNull)
+			.map(Deque::iterator)
+			.collect(Collectors.toCollection(ArrayList::new));
+
+		// Round-robin over the repos, dropping a repo once it has no more tasks
+		while (!stacks.isEmpty()) {
+			Iterator<Iterator<Task>> stackIterator = stacks.iterator();
+			while (stackIterator.hasNext()) {
+				Task task = nextActiveTask(stackIterator.next());
+				if (task == null) {
+					stackIterator.remove();
+				} else if (!page.offer(task)) {
+					return page.commits;
+				}
+			}
+		}
+
+		return page.commits;
+	}
+
+	/**
+	 * Every active task is in the index, so this is just the size of the index. Tasks that are
+	 * being returned by {@link #getNextTask()} or aborted right now might still be counted.
+	 */
+	@Override
+	public int getTaskCount() {
+		return index.size();
+	}
+
+	@Nullable
+	private static Task nextActiveTask(Iterator<Task> iterator) {
+		while (iterator.hasNext()) {
+			Task task = iterator.next();
+			if (task.isActive()) {
+				return task;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void abortTask(RepoId repoId, CommitHash commitHash) {
+		Task task = index.remove(new Pair<>(repoId, commitHash));
+		if (task != null) {
+			task.claim();
+		}
+	}
+
+	@Override
+	public Collection<Commit> abortAllTasksOfRepo(RepoId repoId) {
+		List<Commit> abortedTasks = new ArrayList<>();
+
+		Deque<Task> stack = tasks.get(repoId);
+		if (stack != null) {
+			abortAll(stack, repoId, abortedTasks);
+		}
+		abortAll(manualTasks, repoId, abortedTasks);
+
+		return abortedTasks;
+	}
+
+	private void abortAll(Deque<Task> stack, RepoId repoId, List<Commit> abortedTasks) {
+		stack.removeIf(task -> {
+			if (!task.commit.getRepoId().equals(repoId)) {
+				return false;
+			}
+
+			if (task.claim()) {
+				index.remove(keyOf(task.commit), task);
+				abortedTasks.add(task.commit);
+			}
+			return true;
+		});
+	}
+
+	private static class Page {
+
+		private final List<Commit> commits = new ArrayList<>();
+		private final int amount;
+		private int toSkip;
+
+		private Page(int skip, int amount) {
+			this.toSkip = skip;
+			this.amount = amount;
+		}
+
+		/**
+		 * Adds the task to the page unless it still needs to be skipped.
+		 *
+		 * @return false if the page is full now
+		 */
+		private boolean offer(Task task) {
+			if (toSkip > 0) {
+				toSkip--;
+			} else {
+				commits.add(task.commit);
+			}
+			return !isFull();
+		}
+
+		private boolean isFull() {
+			return commits.size() >= amount;
+		}
+	}
+
+	private static class Task {
+
+		private final Commit commit;
+		private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+		private Task(Commit commit) {
+			this.commit = commit;
+		}
+
+		/**
+		 * Marks this task as either executed or aborted. This can happen only once.
+		 *
+		 * @return true if this call claimed the task, false if it was already claimed before
+		 */
+		private boolean claim() {
+			return claimed.compareAndSet(false, true);
+		}
+
+		private boolean isActive() {
+			return !claimed.get();
+		}
+	}
+
+}
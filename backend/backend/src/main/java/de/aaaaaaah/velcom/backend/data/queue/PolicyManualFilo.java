@@ -101,7 +101,7 @@ public class PolicyManualFilo implements QueuePolicy {
 	 * @param commit the commit that has been added as task
 	 */
 	@Override
-	public boolean addTask(Commit commit) {
+	public synchronized boolean addTask(Commit commit) {
 		if (findManualTask(commit.getRepoId(), commit.getHash()).isPresent()
 			|| findTask(commit.getRepoId(), commit.getHash()).isPresent()) {
 			return false;
@@ -123,7 +123,7 @@ public class PolicyManualFilo implements QueuePolicy {
 	 * @param commit the commit that has been added as task
 	 */
 	@Override
-	public boolean addManualTask(Commit commit) {
+	public synchronized boolean addManualTask(Commit commit) {
 		abortTask(commit.getRepoId(), commit.getHash());
 		manualTasks.addFirst(commit);
 		return true;
@@ -138,7 +138,7 @@ public class PolicyManualFilo implements QueuePolicy {
 	 * </ol>
 	 */
 	@Override
-	public Optional<Commit> getNextTask() {
+	public synchronized Optional<Commit> getNextTask() {
 		//Return manual task
 		if (!manualTasks.isEmpty()) {
 			return Optional.of(manualTasks.removeFirst());
@@ -167,7 +167,7 @@ public class PolicyManualFilo implements QueuePolicy {
 	 * @return sorted list of all current tasks
 	 */
 	@Override
-	public List<Commit> viewAllCurrentTasks() {
+	public synchronized List<Commit> viewAllCurrentTasks() {
 		PolicyManualFilo pmf = copy();
 		List<Commit> currentTasks = new ArrayList<>();
 		while (true) {
@@ -180,6 +180,20 @@ public class PolicyManualFilo implements QueuePolicy {
 		return currentTasks;
 	}
 
+	@Override
+	public synchronized List<Commit> viewTasks(int skip, int amount) {
+		List<Commit> currentTasks = viewAllCurrentTasks();
+
+		int from = Math.min(skip, currentTasks.size());
+		int to = (int) Math.min(currentTasks.size(), (long) from + amount);
+		return new ArrayList<>(currentTasks.subList(from, to));
+	}
+
+	@Override
+	public synchronized int getTaskCount() {
+		return manualTasks.size() + tasks.values().stream().mapToInt(Deque::size).sum();
+	}
+
 	/**
 	 * Removes commit from queue.
 	 *
@@ -187,7 +201,7 @@ public class PolicyManualFilo implements QueuePolicy {
 	 * @param hash the commit hash of the commit to be removed
 	 */
 	@Override
-	public void abortTask(RepoId repoId, CommitHash hash) {
+	public synchronized void abortTask(RepoId repoId, CommitHash hash) {
 		removeTask(repoId, hash);
 		removeManualTask(repoId, hash);
 	}
@@ -204,7 +218,7 @@ public class PolicyManualFilo implements QueuePolicy {
 	}
 
 	@Override
-	public Collection<Commit> abortAllTasksOfRepo(RepoId repoId) {
+	public synchronized Collection<Commit> abortAllTasksOfRepo(RepoId repoId) {
 		List<Commit> abortedTasks = new ArrayList<>();
 		abortedTasks.addAll(removeTask(repoId));
 		abortedTasks.addAll(removeManualTask(repoId));
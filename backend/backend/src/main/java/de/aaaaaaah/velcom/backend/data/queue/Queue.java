@@ -9,11 +9,12 @@ import de.aaaaaaah.velcom.backend.access.entities.Commit;
 import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import de.aaaaaaah.velcom.backend.util.Pair;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,8 +28,9 @@ import org.slf4j.LoggerFactory;
  * benchmarked as well as the manual commits need to be added one by one again. The queue does
  * <em>>not</em> do this itself.
  *
- * <p> All publicly available functions in the queue are synchronized, which should make the queue
- * threadsafe to use.
+ * <p> The queue is threadsafe to use. Functions that modify the queue and the benchmark status of
+ * a commit are synchronized, so the two are always updated together. Getting the next task and
+ * viewing the queue only access the (threadsafe) policy, so they never wait for database writes.
  *
  * <p> The policy must follow these rules:
  * <ul>
@@ -53,12 +55,12 @@ public class Queue {
 		this.knownCommitAccess = knownCommitAccess;
 		this.queuePolicy = queuePolicy;
 
-		somethingAddedListeners = new ArrayList<>();
-		somethingAbortedListeners = new ArrayList<>();
+		somethingAddedListeners = new CopyOnWriteArrayList<>();
+		somethingAbortedListeners = new CopyOnWriteArrayList<>();
 
 		ServerMain.getMetricRegistry().register(
 			MetricRegistry.name(getClass(), "queue_length"),
-			(Gauge<Integer>) () -> viewAllCurrentTasks().size()
+			(Gauge<Integer>) queuePolicy::getTaskCount
 		);
 	}
 
@@ -113,7 +115,7 @@ public class Queue {
 		}
 	}
 
-	public synchronized Optional<Commit> getNextTask() {
+	public Optional<Commit> getNextTask() {
 		final Optional<Commit> nextTask = queuePolicy.getNextTask();
 		nextTask.ifPresent(commit -> LOGGER.info("Task " + commit + " has been started"));
 		return nextTask;
@@ -125,7 +127,7 @@ public class Queue {
 	 * @param repoId the repo the commit is in
 	 * @param commitHash the commit's hash
 	 */
-	public synchronized void finishTask(RepoId repoId, CommitHash commitHash) {
+	public void finishTask(RepoId repoId, CommitHash commitHash) {
 		knownCommitAccess.setBenchmarkStatus(repoId, commitHash,
 			BenchmarkStatus.NO_BENCHMARK_REQUIRED);
 		LOGGER.info(
@@ -140,10 +142,31 @@ public class Queue {
 	 *
 	 * @return the list of tasks in the order they will be executed
 	 */
-	public synchronized List<Commit> viewAllCurrentTasks() {
+	public List<Commit> viewAllCurrentTasks() {
 		return queuePolicy.viewAllCurrentTasks();
 	}
 
+	/**
+	 * Get a part of the tasks currently in the queue, in the order they are going to be executed
+	 * in. Unlike {@link #viewAllCurrentTasks()}, this doesn't need to look at the tasks after the
+	 * requested part.
+	 *
+	 * @param skip how many tasks at the start of the queue to skip
+	 * @param amount the maximum amount of tasks to return. If null, all remaining tasks are
+	 * 	returned.
+	 * @return the selected tasks in the order they will be executed
+	 */
+	public List<Commit> viewTasks(int skip, @Nullable Integer amount) {
+		return queuePolicy.viewTasks(skip, amount == null ? Integer.MAX_VALUE : amount);
+	}
+
+	/**
+	 * @return the amount of tasks currently in the queue
+	 */
+	public int getTaskCount() {
+		return queuePolicy.getTaskCount();
+	}
+
 	/**
 	 * Abort a commit's task.
 	 *
@@ -176,7 +199,7 @@ public class Queue {
 	 *
 	 * @param listener the listener to call if something is added to the queue
 	 */
-	public synchronized void onSomethingAdded(Consumer<Commit> listener) {
+	public void onSomethingAdded(Consumer<Commit> listener) {
 		somethingAddedListeners.add(listener);
 	}
 
@@ -189,7 +212,7 @@ public class Queue {
 	 *
 	 * @param listener the listener to call if a task is aborted
 	 */
-	public synchronized void onSomethingAborted(Consumer<Pair<RepoId, CommitHash>> listener) {
+	public void onSomethingAborted(Consumer<Pair<RepoId, CommitHash>> listener) {
 		somethingAbortedListeners.add(listener);
 	}
 
@@ -10,6 +10,8 @@ import java.util.Optional;
 /**
  * The queue policy decides the order in which the queue's tasks should be executed. A set of rules
  * that the policy must follow is detailed in the documentation of {@link Queue}.
+ *
+ * <p> Policies must be thread safe, since the queue calls them without holding a lock.
  */
 public interface QueuePolicy {
 
@@ -39,6 +41,21 @@ public interface QueuePolicy {
 	 */
 	List<Commit> viewAllCurrentTasks();
 
+	/**
+	 * Returns a part of the tasks in the order they are to be executed in. Tasks after that part
+	 * should not need to be looked at.
+	 *
+	 * @param skip how many tasks at the start to skip
+	 * @param amount the maximum amount of tasks to return
+	 * @return the selected tasks
+	 */
+	List<Commit> viewTasks(int skip, int amount);
+
+	/**
+	 * @return the amount of tasks. This should not require looking at every task.
+	 */
+	int getTaskCount();
+
 	/**
 	 * A task has been aborted.
 	 *
@@ -12,11 +12,9 @@ import de.aaaaaaah.velcom.backend.access.entities.BranchName;
 import de.aaaaaaah.velcom.backend.access.entities.Commit;
 import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.entities.Interpretation;
-import de.aaaaaaah.velcom.backend.access.entities.Measurement;
 import de.aaaaaaah.velcom.backend.access.entities.MeasurementName;
-import de.aaaaaaah.velcom.backend.access.entities.MeasurementValues;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementSeries;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
-import de.aaaaaaah.velcom.backend.access.entities.Run;
 import de.aaaaaaah.velcom.backend.access.entities.Unit;
 import java.time.Instant;
 import java.time.ZoneOffset;
@@ -25,7 +23,6 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -85,30 +82,30 @@ public class TimesliceComparison implements RepoComparison {
 		Map<CommitHash, Commit> commitMap = commitAccess.getCommitsBetween(repoId,
 			branches, startTime, stopTime);
 
-		// 2.) Get relevant runs & values
-		Map<CommitHash, Run> latestRuns = benchmarkAccess.getLatestRuns(repoId, commitMap.keySet());
+		// 2.) Get relevant values
+		Optional<MeasurementSeries> optionalSeries = benchmarkAccess.getMeasurementSeries(repoId,
+			measurementName);
 
-		if (latestRuns.isEmpty()) {
+		if (optionalSeries.isEmpty()) {
 			return Optional.empty(); // No graph data available
 		}
 
-		Map<CommitHash, MeasurementValues> valueMap = new HashMap<>();
+		MeasurementSeries series = optionalSeries.get();
+		Map<CommitHash, Integer> indexMap = new HashMap<>();
 
-		latestRuns.forEach((hash, run) -> {
-			findMeasurement(measurementName, run).ifPresent(values -> valueMap.put(hash, values));
+		commitMap.keySet().forEach(hash -> {
+			series.indexOf(hash).ifPresent(index -> indexMap.put(hash, index));
 		});
 
-		if (valueMap.isEmpty()) {
+		if (indexMap.isEmpty()) {
 			return Optional.empty(); // No graph data available
 		}
 
 		Instant oldestAuthorDate = null;
 		Instant youngestAuthorDate = null;
-		MeasurementValues youngestValues = null;
 
-		for (CommitHash commitHash : valueMap.keySet()) {
+		for (CommitHash commitHash : indexMap.keySet()) {
 			Commit commit = commitMap.get(commitHash);
-			Objects.requireNonNull(commit, "commit not found: " + commitHash);
 
 			Instant authorDate = commit.getAuthorDate();
 
@@ -118,12 +115,11 @@ public class TimesliceComparison implements RepoComparison {
 
 			if (youngestAuthorDate == null || authorDate.isAfter(youngestAuthorDate)) {
 				youngestAuthorDate = authorDate;
-				youngestValues = valueMap.get(commitHash);
 			}
 		}
 
-		Interpretation interpretation = youngestValues.getInterpretation();
-		Unit unit = youngestValues.getUnit();
+		Interpretation interpretation = series.getInterpretation();
+		Unit unit = series.getUnit();
 
 		if (startTime == null) {
 			startTime = oldestAuthorDate;
@@ -135,11 +131,10 @@ public class TimesliceComparison implements RepoComparison {
 		// 3.) Build graph data (convert pairs to GraphEntry instances & group them)
 		List<GraphEntry> entries = new ArrayList<>();
 
-		valueMap.forEach((hash, values) -> {
+		indexMap.forEach((hash, index) -> {
 			Commit commit = commitMap.get(hash);
-			Objects.requireNonNull(commit, "commit not found: " + hash);
 
-			entries.add(new GraphEntry(commit, values.getAverageValue()));
+			entries.add(new GraphEntry(commit, series.getAverage(index)));
 		});
 
 		final Map<Long, List<GraphEntry>> groupMap = groupEntries(
@@ -207,23 +202,4 @@ public class TimesliceComparison implements RepoComparison {
 		return grouper;
 	}
 
-	private Optional<MeasurementValues> findMeasurement(MeasurementName name, Run run) {
-		if (run.getMeasurements().isPresent()) {
-			Collection<Measurement> measurements = run.getMeasurements().get();
-
-			Measurement measurement = measurements.stream()
-				.filter(m -> m.getMeasurementName().equals(name))
-				.findAny()
-				.orElse(null);
-
-			if (measurement != null && measurement.getContent().getRight().isPresent()) {
-				MeasurementValues values = measurement.getContent().getRight().get();
-				return Optional.of(values);
-			}
-		}
-
-		return Optional.empty();
-	}
-
 }
-
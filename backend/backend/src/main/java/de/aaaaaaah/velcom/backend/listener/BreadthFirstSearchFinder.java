@@ -1,21 +1,23 @@
 package de.aaaaaaah.velcom.backend.listener;
 
+import de.aaaaaaah.velcom.backend.access.CommitGraph;
 import de.aaaaaaah.velcom.backend.access.CommitReadAccess;
-import de.aaaaaaah.velcom.backend.access.CommitWalk;
 import de.aaaaaaah.velcom.backend.access.KnownCommitReadAccess;
 import de.aaaaaaah.velcom.backend.access.entities.Commit;
 import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.OptionalInt;
 import java.util.Queue;
-import java.util.Set;
 
 /**
- * A breadth first search implementation of {@link UnknownCommitFinder}.
+ * A breadth first search implementation of {@link UnknownCommitFinder}. The search runs on the
+ * repo's {@link CommitGraph}, so only the unknown commits that are found are read from the repo.
  */
 public class BreadthFirstSearchFinder implements UnknownCommitFinder {
 
@@ -25,38 +27,53 @@ public class BreadthFirstSearchFinder implements UnknownCommitFinder {
 	public Collection<Commit> find(CommitReadAccess commitAccess, KnownCommitReadAccess knownAccess,
 		Commit start) throws IOException {
 
-		try (CommitWalk walk = commitAccess.getCommitWalk(start)) {
-			List<Commit> unknownCommits = new ArrayList<>();
-			Set<CommitHash> visitedCommits = new HashSet<>();
+		RepoId repoId = start.getRepoId();
+		if (knownAccess.isKnown(repoId, start.getHash())) {
+			// Since this commit is known, all parents of this commit are known as well
+			return List.of();
+		}
 
-			Queue<Commit> commitQueue = new LinkedList<>();
-			commitQueue.add(walk.getStart());
+		CommitGraph graph = commitAccess.getCommitGraph(repoId);
+		OptionalInt startId = graph.getId(start.getHash());
+		if (startId.isEmpty()) {
+			// The commit is not reachable from any branch, so there are no parents to search
+			return List.of(start);
+		}
 
-			while (!commitQueue.isEmpty()) {
-				if (unknownCommits.size() >= MAX_COMMITS) {
-					break;
-				}
+		List<CommitHash> unknownHashes = new ArrayList<>();
+		BitSet visitedIds = new BitSet(graph.size());
 
-				Commit current = commitQueue.poll();
+		Queue<Integer> idQueue = new ArrayDeque<>();
+		idQueue.add(startId.getAsInt());
 
-				if (!visitedCommits.add(current.getHash())) {
-					// current commit was already visited within the context
-					// of this breadth first search
-					continue;
-				}
+		while (!idQueue.isEmpty()) {
+			if (unknownHashes.size() >= MAX_COMMITS) {
+				break;
+			}
 
-				if (knownAccess.isKnown(start.getRepoId(), current.getHash())) {
-					// Since this commit is known, all parents of this commit
-					// are known as well => skip this one
-					continue;
-				} else {
-					unknownCommits.add(current);
-					commitQueue.addAll(walk.getParents(current));
-				}
+			int current = idQueue.poll();
+
+			if (visitedIds.get(current)) {
+				// current commit was already visited within the context
+				// of this breadth first search
+				continue;
 			}
+			visitedIds.set(current);
 
-			return unknownCommits;
+			CommitHash currentHash = graph.getHash(current);
+			if (knownAccess.isKnown(repoId, currentHash)) {
+				// Since this commit is known, all parents of this commit
+				// are known as well => skip this one
+				continue;
+			} else {
+				unknownHashes.add(currentHash);
+				for (int parentId : graph.getParentIds(current)) {
+					idQueue.add(parentId);
+				}
+			}
 		}
+
+		return commitAccess.getCommits(repoId, unknownHashes);
 	}
 
 }
@@ -1,8 +1,15 @@
 package de.aaaaaaah.velcom.backend.listener;
 
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import de.aaaaaaah.velcom.backend.GlobalConfig;
+import de.aaaaaaah.velcom.backend.ServerMain;
+import de.aaaaaaah.velcom.backend.data.linearlog.CachedLinearLog;
 import de.aaaaaaah.velcom.backend.data.queue.Queue;
 import de.aaaaaaah.velcom.backend.access.CommitReadAccess;
 import de.aaaaaaah.velcom.backend.access.KnownCommitWriteAccess;
@@ -17,23 +24,35 @@ import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import de.aaaaaaah.velcom.backend.access.exceptions.NoSuchRepoException;
 import de.aaaaaaah.velcom.backend.access.exceptions.RepoAccessException;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A listener periodically checks if there are new commits on stored repositories and, if there are,
  * passes them to the queue.
+ *
+ * <p>Every repo is checked on its own schedule by a bounded pool of threads, so a slow remote
+ * only delays the check of its own repo. Repos without new commits are checked less often, up to
+ * the configured maximum poll interval. Only tracked branches that moved since they were last
+ * searched are searched for unknown commits.
  */
 public class Listener {
 
@@ -42,53 +61,133 @@ public class Listener {
 	private final RepoWriteAccess repoAccess;
 	private final CommitReadAccess commitAccess;
 	private final KnownCommitWriteAccess knownCommitAccess;
+	private final CachedLinearLog linearLog;
 	private final Queue queue;
 
-	private final ScheduledExecutorService executor;
-	private final Lock lock = new ReentrantLock();
+	private final Duration pollInterval;
+	private final Duration maxPollInterval;
+	private final ScheduledExecutorService scheduler;
+	private final ExecutorService checkExecutor;
+	private final Map<RepoId, RepoPoller> pollers = new ConcurrentHashMap<>();
+	private final Map<RepoId, Lock> repoLocks = new ConcurrentHashMap<>();
+	// The tracked branches of each repo that were searched for unknown commits at their current tip
+	private final Map<RepoId, Set<BranchName>> searchedBranches = new ConcurrentHashMap<>();
+
+	private final MetricRegistry metricRegistry;
+	private final AtomicInteger runningChecks = new AtomicInteger();
 
 	private final UnknownCommitFinder unknownCommitFinder;
 
 	/**
 	 * Constructs a new listener instance.
 	 *
-	 * @param config the config where the listener gets the poll interval from
+	 * @param config the config where the listener gets the poll intervals and thread count from
 	 * @param repoAccess used to read repo data
 	 * @param commitAccess used to read commit data
 	 * @param knownCommitAccess used to mark new commits as known
+	 * @param linearLog the linear log whose cache is invalidated when tracked branches move
 	 * @param queue the queue into which unknown commits will be inserted
 	 */
 	public Listener(GlobalConfig config, RepoWriteAccess repoAccess, CommitReadAccess commitAccess,
-		KnownCommitWriteAccess knownCommitAccess, Queue queue) {
+		KnownCommitWriteAccess knownCommitAccess, CachedLinearLog linearLog, Queue queue) {
 		this.repoAccess = repoAccess;
 		this.commitAccess = commitAccess;
 		this.knownCommitAccess = knownCommitAccess;
+		this.linearLog = linearLog;
 		this.queue = queue;
 
-		long pollInterval = config.getPollInterval();
+		pollInterval = Duration.ofSeconds(config.getPollInterval());
+		maxPollInterval = Duration.ofSeconds(config.getMaxPollInterval());
+
+		metricRegistry = ServerMain.getMetricRegistry();
+		metricRegistry.register(
+			MetricRegistry.name(getClass(), "running_checks"),
+			(Gauge<Integer>) runningChecks::get
+		);
+		metricRegistry.register(
+			MetricRegistry.name(getClass(), "polled_repos"),
+			(Gauge<Integer>) pollers::size
+		);
 
-		executor = Executors.newSingleThreadScheduledExecutor();
-		executor.scheduleAtFixedRate(this::update, 0, pollInterval, TimeUnit.SECONDS);
+		AtomicInteger threadCount = new AtomicInteger();
+		checkExecutor = Executors.newFixedThreadPool(config.getListenerThreads(), runnable -> {
+			Thread thread = new Thread(runnable, "Listener-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ListenerScheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(this::update, 0, pollInterval.toSeconds(), TimeUnit.SECONDS);
 
 		unknownCommitFinder = new BreadthFirstSearchFinder();
 	}
 
 	private void update() {
+		checkExecutor.execute(() -> {
+			try {
+				repoAccess.updateBenchmarkRepo();
+			} catch (RepoAccessException e) {
+				LOGGER.warn("Could not fetch updates from benchmark repo!", e);
+			}
+		});
+
 		try {
-			repoAccess.updateBenchmarkRepo();
-		} catch (RepoAccessException e) {
-			LOGGER.warn("Could not fetch updates from benchmark repo!", e);
+			updatePollers();
+		} catch (RuntimeException e) {
+			// Exceptions would stop the scheduled update for good
+			LOGGER.warn("Could not update the polled repos!", e);
 		}
+	}
 
-		for (Repo repo : repoAccess.getAllRepos()) {
-			try {
-				checkForUnknownCommits(repo.getRepoId());
-			} catch (CommitSearchException | RepoAccessException | NoSuchRepoException e) {
-				LOGGER.warn("Could not fetch updates for repo: " + repo, e);
+	/**
+	 * Starts polling new repos and stops polling deleted ones.
+	 */
+	private void updatePollers() {
+		Set<RepoId> repoIds = repoAccess.getAllRepos().stream()
+			.map(Repo::getRepoId)
+			.collect(toSet());
+
+		for (RepoId repoId : repoIds) {
+			pollers.computeIfAbsent(repoId, this::startPolling);
+		}
+
+		Iterator<RepoPoller> iterator = pollers.values().iterator();
+		while (iterator.hasNext()) {
+			RepoPoller poller = iterator.next();
+			if (!repoIds.contains(poller.repoId)) {
+				iterator.remove();
+				poller.stop();
 			}
 		}
 	}
 
+	private RepoPoller startPolling(RepoId repoId) {
+		RepoPoller poller = new RepoPoller(repoId);
+		poller.schedule(Duration.ZERO);
+		return poller;
+	}
+
+	/**
+	 * Checks a repo for new commits as soon as possible, e.g. because commits were pushed to it.
+	 * Returns immediately and runs the check in the background. Requests arriving while a check
+	 * is still waiting to start are merged into that check, so a burst of pushes only causes one
+	 * or two fetches.
+	 *
+	 * @param repoId the id of the repository to check
+	 */
+	public void requestCheck(RepoId repoId) {
+		RepoPoller poller = pollers.get(repoId);
+		if (poller == null) {
+			// Starting to poll a repo checks it right away
+			pollers.computeIfAbsent(repoId, this::startPolling);
+		} else {
+			poller.trigger();
+		}
+	}
+
 	/**
 	 * Checks for new commits on the specified repository and passes the new commits to the queue.
 	 *
@@ -97,18 +196,46 @@ public class Listener {
 	public void checkForUnknownCommits(RepoId repoId)
 		throws CommitSearchException, RepoAccessException, NoSuchRepoException {
 
+		findUnknownCommits(repoId);
+	}
+
+	/**
+	 * Checks for new commits on the specified repository and passes the new commits to the queue.
+	 *
+	 * @param repoId the id of the repository to check for
+	 * @return whether commits of a repo with known commits were added to the queue
+	 */
+	private boolean findUnknownCommits(RepoId repoId)
+		throws CommitSearchException, RepoAccessException, NoSuchRepoException {
+
 		long start = System.currentTimeMillis();
 
+		Lock lock = getRepoLock(repoId);
+		lock.lock();
+		runningChecks.incrementAndGet();
 		try {
-			this.lock.lock();
-
 			LOGGER.info("Checking for unknown commits on repo: {}", repoId);
 
 			Repo repo = repoAccess.getRepo(repoId);
 
-			repoAccess.updateRepo(repoId);
+			Set<BranchName> changedBranches;
+			Timer fetchTimer = metricRegistry.timer(repoMetricName("fetch_duration", repoId));
+			try (Timer.Context ignored = fetchTimer.time()) {
+				changedBranches = repoAccess.updateRepo(repoId);
+			}
+
+			boolean hasKnownCommits = knownCommitAccess.hasKnownCommits(repoId);
 
-			if (!knownCommitAccess.hasKnownCommits(repoId)) {
+			if (!hasKnownCommits || !changedBranches.isEmpty()) {
+				// Add the fetched commits to the commit graph now instead of on the next request
+				commitAccess.getCommitGraph(repoId);
+			}
+
+			Set<BranchName> trackedBranchNames = repo.getTrackedBranches().stream()
+				.map(Branch::getName)
+				.collect(toSet());
+
+			if (!hasKnownCommits) {
 				// this repository does not have any known commits which means that it must be new
 				// therefore only the first commit of each tracked branch is inserted into the queue
 				// and all other commits that exist so far will be marked as known
@@ -119,17 +246,13 @@ public class Listener {
 					.map(Branch::getName)
 					.collect(toList());
 
-				Collection<CommitHash> commits;
-				try (Stream<Commit> commitStream = commitAccess.getCommitLog(
-					repo.getRepoId(), branches)) {
-
-					commits = commitStream
-						.map(Commit::getHash)
-						.collect(Collectors.toUnmodifiableList());
-				}
+				Collection<CommitHash> commits = commitAccess.getCommitLogHashes(
+					repo.getRepoId(), branches
+				);
 
 				knownCommitAccess.setBenchmarkStatus(repoId, commits,
 					BenchmarkStatus.NO_BENCHMARK_REQUIRED);
+				linearLog.invalidate(repoId);
 
 				// (2): Set last commit of each tracked branch to BENCHMARK_REQUIRED
 				repo.getTrackedBranches()
@@ -137,15 +260,25 @@ public class Listener {
 					.map(repoAccess::getLatestCommitHash)
 					.map(commitHash -> commitAccess.getCommit(repoId, commitHash))
 					.forEach(queue::addTask);
+
+				searchedBranches.put(repoId, trackedBranchNames);
+				return false;
 			} else {
 				// The repo already has some known commits so we need to be smart about it
 				// Group all new commits across all tracked branches into this
 				// list before inserting them into the queue
 				List<Commit> allNewCommits = new ArrayList<>();
 
+				// Only branches that moved or were not searched before can lead to unknown commits
+				Set<BranchName> searched = searchedBranches.getOrDefault(repoId, Set.of());
+				List<Branch> branchesToSearch = repo.getTrackedBranches().stream()
+					.filter(branch -> changedBranches.contains(branch.getName())
+						|| !searched.contains(branch.getName()))
+					.collect(toList());
+
 				// (1): Find new commits
 				try {
-					for (Branch trackedBranch : repo.getTrackedBranches()) {
+					for (Branch trackedBranch : branchesToSearch) {
 						CommitHash startCommitHash = repoAccess.getLatestCommitHash(trackedBranch);
 						Commit startCommit = commitAccess.getCommit(repoId, startCommitHash);
 
@@ -161,18 +294,142 @@ public class Listener {
 					);
 				}
 
+				// Tracked branches can also move to known commits, e.g. after a fast-forward merge
+				if (!branchesToSearch.isEmpty()) {
+					linearLog.invalidate(repoId);
+				}
+				if (!allNewCommits.isEmpty()) {
+					recordDetectionLatency(repoId, allNewCommits);
+				}
+
 				// (2): Add new commits to queue (in a sorted manner)
 				allNewCommits.sort(Comparator.comparing(Commit::getAuthorDate));
 				allNewCommits.forEach(queue::addTask);
+
+				searchedBranches.put(repoId, trackedBranchNames);
+				return !allNewCommits.isEmpty();
 			}
 		} catch (Exception e) {
+			// Fetched branches will not show up as changed again, so search all of them next time
+			searchedBranches.remove(repoId);
 			throw new CommitSearchException(repoId, e);
 		} finally {
-			this.lock.unlock();
+			runningChecks.decrementAndGet();
+			lock.unlock();
 
 			long end = System.currentTimeMillis();
 			LOGGER.debug("checkForUnknownCommits({}) took {} ms", repoId.getId(), (end - start));
 		}
 	}
 
+	private Lock getRepoLock(RepoId repoId) {
+		return repoLocks.computeIfAbsent(repoId, id -> new ReentrantLock());
+	}
+
+	/**
+	 * Records how long it took to notice new commits, measured from their committer date.
+	 */
+	private void recordDetectionLatency(RepoId repoId, Collection<Commit> newCommits) {
+		Instant now = Instant.now();
+		Histogram histogram = metricRegistry.histogram(repoMetricName("detection_latency", repoId));
+
+		for (Commit commit : newCommits) {
+			long latency = Duration.between(commit.getCommitterDate(), now).toSeconds();
+			// Committer dates can be in the future if clocks are off
+			histogram.update(Math.max(0, latency));
+		}
+	}
+
+	private static String repoMetricName(String name, RepoId repoId) {
+		return MetricRegistry.name(Listener.class, name, repoId.getId().toString());
+	}
+
+	/**
+	 * Periodically checks a single repo for new commits.
+	 */
+	private class RepoPoller {
+
+		private final RepoId repoId;
+		private final PollSchedule schedule;
+		private final AtomicBoolean triggered = new AtomicBoolean();
+		private volatile boolean stopped;
+
+		private RepoPoller(RepoId repoId) {
+			this.repoId = repoId;
+			this.schedule = new PollSchedule(pollInterval, maxPollInterval);
+
+			metricRegistry.register(
+				repoMetricName("poll_interval", repoId),
+				(Gauge<Long>) () -> schedule.getInterval().toSeconds()
+			);
+		}
+
+		private void schedule(Duration delay) {
+			if (stopped) {
+				return;
+			}
+			scheduler.schedule(
+				() -> checkExecutor.execute(this::poll),
+				delay.toMillis(),
+				TimeUnit.MILLISECONDS
+			);
+		}
+
+		/**
+		 * Queues a check outside of the schedule, unless one is already queued and has not started
+		 * yet.
+		 */
+		private void trigger() {
+			if (triggered.compareAndSet(false, true)) {
+				checkExecutor.execute(this::triggeredCheck);
+			}
+		}
+
+		private void poll() {
+			if (stopped) {
+				return;
+			}
+
+			schedule(schedule.next(check()));
+		}
+
+		private void triggeredCheck() {
+			// The lock is reentrant, so the check can lock it again
+			Lock lock = getRepoLock(repoId);
+			lock.lock();
+			try {
+				// Requests arriving from now on may not be covered by this check's fetch anymore
+				triggered.set(false);
+
+				if (!stopped) {
+					check();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private boolean check() {
+			try {
+				return findUnknownCommits(repoId);
+			} catch (CommitSearchException | RepoAccessException | NoSuchRepoException e) {
+				LOGGER.warn("Could not fetch updates for repo: " + repoId, e);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Unexpected error while checking repo: " + repoId, e);
+			}
+			return false;
+		}
+
+		private void stop() {
+			stopped = true;
+			repoLocks.remove(repoId);
+			searchedBranches.remove(repoId);
+
+			String repoIdString = repoId.getId().toString();
+			metricRegistry.removeMatching((name, metric) ->
+				name.startsWith(Listener.class.getName()) && name.endsWith(repoIdString)
+			);
+		}
+	}
+
 }
@@ -0,0 +1,61 @@
+package de.aaaaaaah.velcom.backend.listener;
+
+import java.time.Duration;
+
+/**
+ * Decides how long to wait before checking a single repo again. Repos without new commits are
+ * checked less and less often, up to a maximum interval. Once new commits are found, the repo is
+ * checked at the minimum interval again.
+ */
+class PollSchedule {
+
+	private final Duration minInterval;
+	private final Duration maxInterval;
+
+	private Duration interval;
+
+	/**
+	 * Creates a new schedule starting at the minimum interval.
+	 *
+	 * @param minInterval the interval used for repos with new commits
+	 * @param maxInterval the longest interval used for repos without new commits
+	 */
+	PollSchedule(Duration minInterval, Duration maxInterval) {
+		if (minInterval.isNegative() || minInterval.isZero()) {
+			throw new IllegalArgumentException("minInterval must be positive: " + minInterval);
+		}
+		if (maxInterval.compareTo(minInterval) < 0) {
+			throw new IllegalArgumentException(
+				"maxInterval must not be smaller than minInterval: " + maxInterval
+			);
+		}
+
+		this.minInterval = minInterval;
+		this.maxInterval = maxInterval;
+		this.interval = minInterval;
+	}
+
+	/**
+	 * Updates the schedule after a check of the repo.
+	 *
+	 * @param foundNewCommits whether the check found new commits
+	 * @return the time to wait until the next check
+	 */
+	synchronized Duration next(boolean foundNewCommits) {
+		if (foundNewCommits) {
+			interval = minInterval;
+		} else {
+			Duration doubled = interval.multipliedBy(2);
+			interval = doubled.compareTo(maxInterval) > 0 ? maxInterval : doubled;
+		}
+		return interval;
+	}
+
+	/**
+	 * @return the current interval between checks
+	 */
+	synchronized Duration getInterval() {
+		return interval;
+	}
+
+}
@@ -2,9 +2,11 @@ package de.aaaaaaah.velcom.backend.restapi.endpoints;
 
 import de.aaaaaaah.velcom.backend.data.commitcomparison.CommitComparer;
 import de.aaaaaaah.velcom.backend.data.commitcomparison.CommitComparison;
-import de.aaaaaaah.velcom.backend.data.linearlog.LinearLog;
+import de.aaaaaaah.velcom.backend.data.linearlog.CachedLinearLog;
 import de.aaaaaaah.velcom.backend.data.linearlog.LinearLogException;
+import de.aaaaaaah.velcom.backend.data.linearlog.LinearLogIndex;
 import de.aaaaaaah.velcom.backend.access.BenchmarkReadAccess;
+import de.aaaaaaah.velcom.backend.access.CommitReadAccess;
 import de.aaaaaaah.velcom.backend.access.RepoReadAccess;
 import de.aaaaaaah.velcom.backend.access.entities.Commit;
 import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
@@ -12,14 +14,16 @@ import de.aaaaaaah.velcom.backend.access.entities.Repo;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import de.aaaaaaah.velcom.backend.access.entities.Run;
 import de.aaaaaaah.velcom.backend.restapi.jsonobjects.JsonCommitComparison;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.UUID;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.DefaultValue;
@@ -40,14 +44,17 @@ public class CommitHistoryEndpoint {
 	public static final int DEFAULT_SKIP = 0;
 
 	private final BenchmarkReadAccess benchmarkAccess;
+	private final CommitReadAccess commitAccess;
 	private final RepoReadAccess repoAccess;
-	private final LinearLog linearLog;
+	private final CachedLinearLog linearLog;
 	private final CommitComparer comparer;
 
-	public CommitHistoryEndpoint(BenchmarkReadAccess benchmarkAccess, RepoReadAccess repoAccess,
-		LinearLog linearLog, CommitComparer comparer) {
+	public CommitHistoryEndpoint(BenchmarkReadAccess benchmarkAccess,
+		CommitReadAccess commitAccess, RepoReadAccess repoAccess, CachedLinearLog linearLog,
+		CommitComparer comparer) {
 
 		this.benchmarkAccess = benchmarkAccess;
+		this.commitAccess = commitAccess;
 		this.repoAccess = repoAccess;
 		this.linearLog = linearLog;
 		this.comparer = comparer;
@@ -56,10 +63,16 @@ public class CommitHistoryEndpoint {
 	/**
 	 * Returns a list of the selected commits in the given repo.
 	 *
+	 * <p> The commits can either be selected via {@code relative_to} and {@code skip}, or via a
+	 * {@code cursor} from a previous reply. If a cursor is given, the other two parameters are
+	 * ignored and the page following the previous one is returned, even if new commits were added
+	 * to the repo in the meantime.
+	 *
 	 * @param repoUuid the id of the repository
 	 * @param amount how many commits to return
 	 * @param skip how many commits to skip before beginning to return commits
 	 * @param relativeToString commits are returned relative to this commit
+	 * @param cursor the {@code next_cursor} of a previous reply
 	 * @return the selected commits
 	 * @throws LinearLogException if the repository could not be brought into a linear shape for
 	 * 	some reason
@@ -69,94 +82,78 @@ public class CommitHistoryEndpoint {
 		@NotNull @QueryParam("repo_id") UUID repoUuid,
 		@Min(0) @DefaultValue("" + DEFAULT_AMOUNT) @QueryParam("amount") int amount,
 		@Min(0) @DefaultValue("" + DEFAULT_SKIP) @QueryParam("skip") int skip,
-		@QueryParam("relative_to") String relativeToString)
+		@QueryParam("relative_to") String relativeToString,
+		@QueryParam("cursor") String cursor)
 		throws LinearLogException {
 
 		final RepoId repoId = new RepoId(repoUuid);
 		final Repo repo = repoAccess.getRepo(repoId);
-		final Optional<CommitHash> relativeTo = Optional.ofNullable(relativeToString)
-			.map(CommitHash::new);
-
-		try (Stream<Commit> stream = linearLog.walkBranches(repoId, repo.getTrackedBranches())) {
-			Iterator<Commit> iterator = stream.iterator();
-
-			// 'offset' stores the offset of 'currentCommit' and is increased each time
-			// 'iterator.next()' is called.
-			Commit currentCommit = null;
-			int offset = -1;
-			boolean foundRelativeTo = false;
-
-			// 1. Find the commit that relative_to refers to
-			while (iterator.hasNext()) {
-				currentCommit = iterator.next();
-				offset++;
-				if (relativeTo.map(currentCommit.getHash()::equals).orElse(true)) {
-					foundRelativeTo = true;
-					break;
-				}
-			}
-			if (!foundRelativeTo) {
-				return new GetReply(List.of(), 0);
-			}
-			// We can be sure that 'currentCommit' is not null at this point, because it contains
-			// the commit that relativeTo refers to, and 'offset' contains its offset.
-
-			// 2. Skip as many commits as necessary
-			for (int i = 0; i < skip; i++) {
-				if (iterator.hasNext()) {
-					currentCommit = iterator.next();
-					offset++;
-				} else {
-					return new GetReply(List.of(), 0);
-				}
-			}
-			// Now, 'currentCommit' contains the first commit to be returned, and 'offset' contains
-			// its offset.
-
-			// 3. Take 'amount' commits. From this point on, 'currentCommit' is not used any more.
-			List<Commit> commits = new ArrayList<>();
-			commits.add(currentCommit);
-			for (int i = 0; i < amount - 1; i++) {
-				if (iterator.hasNext()) {
-					commits.add(iterator.next());
-				}
-			}
-
-			// 4. We usually need one more commit, for the CommitComparison of the last commit
-			boolean omitLastCommit = false;
-			if (iterator.hasNext()) {
-				omitLastCommit = true;
-				commits.add(iterator.next());
-			}
-
-			// 5. Get all the runs.
-			List<CommitHash> commitHashes = commits.stream()
-				.map(Commit::getHash)
-				.collect(Collectors.toUnmodifiableList());
-			Map<CommitHash, Run> runs = benchmarkAccess.getLatestRuns(repoId, commitHashes);
-
-			// 6. Compile the commit comparisons.
-			List<Commit> commitList = new ArrayList<>(commits);
-			List<CommitComparison> commitComparisons = new ArrayList<>();
-			for (int i = 0; i < commitList.size() - 1; i++) {
-				Commit from = commitList.get(i + 1);
-				Commit to = commitList.get(i);
-				CommitComparison comparison = comparer.compare(from, runs.get(from.getHash()), to,
-					runs.get(to.getHash()));
-				commitComparisons.add(comparison);
-			}
-
-			if (!omitLastCommit) { // There is at least one commit in the list
-				Commit to = commitList.get(commitList.size() - 1);
-				CommitComparison comparison = comparer.compare(null, null, to,
-					runs.get(to.getHash()));
-				commitComparisons.add(comparison);
-			}
-
-			// And the deed is done. Iterators are not nice to work with, but java streams don't
-			// easily support zipping, and for a one-off like this, it was easier to just use
-			// iterators.
-			return new GetReply(commitComparisons, offset);
+
+		final LinearLogIndex index = linearLog.getTrackedIndex(repo.getRepoId());
+
+		// 1. Find the offset of the first commit to return
+		final OptionalInt start;
+		if (cursor != null) {
+			Optional<CommitHash> cursorHash = decodeCursor(cursor);
+			start = cursorHash.isPresent() ? index.indexOf(cursorHash.get()) : OptionalInt.empty();
+		} else if (relativeToString != null) {
+			OptionalInt relativeTo = index.indexOf(new CommitHash(relativeToString));
+			start = relativeTo.isPresent() ? OptionalInt.of(relativeTo.getAsInt() + skip) : relativeTo;
+		} else {
+			start = OptionalInt.of(skip);
+		}
+
+		if (start.isEmpty() || start.getAsInt() >= index.size()) {
+			return new GetReply(List.of(), 0, null);
+		}
+		final int offset = start.getAsInt();
+
+		// 2. Load the commits. At least one commit is always returned, and we usually need one more
+		// commit for the CommitComparison of the last commit.
+		final int end = offset + Math.max(amount, 1);
+		List<Commit> commits = commitAccess.getCommits(repoId, index.getRange(offset, end + 1));
+		boolean omitLastCommit = end < index.size();
+
+		// 3. Get all the runs.
+		List<CommitHash> commitHashes = commits.stream()
+			.map(Commit::getHash)
+			.collect(Collectors.toUnmodifiableList());
+		Map<CommitHash, Run> runs = benchmarkAccess.getLatestRuns(repoId, commitHashes);
+
+		// 4. Compile the commit comparisons.
+		List<CommitComparison> commitComparisons = new ArrayList<>();
+		for (int i = 0; i < commits.size() - 1; i++) {
+			Commit from = commits.get(i + 1);
+			Commit to = commits.get(i);
+			CommitComparison comparison = comparer.compare(from, runs.get(from.getHash()), to,
+				runs.get(to.getHash()));
+			commitComparisons.add(comparison);
+		}
+
+		if (!omitLastCommit && !commits.isEmpty()) {
+			Commit to = commits.get(commits.size() - 1);
+			CommitComparison comparison = comparer.compare(null, null, to, runs.get(to.getHash()));
+			commitComparisons.add(comparison);
+		}
+
+		// 5. The next page starts with the commit we only needed for the last comparison
+		String nextCursor = omitLastCommit ? encodeCursor(index.get(end)) : null;
+
+		return new GetReply(commitComparisons, offset, nextCursor);
+	}
+
+	private static String encodeCursor(CommitHash hash) {
+		return Base64.getUrlEncoder()
+			.withoutPadding()
+			.encodeToString(hash.getHash().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Optional<CommitHash> decodeCursor(String cursor) {
+		try {
+			byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+			return Optional.of(new CommitHash(new String(bytes, StandardCharsets.UTF_8)));
+		} catch (IllegalArgumentException e) {
+			return Optional.empty();
 		}
 	}
 
@@ -164,12 +161,15 @@ public class CommitHistoryEndpoint {
 
 		private final List<JsonCommitComparison> commits;
 		private final int offset;
+		@Nullable
+		private final String nextCursor;
 
-		public GetReply(List<CommitComparison> commits, int offset) {
+		public GetReply(List<CommitComparison> commits, int offset, @Nullable String nextCursor) {
 			this.commits = commits.stream()
 				.map(JsonCommitComparison::new)
 				.collect(Collectors.toUnmodifiableList());
 			this.offset = offset;
+			this.nextCursor = nextCursor;
 		}
 
 		public List<JsonCommitComparison> getCommits() {
@@ -179,6 +179,11 @@ public class CommitHistoryEndpoint {
 		public int getOffset() {
 			return offset;
 		}
+
+		@Nullable
+		public String getNextCursor() {
+			return nextCursor;
+		}
 	}
 
 }
@@ -0,0 +1,45 @@
+package de.aaaaaaah.velcom.backend.restapi.endpoints;
+
+import de.aaaaaaah.velcom.backend.access.RepoWriteAccess;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import de.aaaaaaah.velcom.backend.listener.Listener;
+import de.aaaaaaah.velcom.backend.restapi.RepoUser;
+import io.dropwizard.auth.Auth;
+import java.util.UUID;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+
+/**
+ * The REST API endpoint that can be used as a webhook to notify the listener about pushes to a
+ * repo. The body of the request is ignored, so any webhook format works.
+ */
+@Path("/push-hook")
+public class PushHookEndpoint {
+
+	private final RepoWriteAccess repoAccess;
+	private final Listener listener;
+
+	public PushHookEndpoint(RepoWriteAccess repoAccess, Listener listener) {
+		this.repoAccess = repoAccess;
+		this.listener = listener;
+	}
+
+	/**
+	 * Checks the repo for new commits as soon as possible. Returns before the check is done.
+	 *
+	 * @param repoUuid the id of the repo that was pushed to
+	 */
+	@POST
+	public void post(@Auth RepoUser user, @NotNull @QueryParam("repo_id") UUID repoUuid) {
+		RepoId repoId = new RepoId(repoUuid);
+		user.guardRepoAccess(repoId);
+
+		// Throws a NoSuchRepoException if the repo does not exist
+		repoAccess.getRepo(repoId);
+
+		listener.requestCheck(repoId);
+	}
+
+}
@@ -22,9 +22,12 @@ import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -60,11 +63,19 @@ public class QueueEndpoint {
 	}
 
 	/**
-	 * @return all commits that are currently queued and all active runners.
+	 * Returns the commits that are currently queued and all active runners. By default, all queued
+	 * commits are returned. If an amount is specified, only that many commits are returned.
+	 *
+	 * @param skip how many commits at the start of the queue to skip
+	 * @param amount how many commits to return. If null, all remaining commits are returned.
+	 * @return the selected queued commits and all active runners.
 	 */
 	@GET
-	public GetReply get() {
-		List<JsonCommit> tasks = queue.viewAllCurrentTasks().stream()
+	public GetReply get(
+		@Min(0) @DefaultValue("0") @QueryParam("skip") int skip,
+		@Min(0) @QueryParam("amount") @Nullable Integer amount) {
+
+		List<JsonCommit> tasks = queue.viewTasks(skip, amount).stream()
 			.map(JsonCommit::new)
 			.collect(Collectors.toUnmodifiableList());
 
@@ -72,7 +83,7 @@ public class QueueEndpoint {
 			.map(JsonWorker::new)
 			.collect(Collectors.toUnmodifiableList());
 
-		return new GetReply(tasks, workers);
+		return new GetReply(tasks, queue.getTaskCount(), workers);
 	}
 
 	/**
@@ -130,10 +141,14 @@ public class QueueEndpoint {
 	private static class GetReply {
 
 		private final Collection<JsonCommit> tasks;
+		private final int taskCount;
 		private final Collection<JsonWorker> workers;
 
-		public GetReply(Collection<JsonCommit> tasks, Collection<JsonWorker> workers) {
+		public GetReply(Collection<JsonCommit> tasks, int taskCount,
+			Collection<JsonWorker> workers) {
+
 			this.tasks = tasks;
+			this.taskCount = taskCount;
 			this.workers = workers;
 		}
 
@@ -141,6 +156,10 @@ public class QueueEndpoint {
 			return tasks;
 		}
 
+		public int getTaskCount() {
+			return taskCount;
+		}
+
 		public Collection<JsonWorker> getWorkers() {
 			return workers;
 		}
@@ -12,12 +12,13 @@ import de.aaaaaaah.velcom.backend.access.entities.MeasurementName;
 import de.aaaaaaah.velcom.backend.access.entities.RemoteUrl;
 import de.aaaaaaah.velcom.backend.access.entities.Repo;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
-import de.aaaaaaah.velcom.backend.access.exceptions.AddRepoException;
+import de.aaaaaaah.velcom.backend.data.onboarding.RepoOnboarding;
+import de.aaaaaaah.velcom.backend.data.onboarding.RepoOnboarding.OnboardingState;
+import de.aaaaaaah.velcom.backend.data.onboarding.RepoOnboarding.OnboardingStatus;
 import de.aaaaaaah.velcom.backend.data.queue.Queue;
-import de.aaaaaaah.velcom.backend.listener.CommitSearchException;
-import de.aaaaaaah.velcom.backend.listener.Listener;
 import de.aaaaaaah.velcom.backend.restapi.RepoUser;
 import de.aaaaaaah.velcom.backend.restapi.jsonobjects.JsonRepo;
+import de.aaaaaaah.velcom.backend.restapi.jsonobjects.JsonRepoOnboarding;
 import de.aaaaaaah.velcom.backend.restapi.util.ErrorResponseUtil;
 import io.dropwizard.auth.Auth;
 import io.dropwizard.jersey.PATCH;
@@ -39,8 +40,6 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response.Status;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * The REST API endpoint allowing to query and modify repos.
@@ -50,24 +49,22 @@ import org.slf4j.LoggerFactory;
 @Produces(MediaType.APPLICATION_JSON)
 public class RepoEndpoint {
 
-	private static final Logger LOGGER = LoggerFactory.getLogger(RepoEndpoint.class);
-
 	private final RepoWriteAccess repoAccess;
 	private final TokenWriteAccess tokenAccess;
 	private final BenchmarkWriteAccess benchmarkAccess;
 
 	private final Queue queue;
-	private final Listener listener;
+	private final RepoOnboarding onboarding;
 
 	public RepoEndpoint(RepoWriteAccess repoAccess, TokenWriteAccess tokenAccess, Queue queue,
-		Listener listener, BenchmarkWriteAccess benchmarkAccess) {
+		RepoOnboarding onboarding, BenchmarkWriteAccess benchmarkAccess) {
 
 		this.repoAccess = repoAccess;
 		this.tokenAccess = tokenAccess;
 		this.benchmarkAccess = benchmarkAccess;
 
 		this.queue = queue;
-		this.listener = listener;
+		this.onboarding = onboarding;
 	}
 
 	/**
@@ -93,42 +90,60 @@ public class RepoEndpoint {
 	}
 
 	/**
-	 * Adds a new repo.
+	 * Starts adding a new repo. Cloning happens in the background, its progress can be queried
+	 * using {@link #getOnboarding(UUID)}.
 	 *
 	 * @param request the repo add metadata
-	 * @return the added repo
+	 * @return the onboarding of the new repo
 	 */
 	@POST
-	public GetReply post(@Auth RepoUser user, @NotNull PostRequest request) {
+	public OnboardingReply post(@Auth RepoUser user, @NotNull PostRequest request) {
 		user.guardAdminAccess();
 
-		Repo repo;
-		try {
-			repo = repoAccess.addRepo(request.getName(), request.getRemoteUrl());
-		} catch (AddRepoException e) {
-			ErrorResponseUtil.throwErrorResponse(Status.BAD_REQUEST,
-				"Could not clone url: " + request.getRemoteUrl().getUrl());
+		OnboardingStatus status = onboarding.startOnboarding(
+			request.getName(),
+			request.getRemoteUrl(),
+			request.getToken().map(AuthToken::new).orElse(null)
+		);
+
+		return new OnboardingReply(new JsonRepoOnboarding(status, null));
+	}
+
+	/**
+	 * Returns the progress of adding a new repo. Once the repo was added, the reply contains it.
+	 *
+	 * @param repoUuid the id of the new repo
+	 * @return the onboarding of the new repo
+	 */
+	@GET
+	@Path("onboarding")
+	public OnboardingReply getOnboarding(@NotNull @QueryParam("repo_id") UUID repoUuid) {
+		RepoId repoId = new RepoId(repoUuid);
+
+		Optional<OnboardingStatus> optionalStatus = onboarding.getStatus(repoId);
+		if (optionalStatus.isEmpty()) {
+			ErrorResponseUtil.throwErrorResponse(Status.NOT_FOUND,
+				"No repo with id " + repoUuid + " is being added");
 			return null; // To make intellij happy
 		}
+		OnboardingStatus status = optionalStatus.get();
 
-		request.getToken()
-			.map(AuthToken::new)
-			.ifPresent(token -> tokenAccess.setToken(repo.getRepoId(), token));
-
-		// Run listener on this repo on a separate thread
-		new Thread(() -> {
-			try {
-				listener.checkForUnknownCommits(repo.getRepoId());
-			} catch (CommitSearchException e) {
-				LOGGER.warn("Failed to run listener for new repo: " + repo, e);
-			}
-		}, "ListenerThreadFor" + repo.getRepoId().getId().toString()).start();
+		if (status.getState() == OnboardingState.FAILED) {
+			ErrorResponseUtil.throwErrorResponse(Status.BAD_REQUEST,
+				status.getError().orElse("Could not add repo"));
+			return null; // To make intellij happy
+		}
 
-		Collection<Branch> branches = repoAccess.getBranches(repo.getRepoId());
+		JsonRepo jsonRepo = null;
+		if (status.getState() == OnboardingState.DONE) {
+			Repo repo = repoAccess.getRepo(repoId);
+			Collection<Branch> branches = repoAccess.getBranches(repoId);
+			boolean hasToken = tokenAccess.hasToken(repoId);
 
-		boolean hasToken = request.getToken().isPresent();
+			jsonRepo = new JsonRepo(repo, branches, Collections.emptyList(), hasToken);
+		}
 
-		return new GetReply(new JsonRepo(repo, branches, Collections.emptyList(), hasToken));
+		return new OnboardingReply(new JsonRepoOnboarding(status, jsonRepo));
 	}
 
 	/**
@@ -189,6 +204,19 @@ public class RepoEndpoint {
 		}
 	}
 
+	private static class OnboardingReply {
+
+		private final JsonRepoOnboarding onboarding;
+
+		public OnboardingReply(JsonRepoOnboarding onboarding) {
+			this.onboarding = onboarding;
+		}
+
+		public JsonRepoOnboarding getOnboarding() {
+			return onboarding;
+		}
+	}
+
 	private static class PostRequest {
 
 		private final String name;
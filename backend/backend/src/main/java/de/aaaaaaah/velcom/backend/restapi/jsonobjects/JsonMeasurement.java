@@ -35,7 +35,7 @@ public class JsonMeasurement {
 			MeasurementValues measurementValues = content.getRight().get();
 			unit = measurementValues.getUnit().getName();
 			interpretation = measurementValues.getInterpretation().getTextualRepresentation();
-			values = measurementValues.getValues();
+			values = measurementValues.getValues().orElse(null);
 			value = measurementValues.getAverageValue();
 			errorMessage = null;
 		} else {
@@ -0,0 +1,53 @@
+package de.aaaaaaah.velcom.backend.restapi.jsonobjects;
+
+import de.aaaaaaah.velcom.backend.data.onboarding.RepoOnboarding.OnboardingStatus;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * A helper class for serialization representing the onboarding of a new repo.
+ */
+public class JsonRepoOnboarding {
+
+	private final UUID repoId;
+	private final String name;
+	private final String remoteUrl;
+	private final String state;
+	private final long startTime;
+	@Nullable
+	private final JsonRepo repo;
+
+	public JsonRepoOnboarding(OnboardingStatus status, @Nullable JsonRepo repo) {
+		repoId = status.getRepoId().getId();
+		name = status.getName();
+		remoteUrl = status.getRemoteUrl().getUrl();
+		state = status.getState().name();
+		startTime = status.getStartTime().getEpochSecond();
+		this.repo = repo;
+	}
+
+	public UUID getRepoId() {
+		return repoId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getRemoteUrl() {
+		return remoteUrl;
+	}
+
+	public String getState() {
+		return state;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public JsonRepo getRepo() {
+		return repo;
+	}
+
+}
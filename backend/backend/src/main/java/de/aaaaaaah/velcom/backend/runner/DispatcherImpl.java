@@ -2,9 +2,11 @@ package de.aaaaaaah.velcom.backend.runner;
 
 import static java.util.function.Predicate.not;
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import de.aaaaaaah.velcom.backend.ServerMain;
 import de.aaaaaaah.velcom.backend.access.BenchmarkWriteAccess;
 import de.aaaaaaah.velcom.backend.access.RepoWriteAccess;
@@ -17,6 +19,7 @@ import de.aaaaaaah.velcom.backend.access.entities.RunBuilder;
 import de.aaaaaaah.velcom.backend.access.entities.Unit;
 import de.aaaaaaah.velcom.backend.data.queue.Queue;
 import de.aaaaaaah.velcom.backend.runner.single.ActiveRunnerInformation;
+import de.aaaaaaah.velcom.backend.util.Pair;
 import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
 import de.aaaaaaah.velcom.runner.shared.protocol.StatusCodeMappings;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
@@ -32,6 +35,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.StringJoiner;
 import java.util.concurrent.ConcurrentHashMap;
@@ -48,6 +52,14 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The main dispatcher routine.
+ *
+ * <p> Dispatching happens in passes on a single thread. A pass hands a task to every free runner
+ * at once and then prepares and sends the repo archives for all of them in parallel, so a runner
+ * never has to wait for the archive of another runner to be transferred.
+ *
+ * <p> If prefetching is enabled, runners that support it also get their next task while they are
+ * still working on their current one. Its repo is sent to them in advance, throttled to disturb
+ * the running benchmark as little as possible, so they can start on it right after finishing.
  */
 public class DispatcherImpl implements Dispatcher {
 
@@ -58,10 +70,19 @@ public class DispatcherImpl implements Dispatcher {
 	private final RepoWriteAccess repoAccess;
 	private final BenchmarkWriteAccess benchmarkAccess;
 	private final Duration allowedRunnerDisconnectTime;
+	private final boolean prefetchWork;
+	private final long prefetchMaxBytesPerSecond;
 	private final java.util.Queue<ActiveRunnerInformation> freeRunners;
+	private final java.util.Queue<ActiveRunnerInformation> prefetchingRunners;
 	private final ScheduledExecutorService watchdogPool;
 	private final ExecutorService dispatcherExecutorPool;
+	private final ExecutorService archiveExecutorPool;
+	private final AtomicBoolean dispatchRequested;
+	private final Map<ActiveRunnerInformation, Long> dispatchStartTimes;
 	private final Histogram durationsHistogram;
+	private final Histogram batchSizesHistogram;
+	private final Timer dispatchLatencyTimer;
+	private final Counter prefetchedCounter;
 
 	/**
 	 * Creates a new dispatcher.
@@ -71,20 +92,32 @@ public class DispatcherImpl implements Dispatcher {
 	 * @param benchmarkAccess the benchmark access to store results in
 	 * @param allowedRunnerDisconnectTime the duration runners might be disconnected for before
 	 * 	they are given up on (removed and commit rescheduled)
+	 * @param prefetchWork whether to send runners their next task while they are still working
+	 * @param prefetchMaxBytesPerSecond the maximum average rate repos are prefetched with.
+	 * 	Unlimited if 0.
 	 */
 	public DispatcherImpl(Queue queue, RepoWriteAccess repoAccess,
-		BenchmarkWriteAccess benchmarkAccess, Duration allowedRunnerDisconnectTime) {
+		BenchmarkWriteAccess benchmarkAccess, Duration allowedRunnerDisconnectTime,
+		boolean prefetchWork, long prefetchMaxBytesPerSecond) {
 		this.queue = queue;
 		this.repoAccess = repoAccess;
 		this.benchmarkAccess = benchmarkAccess;
 		this.allowedRunnerDisconnectTime = allowedRunnerDisconnectTime;
+		this.prefetchWork = prefetchWork;
+		this.prefetchMaxBytesPerSecond = prefetchMaxBytesPerSecond;
 		this.activeRunners = Collections.newSetFromMap(new ConcurrentHashMap<>());
 		this.freeRunners = new ConcurrentLinkedQueue<>();
+		this.prefetchingRunners = new ConcurrentLinkedQueue<>();
 		this.watchdogPool = Executors.newSingleThreadScheduledExecutor();
-		this.dispatcherExecutorPool = Executors.newFixedThreadPool(5);
+		this.dispatcherExecutorPool = Executors.newSingleThreadExecutor();
+		this.archiveExecutorPool = Executors.newFixedThreadPool(
+			Math.max(2, Runtime.getRuntime().availableProcessors())
+		);
+		this.dispatchRequested = new AtomicBoolean(false);
+		this.dispatchStartTimes = new ConcurrentHashMap<>();
 
 		queue.onSomethingAborted(task -> abort(task.getSecond(), task.getFirst()));
-		queue.onSomethingAdded(it -> dispatcherExecutorPool.submit(this::updateDispatching));
+		queue.onSomethingAdded(it -> requestDispatching());
 
 		watchdogPool.scheduleAtFixedRate(
 			this::cleanupCrashedRunners,
@@ -98,6 +131,12 @@ public class DispatcherImpl implements Dispatcher {
 		);
 		durationsHistogram = ServerMain.getMetricRegistry()
 			.histogram(MetricRegistry.name(getClass(), "execution_durations"));
+		batchSizesHistogram = ServerMain.getMetricRegistry()
+			.histogram(MetricRegistry.name(getClass(), "dispatch_batch_sizes"));
+		dispatchLatencyTimer = ServerMain.getMetricRegistry()
+			.timer(MetricRegistry.name(getClass(), "dispatch_latency"));
+		prefetchedCounter = ServerMain.getMetricRegistry()
+			.counter(MetricRegistry.name(getClass(), "prefetched_dispatches"));
 	}
 
 	private void cleanupCrashedRunners() {
@@ -213,7 +252,20 @@ public class DispatcherImpl implements Dispatcher {
 		});
 		runnerInformation.setOnIdle(() -> {
 			freeRunners.add(runnerInformation);
-			dispatcherExecutorPool.submit(this::updateDispatching);
+			requestDispatching();
+		});
+		runnerInformation.setOnWorking(() -> {
+			Long dispatchStart = dispatchStartTimes.remove(runnerInformation);
+			if (dispatchStart != null) {
+				dispatchLatencyTimer.update(System.nanoTime() - dispatchStart, TimeUnit.NANOSECONDS);
+			}
+			boolean supportsPrefetching = runnerInformation.getRunnerInformation()
+				.map(RunnerInformation::isSupportsPrefetching)
+				.orElse(false);
+			if (prefetchWork && supportsPrefetching) {
+				prefetchingRunners.add(runnerInformation);
+				requestDispatching();
+			}
 		});
 		runnerInformation.setOnDisconnected(value -> {
 			if (value == StatusCodeMappings.CLIENT_ORDERLY_DISCONNECT) {
@@ -238,8 +290,11 @@ public class DispatcherImpl implements Dispatcher {
 	private void disconnectRemoveRunnerByInformation(ActiveRunnerInformation information) {
 		information.getConnectionManager().disconnect();
 		activeRunners.remove(information);
+		dispatchStartTimes.remove(information);
 
 		information.getCurrentCommit().ifPresent(queue::addCommit);
+		information.getPrefetchedCommit().ifPresent(queue::addCommit);
+		information.clearPrefetchedCommit();
 	}
 
 	/**
@@ -262,12 +317,15 @@ public class DispatcherImpl implements Dispatcher {
 		freeRunners.removeAll(matchingRunners);
 		// Delete them
 		activeRunners.removeAll(matchingRunners);
+		dispatchStartTimes.keySet().removeAll(matchingRunners);
 
 		List<Commit> commits = new ArrayList<>();
 		for (ActiveRunnerInformation runner : matchingRunners) {
 			if (runner.getCurrentCommit().isPresent()) {
 				commits.add(runner.getCurrentCommit().get());
 			}
+			runner.getPrefetchedCommit().ifPresent(commits::add);
+			runner.clearPrefetchedCommit();
 			LOGGER.info("Kicking runner as name '{}' was already taken!", name);
 			runner.getConnectionManager().disconnect(
 				StatusCodeMappings.NAME_ALREADY_TAKEN,
@@ -283,6 +341,15 @@ public class DispatcherImpl implements Dispatcher {
 		LOGGER.debug("Aborting commit {} for repo {}!", commitHash, repoId);
 
 		for (ActiveRunnerInformation runner : activeRunners) {
+			boolean isPrefetched = runner.getPrefetchedCommit()
+				.map(it -> it.getHash().equals(commitHash) && it.getRepoId().equals(repoId))
+				.orElse(false);
+			if (isPrefetched) {
+				// The runner keeps the repo around, but is never told to work on it
+				runner.clearPrefetchedCommit();
+				return true;
+			}
+
 			Optional<Commit> currentCommit = runner.getCurrentCommit();
 			if (currentCommit.isEmpty()) {
 				continue;
@@ -317,28 +384,108 @@ public class DispatcherImpl implements Dispatcher {
 			.collect(Collectors.toList());
 	}
 
+	/**
+	 * Schedules a dispatch pass. Requests arriving before the pass has started are merged into it.
+	 */
+	private void requestDispatching() {
+		if (dispatchRequested.compareAndSet(false, true)) {
+			dispatcherExecutorPool.submit(this::updateDispatching);
+		}
+	}
+
 	private void updateDispatching() {
+		// Requests arriving from now on need another pass, as they might miss this one
+		dispatchRequested.set(false);
+
 		LOGGER.debug(
 			"Updating dispatching with {} free runners and a total of {}",
 			freeRunners.size(), getKnownRunners().size()
 		);
 
+		List<Pair<ActiveRunnerInformation, Commit>> assignments = new ArrayList<>();
+		List<Pair<ActiveRunnerInformation, Commit>> prefetchedAssignments = new ArrayList<>();
+
 		ActiveRunnerInformation runner;
 		while ((runner = freeRunners.poll()) != null) {
+			Optional<Commit> prefetchedCommit = runner.getPrefetchedCommit();
+			if (prefetchedCommit.isPresent()) {
+				runner.getRunnerStateMachine().markAsMyCommit(prefetchedCommit.get());
+				runner.clearPrefetchedCommit();
+				dispatchStartTimes.put(runner, System.nanoTime());
+				prefetchedAssignments.add(new Pair<>(runner, prefetchedCommit.get()));
+				continue;
+			}
+
 			Optional<Commit> nextTask = queue.getNextTask();
 			if (nextTask.isEmpty()) {
 				// no task for runner available, add it back to freeRunners
 				freeRunners.add(runner);
-				return;
+				break;
 			}
 
-			Commit commitToBenchmark = nextTask.get();
-			if (!dispatchCommit(runner, commitToBenchmark)) {
-				queue.addCommit(commitToBenchmark);
+			// Marked right away, so that the commit is re-added to the queue if the runner
+			// disconnects before the dispatch started
+			runner.getRunnerStateMachine().markAsMyCommit(nextTask.get());
+			dispatchStartTimes.put(runner, System.nanoTime());
+			assignments.add(new Pair<>(runner, nextTask.get()));
+		}
+
+		// Free runners come first, they would otherwise wait for work
+		List<Pair<ActiveRunnerInformation, Commit>> prefetches = new ArrayList<>();
+		while ((runner = prefetchingRunners.poll()) != null) {
+			if (!canPrefetch(runner)) {
+				continue;
+			}
+
+			Optional<Commit> nextTask = queue.getNextTask();
+			if (nextTask.isEmpty()) {
+				prefetchingRunners.add(runner);
+				break;
 			}
+
+			// Marked right away, so that the runner gets this commit even if it finishes before
+			// the transfer started
+			runner.getRunnerStateMachine().markAsPrefetched(nextTask.get());
+			prefetches.add(new Pair<>(runner, nextTask.get()));
 		}
+
+		if (!assignments.isEmpty() || !prefetchedAssignments.isEmpty()) {
+			batchSizesHistogram.update(assignments.size() + prefetchedAssignments.size());
+		}
+
+		for (Pair<ActiveRunnerInformation, Commit> prefetch : prefetches) {
+			archiveExecutorPool.submit(
+				() -> prefetchCommit(prefetch.getFirst(), prefetch.getSecond())
+			);
+		}
+		for (Pair<ActiveRunnerInformation, Commit> assignment : prefetchedAssignments) {
+			prefetchedCounter.inc();
+			submitDispatch(assignment.getFirst(), assignment.getSecond(), true);
+		}
+		for (Pair<ActiveRunnerInformation, Commit> assignment : assignments) {
+			submitDispatch(assignment.getFirst(), assignment.getSecond(), false);
+		}
+	}
+
+	private void submitDispatch(ActiveRunnerInformation runner, Commit commit,
+		boolean prefetched) {
+
+		archiveExecutorPool.submit(() -> {
+			if (!dispatchCommit(runner, commit, prefetched)) {
+				dispatchStartTimes.remove(runner);
+				if (runner.getCurrentCommit().filter(commit::equals).isPresent()) {
+					runner.clearCurrentCommit();
+				}
+				queue.addCommit(commit);
+			}
+		});
 	}
 
+	private boolean canPrefetch(ActiveRunnerInformation runner) {
+		return activeRunners.contains(runner)
+			&& runner.getState() == RunnerStatusEnum.WORKING
+			&& runner.getPrefetchedCommit().isEmpty();
+	}
 
 	private void resetRunner(ActiveRunnerInformation runner, String reason) {
 		LOGGER.debug("Resetting runner {}", runner.getRunnerInformation());
@@ -395,6 +542,9 @@ public class DispatcherImpl implements Dispatcher {
 
 		if (metric.isError()) {
 			runBuilder.addFailedMeasurement(measurementName, metric.getError());
+		} else if (metric.getResults().isEmpty()) {
+			// Aggregates like the average are undefined without any values
+			runBuilder.addFailedMeasurement(measurementName, "the benchmark reported no values");
 		} else {
 			runBuilder.addSuccessfulMeasurement(
 				measurementName,
@@ -407,18 +557,49 @@ public class DispatcherImpl implements Dispatcher {
 		}
 	}
 
+	/**
+	 * Sends the repo of a commit to a runner that is still working. If this fails, the runner is
+	 * disconnected, as the transfer might have been interrupted halfway through.
+	 *
+	 * @param runner the runner to send it to
+	 * @param commit the commit marked as prefetched
+	 */
+	private void prefetchCommit(ActiveRunnerInformation runner, Commit commit) {
+		try {
+			runner.getRunnerStateMachine().prefetchCommit(
+				commit, repoAccess, prefetchMaxBytesPerSecond
+			);
+		} catch (Throwable e) {
+			LOGGER.info("Prefetching commit not possible", e);
+			boolean stillPrefetched = runner.getPrefetchedCommit()
+				.map(it -> it.getRepoId().equals(commit.getRepoId())
+					&& it.getHash().equals(commit.getHash()))
+				.orElse(false);
+			if (stillPrefetched) {
+				runner.clearPrefetchedCommit();
+				queue.addCommit(commit);
+			}
+			runner.getConnectionManager().disconnect(
+				StatusCodeMappings.SERVER_INITIATED_DISCONNECT,
+				"Prefetching commit failed"
+			);
+		}
+	}
+
 	/**
 	 * Dispatches a commit to the given runner. Directly marks the runner as working.
 	 *
 	 * @param runner the runner to dispatch it to
 	 * @param commit the commit to benchmark
+	 * @param prefetched whether the commit's repo was already sent to the runner
 	 * @return true if the commit was dispatched, false otherwise
 	 */
-	private boolean dispatchCommit(ActiveRunnerInformation runner, Commit commit) {
+	private boolean dispatchCommit(ActiveRunnerInformation runner, Commit commit,
+		boolean prefetched) {
 		LOGGER.info("Dispatching {} on {}", commit, runner.getRunnerInformation());
 
 		try {
-			runner.getRunnerStateMachine().dispatchCommit(commit, repoAccess);
+			runner.getRunnerStateMachine().dispatchCommit(commit, repoAccess, prefetched);
 			return true;
 		} catch (Throwable e) {
 			LOGGER.info("Dispatching commit not possible", e);
@@ -23,9 +23,11 @@ public class ActiveRunnerInformation {
 	private Consumer<BenchmarkResults> resultListener;
 	private Consumer<RunnerInformation> runnerInformationListener;
 	private Runnable idleListener;
+	private Runnable workingListener;
 	private IntConsumer disconnectedListener;
 
 	private Commit currentCommit;
+	private Commit prefetchedCommit;
 	private Instant lastReceivedMessage;
 
 	/**
@@ -46,6 +48,8 @@ public class ActiveRunnerInformation {
 		};
 		this.idleListener = () -> {
 		};
+		this.workingListener = () -> {
+		};
 		this.runnerInformationListener = ignored -> {
 		};
 	}
@@ -85,6 +89,16 @@ public class ActiveRunnerInformation {
 		return Optional.ofNullable(currentCommit);
 	}
 
+	/**
+	 * Returns the commit whose repo was sent to the runner in advance, if any. The runner works on
+	 * it after its current commit.
+	 *
+	 * @return the prefetched commit
+	 */
+	public Optional<Commit> getPrefetchedCommit() {
+		return Optional.ofNullable(prefetchedCommit);
+	}
+
 	/**
 	 * Returns the connection manager.
 	 *
@@ -110,6 +124,13 @@ public class ActiveRunnerInformation {
 		idleListener.run();
 	}
 
+	/**
+	 * Marks the runner as working, i. e. it has received its work order and the repo archive.
+	 */
+	public void setWorking() {
+		workingListener.run();
+	}
+
 	/**
 	 * Sets the listener for disconnections.
 	 *
@@ -128,6 +149,15 @@ public class ActiveRunnerInformation {
 		this.idleListener = idleListener;
 	}
 
+	/**
+	 * Sets the listener to call when the runner switches to working.
+	 *
+	 * @param workingListener the working listener
+	 */
+	public void setOnWorking(Runnable workingListener) {
+		this.workingListener = workingListener;
+	}
+
 	/**
 	 * Sets the listener to call when the {@link RunnerInformation} are set or updated.
 	 *
@@ -200,6 +230,24 @@ public class ActiveRunnerInformation {
 		currentCommit = null;
 	}
 
+	/**
+	 * Sets the prefetched commit.
+	 *
+	 * @param prefetchedCommit the prefetched commit
+	 */
+	void setPrefetchedCommit(Commit prefetchedCommit) {
+		this.prefetchedCommit = Objects.requireNonNull(
+			prefetchedCommit, "prefetchedCommit can not be null, use clearPrefetchedCommit!"
+		);
+	}
+
+	/**
+	 * Clears the prefetched commit.
+	 */
+	public void clearPrefetchedCommit() {
+		prefetchedCommit = null;
+	}
+
 	@Override
 	public String toString() {
 		return "ActiveRunnerInformation{" +
@@ -0,0 +1,90 @@
+package de.aaaaaaah.velcom.backend.runner.single;
+
+import de.aaaaaaah.velcom.backend.access.RepoWriteAccess;
+import de.aaaaaaah.velcom.backend.access.archive.ArchiveException;
+import de.aaaaaaah.velcom.backend.access.entities.Commit;
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
+import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * Decides in which format the repo of a commit is sent to a runner and writes it in that format.
+ */
+public class RepoTransfer {
+
+	private final Commit commit;
+	private final RepoWriteAccess repoAccess;
+	private final RepoTransferFormat format;
+	@Nullable
+	private final CommitHash baseHash;
+
+	private RepoTransfer(Commit commit, RepoWriteAccess repoAccess, RepoTransferFormat format,
+		@Nullable CommitHash baseHash) {
+		this.commit = commit;
+		this.repoAccess = repoAccess;
+		this.format = format;
+		this.baseHash = baseHash;
+	}
+
+	/**
+	 * Plans the transfer of a commit to a runner. Runners keeping repo mirrors receive a bundle
+	 * containing only what their mirror is missing, all others a tar archive. Commits that can't
+	 * be bundled (see {@link RepoWriteAccess#canBundleNormalRepo(RepoId, CommitHash)}) are always
+	 * sent as tar archive.
+	 *
+	 * @param runnerInformation the information the runner sent about itself
+	 * @param commit the commit to send
+	 * @param repoAccess the repo access to read the repo from
+	 * @return the planned transfer
+	 * @throws ArchiveException if the repo could not be read
+	 */
+	public static RepoTransfer forRunner(RunnerInformation runnerInformation, Commit commit,
+		RepoWriteAccess repoAccess) throws ArchiveException {
+
+		Map<UUID, String> mirrorHeads = runnerInformation.getRepoMirrorHeads().orElse(null);
+		if (mirrorHeads == null || !repoAccess.canBundleNormalRepo(commit.getRepoId(),
+			commit.getHash())) {
+			return new RepoTransfer(commit, repoAccess, RepoTransferFormat.TAR, null);
+		}
+
+		// The runner only needs the objects its mirror is missing
+		String mirrorHead = mirrorHeads.get(commit.getRepoId().getId());
+		return new RepoTransfer(
+			commit,
+			repoAccess,
+			RepoTransferFormat.BUNDLE,
+			mirrorHead == null ? null : new CommitHash(mirrorHead)
+		);
+	}
+
+	/**
+	 * Returns the work order telling the runner how the repo is sent.
+	 *
+	 * @return the work order for the commit
+	 */
+	public RunnerWorkOrder getWorkOrder() {
+		return new RunnerWorkOrder(commit.getRepoId().getId(), commit.getHash().getHash(), format);
+	}
+
+	/**
+	 * Writes the repo in the planned format.
+	 *
+	 * @param outputStream the stream to write to. Is closed afterwards.
+	 * @throws ArchiveException if the repo could not be written
+	 */
+	public void write(OutputStream outputStream) throws ArchiveException {
+		if (format == RepoTransferFormat.BUNDLE) {
+			repoAccess.streamNormalRepoBundle(
+				commit.getRepoId(), commit.getHash(), baseHash, outputStream
+			);
+		} else {
+			repoAccess.streamNormalRepoArchive(commit.getRepoId(), commit.getHash(), outputStream);
+		}
+	}
+}
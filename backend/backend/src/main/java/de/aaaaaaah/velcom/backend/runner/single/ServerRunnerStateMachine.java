@@ -2,6 +2,7 @@ package de.aaaaaaah.velcom.backend.runner.single;
 
 import de.aaaaaaah.velcom.backend.access.RepoWriteAccess;
 import de.aaaaaaah.velcom.backend.access.entities.Commit;
+import de.aaaaaaah.velcom.backend.runner.single.protocol.ProtocolHelper;
 import de.aaaaaaah.velcom.backend.runner.single.state.PreparingRunnerForWorkState;
 import de.aaaaaaah.velcom.backend.runner.single.state.RunnerDisconnectedState;
 import de.aaaaaaah.velcom.backend.runner.single.state.RunnerIdleState;
@@ -9,14 +10,29 @@ import de.aaaaaaah.velcom.backend.runner.single.state.RunnerInitializingState;
 import de.aaaaaaah.velcom.backend.runner.single.state.RunnerState;
 import de.aaaaaaah.velcom.backend.util.CheckedConsumer;
 import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
+import de.aaaaaaah.velcom.runner.shared.protocol.StatusCodeMappings;
+import de.aaaaaaah.velcom.runner.shared.protocol.TransferCompression;
+import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.PrefetchWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.ResetOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.UpdateBenchmarkRepoOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Benchmark;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Metric;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResultsChunk;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,14 +43,41 @@ public class ServerRunnerStateMachine {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ServerRunnerStateMachine.class);
 
+	/**
+	 * The maximum amount of values kept from chunks until the results finishing the run arrive.
+	 */
+	private static final int MAX_CHUNKED_VALUES = 2_000_000;
+
+	private final int maxChunkedValues;
 	private ActiveRunnerInformation runnerInformation;
 	private RunnerState state;
+	private final Object prefetchLock;
+	private volatile CompletableFuture<Boolean> prefetchTransfer;
+	private volatile boolean prefetchCancelled;
+	private boolean prefetchStarted;
+	private RunnerWorkOrder chunkedWorkOrder;
+	private final List<Benchmark> chunkedBenchmarks;
+	private int chunkedValues;
+	private RunnerWorkOrder oversizedWorkOrder;
 
 	/**
 	 * Creates a new server-side state machine for a single runner.
 	 */
 	public ServerRunnerStateMachine() {
+		this(MAX_CHUNKED_VALUES);
+	}
+
+	/**
+	 * Creates a new server-side state machine for a single runner.
+	 *
+	 * @param maxChunkedValues the maximum amount of values kept from chunks of a single run
+	 */
+	ServerRunnerStateMachine(int maxChunkedValues) {
+		this.maxChunkedValues = maxChunkedValues;
 		this.state = new RunnerDisconnectedState();
+		this.prefetchLock = new Object();
+		this.prefetchTransfer = CompletableFuture.completedFuture(true);
+		this.chunkedBenchmarks = new ArrayList<>();
 	}
 
 	/**
@@ -76,12 +119,68 @@ public class ServerRunnerStateMachine {
 		newState.onSelected(runnerInformation);
 	}
 
+	/**
+	 * Called when the runner sent a part of large results. The benchmarks are kept until the
+	 * results finishing the run arrive in {@link #onWorkDone(BenchmarkResults)}.
+	 *
+	 * <p>The chunks of a run are kept in memory until then, so their total amount of values is
+	 * limited. If a runner sends more, its run is stored as failed and the runner is disconnected.
+	 *
+	 * @param chunk the part of the results
+	 */
+	public void onResultsChunk(BenchmarkResultsChunk chunk) {
+		if (chunk.getWorkOrder().equals(oversizedWorkOrder)) {
+			// Already stored as failed, the rest was still in flight
+			return;
+		}
+		if (!chunk.getWorkOrder().equals(chunkedWorkOrder)) {
+			// The runner never finished sending the previous results
+			clearChunks();
+			chunkedWorkOrder = chunk.getWorkOrder();
+		}
+
+		chunkedValues += chunk.getBenchmarks().stream()
+			.flatMap(benchmark -> benchmark.getMetrics().stream())
+			.mapToInt(metric -> metric.getResults().size())
+			.sum();
+		if (chunkedValues > maxChunkedValues) {
+			RunnerWorkOrder workOrder = chunkedWorkOrder;
+			oversizedWorkOrder = workOrder;
+			LOGGER.warn(
+				"Runner {} sent more than {} values for {}, disconnecting it",
+				runnerInformation.getRunnerInformation(), maxChunkedValues, workOrder
+			);
+			clearChunks();
+			finishWork(new BenchmarkResults(
+				workOrder,
+				"The benchmark results contained more than " + maxChunkedValues + " values",
+				Instant.now(),
+				Instant.now()
+			));
+			runnerInformation.getConnectionManager().disconnect(
+				StatusCodeMappings.SERVER_INITIATED_DISCONNECT, "Benchmark results too large"
+			);
+			return;
+		}
+
+		chunkedBenchmarks.addAll(chunk.getBenchmarks());
+	}
+
 	/**
 	 * Called when the runner has completed its work.
 	 *
-	 * @param results the benchmark results
+	 * @param results the benchmark results. Benchmarks received in chunks for the same work order
+	 * 	are added to them and the values of metrics that were split across chunks are joined.
 	 */
 	public void onWorkDone(BenchmarkResults results) {
+		if (results.getWorkOrder().equals(oversizedWorkOrder)) {
+			// Already stored as failed
+			return;
+		}
+		finishWork(withChunkedBenchmarks(results));
+	}
+
+	private void finishWork(BenchmarkResults results) {
 		runnerInformation.setResults(results);
 
 		// Clear the commit if we got results for it
@@ -97,13 +196,83 @@ public class ServerRunnerStateMachine {
 		});
 	}
 
+	private BenchmarkResults withChunkedBenchmarks(BenchmarkResults results) {
+		BenchmarkResults completeResults = results;
+		if (results.getWorkOrder().equals(chunkedWorkOrder)) {
+			List<Benchmark> benchmarks = new ArrayList<>(chunkedBenchmarks);
+			benchmarks.addAll(results.getBenchmarks());
+			completeResults = new BenchmarkResults(
+				results.getWorkOrder(),
+				joinBenchmarks(benchmarks),
+				results.getError(),
+				results.getStartTime(),
+				results.getEndTime()
+			);
+		}
+		clearChunks();
+		return completeResults;
+	}
+
+	private void clearChunks() {
+		chunkedWorkOrder = null;
+		chunkedBenchmarks.clear();
+		chunkedValues = 0;
+	}
+
+	/**
+	 * Joins the parts of benchmarks and metrics that were split across chunks, keeping the order
+	 * in which they were sent.
+	 */
+	private static List<Benchmark> joinBenchmarks(List<Benchmark> benchmarkParts) {
+		// Benchmark name -> metric name -> parts of the metric
+		Map<String, Map<String, List<Metric>>> parts = new LinkedHashMap<>();
+		for (Benchmark benchmark : benchmarkParts) {
+			Map<String, List<Metric>> metrics = parts
+				.computeIfAbsent(benchmark.getName(), it -> new LinkedHashMap<>());
+			for (Metric metric : benchmark.getMetrics()) {
+				metrics.computeIfAbsent(metric.getName(), it -> new ArrayList<>()).add(metric);
+			}
+		}
+
+		return parts.entrySet().stream()
+			.map(entry -> new Benchmark(
+				entry.getKey(),
+				entry.getValue().values().stream()
+					.map(ServerRunnerStateMachine::joinMetric)
+					.collect(Collectors.toList())
+			))
+			.collect(Collectors.toList());
+	}
+
+	private static Metric joinMetric(List<Metric> metricParts) {
+		Metric first = metricParts.get(0);
+		if (metricParts.size() == 1) {
+			return first;
+		}
+
+		double[] values = metricParts.stream()
+			.flatMap(part -> part.getResults().stream())
+			.mapToDouble(Double::doubleValue)
+			.toArray();
+
+		return new Metric(
+			first.getName(),
+			first.getUnit(),
+			first.getResultInterpretation(),
+			values,
+			first.getError()
+		);
+	}
+
 	/**
-	 * Resets the runner.
+	 * Resets the runner. A running prefetch transfer is cancelled first, as nothing else may be
+	 * sent while it is running.
 	 *
 	 * @param reason the reason for the reset
 	 * @throws IOException if an error occurs
 	 */
 	public void resetRunner(String reason) throws IOException {
+		cancelPrefetchTransfer();
 		runnerInformation.getConnectionManager().sendEntity(new ResetOrder(reason));
 		runnerInformation.clearCurrentCommit();
 	}
@@ -130,7 +299,11 @@ public class ServerRunnerStateMachine {
 		LOGGER.debug("Sending work {} to {}", workOrder, runnerInformation.getRunnerInformation());
 		markAsMyCommit(commit);
 		runnerInformation.getConnectionManager().sendEntity(workOrder);
-		try (var out = runnerInformation.getConnectionManager().createBinaryOutputStream()) {
+		if (workOrder.getTransferFormat() == RepoTransferFormat.PREFETCHED) {
+			// The runner already has the repo
+			return;
+		}
+		try (var out = createBinaryOutputStream(0)) {
 			writer.accept(out);
 		} catch (Exception e) {
 			throw e;
@@ -144,7 +317,123 @@ public class ServerRunnerStateMachine {
 	 * @param access the repo write access
 	 */
 	public void dispatchCommit(Commit commit, RepoWriteAccess access) {
-		switchState(new PreparingRunnerForWorkState(commit, access));
+		dispatchCommit(commit, access, false);
+	}
+
+	/**
+	 * Dispatches a commit, updating the bench repo and performing related tasks. The commit must
+	 * already be marked with {@link #markAsMyCommit(Commit)}. If it is no longer marked once the
+	 * runner is ready for it, e.g. because it was aborted, it is not sent to the runner.
+	 *
+	 * @param commit the commit
+	 * @param access the repo write access
+	 * @param prefetched whether the commit was prefetched using {@link #prefetchCommit(Commit,
+	 * 	RepoWriteAccess, long)}
+	 */
+	public void dispatchCommit(Commit commit, RepoWriteAccess access, boolean prefetched) {
+		switchState(new PreparingRunnerForWorkState(commit, access, prefetched));
+	}
+
+	/**
+	 * Marks a commit as the one the runner works on after its current one. Must be followed by a
+	 * call to {@link #prefetchCommit(Commit, RepoWriteAccess, long)}.
+	 *
+	 * @param commit the commit
+	 */
+	public void markAsPrefetched(Commit commit) {
+		runnerInformation.setPrefetchedCommit(commit);
+		synchronized (prefetchLock) {
+			prefetchTransfer = new CompletableFuture<>();
+			prefetchCancelled = false;
+			prefetchStarted = false;
+		}
+	}
+
+	/**
+	 * Sends the repo of the commit marked with {@link #markAsPrefetched(Commit)} to the runner
+	 * while it is still working. The transfer is throttled so it disturbs the running benchmark as
+	 * little as possible. Nothing is sent if the commit is no longer marked, e.g. because it was
+	 * aborted. If the transfer is cancelled using {@link #cancelPrefetchTransfer()}, the repo is
+	 * sent only partially and is not used by the runner.
+	 *
+	 * @param commit the prefetched commit
+	 * @param access the repo write access
+	 * @param maxBytesPerSecond the maximum average transfer rate. Unlimited if 0.
+	 * @throws IOException if an error occurs
+	 */
+	public void prefetchCommit(Commit commit, RepoWriteAccess access, long maxBytesPerSecond)
+		throws IOException {
+
+		boolean transferred = false;
+		try {
+			boolean stillPrefetched = runnerInformation.getPrefetchedCommit()
+				.map(it -> it.getRepoId().equals(commit.getRepoId())
+					&& it.getHash().equals(commit.getHash()))
+				.orElse(false);
+			if (!stillPrefetched || runnerInformation.getRunnerInformation().isEmpty()) {
+				return;
+			}
+			synchronized (prefetchLock) {
+				if (prefetchCancelled) {
+					return;
+				}
+				prefetchStarted = true;
+			}
+
+			RepoTransfer transfer = RepoTransfer.forRunner(
+				runnerInformation.getRunnerInformation().get(), commit, access
+			);
+			LOGGER.debug(
+				"Prefetching {} to {}", commit, runnerInformation.getRunnerInformation()
+			);
+			runnerInformation.getConnectionManager()
+				.sendEntity(new PrefetchWorkOrder(transfer.getWorkOrder()));
+			try (var out = createBinaryOutputStream(maxBytesPerSecond)) {
+				transfer.write(ProtocolHelper.cancellable(out, () -> prefetchCancelled));
+			} catch (IOException e) {
+				if (!prefetchCancelled) {
+					throw e;
+				}
+				LOGGER.debug("Prefetching {} was cancelled", commit);
+				return;
+			}
+			transferred = true;
+		} finally {
+			prefetchTransfer.complete(transferred);
+		}
+	}
+
+	/**
+	 * Waits until the transfer started by {@link #prefetchCommit(Commit, RepoWriteAccess, long)}
+	 * is done. Nothing else may be sent to the runner while the transfer is running.
+	 *
+	 * @return true if the last prefetched repo was transferred completely
+	 */
+	public boolean awaitPrefetchTransfer() {
+		try {
+			return prefetchTransfer.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Cancels the transfer started by {@link #prefetchCommit(Commit, RepoWriteAccess, long)} and
+	 * waits until it stopped. Transfers that have not started yet are not started at all. The
+	 * prefetched commit stays marked, its repo is just sent again when the runner starts working on
+	 * it.
+	 */
+	public void cancelPrefetchTransfer() {
+		synchronized (prefetchLock) {
+			prefetchCancelled = true;
+			if (!prefetchStarted) {
+				prefetchTransfer.complete(false);
+			}
+		}
+		awaitPrefetchTransfer();
 	}
 
 	/**
@@ -181,7 +470,7 @@ public class ServerRunnerStateMachine {
 		runnerInformation.getConnectionManager()
 			.sendEntity(new UpdateBenchmarkRepoOrder(repoHeadHash));
 
-		try (var out = runnerInformation.getConnectionManager().createBinaryOutputStream()) {
+		try (var out = createBinaryOutputStream(0)) {
 			writer.accept(out);
 		} catch (Exception e) {
 			// TODO: 12.01.20 Make nicer catch
@@ -198,8 +487,33 @@ public class ServerRunnerStateMachine {
 					infos.getCoreCount(),
 					infos.getAvailableMemory(),
 					infos.getRunnerState(),
-					repoHeadHash
+					repoHeadHash,
+					infos.getSupportedCompressions(),
+					infos.getRepoMirrorHeads().orElse(null),
+					infos.isSupportsPrefetching()
 				)
 			));
 	}
+
+	/**
+	 * Creates a stream to send binary data to the runner, compressed with the best compression the
+	 * runner supports.
+	 *
+	 * @param maxBytesPerSecond the maximum average rate the compressed data is sent with.
+	 * 	Unlimited if 0.
+	 * @return the output stream. Must be closed.
+	 */
+	private OutputStream createBinaryOutputStream(long maxBytesPerSecond) {
+		TransferCompression compression = runnerInformation.getRunnerInformation()
+			.map(info -> ProtocolHelper.chooseCompression(info.getSupportedCompressions()))
+			.orElse(TransferCompression.NONE);
+
+		return ProtocolHelper.compress(
+			ProtocolHelper.throttle(
+				runnerInformation.getConnectionManager().createBinaryOutputStream(),
+				maxBytesPerSecond
+			),
+			compression
+		);
+	}
 }
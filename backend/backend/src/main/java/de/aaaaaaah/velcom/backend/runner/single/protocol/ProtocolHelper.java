@@ -1,10 +1,19 @@
 package de.aaaaaaah.velcom.backend.runner.single.protocol;
 
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
+import de.aaaaaaah.velcom.runner.shared.protocol.TransferCompression;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.Serializer;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import org.eclipse.jetty.websocket.api.Session;
 
 /**
@@ -12,7 +21,8 @@ import org.eclipse.jetty.websocket.api.Session;
  */
 public class ProtocolHelper {
 
-	private static final int DEFAULT_BUFFER_SIZE = 1024; // 1 MB
+	private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024; // 1 MiB
+	private static final int DEFLATER_BUFFER_SIZE = 64 * 1024; // 64 KiB
 
 	/**
 	 * Sends an object to the runner.
@@ -28,37 +38,179 @@ public class ProtocolHelper {
 	}
 
 	/**
-	 * Streams binary data to the runner.
+	 * Streams binary data to the runner. Written data is collected in a large buffer and only sent
+	 * as a partial websocket frame once the buffer is full.
 	 *
 	 * @param session the session to use
 	 * @return an output stream that streams written data to the runner
 	 */
 	public static OutputStream createBinaryOutputStream(Session session) {
 		return new OutputStream() {
+			private final ByteBuffer buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
 			private boolean closed = false;
-			private ByteBuffer buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
 
 			@Override
 			public void write(int b) throws IOException {
 				if (!buffer.hasRemaining()) {
-					buffer.rewind();
-					session.getRemote().sendPartialBytes(buffer, false);
-					buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+					sendBuffer(false);
 				}
 				buffer.put((byte) b);
 			}
 
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				Objects.checkFromIndexSize(off, len, b.length);
+
+				while (len > 0) {
+					if (!buffer.hasRemaining()) {
+						sendBuffer(false);
+					}
+					int chunkSize = Math.min(len, buffer.remaining());
+					buffer.put(b, off, chunkSize);
+					off += chunkSize;
+					len -= chunkSize;
+				}
+			}
+
 			@Override
 			public void close() throws IOException {
 				if (closed) {
 					return;
 				}
-				buffer.limit(buffer.position());
-				buffer.rewind();
-				session.getRemote().sendPartialBytes(buffer, true);
+				sendBuffer(true);
 				closed = true;
 			}
+
+			private void sendBuffer(boolean last) throws IOException {
+				buffer.flip();
+				// Blocks until the frame was sent, so the buffer can be reused afterwards
+				session.getRemote().sendPartialBytes(buffer, last);
+				if (!last) {
+					buffer.clear();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Limits the rate at which data can be written to a stream by blocking writes that would exceed
+	 * it. The rate is averaged over the lifetime of the stream.
+	 *
+	 * @param out the stream to limit
+	 * @param maxBytesPerSecond the maximum average amount of bytes written per second. If this is 0
+	 * 	or less, the stream is returned as is.
+	 * @return the throttled output stream
+	 */
+	public static OutputStream throttle(OutputStream out, long maxBytesPerSecond) {
+		if (maxBytesPerSecond <= 0) {
+			return out;
+		}
+		return new FilterOutputStream(out) {
+			private final long start = System.nanoTime();
+			private long writtenBytes;
+
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				waitForRate(1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				waitForRate(len);
+			}
+
+			private void waitForRate(int newBytes) throws InterruptedIOException {
+				writtenBytes += newBytes;
+				long allowedAfterNanos = writtenBytes * 1_000_000_000 / maxBytesPerSecond;
+				long aheadNanos = allowedAfterNanos - (System.nanoTime() - start);
+				if (aheadNanos <= 0) {
+					return;
+				}
+				try {
+					TimeUnit.NANOSECONDS.sleep(aheadNanos);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while throttling");
+				}
+			}
 		};
 	}
 
+	/**
+	 * Makes writes to a stream fail once a transfer was cancelled. Closing the returned stream
+	 * still closes the wrapped one, so the runner receives a finished, but truncated binary
+	 * message.
+	 *
+	 * @param out the stream to wrap
+	 * @param cancelled whether the transfer was cancelled
+	 * @return the cancellable output stream
+	 */
+	public static OutputStream cancellable(OutputStream out, BooleanSupplier cancelled) {
+		return new FilterOutputStream(out) {
+			@Override
+			public void write(int b) throws IOException {
+				checkCancelled();
+				out.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				checkCancelled();
+				out.write(b, off, len);
+			}
+
+			private void checkCancelled() throws IOException {
+				if (cancelled.getAsBoolean()) {
+					throw new IOException("Transfer was cancelled");
+				}
+			}
+		};
+	}
+
+	/**
+	 * Chooses the compression to use for binary transfers to a runner.
+	 *
+	 * @param supportedCompressions the compressions the runner supports
+	 * @return the compression to use
+	 */
+	public static TransferCompression chooseCompression(
+		List<TransferCompression> supportedCompressions) {
+
+		if (supportedCompressions.contains(TransferCompression.DEFLATE)) {
+			return TransferCompression.DEFLATE;
+		}
+		return TransferCompression.NONE;
+	}
+
+	/**
+	 * Wraps a binary output stream so that all data written to it is compressed. Closing the
+	 * returned stream finishes the compression and closes the wrapped stream.
+	 *
+	 * @param out the stream to write the compressed data to
+	 * @param compression the compression to use
+	 * @return the compressing output stream
+	 */
+	public static OutputStream compress(OutputStream out, TransferCompression compression) {
+		switch (compression) {
+			case DEFLATE:
+				return new DeflaterOutputStream(out, new Deflater(), DEFLATER_BUFFER_SIZE) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							// Not done by DeflaterOutputStream for deflaters passed to it
+							def.end();
+						}
+					}
+				};
+			case NONE:
+				return out;
+			default:
+				throw new IllegalArgumentException("unknown compression " + compression);
+		}
+	}
+
 }
@@ -6,14 +6,18 @@ import de.aaaaaaah.velcom.runner.shared.protocol.HeartbeatHandler;
 import de.aaaaaaah.velcom.runner.shared.protocol.HeartbeatHandler.HeartbeatWebsocket;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
 import de.aaaaaaah.velcom.runner.shared.protocol.StatusCodeMappings;
+import de.aaaaaaah.velcom.runner.shared.protocol.serialization.BinarySerializer;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.Serializer;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResultsChunk;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.WorkReceived;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.Arrays;
+import javax.annotation.Nullable;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketFrameListener;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
@@ -35,14 +39,29 @@ public class RunnerServerWebsocketListener implements WebSocketListener, WebSock
 	private Session session;
 	private ActiveRunnerInformation runnerInformation;
 	private Serializer serializer;
+	@Nullable
+	private BinarySerializer binarySerializer;
 
 	/**
-	 * Creates a new websocket listener.
+	 * Creates a new websocket listener that only accepts text messages.
 	 *
 	 * @param serializer the serializer to use
 	 */
 	public RunnerServerWebsocketListener(Serializer serializer) {
+		this(serializer, null);
+	}
+
+	/**
+	 * Creates a new websocket listener.
+	 *
+	 * @param serializer the serializer to use
+	 * @param binarySerializer the serializer to use for binary messages or null if the runner did
+	 * 	not negotiate one and must not send any
+	 */
+	public RunnerServerWebsocketListener(Serializer serializer,
+		@Nullable BinarySerializer binarySerializer) {
 		this.serializer = serializer;
+		this.binarySerializer = binarySerializer;
 		this.heartbeatHandler = new HeartbeatHandler(this);
 	}
 
@@ -57,27 +76,43 @@ public class RunnerServerWebsocketListener implements WebSocketListener, WebSock
 
 	@Override
 	public void onWebSocketBinary(byte[] payload, int offset, int len) {
-		LOGGER.warn(
-			"Runner sent us a binary transmission, kicking it! [{}]",
-			runnerInformation.getRunnerInformation()
-		);
-		disconnect();
+		if (binarySerializer == null) {
+			LOGGER.warn(
+				"Runner sent us a binary transmission, kicking it! [{}]",
+				runnerInformation.getRunnerInformation()
+			);
+			disconnect();
+			return;
+		}
+		BinarySerializer serializer = binarySerializer;
+		byte[] message = offset == 0 && len == payload.length
+			? payload
+			: Arrays.copyOfRange(payload, offset, offset + len);
+
+		runnerInformation.setLastReceivedMessage(Instant.now());
+		onMessage(serializer.peekType(message), type -> serializer.deserialize(message, type));
 	}
 
 	@Override
 	public void onWebSocketText(String message) {
 		runnerInformation.setLastReceivedMessage(Instant.now());
+		onMessage(serializer.peekType(message), type -> serializer.deserialize(message, type));
+	}
+
+	private void onMessage(String type, EntityDeserializer deserializer) {
 		SentEntity entity;
-		String type = serializer.peekType(message);
 		switch (type) {
 			case "WorkReceived":
-				entity = serializer.deserialize(message, WorkReceived.class);
+				entity = deserializer.deserialize(WorkReceived.class);
 				break;
 			case "BenchmarkResults":
-				entity = serializer.deserialize(message, BenchmarkResults.class);
+				entity = deserializer.deserialize(BenchmarkResults.class);
+				break;
+			case "BenchmarkResultsChunk":
+				entity = deserializer.deserialize(BenchmarkResultsChunk.class);
 				break;
 			case "RunnerInformation":
-				entity = serializer.deserialize(message, RunnerInformation.class);
+				entity = deserializer.deserialize(RunnerInformation.class);
 				break;
 			default:
 				LOGGER.warn(
@@ -176,4 +211,9 @@ public class RunnerServerWebsocketListener implements WebSocketListener, WebSock
 		}
 		this.session = null;
 	}
+
+	private interface EntityDeserializer {
+
+		SentEntity deserialize(Class<? extends SentEntity> type);
+	}
 }
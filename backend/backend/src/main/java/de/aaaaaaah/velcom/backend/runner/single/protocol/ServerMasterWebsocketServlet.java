@@ -3,6 +3,7 @@ package de.aaaaaaah.velcom.backend.runner.single.protocol;
 import de.aaaaaaah.velcom.backend.runner.Dispatcher;
 import de.aaaaaaah.velcom.backend.runner.single.ActiveRunnerInformation;
 import de.aaaaaaah.velcom.backend.runner.single.ServerRunnerStateMachine;
+import de.aaaaaaah.velcom.runner.shared.protocol.serialization.BinarySerializer;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.Serializer;
 import java.io.IOException;
 import org.eclipse.jetty.http.HttpHeader;
@@ -21,6 +22,7 @@ public class ServerMasterWebsocketServlet extends WebSocketServlet {
 
 	private final Dispatcher dispatcher;
 	private final Serializer serializer;
+	private final BinarySerializer binarySerializer;
 	private final String runnerToken;
 
 	/**
@@ -28,18 +30,22 @@ public class ServerMasterWebsocketServlet extends WebSocketServlet {
 	 *
 	 * @param dispatcher the dispatcher to connect to
 	 * @param serializer the serializer to use for communication
+	 * @param binarySerializer the serializer to use for binary messages from runners that request
+	 * 	its subprotocol
 	 * @param runnerToken the token runners need to provide when connecting
 	 */
 	public ServerMasterWebsocketServlet(Dispatcher dispatcher, Serializer serializer,
-		String runnerToken) {
+		BinarySerializer binarySerializer, String runnerToken) {
 		this.dispatcher = dispatcher;
 		this.serializer = serializer;
+		this.binarySerializer = binarySerializer;
 		this.runnerToken = runnerToken;
 	}
 
 	@Override
 	public void configure(WebSocketServletFactory factory) {
 		factory.getPolicy().setMaxTextMessageSize(Integer.MAX_VALUE);
+		factory.getPolicy().setMaxBinaryMessageSize(Integer.MAX_VALUE);
 		factory.setCreator((req, resp) -> {
 			if (!runnerToken.equals(req.getHeader(HttpHeader.AUTHORIZATION.asString()))) {
 				try {
@@ -52,9 +58,16 @@ public class ServerMasterWebsocketServlet extends WebSocketServlet {
 				LOGGER.info("Runner from {} failed authentication!", req.getRemoteAddress());
 				return null;
 			}
+			// Old runners don't request any subprotocol and only send text messages
+			BinarySerializer negotiatedSerializer = null;
+			if (req.getSubProtocols().contains(binarySerializer.getSubprotocol())) {
+				resp.setAcceptedSubProtocol(binarySerializer.getSubprotocol());
+				negotiatedSerializer = binarySerializer;
+			}
+
 			ServerRunnerStateMachine stateMachine = new ServerRunnerStateMachine();
 			RunnerServerWebsocketListener listener = new RunnerServerWebsocketListener(
-				serializer
+				serializer, negotiatedSerializer
 			);
 			ActiveRunnerInformation runnerInformation = new ActiveRunnerInformation(
 				listener, stateMachine
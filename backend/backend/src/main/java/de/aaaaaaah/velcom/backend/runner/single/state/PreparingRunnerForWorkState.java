@@ -4,15 +4,20 @@ import de.aaaaaaah.velcom.backend.access.RepoWriteAccess;
 import de.aaaaaaah.velcom.backend.access.entities.Commit;
 import de.aaaaaaah.velcom.backend.access.exceptions.ArchiveFailedPermanently;
 import de.aaaaaaah.velcom.backend.runner.single.ActiveRunnerInformation;
+import de.aaaaaaah.velcom.backend.runner.single.RepoTransfer;
+import de.aaaaaaah.velcom.backend.util.CheckedConsumer;
 import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
 import de.aaaaaaah.velcom.runner.shared.protocol.StatusCodeMappings;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResultsChunk;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.WorkReceived;
 import de.aaaaaaah.velcom.runner.shared.util.StringOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.time.Instant;
 import org.slf4j.Logger;
@@ -27,6 +32,7 @@ public class PreparingRunnerForWorkState implements RunnerState {
 
 	private final Commit commit;
 	private final RepoWriteAccess repoAccess;
+	private final boolean prefetched;
 
 	/**
 	 * Creates a new state.
@@ -35,8 +41,21 @@ public class PreparingRunnerForWorkState implements RunnerState {
 	 * @param repoAccess the repo access to query
 	 */
 	public PreparingRunnerForWorkState(Commit commit, RepoWriteAccess repoAccess) {
+		this(commit, repoAccess, false);
+	}
+
+	/**
+	 * Creates a new state.
+	 *
+	 * @param commit the commit to send
+	 * @param repoAccess the repo access to query
+	 * @param prefetched whether the repo of the commit was already sent to the runner in advance
+	 */
+	public PreparingRunnerForWorkState(Commit commit, RepoWriteAccess repoAccess,
+		boolean prefetched) {
 		this.commit = commit;
 		this.repoAccess = repoAccess;
+		this.prefetched = prefetched;
 	}
 
 	@Override
@@ -53,7 +72,8 @@ public class PreparingRunnerForWorkState implements RunnerState {
 		}
 		Instant start = Instant.now();
 
-		information.getRunnerStateMachine().markAsMyCommit(commit);
+		// Nothing else may be sent while a prefetched repo is still being transferred
+		boolean prefetchTransferred = information.getRunnerStateMachine().awaitPrefetchTransfer();
 
 		String runnerBenchmarkCommitHash = information.getRunnerInformation()
 			.get()
@@ -70,9 +90,23 @@ public class PreparingRunnerForWorkState implements RunnerState {
 				);
 			}
 
-			RunnerWorkOrder workOrder = new RunnerWorkOrder(
-				commit.getRepoId().getId(), commit.getHash().getHash()
-			);
+			RunnerWorkOrder workOrder;
+			CheckedConsumer<OutputStream, IOException> writer;
+			if (prefetched && prefetchTransferred) {
+				workOrder = new RunnerWorkOrder(
+					commit.getRepoId().getId(),
+					commit.getHash().getHash(),
+					RepoTransferFormat.PREFETCHED
+				);
+				writer = ignored -> {
+				};
+			} else {
+				RepoTransfer transfer = RepoTransfer.forRunner(
+					information.getRunnerInformation().get(), commit, repoAccess
+				);
+				workOrder = transfer.getWorkOrder();
+				writer = transfer::write;
+			}
 
 			// Commit was cancelled
 			if (information.getCurrentCommit().isEmpty()) {
@@ -80,13 +114,7 @@ public class PreparingRunnerForWorkState implements RunnerState {
 				return;
 			}
 
-			information.getRunnerStateMachine().startWork(
-				commit,
-				workOrder,
-				outputStream -> repoAccess.streamNormalRepoArchive(
-					commit.getRepoId(), commit.getHash(), outputStream
-				)
-			);
+			information.getRunnerStateMachine().startWork(commit, workOrder, writer);
 		} catch (ArchiveFailedPermanently e) {
 			LOGGER.error(
 				"Archiving repo failed with a more permanent cause! I am not trying it again.",
@@ -144,6 +172,9 @@ public class PreparingRunnerForWorkState implements RunnerState {
 				return new RunnerIdleState();
 			}
 			return this;
+		} else if (BenchmarkResultsChunk.class.getSimpleName().equals(type)) {
+			information.getRunnerStateMachine().onResultsChunk((BenchmarkResultsChunk) entity);
+			return this;
 		} else if (RunnerInformation.class.getSimpleName().equals(type)) {
 			information.setRunnerInformation((RunnerInformation) entity);
 			return this;
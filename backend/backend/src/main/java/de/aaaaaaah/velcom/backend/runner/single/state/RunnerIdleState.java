@@ -4,6 +4,7 @@ import de.aaaaaaah.velcom.backend.runner.single.ActiveRunnerInformation;
 import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResultsChunk;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +33,9 @@ public class RunnerIdleState implements RunnerState {
 			information.getRunnerStateMachine()
 				.onWorkDone((BenchmarkResults) entity);
 			return this;
+		} else if (BenchmarkResultsChunk.class.getSimpleName().equals(type)) {
+			information.getRunnerStateMachine().onResultsChunk((BenchmarkResultsChunk) entity);
+			return this;
 		} else if (RunnerInformation.class.getSimpleName().equals(type)) {
 			information.setRunnerInformation((RunnerInformation) entity);
 			return this;
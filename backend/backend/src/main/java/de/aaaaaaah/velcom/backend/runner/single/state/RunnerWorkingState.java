@@ -5,6 +5,7 @@ import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
 import de.aaaaaaah.velcom.runner.shared.protocol.StatusCodeMappings;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResultsChunk;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,12 +22,20 @@ public class RunnerWorkingState implements RunnerState {
 		return RunnerStatusEnum.WORKING;
 	}
 
+	@Override
+	public void onSelected(ActiveRunnerInformation information) {
+		information.setWorking();
+	}
+
 	@Override
 	public RunnerState onMessage(String type, SentEntity entity,
 		ActiveRunnerInformation information) {
 		if (BenchmarkResults.class.getSimpleName().equals(type)) {
 			information.getRunnerStateMachine().onWorkDone((BenchmarkResults) entity);
 			return new RunnerIdleState();
+		} else if (BenchmarkResultsChunk.class.getSimpleName().equals(type)) {
+			information.getRunnerStateMachine().onResultsChunk((BenchmarkResultsChunk) entity);
+			return this;
 		} else if (RunnerInformation.class.getSimpleName().equals(type)) {
 			information.setRunnerInformation((RunnerInformation) entity);
 			return this;
@@ -1,9 +1,9 @@
 package de.aaaaaaah.velcom.backend.storage.db;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import de.aaaaaaah.velcom.backend.GlobalConfig;
-import java.sql.Connection;
-import java.sql.SQLException;
-import java.sql.Statement;
+import de.aaaaaaah.velcom.backend.ServerMain;
 import javax.sql.DataSource;
 import org.flywaydb.core.Flyway;
 import org.jooq.DSLContext;
@@ -15,11 +15,25 @@ import org.sqlite.SQLiteDataSource;
 
 /**
  * Provides access to a database.
+ *
+ * <p>Reads and writes use separate connection pools. Since the database runs in WAL mode, any
+ * number of readers can work concurrently with a single writer. Writes are therefore funneled
+ * through a pool containing exactly one connection, while reads are spread over a small pool of
+ * read-only connections.
  */
 public class DatabaseStorage {
 
-	private final Connection connection;
-	private final DSLContext context;
+	/**
+	 * The amount of read-only connections used if nothing else is specified.
+	 */
+	public static final int DEFAULT_READ_POOL_SIZE = 4;
+
+	private static final int BUSY_TIMEOUT_MILLIS = 10_000;
+
+	private final HikariDataSource writeDataSource;
+	private final HikariDataSource readDataSource;
+	private final DSLContext writeContext;
+	private final DSLContext readContext;
 
 	/**
 	 * Initializes the database storage.
@@ -29,8 +43,8 @@ public class DatabaseStorage {
 	 *
 	 * @param config the config used to get the connection information for the database from
 	 */
-	public DatabaseStorage(GlobalConfig config) throws SQLException {
-		this(config.getJdbcUrl());
+	public DatabaseStorage(GlobalConfig config) {
+		this(config.getJdbcUrl(), config.getDatabaseReadConnections());
 	}
 
 	/**
@@ -41,19 +55,59 @@ public class DatabaseStorage {
 	 *
 	 * @param jdbcUrl the jdbc url used to connect to the database
 	 */
-	public DatabaseStorage(String jdbcUrl) throws SQLException {
+	public DatabaseStorage(String jdbcUrl) {
+		this(jdbcUrl, DEFAULT_READ_POOL_SIZE);
+	}
+
+	/**
+	 * Initializes the database storage.
+	 *
+	 * <p>
+	 * Also performs database migrations, if necessary.
+	 *
+	 * @param jdbcUrl the jdbc url used to connect to the database
+	 * @param readPoolSize the maximum amount of concurrently open read-only connections
+	 */
+	public DatabaseStorage(String jdbcUrl, int readPoolSize) {
+		if (readPoolSize < 1) {
+			throw new IllegalArgumentException("readPoolSize must be at least 1");
+		}
+
+		// The writer has to be set up and migrated first, as read-only connections can neither
+		// create the database file nor switch it to WAL mode
+		this.writeDataSource = createPool("velcom-db-write", jdbcUrl, false, 1);
+		migrate(writeDataSource);
+
+		this.readDataSource = createPool("velcom-db-read", jdbcUrl, true, readPoolSize);
+
+		this.writeContext = DSL.using(writeDataSource, SQLDialect.SQLITE);
+		this.readContext = DSL.using(readDataSource, SQLDialect.SQLITE);
+	}
+
+	private static HikariDataSource createPool(String poolName, String jdbcUrl, boolean readOnly,
+		int poolSize) {
+
 		SQLiteConfig sqliteConfig = new SQLiteConfig();
 		sqliteConfig.enforceForeignKeys(true);
-		sqliteConfig.setJournalMode(JournalMode.WAL);
+		sqliteConfig.setBusyTimeout(BUSY_TIMEOUT_MILLIS);
+		sqliteConfig.setReadOnly(readOnly);
+		if (!readOnly) {
+			sqliteConfig.setJournalMode(JournalMode.WAL);
+		}
 
 		SQLiteDataSource dataSource = new SQLiteDataSource(sqliteConfig);
 		dataSource.setUrl(jdbcUrl);
 
-		this.connection = dataSource.getConnection();
-
-		this.context = DSL.using(this.connection, SQLDialect.SQLITE);
+		HikariConfig hikariConfig = new HikariConfig();
+		hikariConfig.setPoolName(poolName);
+		hikariConfig.setDataSource(dataSource);
+		hikariConfig.setReadOnly(readOnly);
+		hikariConfig.setMaximumPoolSize(poolSize);
+		hikariConfig.setMinimumIdle(1);
+		// Exposes "<poolName>.pool.Wait", "<poolName>.pool.ActiveConnections" and friends
+		hikariConfig.setMetricRegistry(ServerMain.getMetricRegistry());
 
-		migrate(dataSource);
+		return new HikariDataSource(hikariConfig);
 	}
 
 	private void migrate(DataSource dataSource) {
@@ -65,21 +119,33 @@ public class DatabaseStorage {
 	}
 
 	/**
-	 * @return a {@link DSLContext} instance providing jooq functionality along with a connection to
-	 * 	the database
+	 * Returns a context for reading from the database. Every query borrows one of the pooled
+	 * read-only connections for as long as it runs, so concurrent reads do not block each other.
+	 *
+	 * @return a {@link DSLContext} instance providing jooq functionality along with read-only
+	 * 	connections to the database
 	 */
-	public DSLContext acquireContext() {
-		return this.context;
+	public DSLContext acquireReadContext() {
+		return this.readContext;
+	}
+
+	/**
+	 * Returns a context for modifying the database. All writes share a single connection, so only
+	 * one write (or write transaction) is executed at a time.
+	 *
+	 * @return a {@link DSLContext} instance providing jooq functionality along with the writing
+	 * 	connection to the database
+	 */
+	public DSLContext acquireWriteContext() {
+		return this.writeContext;
 	}
 
 	/**
 	 * Closes the database storage.
 	 */
 	public void close() {
-		try {
-			this.connection.close();
-		} catch (SQLException ignore) {
-		}
+		this.readDataSource.close();
+		this.writeDataSource.close();
 	}
 
 }
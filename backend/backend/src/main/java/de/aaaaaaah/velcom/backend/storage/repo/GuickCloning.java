@@ -4,11 +4,26 @@ import de.aaaaaaah.velcom.runner.shared.ProgramExecutor;
 import de.aaaaaaah.velcom.runner.shared.ProgramExecutor.ProgramResult;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,12 +86,97 @@ public abstract class GuickCloning {
 		throws CloneException;
 
 	/**
-	 * Updates a bare repo to the remote state.
+	 * Updates a bare repo to the remote state. The refs the remote advertises are compared to the
+	 * local ones first, so nothing is fetched if no ref moved.
 	 *
 	 * @param repoDir the path to the repo
+	 * @return the full names of all local refs that were created or changed by the update
 	 * @throws CloneException if an error occurs
 	 */
-	public abstract void updateBareRepo(Path repoDir) throws CloneException;
+	public Set<String> updateBareRepo(Path repoDir) throws CloneException {
+		Map<String, ObjectId> oldRefs = readLocalRefs(repoDir);
+
+		if (!remoteRefsMoved(repoDir, oldRefs)) {
+			LOGGER.debug("No refs moved on the remote of {}, skipping fetch", repoDir);
+			return Set.of();
+		}
+
+		fetch(repoDir);
+
+		Map<String, ObjectId> newRefs = readLocalRefs(repoDir);
+		Set<String> changedRefs = new HashSet<>();
+		newRefs.forEach((name, id) -> {
+			if (!id.equals(oldRefs.get(name))) {
+				changedRefs.add(name);
+			}
+		});
+		return changedRefs;
+	}
+
+	/**
+	 * Fetches all changes from the remotes of a bare repo.
+	 *
+	 * @param repoDir the path to the repo
+	 * @throws CloneException if an error occurs
+	 */
+	protected abstract void fetch(Path repoDir) throws CloneException;
+
+	private static Map<String, ObjectId> readLocalRefs(Path repoDir) throws CloneException {
+		// A fresh repository, as the refs of a shared one might be cached from before the fetch
+		try (Repository repo = openRepo(repoDir)) {
+			Map<String, ObjectId> refs = new HashMap<>();
+			for (Ref ref : repo.getRefDatabase().getRefs()) {
+				if (!ref.isSymbolic() && ref.getObjectId() != null) {
+					refs.put(ref.getName(), ref.getObjectId());
+				}
+			}
+			return refs;
+		} catch (IOException e) {
+			throw new CloneException("Could not read the refs of " + repoDir, e);
+		}
+	}
+
+	/**
+	 * Asks the remote "origin" for its refs (like "git ls-remote") and maps them to local refs
+	 * using the configured fetch refspecs. If the remote can not be asked, it is assumed that refs
+	 * moved.
+	 */
+	private static boolean remoteRefsMoved(Path repoDir, Map<String, ObjectId> localRefs) {
+		try (Repository repo = openRepo(repoDir)) {
+			RemoteConfig remote = new RemoteConfig(repo.getConfig(), Constants.DEFAULT_REMOTE_NAME);
+			if (remote.getURIs().isEmpty()) {
+				return true;
+			}
+			List<RefSpec> fetchRefSpecs = remote.getFetchRefSpecs();
+
+			Collection<Ref> remoteRefs = Git.lsRemoteRepository()
+				.setRemote(remote.getURIs().get(0).toString())
+				.call();
+
+			for (Ref remoteRef : remoteRefs) {
+				for (RefSpec refSpec : fetchRefSpecs) {
+					if (!refSpec.matchSource(remoteRef)) {
+						continue;
+					}
+					String localName = refSpec.expandFromSource(remoteRef).getDestination();
+					if (!Objects.equals(remoteRef.getObjectId(), localRefs.get(localName))) {
+						return true;
+					}
+				}
+			}
+			return false;
+		} catch (IOException | URISyntaxException | GitAPIException e) {
+			LOGGER.debug("Could not list the remote refs of {}, fetching anyways", repoDir, e);
+			return true;
+		}
+	}
+
+	private static Repository openRepo(Path repoDir) throws IOException {
+		return new FileRepositoryBuilder()
+			.setGitDir(repoDir.toFile())
+			.setMustExist(true)
+			.build();
+	}
 
 
 	/**
@@ -142,9 +242,9 @@ public abstract class GuickCloning {
 		}
 
 		@Override
-		public void updateBareRepo(Path repoDir) throws CloneException {
-			try {
-				Git.open(repoDir.toFile()).fetch().call();
+		protected void fetch(Path repoDir) throws CloneException {
+			try (Git git = Git.open(repoDir.toFile())) {
+				git.fetch().call();
 			} catch (GitAPIException | IOException e) {
 				throw new CloneException(
 					"Error when pulling the latest changes from a bare git repo",
@@ -235,7 +335,7 @@ public abstract class GuickCloning {
 		}
 
 		@Override
-		public void updateBareRepo(Path repoDir) throws CloneException {
+		protected void fetch(Path repoDir) throws CloneException {
 			try {
 				ProgramResult programResult = new ProgramExecutor()
 					.execute(
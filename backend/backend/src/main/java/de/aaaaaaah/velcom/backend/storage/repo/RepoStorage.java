@@ -1,6 +1,12 @@
 package de.aaaaaaah.velcom.backend.storage.repo;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
 import de.aaaaaaah.velcom.backend.KnownHostsIgnoringSshdFactory;
+import de.aaaaaaah.velcom.backend.ServerMain;
 import de.aaaaaaah.velcom.backend.storage.repo.exception.AddRepositoryException;
 import de.aaaaaaah.velcom.backend.storage.repo.exception.DirectoryAlreadyExistsException;
 import de.aaaaaaah.velcom.backend.storage.repo.exception.NoSuchRepositoryException;
@@ -12,13 +18,17 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryBuilder;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
 import org.eclipse.jgit.transport.SshSessionFactory;
 import org.eclipse.jgit.transport.sshd.DefaultProxyDataFactory;
 import org.eclipse.jgit.transport.sshd.JGitKeyCache;
@@ -31,13 +41,33 @@ import org.slf4j.LoggerFactory;
  *
  * <p>
  * A repo storage is able to store git repositories on the file system.
+ *
+ * <p>Every repository is guarded by its own lock, so cloning or deleting one repository does not
+ * block access to the others. A storage-wide lock is only held briefly while directories are
+ * created, deleted or listed. Repository locks are always acquired before the storage-wide lock.
  */
 public class RepoStorage {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(RepoStorage.class);
 
+	private static final int PACKED_GIT_LIMIT = 128 * WindowCacheConfig.MB;
+	private static final int PACKED_GIT_WINDOW_SIZE = 64 * WindowCacheConfig.KB;
+	private static final int PACKED_GIT_OPEN_FILES = 256;
+	private static final int DELTA_BASE_CACHE_LIMIT = 32 * WindowCacheConfig.MB;
+
 	private final Path rootDir;
 	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<String, ReadWriteLock> repoLocks = new ConcurrentHashMap<>();
+
+	/**
+	 * The shared jgit repositories by directory name. The storage holds one reference to each of
+	 * them, every acquired {@link RepositoryLock} holds another one.
+	 */
+	private final Map<String, Repository> handles = new HashMap<>();
+
+	private final Meter handleHitsMeter;
+	private final Meter handleMissesMeter;
+	private final Timer handleOpenTimer;
 
 	/**
 	 * Initializes a new repo storage with {@code "data/repos"} as root directory.
@@ -72,6 +102,32 @@ public class RepoStorage {
 		);
 
 		SshSessionFactory.setInstance(factory);
+
+		installWindowCacheConfig();
+
+		MetricRegistry metricRegistry = ServerMain.getMetricRegistry();
+		this.handleHitsMeter = metricRegistry.meter(MetricRegistry.name(getClass(), "handle_hits"));
+		this.handleMissesMeter = metricRegistry
+			.meter(MetricRegistry.name(getClass(), "handle_misses"));
+		this.handleOpenTimer = metricRegistry
+			.timer(MetricRegistry.name(getClass(), "handle_open_time"));
+		metricRegistry.register(
+			MetricRegistry.name(getClass(), "open_handles"),
+			(Gauge<Integer>) this::getOpenHandleCount
+		);
+	}
+
+	/**
+	 * Configures jgit's global pack file cache. The defaults are meant for short-lived command line
+	 * invocations and cause pack files to be read over and over again when serving many requests.
+	 */
+	private static void installWindowCacheConfig() {
+		WindowCacheConfig config = new WindowCacheConfig();
+		config.setPackedGitLimit(PACKED_GIT_LIMIT);
+		config.setPackedGitWindowSize(PACKED_GIT_WINDOW_SIZE);
+		config.setPackedGitOpenFiles(PACKED_GIT_OPEN_FILES);
+		config.setDeltaBaseCacheLimit(DELTA_BASE_CACHE_LIMIT);
+		config.install();
 	}
 
 	/**
@@ -116,14 +172,20 @@ public class RepoStorage {
 	 */
 	public Path addRepository(String dirName, String remoteUrl) throws AddRepositoryException {
 		Path repoDir = rootDir.resolve(dirName);
+		Lock repoLock = getRepoLock(dirName).writeLock();
 
-		this.lock.writeLock().lock();
+		repoLock.lock();
 		try {
-			if (Files.exists(repoDir)) {
-				throw new DirectoryAlreadyExistsException(repoDir);
-			}
+			this.lock.writeLock().lock();
+			try {
+				if (Files.exists(repoDir)) {
+					throw new DirectoryAlreadyExistsException(repoDir);
+				}
 
-			Files.createDirectory(repoDir);
+				Files.createDirectory(repoDir);
+			} finally {
+				this.lock.writeLock().unlock();
+			}
 
 			long start = System.currentTimeMillis();
 			LOGGER.info("Cloning repo from {} into {}", remoteUrl, dirName);
@@ -138,13 +200,13 @@ public class RepoStorage {
 		} catch (Exception e) {
 			// try to clean up directory
 			try {
-				DirectoryRemover.deleteDirectoryRecursive(repoDir);
+				deleteRepoDir(dirName);
 			} catch (Exception ignore) {
 			}
 
 			throw new AddRepositoryException(dirName, remoteUrl, e);
 		} finally {
-			this.lock.writeLock().unlock();
+			repoLock.unlock();
 		}
 	}
 
@@ -156,8 +218,19 @@ public class RepoStorage {
 	 * 	repository
 	 */
 	public void deleteRepository(String dirName) throws IOException {
-		this.lock.writeLock().lock();
+		Lock repoLock = getRepoLock(dirName).writeLock();
+
+		repoLock.lock();
+		try {
+			invalidateRepository(dirName);
+			deleteRepoDir(dirName);
+		} finally {
+			repoLock.unlock();
+		}
+	}
 
+	private void deleteRepoDir(String dirName) throws IOException {
+		this.lock.writeLock().lock();
 		try {
 			DirectoryRemover.deleteDirectoryRecursive(rootDir.resolve(dirName));
 		} finally {
@@ -166,8 +239,8 @@ public class RepoStorage {
 	}
 
 	/**
-	 * Acquires the repository located under the specified directory by acquiring the repo storage
-	 * lock and executing the given handler.
+	 * Acquires the repository located under the specified directory by acquiring its lock and
+	 * executing the given handler.
 	 *
 	 * @param dirName the name of the directory
 	 * @param handler the handler to execute
@@ -177,29 +250,24 @@ public class RepoStorage {
 	public void acquireRepository(String dirName, CheckedConsumer<Repository, Exception> handler)
 		throws NoSuchRepositoryException, RepositoryAcquisitionException {
 
-		this.lock.readLock().lock();
-
-		try {
-			Path repoDir = getRepoDir(dirName);
-
-			try (Git git = Git.open(repoDir.toFile())) {
-				Repository repository = git.getRepository();
-
-				handler.accept(repository);
-
-			} catch (Exception e) {
-				throw new RepositoryAcquisitionException(this, dirName, e);
-			}
-		} finally {
-			this.lock.readLock().unlock();
+		try (Repository repository = acquireRepository(dirName)) {
+			handler.accept(repository);
+		} catch (NoSuchRepositoryException | RepositoryAcquisitionException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RepositoryAcquisitionException(this, dirName, e);
 		}
 	}
 
 	/**
-	 * Acquires the repository located under the specified directory by acquiring the repo storage
-	 * lock and returning the repository.
+	 * Acquires the repository located under the specified directory by acquiring its lock and
+	 * returning the repository.
 	 *
-	 * <p>Note that, in order to release the repo storage lock, the returned repository instance
+	 * <p>All acquisitions of a repository share the same jgit repository, so its configuration,
+	 * refs and pack indexes are only read once. Use {@link #invalidateRepository(String)} after
+	 * changing the repository on disk.</p>
+	 *
+	 * <p>Note that, in order to release the lock, the returned repository instance
 	 * <em>must be closed.</em></p>
 	 *
 	 * @param dirName the name of the directory
@@ -210,16 +278,72 @@ public class RepoStorage {
 	 */
 	public Repository acquireRepository(String dirName)
 		throws RepositoryAcquisitionException, NoSuchRepositoryException {
-		Path repoDir = getRepoDir(dirName);
 
-		RepositoryBuilder b = new RepositoryBuilder();
-		b.setGitDir(repoDir.toFile());
+		Lock repoLock = getRepoLock(dirName).readLock();
 
+		repoLock.lock();
 		try {
-			// constructor acquires read lock for this storage
-			return new RepositoryLock(this.lock.readLock(), b);
+			// Only checked now, as the repository might have been cloned or deleted while waiting
+			Path repoDir = getRepoDir(dirName);
+
+			// The repository lock releases the read lock for the repository once it is closed
+			return new RepositoryLock(repoLock, acquireHandle(dirName, repoDir));
 		} catch (IOException e) {
+			repoLock.unlock();
 			throw new RepositoryAcquisitionException(this, dirName, e);
+		} catch (RuntimeException e) {
+			repoLock.unlock();
+			throw e;
+		}
+	}
+
+	private ReadWriteLock getRepoLock(String dirName) {
+		return repoLocks.computeIfAbsent(dirName, it -> new ReentrantReadWriteLock());
+	}
+
+	/**
+	 * Closes the shared jgit repository for the specified directory, so the next acquisition reads
+	 * the repository from disk again. Must be called after the repository was changed without
+	 * using its shared instance, e.g. by fetching into it. Repositories that are currently acquired
+	 * stay usable until they are closed.
+	 *
+	 * @param dirName the name of the directory
+	 */
+	public void invalidateRepository(String dirName) {
+		synchronized (handles) {
+			Repository repository = handles.remove(dirName);
+			if (repository != null) {
+				// Only really closed once every acquired repository lock is closed as well
+				repository.close();
+			}
+		}
+	}
+
+	private Repository acquireHandle(String dirName, Path repoDir) throws IOException {
+		synchronized (handles) {
+			Repository repository = handles.get(dirName);
+
+			if (repository != null) {
+				handleHitsMeter.mark();
+			} else {
+				handleMissesMeter.mark();
+				try (Context ignored = handleOpenTimer.time()) {
+					repository = new RepositoryBuilder()
+						.setGitDir(repoDir.toFile())
+						.setMustExist(true)
+						.build();
+				}
+				handles.put(dirName, repository);
+			}
+
+			repository.incrementOpen();
+			return repository;
+		}
+	}
+
+	private int getOpenHandleCount() {
+		synchronized (handles) {
+			return handles.size();
 		}
 	}
 
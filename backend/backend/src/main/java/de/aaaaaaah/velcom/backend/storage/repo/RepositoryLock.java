@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import org.eclipse.jgit.annotations.NonNull;
 import org.eclipse.jgit.annotations.Nullable;
@@ -15,7 +16,6 @@ import org.eclipse.jgit.errors.RevisionSyntaxException;
 import org.eclipse.jgit.events.ListenerList;
 import org.eclipse.jgit.events.RepositoryEvent;
 import org.eclipse.jgit.lib.AnyObjectId;
-import org.eclipse.jgit.lib.BaseRepositoryBuilder;
 import org.eclipse.jgit.lib.ObjectDatabase;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectInserter;
@@ -29,6 +29,7 @@ import org.eclipse.jgit.lib.RefRename;
 import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.ReflogReader;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryBuilder;
 import org.eclipse.jgit.lib.RepositoryState;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.revwalk.RevCommit;
@@ -42,20 +43,21 @@ public class RepositoryLock extends Repository {
 
 	private final Repository repository;
 	private final Lock readLock;
+	private final AtomicBoolean closed;
 
 	/**
 	 * Constructs a new repository lock.
 	 *
-	 * @param readLock the read lock to immediately acquire
-	 * @param options options used to create the internal jgit repository instance
-	 * @throws IOException if the repository could not be accessed to configure the rest of the
-	 * 	builder's parameters.
+	 * @param readLock the read lock, which must already be held. It is released when this
+	 * 	repository is closed.
+	 * @param repository the jgit repository instance to wrap. It is closed when this repository is
+	 * 	closed.
 	 */
-	RepositoryLock(Lock readLock, BaseRepositoryBuilder options) throws IOException {
-		super(options);
-		this.repository = options.build();
+	RepositoryLock(Lock readLock, Repository repository) {
+		super(new RepositoryBuilder().setGitDir(repository.getDirectory()));
+		this.repository = repository;
 		this.readLock = readLock;
-		this.readLock.lock();
+		this.closed = new AtomicBoolean();
 	}
 
 	public static ListenerList getGlobalListenerList() {
@@ -192,6 +194,10 @@ public class RepositoryLock extends Repository {
 
 	@Override
 	public void close() {
+		// The wrapped repository is shared, so it must only be released once
+		if (closed.getAndSet(true)) {
+			return;
+		}
 		readLock.unlock();
 		repository.close();
 	}
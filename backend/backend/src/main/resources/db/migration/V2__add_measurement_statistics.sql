@@ -0,0 +1,13 @@
+-- Aggregates of a successful measurement's values, computed once on insertion. They are NULL for
+-- failed measurements. Existing measurements are filled in by the V3 java migration, as SQLite can
+-- neither compute medians nor square roots.
+ALTER TABLE run_measurement ADD COLUMN value_count INTEGER;
+ALTER TABLE run_measurement ADD COLUMN value_average DOUBLE;
+ALTER TABLE run_measurement ADD COLUMN value_median DOUBLE;
+ALTER TABLE run_measurement ADD COLUMN value_min DOUBLE;
+ALTER TABLE run_measurement ADD COLUMN value_max DOUBLE;
+ALTER TABLE run_measurement ADD COLUMN value_stddev DOUBLE;
+
+-- Measurements and their values are always looked up by their parent
+CREATE INDEX run_measurement_run_id ON run_measurement (run_id);
+CREATE INDEX run_measurement_value_measurement_id ON run_measurement_value (measurement_id);
@@ -0,0 +1,97 @@
+package db.migration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.jooq.codegen.db.tables.KnownCommit.KNOWN_COMMIT;
+import static org.jooq.codegen.db.tables.Repository.REPOSITORY;
+import static org.jooq.codegen.db.tables.Run.RUN;
+import static org.jooq.codegen.db.tables.RunMeasurement.RUN_MEASUREMENT;
+import static org.jooq.codegen.db.tables.RunMeasurementValue.RUN_MEASUREMENT_VALUE;
+
+import de.aaaaaaah.velcom.backend.storage.db.DatabaseStorage;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import org.flywaydb.core.Flyway;
+import org.jooq.DSLContext;
+import org.jooq.codegen.db.tables.records.RunMeasurementRecord;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BackfillMeasurementStatisticsTest {
+
+	@TempDir
+	Path testDir;
+
+	@Test
+	void computesStatisticsOfExistingMeasurements() {
+		String jdbcUrl = "jdbc:sqlite:file:" + testDir.resolve("data.db");
+
+		// 1.) Create a database in the state before the migration
+		Flyway.configure()
+			.dataSource(jdbcUrl, null, null)
+			.target("2")
+			.load()
+			.migrate();
+
+		try (DSLContext db = DSL.using(jdbcUrl)) {
+			Timestamp now = Timestamp.from(Instant.now());
+
+			db.insertInto(REPOSITORY, REPOSITORY.ID, REPOSITORY.NAME, REPOSITORY.REMOTE_URL)
+				.values("repo", "repo", "url")
+				.execute();
+			db.insertInto(KNOWN_COMMIT, KNOWN_COMMIT.REPO_ID, KNOWN_COMMIT.HASH, KNOWN_COMMIT.STATUS,
+				KNOWN_COMMIT.UPDATE_TIME, KNOWN_COMMIT.INSERT_TIME)
+				.values("repo", "hash", 0, now, now)
+				.execute();
+			db.insertInto(RUN, RUN.ID, RUN.REPO_ID, RUN.COMMIT_HASH, RUN.START_TIME, RUN.STOP_TIME)
+				.values("run", "repo", "hash", now, now)
+				.execute();
+			db.insertInto(RUN_MEASUREMENT, RUN_MEASUREMENT.ID, RUN_MEASUREMENT.RUN_ID,
+				RUN_MEASUREMENT.BENCHMARK, RUN_MEASUREMENT.METRIC, RUN_MEASUREMENT.UNIT,
+				RUN_MEASUREMENT.INTERPRETATION, RUN_MEASUREMENT.ERROR_MESSAGE)
+				.values("values", "run", "benchmark", "values", "s", "LESS_IS_BETTER", null)
+				.values("no_values", "run", "benchmark", "no_values", "s", "LESS_IS_BETTER", null)
+				.values("failed", "run", "benchmark", "failed", null, null, "error")
+				.execute();
+			db.insertInto(RUN_MEASUREMENT_VALUE, RUN_MEASUREMENT_VALUE.MEASUREMENT_ID,
+				RUN_MEASUREMENT_VALUE.VALUE)
+				.values("values", 4.0)
+				.values("values", 1.0)
+				.values("values", 2.0)
+				.values("values", 5.0)
+				.execute();
+		}
+
+		// 2.) Let the storage migrate it to the latest version
+		DatabaseStorage databaseStorage = new DatabaseStorage(jdbcUrl);
+
+		try {
+			DSLContext db = databaseStorage.acquireReadContext();
+
+			RunMeasurementRecord values = db.fetchOne(RUN_MEASUREMENT,
+				RUN_MEASUREMENT.ID.eq("values"));
+			assertThat(values.getErrorMessage()).isNull();
+			assertThat(values.getValueCount()).isEqualTo(4);
+			assertThat(values.getValueAverage()).isEqualTo(3.0);
+			assertThat(values.getValueMedian()).isEqualTo(3.0);
+			assertThat(values.getValueMin()).isEqualTo(1.0);
+			assertThat(values.getValueMax()).isEqualTo(5.0);
+			assertThat(values.getValueStddev()).isCloseTo(Math.sqrt(10.0 / 3), within(1e-9));
+
+			RunMeasurementRecord noValues = db.fetchOne(RUN_MEASUREMENT,
+				RUN_MEASUREMENT.ID.eq("no_values"));
+			assertThat(noValues.getErrorMessage()).isNotNull();
+			assertThat(noValues.getValueCount()).isNull();
+
+			RunMeasurementRecord failed = db.fetchOne(RUN_MEASUREMENT,
+				RUN_MEASUREMENT.ID.eq("failed"));
+			assertThat(failed.getErrorMessage()).isEqualTo("error");
+			assertThat(failed.getValueCount()).isNull();
+		} finally {
+			databaseStorage.close();
+		}
+	}
+
+}
@@ -2,6 +2,7 @@ package de.aaaaaaah.velcom.backend.access;
 
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.jooq.codegen.db.tables.KnownCommit.KNOWN_COMMIT;
 import static org.jooq.codegen.db.tables.Repository.REPOSITORY;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -11,6 +12,9 @@ import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.entities.Interpretation;
 import de.aaaaaaah.velcom.backend.access.entities.Measurement;
 import de.aaaaaaah.velcom.backend.access.entities.MeasurementName;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementSeries;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementStatistics;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementValues;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import de.aaaaaaah.velcom.backend.access.entities.Run;
 import de.aaaaaaah.velcom.backend.access.entities.RunBuilder;
@@ -32,6 +36,7 @@ import java.util.UUID;
 import org.jooq.DSLContext;
 import org.jooq.codegen.db.tables.records.KnownCommitRecord;
 import org.jooq.codegen.db.tables.records.RepositoryRecord;
+import org.jooq.exception.DataAccessException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -80,7 +85,7 @@ public class BenchmarkAccessTest {
 			repoHashes.put(repoIndex, new ArrayList<>());
 
 			// Insert repo into database
-			try (DSLContext db = dbStorage.acquireContext()) {
+			try (DSLContext db = dbStorage.acquireWriteContext()) {
 				RepositoryRecord record = db.newRecord(REPOSITORY);
 				record.setId(REPO_IDS[repoIndex].getId().toString());
 				record.setName("Bla");
@@ -98,7 +103,7 @@ public class BenchmarkAccessTest {
 			repoHashes.get(repoIndex).add(hash);
 			allHashes.add(hash);
 
-			try (DSLContext db = dbStorage.acquireContext()) {
+			try (DSLContext db = dbStorage.acquireWriteContext()) {
 				KnownCommitRecord commitRecord = db.newRecord(KNOWN_COMMIT);
 				commitRecord.setRepoId(REPO_IDS[repoIndex].getId().toString());
 				commitRecord.setHash(hash.getHash());
@@ -165,12 +170,58 @@ public class BenchmarkAccessTest {
 			assertThat(recentRunIds).containsExactlyElementsOf(insertedIds);
 
 			// Do deep equals test
+			// Recent runs never contain the individual values
 			for (int runIndex = 0; runIndex < recentRuns.size(); runIndex++) {
-				assertRunEquals(insertedRunsSoFar.get(runIndex), recentRuns.get(runIndex));
+				assertRunEquals(
+					BenchmarkReadAccess.withoutValues(insertedRunsSoFar.get(runIndex)),
+					recentRuns.get(runIndex)
+				);
 			}
 		}
 	}
 
+	@Test
+	public void testBulkInsert() {
+		benchmarkAccess.insertRuns(allRuns);
+
+		// A fresh access has empty caches and needs to load everything from the database
+		BenchmarkReadAccess freshAccess = new BenchmarkReadAccess(dbStorage);
+
+		List<Run> recentRuns = freshAccess.getRecentRuns(0, TOTAL_RUN_COUNT);
+		assertEquals(allRuns.size(), recentRuns.size());
+
+		for (int i = 0; i < allRuns.size(); i++) {
+			assertRunEquals(BenchmarkReadAccess.withoutValues(allRuns.get(i)), recentRuns.get(i));
+		}
+
+		for (Run run : allRuns) {
+			Run sameRun = benchmarkAccess.getLatestRun(run.getRepoId(), run.getCommitHash())
+				.orElseThrow();
+
+			assertRunEquals(run, sameRun);
+		}
+	}
+
+	@Test
+	public void testBulkInsertIsAtomic() {
+		Run invalidRun = RunBuilder.failed(
+			REPO_IDS[0],
+			new CommitHash("unknown"),
+			Instant.now(),
+			Instant.now(),
+			"this commit does not exist"
+		).build();
+
+		List<Run> runs = new ArrayList<>(allRuns);
+		runs.add(invalidRun);
+
+		assertThatThrownBy(() -> benchmarkAccess.insertRuns(runs))
+			.isInstanceOf(DataAccessException.class);
+
+		assertTrue(benchmarkAccess.getRecentRuns(0, TOTAL_RUN_COUNT).isEmpty());
+		assertTrue(new BenchmarkReadAccess(dbStorage).getRecentRuns(0, TOTAL_RUN_COUNT).isEmpty());
+	}
+
 	@Test
 	public void testGetLatestRuns() {
 		allRuns.forEach(benchmarkAccess::insertRun);
@@ -191,6 +242,31 @@ public class BenchmarkAccessTest {
 		});
 	}
 
+	@Test
+	public void testOnlyLatestRunContainsValues() {
+		benchmarkAccess.insertRuns(allRuns);
+		BenchmarkReadAccess freshAccess = new BenchmarkReadAccess(dbStorage);
+
+		MeasurementStatistics expectedStatistics = MeasurementStatistics.of(
+			List.of(0.0, 1.0, 1.0, 2.0, 3.0, 5.0, 8.0, 13.0, 1.0, 34.0)
+		);
+
+		for (BenchmarkReadAccess access : List.of(benchmarkAccess, freshAccess)) {
+			for (Run run : access.getLatestRuns(REPO_IDS[0], allHashes).values()) {
+				for (Measurement measurement : run.getMeasurements().orElseThrow()) {
+					MeasurementValues values = measurement.getContent().getRight().orElseThrow();
+
+					assertTrue(values.getValues().isEmpty());
+					assertEquals(expectedStatistics, values.getStatistics());
+				}
+			}
+
+			Run run = allRuns.get(0);
+			Run sameRun = access.getLatestRun(run.getRepoId(), run.getCommitHash()).orElseThrow();
+			assertRunEquals(run, sameRun);
+		}
+	}
+
 	@Test
 	public void testGetAvailableMeasurements() {
 		allRuns.forEach(benchmarkAccess::insertRun);
@@ -212,8 +288,18 @@ public class BenchmarkAccessTest {
 		List<CommitHash> hashList = repoHashes.get(0);
 		MeasurementName mName = MEASUREMENTS[0][0];
 
+		// Load a run with values so that it is cached
+		CommitHash cachedHash = hashList.get(0);
+		assertThat(benchmarkAccess.getLatestRun(repoId, cachedHash)).isPresent();
+
 		benchmarkAccess.deleteAllMeasurementsOfName(repoId, mName);
 
+		// The cached run with values must not contain the deleted measurement either
+		assertThat(benchmarkAccess.getLatestRun(repoId, cachedHash).orElseThrow()
+			.getMeasurements().orElseThrow())
+			.extracting(Measurement::getMeasurementName)
+			.doesNotContain(mName);
+
 		// Get updated runs from access and check if any of the runs still contains the mName
 		Map<CommitHash, Run> runMap = benchmarkAccess.getLatestRuns(repoId, hashList);
 
@@ -259,6 +345,61 @@ public class BenchmarkAccessTest {
 		assertThat(available).contains(mName);
 	}
 
+	@Test
+	public void testMeasurementSeries() {
+		RepoId repoId = REPO_IDS[0];
+		MeasurementName mName = MEASUREMENTS[0][0];
+		List<CommitHash> hashList = repoHashes.get(0);
+
+		assertTrue(benchmarkAccess.getMeasurementSeries(repoId, mName).isEmpty());
+
+		// Load the series after half of the runs so the other half is added incrementally
+		benchmarkAccess.insertRuns(allRuns.subList(0, TOTAL_RUN_COUNT / 2));
+		assertTrue(benchmarkAccess.getMeasurementSeries(repoId, mName).isPresent());
+		benchmarkAccess.insertRuns(allRuns.subList(TOTAL_RUN_COUNT / 2, TOTAL_RUN_COUNT));
+
+		// A more recent run for an already benchmarked commit replaces the older values
+		RunBuilder runBuilder = RunBuilder.successful(repoId, hashList.get(0),
+			Instant.now().plus(Duration.ofHours(1)), Instant.now().plus(Duration.ofHours(2)));
+		runBuilder.addSuccessfulMeasurement(mName, Interpretation.MORE_IS_BETTER, new Unit("m"),
+			List.of(1.0, 3.0));
+		benchmarkAccess.insertRun(runBuilder.build());
+
+		MeasurementSeries series = benchmarkAccess.getMeasurementSeries(repoId, mName)
+			.orElseThrow();
+		MeasurementSeries loadedSeries = new BenchmarkReadAccess(dbStorage)
+			.getMeasurementSeries(repoId, mName)
+			.orElseThrow();
+
+		for (MeasurementSeries s : List.of(series, loadedSeries)) {
+			assertEquals(hashList.size(), s.size());
+			assertEquals(new Unit("m"), s.getUnit());
+			assertEquals(Interpretation.MORE_IS_BETTER, s.getInterpretation());
+
+			for (CommitHash hash : hashList) {
+				int index = s.indexOf(hash).orElseThrow();
+				assertEquals(hash, s.getCommit(index));
+
+				if (hash.equals(hashList.get(0))) {
+					assertEquals(2.0, s.getAverage(index), 1e-9);
+					assertEquals(1.0, s.getMinimum(index), 1e-9);
+					assertEquals(3.0, s.getMaximum(index), 1e-9);
+					assertEquals(Math.sqrt(2), s.getStandardDeviation(index), 1e-9);
+				} else {
+					assertEquals(6.8, s.getAverage(index), 1e-9);
+					assertEquals(0.0, s.getMinimum(index), 1e-9);
+					assertEquals(34.0, s.getMaximum(index), 1e-9);
+				}
+			}
+
+			// The commit of the other repo is not part of this series
+			assertTrue(s.indexOf(repoHashes.get(1).get(0)).isEmpty());
+		}
+
+		benchmarkAccess.deleteAllMeasurementsOfName(repoId, mName);
+		assertTrue(benchmarkAccess.getMeasurementSeries(repoId, mName).isEmpty());
+	}
+
 	private static void assertRunEquals(Run first, Run second) {
 		assertEquals(first.getId(), second.getId());
 		assertEquals(first.getRepoId(), second.getRepoId());
@@ -15,6 +15,7 @@ import de.aaaaaaah.velcom.backend.access.entities.BranchName;
 import de.aaaaaaah.velcom.backend.access.entities.Commit;
 import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import de.aaaaaaah.velcom.backend.access.exceptions.CommitLogException;
 import de.aaaaaaah.velcom.backend.storage.repo.RepoStorage;
 import de.aaaaaaah.velcom.backend.storage.repo.exception.AddRepositoryException;
 import java.io.IOException;
@@ -131,40 +132,6 @@ public class CommitAccessTest {
 		assertTrue(commitAccess.getCommits(repoId, Collections.emptyList()).isEmpty());
 	}
 
-	@Test
-	public void testGetCommitWalk() throws IOException {
-		TestCommit startTestCommit = COMMITS.get(5);
-		var startHash = new CommitHash(testRepo.getCommitHash(startTestCommit).orElseThrow());
-		Commit start = commitAccess.getCommit(repoId, startHash);
-		Commit next;
-		Collection<Commit> parents;
-
-		try (CommitWalk walk = commitAccess.getCommitWalk(start)) {
-			Commit sameStart = walk.getStart();
-			assertCommitEquals(start, sameStart);
-
-			parents = walk.getParents(start);
-			assertEquals(1, parents.size());
-			next = parents.iterator().next();
-			assertCommitEquals(next, COMMITS.get(4));
-
-			parents = walk.getParents(next);
-			assertEquals(1, parents.size());
-			next = parents.iterator().next();
-			assertCommitEquals(next, COMMITS.get(2));
-
-			parents = walk.getParents(next);
-			assertEquals(1, parents.size());
-			next = parents.iterator().next();
-			assertCommitEquals(next, COMMITS.get(1));
-
-			parents = walk.getParents(next);
-			assertEquals(1, parents.size());
-			next = parents.iterator().next();
-			assertCommitEquals(next, COMMITS.get(0));
-		}
-	}
-
 	@ParameterizedTest
 	@MethodSource("instantProvider")
 	public void testGetCommitsBetween(@Nullable Instant start, @Nullable Instant end) {
@@ -218,6 +185,20 @@ public class CommitAccessTest {
 		}
 	}
 
+	@Test
+	public void testCommitLogHashes() {
+		List<CommitHash> logHashes;
+		try (Stream<Commit> commitLog = commitAccess.getCommitLog(repoId, BRANCHES)) {
+			logHashes = commitLog.map(Commit::getHash).collect(toList());
+		}
+
+		assertThat(commitAccess.getCommitLogHashes(repoId, BRANCHES)).isEqualTo(logHashes);
+		assertThat(commitAccess.getCommitLogHashes(repoId, List.of())).isEmpty();
+		assertThrows(CommitLogException.class, () -> commitAccess.getCommitLogHashes(
+			repoId, List.of(BranchName.fromName("nope"))
+		));
+	}
+
 	private static Stream<Arguments> instantProvider() {
 		Builder<Arguments> builder = Stream.builder();
 
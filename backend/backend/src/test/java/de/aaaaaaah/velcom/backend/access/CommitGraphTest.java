@@ -0,0 +1,233 @@
+package de.aaaaaaah.velcom.backend.access;
+
+import static java.time.Duration.ofHours;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import de.aaaaaaah.velcom.backend.TestCommit;
+import de.aaaaaaah.velcom.backend.TestRepo;
+import de.aaaaaaah.velcom.backend.access.entities.BranchName;
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import de.aaaaaaah.velcom.backend.storage.repo.GuickCloning;
+import de.aaaaaaah.velcom.backend.storage.repo.RepoStorage;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LogCommand;
+import org.eclipse.jgit.internal.storage.file.FileSnapshot;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+class CommitGraphTest {
+
+	private static final Instant START = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+	private static final BranchName MASTER = BranchName.fromName("master");
+	private static final BranchName OTHER = BranchName.fromName("otherbranch");
+
+	private static final List<TestCommit> COMMITS = List.of(
+		new TestCommit("Initial commit", START),
+		new TestCommit("Second commit", START.plus(ofHours(1))),
+		new TestCommit("Began working on some feature", "otherbranch", START.plus(ofHours(2))),
+		new TestCommit("Some bugfixes", "master", START.plus(ofHours(3)))
+	);
+
+	@TempDir
+	Path testDir;
+
+	RepoId repoId = new RepoId();
+	RepoStorage repoStorage;
+	TestRepo testRepo;
+	List<CommitHash> hashes = new ArrayList<>();
+
+	CommitReadAccess commitAccess;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		((Logger) LoggerFactory.getLogger(FileSnapshot.class)).setLevel(Level.OFF); // Too much spam
+
+		repoStorage = new RepoStorage(testDir.resolve("repos"));
+		testRepo = new TestRepo(testDir.resolve("test_repo"));
+
+		for (TestCommit commit : COMMITS) {
+			hashes.add(commit(commit));
+		}
+
+		repoStorage.addRepository(repoId.getDirectoryName(), "file://" + testDir.resolve("test_repo"));
+
+		commitAccess = new CommitReadAccess(repoStorage);
+	}
+
+	private CommitHash commit(TestCommit commit) throws Exception {
+		RevCommit revCommit = testRepo.commit(commit);
+		return new CommitHash(revCommit.getId().getName());
+	}
+
+	private int id(CommitGraph graph, int commitIndex) {
+		return graph.getId(hashes.get(commitIndex)).orElseThrow();
+	}
+
+	@Test
+	void containsAllCommitsInTopologicalOrder() {
+		CommitGraph graph = commitAccess.getCommitGraph(repoId);
+
+		assertThat(graph.size()).isEqualTo(COMMITS.size());
+		for (int i = 0; i < COMMITS.size(); i++) {
+			int id = id(graph, i);
+			assertThat(graph.getHash(id)).isEqualTo(hashes.get(i));
+			assertThat(graph.getAuthorTime(id)).isEqualTo(COMMITS.get(i).getAuthorDate().orElseThrow());
+
+			for (int parentId : graph.getParentIds(id)) {
+				assertThat(parentId).isLessThan(id);
+			}
+		}
+
+		assertThat(graph.getParentIds(id(graph, 0))).isEmpty();
+		assertThat(graph.getParentIds(id(graph, 2))).containsExactly(id(graph, 1));
+		assertThat(graph.getParentIds(id(graph, 3))).containsExactly(id(graph, 1));
+
+		assertThat(graph.getBranchHeads()).containsOnlyKeys(MASTER, OTHER);
+		assertThat(graph.getBranchHeads().get(MASTER)).isEqualTo(id(graph, 3));
+		assertThat(graph.getBranchHeads().get(OTHER)).isEqualTo(id(graph, 2));
+	}
+
+	@Test
+	void findsReachableCommits() {
+		CommitGraph graph = commitAccess.getCommitGraph(repoId);
+
+		BitSet reachable = graph.getReachableFrom(List.of(OTHER));
+		assertThat(reachable.cardinality()).isEqualTo(3);
+		assertThat(reachable.get(id(graph, 3))).isFalse();
+
+		assertThat(graph.getReachableFrom(List.of(MASTER, OTHER)).cardinality()).isEqualTo(4);
+		assertThat(graph.getReachableFrom(List.of(BranchName.fromName("nope"))).isEmpty()).isTrue();
+	}
+
+	@Test
+	void findsCommitsAuthoredBetween() {
+		CommitGraph graph = commitAccess.getCommitGraph(repoId);
+
+		assertThat(graph.getIdsAuthoredBetween(null, null))
+			.containsExactly(id(graph, 0), id(graph, 1), id(graph, 2), id(graph, 3));
+		assertThat(graph.getIdsAuthoredBetween(START, START.plus(ofHours(3))))
+			.containsExactly(id(graph, 1), id(graph, 2));
+		assertThat(graph.getIdsAuthoredBetween(START.plus(ofHours(1)), null))
+			.containsExactly(id(graph, 2), id(graph, 3));
+		assertThat(graph.getIdsAuthoredBetween(null, START)).isEmpty();
+	}
+
+	@Test
+	void ordersCommitsLikeGitLog() throws Exception {
+		// A merge commit makes the log interleave the history of both branches
+		try (Git git = Git.open(testDir.resolve("test_repo").toFile())) {
+			git.merge()
+				.include(git.getRepository().resolve(OTHER.getFullName()))
+				.setStrategy(MergeStrategy.OURS)
+				.setMessage("Merge")
+				.call();
+		}
+		commit(new TestCommit("After merge", "master", START.plus(ofHours(4))));
+		GuickCloning.getInstance().updateBareRepo(repoStorage.getRepoDir(repoId.getDirectoryName()));
+
+		CommitGraph graph = commitAccess.getCommitGraph(repoId);
+
+		for (List<BranchName> branches : List.of(List.of(MASTER), List.of(OTHER, MASTER))) {
+			List<CommitHash> logOrder = Arrays.stream(graph.getLogOrder(branches))
+				.mapToObj(graph::getHash)
+				.collect(Collectors.toList());
+			assertThat(logOrder).isEqualTo(gitLog(branches));
+		}
+		assertThat(graph.getLogOrder(List.of(BranchName.fromName("nope")))).isEmpty();
+	}
+
+	private List<CommitHash> gitLog(List<BranchName> branches) throws Exception {
+		try (Repository repo = repoStorage.acquireRepository(repoId.getDirectoryName())) {
+			LogCommand log = Git.wrap(repo).log();
+			for (BranchName branch : branches) {
+				log.add(repo.resolve(branch.getFullName()));
+			}
+
+			List<CommitHash> hashes = new ArrayList<>();
+			for (RevCommit revCommit : log.call()) {
+				hashes.add(new CommitHash(revCommit.getName()));
+			}
+			return hashes;
+		}
+	}
+
+	@Test
+	void isUpdatedIncrementallyAfterFetch() throws Exception {
+		CommitGraph oldGraph = commitAccess.getCommitGraph(repoId);
+		assertThat(commitAccess.getCommitGraph(repoId)).isSameAs(oldGraph);
+
+		// A commit authored before all others must still end up at the right place in the index
+		hashes.add(commit(new TestCommit("Backdated", "otherbranch", START.minus(ofHours(1)))));
+		hashes.add(commit(new TestCommit("Another bugfix", "master", START.plus(ofHours(4)))));
+		GuickCloning.getInstance().updateBareRepo(repoStorage.getRepoDir(repoId.getDirectoryName()));
+
+		CommitGraph graph = commitAccess.getCommitGraph(repoId);
+
+		assertThat(graph.size()).isEqualTo(6);
+		assertThat(oldGraph.size()).isEqualTo(4);
+		for (int i = 0; i < 4; i++) {
+			assertThat(id(graph, i)).isEqualTo(id(oldGraph, i));
+		}
+
+		assertThat(graph.getParentIds(id(graph, 4))).containsExactly(id(graph, 2));
+		assertThat(graph.getBranchHeads().get(OTHER)).isEqualTo(id(graph, 4));
+		assertThat(graph.getBranchHeads().get(MASTER)).isEqualTo(id(graph, 5));
+
+		List<CommitHash> byAuthorTime = Arrays.stream(graph.getIdsAuthoredBetween(null, null))
+			.mapToObj(graph::getHash)
+			.collect(Collectors.toList());
+		assertThat(byAuthorTime).containsExactly(
+			hashes.get(4), hashes.get(0), hashes.get(1), hashes.get(2), hashes.get(3), hashes.get(5)
+		);
+	}
+
+	@Test
+	void concurrentCallersShareUpdatedGraph() throws Exception {
+		CommitGraph oldGraph = commitAccess.getCommitGraph(repoId);
+
+		hashes.add(commit(new TestCommit("Another bugfix", "master", START.plus(ofHours(4)))));
+		GuickCloning.getInstance().updateBareRepo(repoStorage.getRepoDir(repoId.getDirectoryName()));
+
+		try (Repository repo = repoStorage.acquireRepository(repoId.getDirectoryName())) {
+			assertThat(oldGraph.isUpToDate(repo)).isFalse();
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<CommitGraph>> graphs = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			graphs.add(executor.submit(() -> commitAccess.getCommitGraph(repoId)));
+		}
+		executor.shutdown();
+
+		CommitGraph graph = graphs.get(0).get();
+		assertThat(graph.size()).isEqualTo(5);
+		for (Future<CommitGraph> future : graphs) {
+			assertThat(future.get()).isSameAs(graph);
+		}
+
+		try (Repository repo = repoStorage.acquireRepository(repoId.getDirectoryName())) {
+			assertThat(graph.isUpToDate(repo)).isTrue();
+		}
+	}
+
+}
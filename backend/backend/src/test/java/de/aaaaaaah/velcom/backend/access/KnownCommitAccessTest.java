@@ -53,7 +53,7 @@ public class KnownCommitAccessTest {
 		knownCommitAccess = new KnownCommitWriteAccess(dbStorage);
 
 		// Insert repo into db
-		try (DSLContext db = dbStorage.acquireContext()) {
+		try (DSLContext db = dbStorage.acquireWriteContext()) {
 			RepositoryRecord record = db.newRecord(REPOSITORY);
 			record.setId(firstId.getId().toString());
 			record.setName("bla");
@@ -8,6 +8,8 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
@@ -75,6 +77,7 @@ public class RepoAccessTest {
 
 	RepoStorage repoStorage;
 	DatabaseStorage dbStorage;
+	CommitReadAccess commitAccess;
 
 	RepoWriteAccess repoAccess;
 
@@ -95,9 +98,11 @@ public class RepoAccessTest {
 
 		repoStorage = new RepoStorage(repoStoragePath);
 		dbStorage = new DatabaseStorage("jdbc:sqlite:file:" + dbPath);
+		commitAccess = spy(new CommitReadAccess(repoStorage));
 
 		repoAccess = new RepoWriteAccess(
-			dbStorage, repoStorage, firstRemoteUrl, testDir.resolve("archives_unused")
+			dbStorage, repoStorage, commitAccess, firstRemoteUrl,
+			testDir.resolve("archives_unused"), 0, false
 		);
 	}
 
@@ -318,6 +323,7 @@ public class RepoAccessTest {
 		);
 
 		repoAccess.deleteRepo(firstRepo.getRepoId());
+		verify(commitAccess).forgetCommitGraph(id);
 
 		assertThat(repoAccess.getAllRepos()).containsExactlyInAnyOrder(
 			secondRepo
@@ -376,4 +382,19 @@ public class RepoAccessTest {
 		assertEquals(thirdHash, hashAfterFetch);
 	}
 
+	@Test
+	public void testCanNotBundleIfArchivesContainGitDir() throws IOException {
+		Repo repo = repoAccess.addRepo(FIRST_NAME, firstRemoteUrl);
+		Branch master = new Branch(repo.getRepoId(), BranchName.fromName("master"));
+		CommitHash hash = repoAccess.getLatestCommitHash(master);
+
+		assertTrue(repoAccess.canBundleNormalRepo(repo.getRepoId(), hash));
+
+		RepoWriteAccess gitDirRepoAccess = new RepoWriteAccess(
+			dbStorage, repoStorage, commitAccess, firstRemoteUrl,
+			testDir.resolve("archives_unused"), 0, true
+		);
+		assertFalse(gitDirRepoAccess.canBundleNormalRepo(repo.getRepoId(), hash));
+	}
+
 }
@@ -40,7 +40,7 @@ public class TokenAccessTest {
 		tokenAccess = new TokenWriteAccess(dbStorage, ADMIN_TOKEN, HASH_MEMORY, HASH_ITERATIONS);
 
 		// Insert repo into db
-		try (DSLContext db = dbStorage.acquireContext()) {
+		try (DSLContext db = dbStorage.acquireWriteContext()) {
 			RepositoryRecord record = db.newRecord(REPOSITORY);
 			record.setId(firstId.getId().toString());
 			record.setName("bla");
@@ -2,6 +2,7 @@ package de.aaaaaaah.velcom.backend.access.archive;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -12,10 +13,20 @@ import de.aaaaaaah.velcom.backend.access.exceptions.ArchiveFailedPermanently;
 import de.aaaaaaah.velcom.backend.storage.repo.RepoStorage;
 import de.aaaaaaah.velcom.backend.util.DirectoryRemover;
 import de.aaaaaaah.velcom.runner.shared.util.compression.TarHelper;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.merge.MergeStrategy;
@@ -95,7 +106,7 @@ class ArchiverTest {
 		RepoStorage repoStorage = mock(RepoStorage.class);
 		when(repoStorage.acquireRepository("repo")).thenReturn(repoGit.getRepository());
 		when(repoStorage.getRepoDir("repo")).thenReturn(repoPath.toAbsolutePath());
-		this.archiver = new Archiver(repoStorage, archivesRootDir);
+		this.archiver = new Archiver(repoStorage, archivesRootDir, 1024 * 1024, true);
 	}
 
 	@AfterEach
@@ -134,6 +145,149 @@ class ArchiverTest {
 			.isEqualTo(version);
 	}
 
+	@ParameterizedTest
+	@CsvSource({
+		"HEAD, Version 2!",
+		"HEAD^, Version 1"
+	})
+	void treeWalkArchiveContainsSubmodules(String commit, String version) throws Exception {
+		Archiver treeWalkArchiver = createTreeWalkArchiver();
+
+		Path out = garbageDir.resolve("out");
+		ObjectId head = Git.open(repoPath.toFile()).getRepository().resolve(commit);
+		try (OutputStream outputStream = Files.newOutputStream(out)) {
+			treeWalkArchiver.archive("repo", new CommitHash(head.getName()), outputStream, false);
+		}
+
+		Path outDir = out.resolveSibling("out_dir");
+		TarHelper.untar(out, outDir);
+
+		assertThat(outDir.resolve(".git")).doesNotExist();
+		assertThat(outDir.resolve(".gitmodules")).exists();
+		assertThat(Files.readString(outDir.resolve(SUBMODULE_PATH + "/test.txt")))
+			.isEqualTo(version);
+	}
+
+	@Test
+	void treeWalkArchiveKeepsExecutableFiles() throws Exception {
+		Path script = repoPath.resolve("script.sh");
+		Files.writeString(script, "echo hey");
+		Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+
+		Git repoGit = Git.open(repoPath.toFile());
+		repoGit.add().addFilepattern("script.sh").call();
+		ObjectId commit = repoGit.commit().setAuthor("Auth", "er").setMessage("Script").call();
+
+		Path out = garbageDir.resolve("out");
+		try (OutputStream outputStream = Files.newOutputStream(out)) {
+			createTreeWalkArchiver()
+				.archive("repo", new CommitHash(commit.getName()), outputStream, false);
+		}
+
+		Path outDir = out.resolveSibling("out_dir");
+		TarHelper.untar(out, outDir);
+
+		assertThat(Files.isExecutable(outDir.resolve("script.sh"))).isTrue();
+		assertThat(Files.isExecutable(outDir.resolve(".gitmodules"))).isFalse();
+	}
+
+	@ParameterizedTest
+	@CsvSource({"0", "1048576"})
+	void concurrentRequestsForSameCommitGetSameArchive(long cacheMaxBytes) throws Exception {
+		Archiver treeWalkArchiver = createTreeWalkArchiver(cacheMaxBytes);
+		CommitHash head = new CommitHash(
+			Git.open(repoPath.toFile()).getRepository().resolve("HEAD").getName()
+		);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<byte[]>> archives = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			archives.add(executor.submit(() -> {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				treeWalkArchiver.archive("repo", head, out, false);
+				return out.toByteArray();
+			}));
+		}
+		executor.shutdown();
+
+		byte[] first = archives.get(0).get();
+		assertThat(first).isNotEmpty();
+		for (Future<byte[]> archive : archives) {
+			assertThat(archive.get()).isEqualTo(first);
+		}
+	}
+
+	@Test
+	void slowReceiverDoesNotBlockDeletingArchives() throws Exception {
+		Archiver treeWalkArchiver = createTreeWalkArchiver();
+		CommitHash head = new CommitHash(
+			Git.open(repoPath.toFile()).getRepository().resolve("HEAD").getName()
+		);
+
+		CountDownLatch writeStarted = new CountDownLatch(1);
+		CountDownLatch finishWrite = new CountDownLatch(1);
+		OutputStream slowOut = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				writeStarted.countDown();
+				try {
+					finishWrite.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+		};
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<?> archive = executor.submit(() -> {
+			treeWalkArchiver.archive("repo", head, slowOut, false);
+			return null;
+		});
+		executor.shutdown();
+
+		assertThat(writeStarted.await(10, TimeUnit.SECONDS)).isTrue();
+		// Would block until the archive was streamed if the repo lock was still held
+		assertTimeoutPreemptively(
+			Duration.ofSeconds(10), () -> treeWalkArchiver.deleteArchives("repo")
+		);
+
+		finishWrite.countDown();
+		archive.get();
+	}
+
+	private Archiver createTreeWalkArchiver() throws Exception {
+		return createTreeWalkArchiver(0);
+	}
+
+	private Archiver createTreeWalkArchiver(long cacheMaxBytes) throws Exception {
+		RepoStorage repoStorage = new RepoStorage(tempDir.resolve("storage"));
+		repoStorage.addRepository("repo", repoPath.toUri().toString());
+
+		return new Archiver(repoStorage, archivesRootDir, cacheMaxBytes, false);
+	}
+
+	@Test
+	void cachedArchiveIsStreamedWithoutCloning() throws Exception {
+		ObjectId head = Git.open(repoPath.toFile()).getRepository().resolve("HEAD");
+		archiver.archive(
+			"repo", new CommitHash(head.getName()), OutputStream.nullOutputStream(), false
+		);
+
+		// Cloning would fail now, as the submodule can no longer be found
+		DirectoryRemover.deleteDirectoryRecursive(tempDir.resolve("sub_module"));
+
+		Path out = garbageDir.resolve("out");
+		try (OutputStream outputStream = Files.newOutputStream(out)) {
+			archiver.archive("repo", new CommitHash(head.getName()), outputStream, false);
+		}
+
+		Path outDir = out.resolveSibling("out_dir");
+		TarHelper.untar(out, outDir);
+
+		assertThat(Files.readString(outDir.resolve(SUBMODULE_PATH + "/test.txt")))
+			.isEqualTo("Version 2!");
+	}
+
 	@Test
 	public void invalidSubmoduleArchiveFails() throws IOException {
 		DirectoryRemover.deleteDirectoryRecursive(tempDir.resolve("sub_module"));
@@ -0,0 +1,190 @@
+package de.aaaaaaah.velcom.backend.access.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.exceptions.ArchiveFailedPermanently;
+import de.aaaaaaah.velcom.backend.storage.repo.RepoStorage;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
+import de.aaaaaaah.velcom.runner.shared.util.compression.TarHelper;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.RefSpec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BundlerTest {
+
+	@TempDir
+	Path tempDir;
+
+	private Path repoPath;
+	private Git repoGit;
+	private ObjectId firstCommit;
+	private ObjectId secondCommit;
+	private Bundler bundler;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		repoPath = tempDir.resolve("repo");
+		repoGit = Git.init().setDirectory(repoPath.toFile()).call();
+
+		// A big, badly compressible file that is only part of the first commit's objects
+		byte[] content = new byte[100_000];
+		new Random(42).nextBytes(content);
+		Files.write(repoPath.resolve("big.txt"), content);
+		repoGit.add().addFilepattern("big.txt").call();
+		firstCommit = repoGit.commit().setAuthor("Auth", "er").setMessage("First").call();
+
+		Files.writeString(repoPath.resolve("small.txt"), "changed");
+		repoGit.add().addFilepattern("small.txt").call();
+		secondCommit = repoGit.commit().setAuthor("Auth", "er").setMessage("Second").call();
+
+		RepoStorage repoStorage = new RepoStorage(tempDir.resolve("storage"));
+		repoStorage.addRepository("repo", repoPath.toUri().toString());
+		bundler = new Bundler(repoStorage);
+	}
+
+	@Test
+	void bundleContainsOnlyMissingObjects() throws Exception {
+		Path fullBundle = tempDir.resolve("full.bundle");
+		Path deltaBundle = tempDir.resolve("delta.bundle");
+
+		bundler.bundle("repo", hash(secondCommit), null, Files.newOutputStream(fullBundle));
+		bundler.bundle(
+			"repo", hash(secondCommit), hash(firstCommit), Files.newOutputStream(deltaBundle)
+		);
+
+		assertThat(Files.size(deltaBundle)).isLessThan(Files.size(fullBundle) / 10);
+
+		// A repo that has the base commit can fetch the commit from the delta
+		Path receiverPath = tempDir.resolve("receiver");
+		try (Git receiver = Git.init().setDirectory(receiverPath.toFile()).setBare(true).call()) {
+			fetch(receiver, fullBundle);
+			fetch(receiver, deltaBundle);
+
+			assertThat(receiver.getRepository().resolve(RepoTransferFormat.BUNDLE_REF))
+				.isEqualTo(secondCommit);
+		}
+	}
+
+	@Test
+	void unknownBaseBundlesEverything() throws Exception {
+		Path bundle = tempDir.resolve("full.bundle");
+		bundler.bundle(
+			"repo", hash(secondCommit), new CommitHash("0".repeat(40)), Files.newOutputStream(bundle)
+		);
+
+		try (Git receiver = Git.init().setDirectory(tempDir.resolve("receiver").toFile())
+			.setBare(true).call()) {
+			fetch(receiver, bundle);
+
+			Repository repository = receiver.getRepository();
+			assertThat(repository.resolve(RepoTransferFormat.BUNDLE_REF)).isEqualTo(secondCommit);
+			assertThat(repository.getObjectDatabase().has(firstCommit)).isTrue();
+		}
+	}
+
+	@Test
+	void unknownCommitFailsPermanently() {
+		assertThatThrownBy(() -> bundler.bundle(
+			"repo", new CommitHash("0".repeat(40)), null, OutputStream.nullOutputStream()
+		)).isInstanceOf(ArchiveFailedPermanently.class);
+	}
+
+	@Test
+	void commitsWithSubmodulesCanNotBeBundled() throws Exception {
+		assertThat(bundler.canBundle("repo", hash(secondCommit))).isTrue();
+		assertThat(bundler.canBundle("repo", new CommitHash("0".repeat(40)))).isFalse();
+
+		Files.writeString(
+			repoPath.resolve(".gitmodules"),
+			"[submodule \"sub\"]\n\tpath = sub\n\turl = ../sub\n"
+		);
+		repoGit.add().addFilepattern(".gitmodules").call();
+		ObjectId withSubmodules = repoGit.commit().setAuthor("Auth", "er").setMessage("Sub").call();
+
+		RepoStorage repoStorage = new RepoStorage(tempDir.resolve("storage2"));
+		repoStorage.addRepository("repo", repoPath.toUri().toString());
+
+		assertThat(new Bundler(repoStorage).canBundle("repo", hash(withSubmodules))).isFalse();
+	}
+
+	@Test
+	void bundledTreeMatchesTreeWalkArchive() throws Exception {
+		Path script = repoPath.resolve("script.sh");
+		Files.writeString(script, "echo hey");
+		Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+		repoGit.add().addFilepattern("script.sh").call();
+		ObjectId commit = repoGit.commit().setAuthor("Auth", "er").setMessage("Script").call();
+
+		RepoStorage repoStorage = new RepoStorage(tempDir.resolve("storage2"));
+		repoStorage.addRepository("repo", repoPath.toUri().toString());
+
+		Path archive = tempDir.resolve("repo.tar");
+		new Archiver(repoStorage, tempDir.resolve("archives"), 0, false)
+			.archive("repo", hash(commit), Files.newOutputStream(archive), false);
+		Path archiveDir = tempDir.resolve("from_archive");
+		TarHelper.untar(archive, archiveDir);
+
+		// Runners fetch the bundle into a mirror and export the commit's files from there
+		Path bundle = tempDir.resolve("full.bundle");
+		new Bundler(repoStorage)
+			.bundle("repo", hash(commit), null, Files.newOutputStream(bundle));
+		Path bundleDir = tempDir.resolve("from_bundle");
+		try (Git mirror = Git.init().setDirectory(bundleDir.toFile()).call()) {
+			fetch(mirror, bundle);
+			mirror.checkout().setName(commit.getName()).call();
+		}
+
+		assertThat(listFiles(bundleDir)).isEqualTo(listFiles(archiveDir));
+		assertThat(listFiles(archiveDir)).containsKeys("big.txt", "small.txt", "script.sh +x");
+	}
+
+	private static CommitHash hash(ObjectId objectId) {
+		return new CommitHash(objectId.getName());
+	}
+
+	private static void fetch(Git receiver, Path bundle) throws Exception {
+		receiver.fetch()
+			.setRemote(bundle.toAbsolutePath().toString())
+			.setRefSpecs(List.of(new RefSpec(
+				"+" + RepoTransferFormat.BUNDLE_REF + ":" + RepoTransferFormat.BUNDLE_REF
+			)))
+			.call();
+	}
+
+	/**
+	 * Maps the path of every regular file outside of ".git" to its content. Executable files get
+	 * a " +x" suffix.
+	 */
+	private static Map<String, String> listFiles(Path dir) throws Exception {
+		Map<String, String> files = new HashMap<>();
+		try (Stream<Path> paths = Files.walk(dir)) {
+			for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+				Path relative = dir.relativize(path);
+				if (relative.startsWith(".git")) {
+					continue;
+				}
+				String name = relative.toString() + (Files.isExecutable(path) ? " +x" : "");
+				files.put(name, Base64.getEncoder().encodeToString(Files.readAllBytes(path)));
+			}
+		}
+		return files;
+	}
+
+}
@@ -0,0 +1,123 @@
+package de.aaaaaaah.velcom.backend.access.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TarballCacheTest {
+
+	@TempDir
+	Path tempDir;
+
+	private Path cacheDir;
+
+	@BeforeEach
+	void setUp() {
+		cacheDir = tempDir.resolve("cache");
+	}
+
+	private Path writeFile(byte[] content) throws IOException {
+		Path file = tempDir.resolve("files").resolve(UUID.randomUUID() + ".tar");
+		Files.createDirectories(file.getParent());
+		return Files.write(file, content);
+	}
+
+	private void store(TarballCache cache, String dirName, String entryName, int size)
+		throws IOException {
+
+		Path file = writeFile(new byte[size]);
+		cache.put(dirName, entryName, file);
+		Files.delete(file);
+	}
+
+	private static Optional<byte[]> read(TarballCache cache, String dirName, String entryName)
+		throws IOException {
+
+		Optional<InputStream> in = cache.open(dirName, entryName);
+		if (in.isEmpty()) {
+			return Optional.empty();
+		}
+		try (InputStream stream = in.get()) {
+			return Optional.of(stream.readAllBytes());
+		}
+	}
+
+	@Test
+	void storesEntryIndependentOfFile() throws IOException {
+		TarballCache cache = new TarballCache(cacheDir, 100);
+
+		Path file = writeFile(new byte[]{1, 2, 3});
+		cache.put("repo", "commit", file);
+
+		assertThat(file).hasBinaryContent(new byte[]{1, 2, 3});
+		Files.delete(file);
+
+		assertThat(read(cache, "repo", "commit")).hasValueSatisfying(
+			bytes -> assertThat(bytes).containsExactly(1, 2, 3)
+		);
+		assertThat(cache.getCurrentBytes()).isEqualTo(3);
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedEntries() throws IOException {
+		TarballCache cache = new TarballCache(cacheDir, 100);
+
+		store(cache, "repo", "first", 40);
+		store(cache, "repo", "second", 40);
+		// Makes "second" the least recently used entry
+		assertThat(read(cache, "repo", "first")).isPresent();
+		store(cache, "repo", "third", 40);
+
+		assertThat(read(cache, "repo", "first")).isPresent();
+		assertThat(read(cache, "repo", "second")).isEmpty();
+		assertThat(read(cache, "repo", "third")).isPresent();
+		assertThat(cache.getCurrentBytes()).isEqualTo(80);
+	}
+
+	@Test
+	void doesNotCacheEntriesLargerThanBudget() throws IOException {
+		TarballCache cache = new TarballCache(cacheDir, 100);
+
+		store(cache, "repo", "small", 50);
+		store(cache, "repo", "huge", 150);
+
+		assertThat(read(cache, "repo", "small")).isPresent();
+		assertThat(read(cache, "repo", "huge")).isEmpty();
+	}
+
+	@Test
+	void reusesExistingEntriesAndInvalidatesPerRepo() throws IOException {
+		TarballCache cache = new TarballCache(cacheDir, 100);
+		store(cache, "repo", "commit", 10);
+		store(cache, "other", "commit", 20);
+
+		TarballCache reloaded = new TarballCache(cacheDir, 100);
+		assertThat(reloaded.getCurrentBytes()).isEqualTo(30);
+
+		reloaded.invalidate("repo");
+		assertThat(read(reloaded, "repo", "commit")).isEmpty();
+		assertThat(read(reloaded, "other", "commit")).isPresent();
+		assertThat(reloaded.getCurrentBytes()).isEqualTo(20);
+	}
+
+	@Test
+	void disabledCacheStoresNothing() throws IOException {
+		TarballCache cache = new TarballCache(cacheDir, 0);
+
+		Path file = writeFile(new byte[]{1});
+		cache.put("repo", "commit", file);
+
+		assertThat(file).exists();
+		assertThat(read(cache, "repo", "commit")).isEmpty();
+		assertThat(cacheDir).doesNotExist();
+	}
+
+}
@@ -0,0 +1,116 @@
+package de.aaaaaaah.velcom.backend.data.linearlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.aaaaaaah.velcom.backend.access.CommitReadAccess;
+import de.aaaaaaah.velcom.backend.access.RepoReadAccess;
+import de.aaaaaaah.velcom.backend.access.entities.Branch;
+import de.aaaaaaah.velcom.backend.access.entities.BranchName;
+import de.aaaaaaah.velcom.backend.access.entities.Commit;
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import de.aaaaaaah.velcom.backend.util.Pair;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CachedLinearLogTest {
+
+	private LinearLog uncachedLog;
+	private CommitReadAccess commitAccess;
+	private RepoReadAccess repoAccess;
+	private CachedLinearLog log;
+
+	private RepoId repoId;
+	private Collection<BranchName> branchNames;
+
+	private Commit c1;
+	private Commit c2;
+	private Commit c3;
+	private List<Commit> commits;
+
+	@BeforeEach
+	void setup() throws LinearLogException {
+		uncachedLog = mock(LinearLog.class);
+		commitAccess = mock(CommitReadAccess.class);
+		repoAccess = mock(RepoReadAccess.class);
+		log = new CachedLinearLog(uncachedLog, commitAccess, repoAccess);
+
+		repoId = new RepoId(UUID.randomUUID());
+		branchNames = Stream.of("foo", "bar")
+			.map(BranchName::fromName)
+			.collect(Collectors.toUnmodifiableList());
+		Collection<Branch> branches = branchNames.stream()
+			.map(branchName -> {
+				Branch branch = mock(Branch.class);
+				when(branch.getName()).thenReturn(branchName);
+				return branch;
+			})
+			.collect(Collectors.toUnmodifiableList());
+
+		c1 = new Commit(repoId, new CommitHash("hash1"), List.of(), "author", Instant.now(),
+			"committer", Instant.now(), "message");
+		c2 = new Commit(repoId, new CommitHash("hash2"), List.of(), "author", Instant.now(),
+			"committer", Instant.now(), "message");
+		c3 = new Commit(repoId, new CommitHash("hash3"), List.of(), "author", Instant.now(),
+			"committer", Instant.now(), "message");
+		commits = List.of(c1, c2, c3);
+
+		when(repoAccess.getTrackedBranches(repoId)).thenReturn(branches);
+		when(uncachedLog.walkHashes(eq(repoId), any())).then(ignore -> commits.stream()
+			.map(Commit::getHash)
+			.collect(Collectors.toList()));
+		when(commitAccess.getCommits(eq(repoId), any())).then(invocation -> {
+			Collection<?> hashes = invocation.getArgumentAt(1, Collection.class);
+			return commits.stream()
+				.filter(commit -> hashes.contains(commit.getHash()))
+				.collect(Collectors.toList());
+		});
+	}
+
+	@Test
+	void canFindPreviousNext() {
+		assertEquals(new Pair<>(Optional.of(c2), Optional.empty()), log.getPrevNextCommits(c1));
+		assertEquals(new Pair<>(Optional.of(c3), Optional.of(c1)), log.getPrevNextCommits(c2));
+		assertEquals(new Pair<>(Optional.empty(), Optional.of(c2)), log.getPrevNextCommits(c3));
+
+		assertEquals(Optional.of(c2), log.getPreviousCommit(c1));
+		assertEquals(Optional.empty(), log.getPreviousCommit(c3));
+	}
+
+	@Test
+	void walksOnlyOnceUntilInvalidated() throws LinearLogException {
+		log.getPrevNextCommits(c1);
+		log.getPrevNextCommits(c2);
+		log.getPreviousCommit(c3);
+		verify(uncachedLog, times(1)).walkHashes(eq(repoId), any());
+
+		log.invalidate(repoId);
+		log.getPrevNextCommits(c1);
+		verify(uncachedLog, times(2)).walkHashes(eq(repoId), any());
+	}
+
+	@Test
+	void indexContainsLogInOrder() throws LinearLogException {
+		LinearLogIndex index = log.getIndex(repoId, branchNames);
+
+		assertEquals(3, index.size());
+		assertEquals(1, index.indexOf(c2.getHash()).orElseThrow());
+		assertEquals(c3.getHash(), index.get(2));
+		assertEquals(List.of(c2.getHash(), c3.getHash()), index.getRange(1, 10));
+		assertEquals(List.of(), index.getRange(5, 10));
+	}
+
+}
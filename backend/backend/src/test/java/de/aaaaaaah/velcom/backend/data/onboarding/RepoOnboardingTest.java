@@ -0,0 +1,128 @@
+package de.aaaaaaah.velcom.backend.data.onboarding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.aaaaaaah.velcom.backend.access.RepoWriteAccess;
+import de.aaaaaaah.velcom.backend.access.TokenWriteAccess;
+import de.aaaaaaah.velcom.backend.access.entities.AuthToken;
+import de.aaaaaaah.velcom.backend.access.entities.RemoteUrl;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import de.aaaaaaah.velcom.backend.access.exceptions.AddRepoException;
+import de.aaaaaaah.velcom.backend.data.onboarding.RepoOnboarding.OnboardingState;
+import de.aaaaaaah.velcom.backend.data.onboarding.RepoOnboarding.OnboardingStatus;
+import de.aaaaaaah.velcom.backend.listener.Listener;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RepoOnboardingTest {
+
+	private static final RemoteUrl REMOTE_URL = new RemoteUrl("https://example.com/repo.git");
+
+	private RepoWriteAccess repoAccess;
+	private TokenWriteAccess tokenAccess;
+	private Listener listener;
+	private RepoOnboarding onboarding;
+
+	@BeforeEach
+	void setUp() {
+		repoAccess = mock(RepoWriteAccess.class);
+		tokenAccess = mock(TokenWriteAccess.class);
+		listener = mock(Listener.class);
+		onboarding = new RepoOnboarding(repoAccess, tokenAccess, listener);
+	}
+
+	@Test
+	void addsRepoInBackground() throws Exception {
+		CountDownLatch cloneStarted = new CountDownLatch(1);
+		CountDownLatch finishClone = new CountDownLatch(1);
+		CountDownLatch listenerCalled = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			cloneStarted.countDown();
+			finishClone.await();
+			return null;
+		}).when(repoAccess).addRepo(any(RepoId.class), eq("name"), eq(REMOTE_URL));
+		doAnswer(invocation -> {
+			listenerCalled.countDown();
+			return null;
+		}).when(listener).checkForUnknownCommits(any(RepoId.class));
+
+		AuthToken token = new AuthToken("token");
+		OnboardingStatus status = onboarding.startOnboarding("name", REMOTE_URL, token);
+		RepoId repoId = status.getRepoId();
+
+		assertThat(status.getState()).isEqualTo(OnboardingState.CLONING);
+		assertThat(cloneStarted.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(onboarding.getStatus(repoId).orElseThrow().getState())
+			.isEqualTo(OnboardingState.CLONING);
+
+		finishClone.countDown();
+		assertThat(listenerCalled.await(10, TimeUnit.SECONDS)).isTrue();
+
+		OnboardingStatus finished = onboarding.getStatus(repoId).orElseThrow();
+		assertThat(finished.getState()).isEqualTo(OnboardingState.DONE);
+		assertThat(finished.getError()).isEmpty();
+		assertThat(finished.getFinishTime()).isPresent();
+		verify(repoAccess).addRepo(repoId, "name", REMOTE_URL);
+		verify(tokenAccess).setToken(repoId, token);
+		verify(listener).checkForUnknownCommits(repoId);
+	}
+
+	@Test
+	void reportsFailedClone() throws Exception {
+		when(repoAccess.addRepo(any(RepoId.class), eq("name"), eq(REMOTE_URL)))
+			.thenThrow(new AddRepoException("name", REMOTE_URL, new RuntimeException()));
+
+		RepoId repoId = onboarding.startOnboarding("name", REMOTE_URL, null).getRepoId();
+
+		OnboardingStatus status = awaitFinished(repoId);
+		assertThat(status.getState()).isEqualTo(OnboardingState.FAILED);
+		assertThat(status.getError()).contains("Could not clone url: " + REMOTE_URL.getUrl());
+		verify(tokenAccess, never()).setToken(any(RepoId.class), any(AuthToken.class));
+		verify(listener, never()).checkForUnknownCommits(any(RepoId.class));
+	}
+
+	@Test
+	void removesRepoIfTokenCanNotBeSet() throws Exception {
+		AuthToken token = new AuthToken("token");
+		doThrow(new IllegalStateException("database is locked"))
+			.when(tokenAccess).setToken(any(RepoId.class), eq(token));
+
+		RepoId repoId = onboarding.startOnboarding("name", REMOTE_URL, token).getRepoId();
+
+		OnboardingStatus status = awaitFinished(repoId);
+		assertThat(status.getState()).isEqualTo(OnboardingState.FAILED);
+		assertThat(status.getError()).contains("Could not set the repo token: database is locked");
+		verify(repoAccess).addRepo(repoId, "name", REMOTE_URL);
+		verify(repoAccess).deleteRepo(repoId);
+		verify(listener, never()).checkForUnknownCommits(any(RepoId.class));
+	}
+
+	@Test
+	void unknownRepoHasNoStatus() {
+		assertThat(onboarding.getStatus(new RepoId(UUID.randomUUID()))).isEmpty();
+	}
+
+	private OnboardingStatus awaitFinished(RepoId repoId) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (System.currentTimeMillis() < deadline) {
+			OnboardingStatus status = onboarding.getStatus(repoId).orElseThrow();
+			if (status.getFinishTime().isPresent()) {
+				return status;
+			}
+			Thread.sleep(10);
+		}
+		throw new AssertionError("Onboarding of " + repoId + " did not finish");
+	}
+
+}
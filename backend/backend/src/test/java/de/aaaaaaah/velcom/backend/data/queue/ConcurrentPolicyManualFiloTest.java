@@ -0,0 +1,135 @@
+package de.aaaaaaah.velcom.backend.data.queue;
+
+import de.aaaaaaah.velcom.backend.access.entities.Commit;
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentPolicyManualFiloTest {
+
+	private QueuePolicy policy;
+	private RepoId r1;
+	private RepoId r2;
+	private Commit c1;
+	private Commit c2;
+	private Commit c3;
+
+	@BeforeEach
+	void setup() {
+		policy = new ConcurrentPolicyManualFilo();
+
+		r1 = new RepoId(UUID.randomUUID());
+		r2 = new RepoId(UUID.randomUUID());
+
+		c1 = commit(r1, "hash1");
+		c2 = commit(r1, "hash2");
+		c3 = commit(r2, "hash3");
+	}
+
+	private static Commit commit(RepoId repoId, String hash) {
+		return new Commit(
+			repoId,
+			new CommitHash(hash), List.of(),
+			"author", Instant.now(),
+			"committer", Instant.now(),
+			"message"
+		);
+	}
+
+	@Test
+	void manualCommitHasPriority() {
+		policy.addTask(c1);
+		policy.addManualTask(c2);
+		policy.addTask(c3);
+
+		Assertions.assertEquals(
+			List.of(c2, c3, c1),
+			policy.viewAllCurrentTasks()
+		);
+	}
+
+	@Test
+	void abortingRemovesOnlyCommitsOfSpecificRepo() {
+		policy.addTask(c1);
+		policy.addManualTask(c2);
+		policy.addTask(c3);
+
+		Assertions.assertEquals(Set.of(c1, c2), Set.copyOf(policy.abortAllTasksOfRepo(r1)));
+		Assertions.assertEquals(
+			List.of(c3),
+			policy.viewAllCurrentTasks()
+		);
+	}
+
+	@Test
+	void containsEveryCommitOnlyOnce() {
+		Assertions.assertTrue(policy.addTask(c1));
+		Assertions.assertFalse(policy.addTask(c1));
+		Assertions.assertTrue(policy.addManualTask(c1));
+		Assertions.assertFalse(policy.addTask(c1));
+
+		Assertions.assertEquals(List.of(c1), policy.viewAllCurrentTasks());
+		Assertions.assertEquals(Optional.of(c1), policy.getNextTask());
+		Assertions.assertEquals(Optional.empty(), policy.getNextTask());
+
+		// Once a task was started, its commit can be added again
+		Assertions.assertTrue(policy.addTask(c1));
+		policy.abortTask(r1, c1.getHash());
+		Assertions.assertEquals(Optional.empty(), policy.getNextTask());
+	}
+
+	@Test
+	void hasSameOrderAsPolicyManualFilo() {
+		QueuePolicy reference = new PolicyManualFilo();
+		Random random = new Random(42);
+
+		List<RepoId> repoIds = List.of(r1, r2, new RepoId(UUID.randomUUID()));
+		List<Commit> commits = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			commits.add(commit(repoIds.get(i % repoIds.size()), "hash" + i));
+		}
+
+		for (int i = 0; i < 1000; i++) {
+			Commit commit = commits.get(random.nextInt(commits.size()));
+
+			switch (random.nextInt(10)) {
+				case 0:
+					reference.addManualTask(commit);
+					policy.addManualTask(commit);
+					break;
+				case 1:
+				case 2:
+					reference.abortTask(commit.getRepoId(), commit.getHash());
+					policy.abortTask(commit.getRepoId(), commit.getHash());
+					break;
+				case 3:
+				case 4:
+					Assertions.assertEquals(reference.getNextTask(), policy.getNextTask());
+					break;
+				default:
+					Assertions.assertEquals(reference.addTask(commit), policy.addTask(commit));
+					break;
+			}
+
+			List<Commit> referenceTasks = reference.viewAllCurrentTasks();
+			Assertions.assertEquals(referenceTasks, policy.viewAllCurrentTasks());
+			Assertions.assertEquals(referenceTasks.size(), policy.getTaskCount());
+
+			int skip = random.nextInt(referenceTasks.size() + 2);
+			int amount = random.nextInt(5);
+			Assertions.assertEquals(
+				reference.viewTasks(skip, amount), policy.viewTasks(skip, amount)
+			);
+		}
+	}
+
+}
@@ -2,6 +2,7 @@ package de.aaaaaaah.velcom.backend.data.queue;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -157,4 +158,18 @@ class QueueTest {
 		verifyNoMoreInteractions(policy);
 	}
 
-}
\ No newline at end of file
+	@Test
+	void pagesAndCountsTasksViaPolicy() {
+		Commit c1 = mock(Commit.class);
+
+		when(policy.viewTasks(1, 2)).thenReturn(List.of(c1));
+		when(policy.viewTasks(1, Integer.MAX_VALUE)).thenReturn(List.of(c1));
+		when(policy.getTaskCount()).thenReturn(3);
+
+		assertEquals(List.of(c1), queue.viewTasks(1, 2));
+		assertEquals(List.of(c1), queue.viewTasks(1, null));
+		assertEquals(3, queue.getTaskCount());
+		verify(policy, never()).viewAllCurrentTasks();
+	}
+
+}
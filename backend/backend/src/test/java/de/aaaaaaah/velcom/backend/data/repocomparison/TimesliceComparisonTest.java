@@ -1,8 +1,6 @@
 package de.aaaaaaah.velcom.backend.data.repocomparison;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.Matchers.anyCollection;
-import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -12,12 +10,11 @@ import de.aaaaaaah.velcom.backend.access.entities.BranchName;
 import de.aaaaaaah.velcom.backend.access.entities.Commit;
 import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.entities.Interpretation;
-import de.aaaaaaah.velcom.backend.access.entities.Measurement;
 import de.aaaaaaah.velcom.backend.access.entities.MeasurementName;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementSeries;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementSeriesBuilder;
 import de.aaaaaaah.velcom.backend.access.entities.MeasurementValues;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
-import de.aaaaaaah.velcom.backend.access.entities.Run;
-import de.aaaaaaah.velcom.backend.access.entities.RunId;
 import de.aaaaaaah.velcom.backend.access.entities.Unit;
 import java.time.Instant;
 import java.util.HashMap;
@@ -51,15 +48,7 @@ class TimesliceComparisonTest {
 
 	private Unit unit;
 	private Interpretation interpretation;
-	private Measurement m1;
-	private Measurement m2;
-	private Measurement m3;
-	private Measurement m4;
-	private Run r1;
-	private Run r2;
-	private Run r3;
-	private Run r4;
-	private Map<CommitHash, Run> runMap;
+	private MeasurementSeries series;
 
 	@BeforeEach
 	void setup() {
@@ -93,27 +82,18 @@ class TimesliceComparisonTest {
 
 		unit = new Unit("unit");
 		interpretation = Interpretation.LESS_IS_BETTER;
-		m1 = new Measurement(mock(RunId.class), measurementName,
-			new MeasurementValues(List.of(1d, 2d, 3d), unit, interpretation));
-		m2 = new Measurement(mock(RunId.class), measurementName,
-			new MeasurementValues(List.of(4d, 5d, 6d), unit, interpretation));
-		m3 = new Measurement(mock(RunId.class), measurementName,
-			new MeasurementValues(List.of(7d, 8d, 9d), unit, interpretation));
-		m4 = new Measurement(mock(RunId.class), measurementName,
-			new MeasurementValues(List.of(10d, 11d, 12d), unit, interpretation));
-		r1 = mock(Run.class);
-		r2 = mock(Run.class);
-		r3 = mock(Run.class);
-		r4 = mock(Run.class);
-		when(r1.getMeasurements()).thenReturn(Optional.of(List.of(m1)));
-		when(r2.getMeasurements()).thenReturn(Optional.of(List.of(m2)));
-		when(r3.getMeasurements()).thenReturn(Optional.of(List.of(m3)));
-		when(r4.getMeasurements()).thenReturn(Optional.of(List.of(m4)));
-		runMap = new HashMap<>();
-		runMap.put(c1Hash, r1);
-		runMap.put(c2Hash, r2);
-		runMap.put(c3Hash, r3);
-		runMap.put(c4Hash, r4);
+		Instant runStartTime = Instant.now();
+		series = new MeasurementSeriesBuilder(repoId, measurementName)
+			.addValues(c1Hash, runStartTime,
+				new MeasurementValues(List.of(1d, 2d, 3d), unit, interpretation))
+			.addValues(c2Hash, runStartTime.plusSeconds(1),
+				new MeasurementValues(List.of(4d, 5d, 6d), unit, interpretation))
+			.addValues(c3Hash, runStartTime.plusSeconds(2),
+				new MeasurementValues(List.of(7d, 8d, 9d), unit, interpretation))
+			.addValues(c4Hash, runStartTime.plusSeconds(3),
+				new MeasurementValues(List.of(10d, 11d, 12d), unit, interpretation))
+			.build()
+			.orElseThrow();
 	}
 
 	@Test
@@ -139,8 +119,8 @@ class TimesliceComparisonTest {
 
 		when(commitReadAccess.getCommitsBetween(repoId, branchNames, startInstant, stopInstant))
 			.thenReturn(commitMap);
-		when(benchmarkReadAccess.getLatestRuns(eq(repoId), anyCollection()))
-			.thenReturn(runMap);
+		when(benchmarkReadAccess.getMeasurementSeries(repoId, measurementName))
+			.thenReturn(Optional.of(series));
 
 		ComparisonGraph graph = comparison.generateGraph(measurementName, repoBranches,
 			startInstant, stopInstant);
@@ -179,8 +159,8 @@ class TimesliceComparisonTest {
 
 		when(commitReadAccess.getCommitsBetween(repoId, branchNames, startInstant, stopInstant))
 			.thenReturn(commitMap);
-		when(benchmarkReadAccess.getLatestRuns(eq(repoId), anyCollection()))
-			.thenReturn(runMap);
+		when(benchmarkReadAccess.getMeasurementSeries(repoId, measurementName))
+			.thenReturn(Optional.of(series));
 
 		ComparisonGraph graph = comparison.generateGraph(measurementName, repoBranches,
 			startInstant, stopInstant);
@@ -219,8 +199,8 @@ class TimesliceComparisonTest {
 
 		when(commitReadAccess.getCommitsBetween(repoId, branchNames, startInstant, stopInstant))
 			.thenReturn(commitMap);
-		when(benchmarkReadAccess.getLatestRuns(eq(repoId), anyCollection()))
-			.thenReturn(runMap);
+		when(benchmarkReadAccess.getMeasurementSeries(repoId, measurementName))
+			.thenReturn(Optional.of(series));
 
 		ComparisonGraph graph = comparison.generateGraph(measurementName, repoBranches,
 			startInstant, stopInstant);
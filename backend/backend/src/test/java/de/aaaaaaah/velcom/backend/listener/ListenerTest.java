@@ -0,0 +1,190 @@
+package de.aaaaaaah.velcom.backend.listener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import de.aaaaaaah.velcom.backend.GlobalConfig;
+import de.aaaaaaah.velcom.backend.access.CommitReadAccess;
+import de.aaaaaaah.velcom.backend.access.KnownCommitWriteAccess;
+import de.aaaaaaah.velcom.backend.access.RepoWriteAccess;
+import de.aaaaaaah.velcom.backend.access.entities.Branch;
+import de.aaaaaaah.velcom.backend.access.entities.BranchName;
+import de.aaaaaaah.velcom.backend.access.entities.Commit;
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.entities.RemoteUrl;
+import de.aaaaaaah.velcom.backend.access.entities.Repo;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import de.aaaaaaah.velcom.backend.data.linearlog.CachedLinearLog;
+import de.aaaaaaah.velcom.backend.data.queue.Queue;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ListenerTest {
+
+	private GlobalConfig config;
+	private RepoWriteAccess repoAccess;
+	private KnownCommitWriteAccess knownCommitAccess;
+	private CommitReadAccess commitAccess;
+	private CachedLinearLog linearLog;
+
+	@BeforeEach
+	void setUp() {
+		config = mock(GlobalConfig.class);
+		when(config.getPollInterval()).thenReturn(3600L);
+		when(config.getMaxPollInterval()).thenReturn(3600L);
+		when(config.getListenerThreads()).thenReturn(4);
+
+		repoAccess = mock(RepoWriteAccess.class);
+
+		knownCommitAccess = mock(KnownCommitWriteAccess.class);
+		when(knownCommitAccess.hasKnownCommits(any(RepoId.class))).thenReturn(true);
+
+		commitAccess = mock(CommitReadAccess.class);
+		linearLog = mock(CachedLinearLog.class);
+	}
+
+	/**
+	 * Must only be called after all stubbing is done, as stubbing mocks that are used by other
+	 * threads at the same time is not safe. The listener immediately checks all given repos.
+	 */
+	private Listener startListener(RepoId... repoIds) {
+		List<Repo> repos = new ArrayList<>();
+		for (RepoId repoId : repoIds) {
+			repos.add(new Repo(repoId, "repo", new RemoteUrl("remote"), List.of()));
+		}
+		return startListener(repos);
+	}
+
+	private Listener startListener(List<Repo> repos) {
+		for (Repo repo : repos) {
+			when(repoAccess.getRepo(repo.getRepoId())).thenReturn(repo);
+		}
+		when(repoAccess.getAllRepos()).thenReturn(repos);
+
+		return new Listener(config, repoAccess, commitAccess, knownCommitAccess, linearLog,
+			mock(Queue.class));
+	}
+
+	@Test
+	void checksRequestedRepoImmediately() throws Exception {
+		RepoId repoId = new RepoId(UUID.randomUUID());
+		CountDownLatch firstFetchDone = new CountDownLatch(1);
+		CountDownLatch secondFetchDone = new CountDownLatch(2);
+		doAnswer(invocation -> {
+			firstFetchDone.countDown();
+			secondFetchDone.countDown();
+			return Set.of();
+		}).when(repoAccess).updateRepo(repoId);
+		Listener listener = startListener(repoId);
+
+		assertThat(firstFetchDone.await(10, TimeUnit.SECONDS)).isTrue();
+		// The next scheduled check is an hour away
+		listener.requestCheck(repoId);
+		assertThat(secondFetchDone.await(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void coalescesRequestsWhileFetching() throws Exception {
+		RepoId repoId = new RepoId(UUID.randomUUID());
+		AtomicInteger fetches = new AtomicInteger();
+		CountDownLatch firstFetchStarted = new CountDownLatch(1);
+		CountDownLatch finishFirstFetch = new CountDownLatch(1);
+		CountDownLatch secondFetchDone = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			if (fetches.incrementAndGet() == 1) {
+				firstFetchStarted.countDown();
+				finishFirstFetch.await();
+			} else {
+				secondFetchDone.countDown();
+			}
+			return Set.of();
+		}).when(repoAccess).updateRepo(repoId);
+		Listener listener = startListener(repoId);
+
+		assertThat(firstFetchStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+		for (int i = 0; i < 10; i++) {
+			listener.requestCheck(repoId);
+		}
+		finishFirstFetch.countDown();
+
+		assertThat(secondFetchDone.await(10, TimeUnit.SECONDS)).isTrue();
+		// Give superfluous checks the chance to run
+		Thread.sleep(200);
+		assertThat(fetches.get()).isEqualTo(2);
+	}
+
+	@Test
+	void slowRepoDoesNotBlockOtherRepos() throws Exception {
+		RepoId slowRepoId = new RepoId(UUID.randomUUID());
+		RepoId fastRepoId = new RepoId(UUID.randomUUID());
+		CountDownLatch slowFetchStarted = new CountDownLatch(1);
+		CountDownLatch finishSlowFetch = new CountDownLatch(1);
+		CountDownLatch fastFetchDone = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			slowFetchStarted.countDown();
+			finishSlowFetch.await();
+			return Set.of();
+		}).when(repoAccess).updateRepo(slowRepoId);
+		doAnswer(invocation -> {
+			fastFetchDone.countDown();
+			return Set.of();
+		}).when(repoAccess).updateRepo(fastRepoId);
+		startListener(slowRepoId, fastRepoId);
+
+		try {
+			assertThat(slowFetchStarted.await(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(fastFetchDone.await(10, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			finishSlowFetch.countDown();
+		}
+	}
+
+	@Test
+	void invalidatesLinearLogWhenTrackedBranchMovesToKnownCommit() throws Exception {
+		RepoId repoId = new RepoId(UUID.randomUUID());
+		BranchName branchName = BranchName.fromName("master");
+		Branch branch = new Branch(repoId, branchName);
+		CommitHash hash = new CommitHash("a9ae2a1a5e7d3e5ee0b4a0c3b3b2d4b3b5f7c2d1");
+		Commit commit = new Commit(repoId, hash, List.of(), "author", Instant.now(), "committer",
+			Instant.now(), "message");
+
+		when(repoAccess.getLatestCommitHash(branch)).thenReturn(hash);
+		when(commitAccess.getCommit(repoId, hash)).thenReturn(commit);
+		// The branch was fast-forwarded onto a commit that is already known
+		when(knownCommitAccess.isKnown(repoId, hash)).thenReturn(true);
+
+		AtomicInteger fetches = new AtomicInteger();
+		doAnswer(invocation -> fetches.incrementAndGet() == 1 ? Set.of() : Set.of(branchName))
+			.when(repoAccess).updateRepo(repoId);
+
+		CountDownLatch firstInvalidation = new CountDownLatch(1);
+		CountDownLatch secondInvalidation = new CountDownLatch(2);
+		doAnswer(invocation -> {
+			firstInvalidation.countDown();
+			secondInvalidation.countDown();
+			return null;
+		}).when(linearLog).invalidate(repoId);
+
+		Listener listener = startListener(
+			List.of(new Repo(repoId, "repo", new RemoteUrl("remote"), List.of(branch)))
+		);
+
+		// The first check searches the branch as it was never searched before
+		assertThat(firstInvalidation.await(10, TimeUnit.SECONDS)).isTrue();
+		listener.requestCheck(repoId);
+		assertThat(secondInvalidation.await(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+}
@@ -0,0 +1,54 @@
+package de.aaaaaaah.velcom.backend.listener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class PollScheduleTest {
+
+	private static final Duration MIN = Duration.ofSeconds(120);
+	private static final Duration MAX = Duration.ofSeconds(600);
+
+	@Test
+	void startsAtMinimumInterval() {
+		assertThat(new PollSchedule(MIN, MAX).getInterval()).isEqualTo(MIN);
+	}
+
+	@Test
+	void backsOffUpToMaximumWithoutNewCommits() {
+		PollSchedule schedule = new PollSchedule(MIN, MAX);
+
+		assertThat(schedule.next(false)).isEqualTo(Duration.ofSeconds(240));
+		assertThat(schedule.next(false)).isEqualTo(Duration.ofSeconds(480));
+		assertThat(schedule.next(false)).isEqualTo(MAX);
+		assertThat(schedule.next(false)).isEqualTo(MAX);
+	}
+
+	@Test
+	void resetsToMinimumOnNewCommits() {
+		PollSchedule schedule = new PollSchedule(MIN, MAX);
+		schedule.next(false);
+		schedule.next(false);
+
+		assertThat(schedule.next(true)).isEqualTo(MIN);
+		assertThat(schedule.getInterval()).isEqualTo(MIN);
+	}
+
+	@Test
+	void doesNotBackOffIfMaximumIsMinimum() {
+		PollSchedule schedule = new PollSchedule(MIN, MIN);
+
+		assertThat(schedule.next(false)).isEqualTo(MIN);
+	}
+
+	@Test
+	void rejectsInvalidIntervals() {
+		assertThatThrownBy(() -> new PollSchedule(Duration.ZERO, MAX))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new PollSchedule(MAX, MIN))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
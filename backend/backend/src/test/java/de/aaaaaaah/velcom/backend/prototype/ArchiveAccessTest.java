@@ -47,7 +47,7 @@ class ArchiveAccessTest {
 
 		this.repoStorage = new RepoStorage(STORAGE_DIR);
 
-		this.archiveAccess = new Archiver(this.repoStorage, ARCHIVES_ROOT_DIR);
+		this.archiveAccess = new Archiver(this.repoStorage, ARCHIVES_ROOT_DIR, 0, true);
 	}
 
 	@AfterEach
@@ -0,0 +1,125 @@
+package de.aaaaaaah.velcom.backend.prototype;
+
+import static org.jooq.codegen.db.tables.KnownCommit.KNOWN_COMMIT;
+import static org.jooq.codegen.db.tables.Repository.REPOSITORY;
+
+import de.aaaaaaah.velcom.backend.access.BenchmarkWriteAccess;
+import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.entities.Interpretation;
+import de.aaaaaaah.velcom.backend.access.entities.MeasurementName;
+import de.aaaaaaah.velcom.backend.access.entities.RepoId;
+import de.aaaaaaah.velcom.backend.access.entities.Run;
+import de.aaaaaaah.velcom.backend.access.entities.RunBuilder;
+import de.aaaaaaah.velcom.backend.access.entities.Unit;
+import de.aaaaaaah.velcom.backend.storage.db.DatabaseStorage;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Measures how many runs per second {@link BenchmarkWriteAccess} is able to insert. Each run
+ * resembles a larger benchmark suite with many metrics.
+ */
+public class RunInsertionBenchmarkTest {
+
+	private static final int RUN_COUNT = 50;
+	private static final int METRICS_PER_RUN = 300;
+	private static final int VALUES_PER_METRIC = 10;
+
+	@TempDir
+	Path testDir;
+	DatabaseStorage databaseStorage;
+	BenchmarkWriteAccess benchmarkAccess;
+	RepoId repoId = new RepoId();
+	List<Run> runs = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		databaseStorage = new DatabaseStorage("jdbc:sqlite:file:" + testDir.resolve("data.db"));
+		benchmarkAccess = new BenchmarkWriteAccess(databaseStorage);
+
+		try (DSLContext db = databaseStorage.acquireWriteContext()) {
+			db.insertInto(REPOSITORY)
+				.set(REPOSITORY.ID, repoId.getId().toString())
+				.set(REPOSITORY.NAME, "benchmark")
+				.set(REPOSITORY.REMOTE_URL, "benchmark")
+				.execute();
+		}
+
+		Random random = new Random(0);
+		for (int i = 0; i < RUN_COUNT; i++) {
+			CommitHash hash = new CommitHash(UUID.randomUUID().toString());
+
+			try (DSLContext db = databaseStorage.acquireWriteContext()) {
+				db.insertInto(KNOWN_COMMIT)
+					.set(KNOWN_COMMIT.REPO_ID, repoId.getId().toString())
+					.set(KNOWN_COMMIT.HASH, hash.getHash())
+					.set(KNOWN_COMMIT.STATUS, 0)
+					.set(KNOWN_COMMIT.UPDATE_TIME, Timestamp.from(Instant.now()))
+					.set(KNOWN_COMMIT.INSERT_TIME, Timestamp.from(Instant.now()))
+					.execute();
+			}
+
+			RunBuilder builder = RunBuilder.successful(repoId, hash, Instant.now(), Instant.now());
+			for (int metric = 0; metric < METRICS_PER_RUN; metric++) {
+				List<Double> values = new ArrayList<>();
+				for (int value = 0; value < VALUES_PER_METRIC; value++) {
+					values.add(random.nextDouble());
+				}
+
+				builder.addSuccessfulMeasurement(
+					new MeasurementName("benchmark" + metric / 10, "metric" + metric % 10),
+					Interpretation.LESS_IS_BETTER,
+					new Unit("ms"),
+					values
+				);
+			}
+			runs.add(builder.build());
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		databaseStorage.close();
+	}
+
+	@Test
+	@Disabled
+	void insertRunsOneByOne() {
+		long start = System.nanoTime();
+		runs.forEach(benchmarkAccess::insertRun);
+		long end = System.nanoTime();
+
+		report("insertRun", end - start);
+	}
+
+	@Test
+	@Disabled
+	void insertRunsInBulk() {
+		long start = System.nanoTime();
+		benchmarkAccess.insertRuns(runs);
+		long end = System.nanoTime();
+
+		report("insertRuns", end - start);
+	}
+
+	private void report(String name, long nanos) {
+		double seconds = nanos / 1e9;
+		System.out.printf(
+			"%s: %d runs (%d measurements each) in %.2f s => %.1f runs/s, %.0f measurements/s%n",
+			name, RUN_COUNT, METRICS_PER_RUN, seconds, RUN_COUNT / seconds,
+			RUN_COUNT * METRICS_PER_RUN / seconds
+		);
+	}
+
+}
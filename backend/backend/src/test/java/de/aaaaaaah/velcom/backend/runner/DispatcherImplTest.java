@@ -2,9 +2,11 @@ package de.aaaaaaah.velcom.backend.runner;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -25,6 +27,7 @@ import de.aaaaaaah.velcom.backend.runner.single.state.RunnerIdleState;
 import de.aaaaaaah.velcom.backend.runner.single.state.RunnerState;
 import de.aaaaaaah.velcom.backend.runner.single.state.RunnerWorkingState;
 import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
 import de.aaaaaaah.velcom.runner.shared.protocol.StatusCodeMappings;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
@@ -38,8 +41,11 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 class DispatcherImplTest {
 
@@ -50,12 +56,13 @@ class DispatcherImplTest {
 
 	private DispatcherImpl dispatcher;
 	private Queue queue;
+	private RepoWriteAccess repoAccess;
 	private BenchmarkWriteAccess benchmarkAccess;
 
 	@BeforeEach
 	void setUp() {
 		queue = mock(Queue.class);
-		RepoWriteAccess repoAccess = mock(RepoWriteAccess.class);
+		repoAccess = mock(RepoWriteAccess.class);
 		benchmarkAccess = mock(BenchmarkWriteAccess.class);
 
 		when(repoAccess.getLatestBenchmarkRepoHash()).thenReturn(BENCH_REPO_HASH);
@@ -64,7 +71,9 @@ class DispatcherImplTest {
 			queue,
 			repoAccess,
 			benchmarkAccess,
-			Duration.ofSeconds(GRACE_PERIOD_SECONDS)
+			Duration.ofSeconds(GRACE_PERIOD_SECONDS),
+			false,
+			0
 		);
 	}
 
@@ -221,6 +230,102 @@ class DispatcherImplTest {
 		);
 	}
 
+	@Test
+	void dispatchesToAllFreeRunnersInOnePass() throws InterruptedException, IOException {
+		ActiveRunnerInformation first = addAndGetRunner(new RunnerIdleState());
+		ActiveRunnerInformation second = addAndGetRunner(new RunnerIdleState());
+
+		Commit firstCommit = mock(Commit.class);
+		when(firstCommit.getHash()).thenReturn(COMMIT_HASH);
+		when(firstCommit.getRepoId()).thenReturn(REPO_ID);
+		Commit secondCommit = mock(Commit.class);
+		when(secondCommit.getHash()).thenReturn(new CommitHash("other hash"));
+		when(secondCommit.getRepoId()).thenReturn(REPO_ID);
+		when(queue.getNextTask())
+			.thenReturn(Optional.of(firstCommit), Optional.of(secondCommit), Optional.empty());
+
+		first.setIdle();
+		second.setIdle();
+
+		Thread.sleep(500);
+
+		verify(first.getRunnerStateMachine()).startWork(any(), any(), any());
+		verify(second.getRunnerStateMachine()).startWork(any(), any(), any());
+	}
+
+	@Test
+	void requeuesCommitIfRunnerDisconnectsBeforeDispatchStarted() throws InterruptedException {
+		ServerRunnerStateMachine stateMachine = spy(new ServerRunnerStateMachine());
+		ActiveRunnerInformation runner = spy(new ActiveRunnerInformation(
+			mock(RunnerConnectionManager.class), stateMachine
+		));
+		stateMachine.onConnectionOpened(runner);
+		dispatcher.addRunner(runner);
+		runner.setRunnerInformation(getRunnerInformation());
+
+		Commit commit = mock(Commit.class);
+		when(commit.getHash()).thenReturn(COMMIT_HASH);
+		when(commit.getRepoId()).thenReturn(REPO_ID);
+		when(queue.getNextTask()).thenReturn(Optional.of(commit), Optional.empty());
+
+		CountDownLatch dispatchStarted = new CountDownLatch(1);
+		CountDownLatch finishDispatch = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			dispatchStarted.countDown();
+			finishDispatch.await();
+			return null;
+		}).when(stateMachine).dispatchCommit(any(Commit.class), any(RepoWriteAccess.class),
+			anyBoolean());
+
+		runner.setIdle();
+		assertThat(dispatchStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+		// The runner already knows its commit while the dispatch is still pending
+		assertThat(runner.getCurrentCommit()).contains(commit);
+		runner.setDisconnected(StatusCodeMappings.CLIENT_ORDERLY_DISCONNECT);
+		finishDispatch.countDown();
+
+		verify(queue).addCommit(commit);
+	}
+
+	@Test
+	void prefetchesNextCommitToWorkingRunners() throws InterruptedException, IOException {
+		dispatcher = new DispatcherImpl(
+			queue, repoAccess, benchmarkAccess, Duration.ofSeconds(GRACE_PERIOD_SECONDS), true, 0
+		);
+		ActiveRunnerInformation runner = addAndGetRunner(new RunnerWorkingState());
+		runner.setRunnerInformation(new RunnerInformation(
+			"Name", "OS", 20, 210, RunnerStatusEnum.WORKING, "hash", List.of(), null, true
+		));
+		ServerRunnerStateMachine stateMachine = runner.getRunnerStateMachine();
+
+		Commit commit = mock(Commit.class);
+		when(commit.getHash()).thenReturn(new CommitHash("next hash"));
+		when(commit.getRepoId()).thenReturn(REPO_ID);
+		when(queue.getNextTask()).thenReturn(Optional.of(commit));
+
+		runner.setWorking();
+
+		Thread.sleep(500);
+
+		verify(stateMachine).markAsPrefetched(commit);
+		verify(stateMachine).prefetchCommit(commit, repoAccess, 0);
+		assertThat(runner.getPrefetchedCommit()).contains(commit);
+
+		doReturn(new RunnerIdleState()).when(stateMachine).getState();
+		runner.setIdle();
+
+		Thread.sleep(500);
+
+		// The prefetched commit is dispatched without taking another one from the queue
+		verify(queue, times(1)).getNextTask();
+		verify(stateMachine).dispatchCommit(commit, repoAccess, true);
+		ArgumentCaptor<RunnerWorkOrder> orderCaptor = ArgumentCaptor.forClass(RunnerWorkOrder.class);
+		verify(stateMachine).startWork(eq(commit), orderCaptor.capture(), any());
+		assertThat(orderCaptor.getValue().getTransferFormat())
+			.isEqualTo(RepoTransferFormat.PREFETCHED);
+	}
+
 	private ActiveRunnerInformation addAndGetRunner(RunnerState state) {
 		ServerRunnerStateMachine stateMachine = spy(new ServerRunnerStateMachine());
 		RunnerConnectionManager connectionManager = mock(RunnerConnectionManager.class);
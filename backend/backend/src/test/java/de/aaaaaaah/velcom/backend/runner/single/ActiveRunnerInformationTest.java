@@ -44,6 +44,16 @@ class ActiveRunnerInformationTest {
 		verify(idleListener).run();
 	}
 
+	@Test
+	void callsWorkingListener() {
+		Runnable workingListener = mock(Runnable.class);
+		runnerInformation.setOnWorking(workingListener);
+
+		runnerInformation.setWorking();
+
+		verify(workingListener).run();
+	}
+
 	@Test
 	void callsDisconnectedListener() {
 		IntConsumer disconnectedListener = mock(IntConsumer.class);
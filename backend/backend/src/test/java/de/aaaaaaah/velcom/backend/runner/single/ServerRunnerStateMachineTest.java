@@ -3,27 +3,42 @@ package de.aaaaaaah.velcom.backend.runner.single;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import de.aaaaaaah.velcom.backend.access.RepoWriteAccess;
+import de.aaaaaaah.velcom.backend.access.archive.ArchiveException;
 import de.aaaaaaah.velcom.backend.access.entities.Commit;
 import de.aaaaaaah.velcom.backend.access.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import de.aaaaaaah.velcom.backend.runner.single.state.RunnerState;
 import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
+import de.aaaaaaah.velcom.runner.shared.protocol.StatusCodeMappings;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.ResetOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.UpdateBenchmarkRepoOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Benchmark;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Metric;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.MetricInterpretation;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResultsChunk;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -43,6 +58,7 @@ class ServerRunnerStateMachineTest {
 
 		stateMachine.onConnectionOpened(runnerInformation);
 		when(runnerInformation.getConnectionManager()).thenReturn(connectionManager);
+		when(runnerInformation.getRunnerInformation()).thenReturn(Optional.empty());
 	}
 
 	@Test
@@ -68,6 +84,120 @@ class ServerRunnerStateMachineTest {
 		verify(runnerInformation).clearCurrentCommit();
 	}
 
+	@Test
+	void onWorkDoneAddsChunkedBenchmarks() {
+		RunnerWorkOrder workOrder = new RunnerWorkOrder(UUID.randomUUID(), "hash");
+		when(runnerInformation.getCurrentCommit()).thenReturn(Optional.empty());
+
+		// Leftovers from results the runner never finished sending are dropped
+		stateMachine.onResultsChunk(new BenchmarkResultsChunk(
+			new RunnerWorkOrder(UUID.randomUUID(), "other"), List.of(benchmark("old"))
+		));
+		stateMachine.onResultsChunk(new BenchmarkResultsChunk(
+			workOrder, List.of(benchmark("first"))
+		));
+		stateMachine.onResultsChunk(new BenchmarkResultsChunk(
+			workOrder, List.of(benchmark("second"))
+		));
+		stateMachine.onWorkDone(new BenchmarkResults(
+			workOrder, List.of(benchmark("third")), Instant.now(), Instant.now()
+		));
+
+		ArgumentCaptor<BenchmarkResults> captor = ArgumentCaptor.forClass(BenchmarkResults.class);
+		verify(runnerInformation).setResults(captor.capture());
+		assertThat(captor.getValue().getBenchmarks())
+			.extracting(Benchmark::getName)
+			.containsExactly("first", "second", "third");
+	}
+
+	@Test
+	void onWorkDoneJoinsMetricsSplitAcrossChunks() {
+		RunnerWorkOrder workOrder = new RunnerWorkOrder(UUID.randomUUID(), "hash");
+		when(runnerInformation.getCurrentCommit()).thenReturn(Optional.empty());
+
+		stateMachine.onResultsChunk(new BenchmarkResultsChunk(
+			workOrder,
+			List.of(new Benchmark("jmh", List.of(metric("small", 1.0), metric("huge", 2.0))))
+		));
+		stateMachine.onResultsChunk(new BenchmarkResultsChunk(
+			workOrder, List.of(new Benchmark("jmh", List.of(metric("huge", 3.0, 4.0))))
+		));
+		stateMachine.onWorkDone(new BenchmarkResults(
+			workOrder,
+			List.of(new Benchmark("jmh", List.of(metric("huge", 5.0))), benchmark("other")),
+			Instant.now(), Instant.now()
+		));
+
+		ArgumentCaptor<BenchmarkResults> captor = ArgumentCaptor.forClass(BenchmarkResults.class);
+		verify(runnerInformation).setResults(captor.capture());
+		List<Benchmark> benchmarks = captor.getValue().getBenchmarks();
+		assertThat(benchmarks).extracting(Benchmark::getName).containsExactly("jmh", "other");
+
+		List<Metric> metrics = benchmarks.get(0).getMetrics();
+		assertThat(metrics).extracting(Metric::getName).containsExactly("small", "huge");
+		assertThat(metrics.get(1).getResults()).containsExactly(2.0, 3.0, 4.0, 5.0);
+	}
+
+	@Test
+	void onWorkDoneIgnoresChunksOfOtherWork() {
+		when(runnerInformation.getCurrentCommit()).thenReturn(Optional.empty());
+
+		stateMachine.onResultsChunk(new BenchmarkResultsChunk(
+			new RunnerWorkOrder(UUID.randomUUID(), "other"), List.of(benchmark("old"))
+		));
+		BenchmarkResults results = new BenchmarkResults(
+			new RunnerWorkOrder(UUID.randomUUID(), "hash"),
+			List.of(benchmark("new")), Instant.now(), Instant.now()
+		);
+		stateMachine.onWorkDone(results);
+
+		verify(runnerInformation).setResults(results);
+	}
+
+	@Test
+	void tooManyChunkedValuesFailTheRunAndDisconnect() {
+		stateMachine = new ServerRunnerStateMachine(3);
+		stateMachine.onConnectionOpened(runnerInformation);
+		RunnerWorkOrder workOrder = new RunnerWorkOrder(UUID.randomUUID(), "hash");
+		when(runnerInformation.getCurrentCommit()).thenReturn(Optional.empty());
+
+		stateMachine.onResultsChunk(new BenchmarkResultsChunk(
+			workOrder, List.of(new Benchmark("jmh", List.of(metric("huge", 1.0, 2.0))))
+		));
+		verify(connectionManager, never()).disconnect(any(Integer.class), any(String.class));
+
+		stateMachine.onResultsChunk(new BenchmarkResultsChunk(
+			workOrder, List.of(new Benchmark("jmh", List.of(metric("huge", 3.0, 4.0))))
+		));
+		verify(connectionManager).disconnect(
+			eq(StatusCodeMappings.SERVER_INITIATED_DISCONNECT), any(String.class)
+		);
+
+		ArgumentCaptor<BenchmarkResults> captor = ArgumentCaptor.forClass(BenchmarkResults.class);
+		verify(runnerInformation).setResults(captor.capture());
+		assertThat(captor.getValue().getWorkOrder()).isEqualTo(workOrder);
+		assertThat(captor.getValue().getError()).contains("3 values");
+
+		// Whatever the runner still sends for the run is ignored
+		stateMachine.onResultsChunk(new BenchmarkResultsChunk(
+			workOrder, List.of(new Benchmark("jmh", List.of(metric("huge", 5.0))))
+		));
+		stateMachine.onWorkDone(new BenchmarkResults(
+			workOrder, List.of(benchmark("other")), Instant.now(), Instant.now()
+		));
+		verify(runnerInformation).setResults(any(BenchmarkResults.class));
+	}
+
+	private static Metric metric(String name, Double... values) {
+		return new Metric(name, "unit", MetricInterpretation.NEUTRAL, List.of(values), null);
+	}
+
+	private static Benchmark benchmark(String name) {
+		return new Benchmark(name, List.of(
+			new Metric("metric", "unit", MetricInterpretation.NEUTRAL, List.of(1.0), null)
+		));
+	}
+
 	@Test
 	void resetSendsReset() throws IOException {
 		stateMachine.resetRunner("Test");
@@ -76,6 +206,86 @@ class ServerRunnerStateMachineTest {
 		verify(runnerInformation).clearCurrentCommit();
 	}
 
+	@Test
+	void resetCancelsRunningPrefetchBeforeSending() throws Exception {
+		Commit commit = new Commit(
+			new RepoId(UUID.randomUUID()), new CommitHash("hash"), List.of(), "author",
+			Instant.now(), "committer", Instant.now(), "message"
+		);
+		RepoWriteAccess repoAccess = mock(RepoWriteAccess.class);
+		List<String> events = new CopyOnWriteArrayList<>();
+		CountDownLatch transferStarted = new CountDownLatch(1);
+
+		when(runnerInformation.getRunnerInformation()).thenReturn(Optional.of(
+			new RunnerInformation("Test", "OS", 20, 1000, RunnerStatusEnum.WORKING, "hash")
+		));
+		when(runnerInformation.getPrefetchedCommit()).thenReturn(Optional.of(commit));
+		when(connectionManager.createBinaryOutputStream()).thenReturn(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void close() {
+				events.add("binary closed");
+			}
+		});
+		doAnswer(invocation -> {
+			events.add("reset sent");
+			return null;
+		}).when(connectionManager).sendEntity(isA(ResetOrder.class));
+		doAnswer(invocation -> {
+			OutputStream out = (OutputStream) invocation.getArguments()[2];
+			try {
+				// Writes until the transfer is cancelled
+				while (true) {
+					out.write(new byte[1024]);
+					transferStarted.countDown();
+					Thread.sleep(1);
+				}
+			} catch (IOException e) {
+				throw new ArchiveException(e, "repo", commit.getHash());
+			}
+		}).when(repoAccess).streamNormalRepoArchive(eq(commit.getRepoId()), eq(commit.getHash()),
+			any(OutputStream.class));
+
+		stateMachine.markAsPrefetched(commit);
+		CompletableFuture<Void> prefetch = CompletableFuture.runAsync(() -> {
+			try {
+				stateMachine.prefetchCommit(commit, repoAccess, 0);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		assertThat(transferStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+		stateMachine.resetRunner("Abort requested");
+
+		assertThat(events).containsExactly("binary closed", "reset sent");
+		// A cancelled transfer is no failure, the runner just gets the repo again later on
+		prefetch.get(10, TimeUnit.SECONDS);
+		assertThat(stateMachine.awaitPrefetchTransfer()).isFalse();
+	}
+
+	@Test
+	void resetPreventsPrefetchThatHasNotStarted() throws IOException {
+		Commit commit = mock(Commit.class);
+		RepoWriteAccess repoAccess = mock(RepoWriteAccess.class);
+		when(commit.getRepoId()).thenReturn(new RepoId(UUID.randomUUID()));
+		when(commit.getHash()).thenReturn(new CommitHash("hash"));
+		when(runnerInformation.getRunnerInformation()).thenReturn(Optional.of(
+			new RunnerInformation("Test", "OS", 20, 1000, RunnerStatusEnum.WORKING, "hash")
+		));
+		when(runnerInformation.getPrefetchedCommit()).thenReturn(Optional.of(commit));
+
+		stateMachine.markAsPrefetched(commit);
+		stateMachine.resetRunner("Abort requested");
+		stateMachine.prefetchCommit(commit, repoAccess, 0);
+
+		verify(connectionManager, never()).createBinaryOutputStream();
+		assertThat(stateMachine.awaitPrefetchTransfer()).isFalse();
+	}
+
 	@Test
 	void resetDoesNotSwitchState() throws IOException {
 		RunnerState previousState = stateMachine.getState();
@@ -1,20 +1,30 @@
 package de.aaaaaaah.velcom.backend.runner.single.protocol;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import de.aaaaaaah.velcom.runner.shared.protocol.TransferCompression;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.Serializer;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.SimpleJsonSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
 import java.util.UUID;
+import java.util.zip.InflaterInputStream;
 import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.junit.jupiter.api.BeforeEach;
@@ -62,7 +72,7 @@ class ProtocolHelperTest {
 	void chunkOutput() throws IOException {
 		OutputStream outputStream = ProtocolHelper.createBinaryOutputStream(session);
 
-		byte[] payload = "hello".repeat(1_000).getBytes();
+		byte[] payload = "hello".repeat(500_000).getBytes();
 		outputStream.write(payload);
 		outputStream.close();
 
@@ -86,4 +96,77 @@ class ProtocolHelperTest {
 		// Sends ONE close frame
 		verify(remote, times(1)).sendPartialBytes(any(ByteBuffer.class), eq(true));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void bulkAndSingleByteWritesKeepOrder() throws IOException {
+		ByteArrayOutputStream received = new ByteArrayOutputStream();
+		doAnswer(invocation -> {
+			ByteBuffer buffer = invocation.getArgumentAt(0, ByteBuffer.class);
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			received.write(bytes);
+			return null;
+		}).when(remote).sendPartialBytes(any(ByteBuffer.class), any(Boolean.class));
+
+		byte[] payload = new byte[3 * 1024 * 1024 + 17];
+		new Random(42).nextBytes(payload);
+
+		try (OutputStream outputStream = ProtocolHelper.createBinaryOutputStream(session)) {
+			outputStream.write(payload[0]);
+			outputStream.write(payload, 1, payload.length - 2);
+			outputStream.write(payload[payload.length - 1]);
+		}
+
+		assertThat(received.toByteArray()).isEqualTo(payload);
+	}
+
+	@Test
+	void throttleLimitsAverageRate() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		long start = System.nanoTime();
+		try (OutputStream throttled = ProtocolHelper.throttle(out, 100_000)) {
+			for (int i = 0; i < 3; i++) {
+				throttled.write(new byte[10_000]);
+			}
+		}
+		Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+		assertThat(out.size()).isEqualTo(30_000);
+		assertThat(elapsed).isGreaterThanOrEqualTo(Duration.ofMillis(250));
+	}
+
+	@Test
+	void throttleWithoutLimitKeepsStream() {
+		OutputStream out = new ByteArrayOutputStream();
+
+		assertThat(ProtocolHelper.throttle(out, 0)).isSameAs(out);
+	}
+
+	@Test
+	void choosesDeflateOnlyIfSupported() {
+		assertThat(ProtocolHelper.chooseCompression(List.of()))
+			.isEqualTo(TransferCompression.NONE);
+		assertThat(ProtocolHelper.chooseCompression(List.of(TransferCompression.NONE)))
+			.isEqualTo(TransferCompression.NONE);
+		assertThat(ProtocolHelper.chooseCompression(
+			List.of(TransferCompression.NONE, TransferCompression.DEFLATE)
+		)).isEqualTo(TransferCompression.DEFLATE);
+	}
+
+	@Test
+	void deflateCompressionCanBeInflated() throws IOException {
+		byte[] payload = "hello world ".repeat(10_000).getBytes();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+		try (OutputStream out = ProtocolHelper.compress(compressed, TransferCompression.DEFLATE)) {
+			out.write(payload);
+		}
+
+		assertThat(compressed.size()).isLessThan(payload.length);
+		try (InputStream in = new InflaterInputStream(
+			new ByteArrayInputStream(compressed.toByteArray()))) {
+			assertThat(in.readAllBytes()).isEqualTo(payload);
+		}
+	}
+}
@@ -13,8 +13,10 @@ import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.UpdateBenchmarkRepoOrder;
+import de.aaaaaaah.velcom.runner.shared.protocol.serialization.BinarySerializer;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.Serializer;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.SimpleJsonSerializer;
+import de.aaaaaaah.velcom.runner.shared.protocol.serialization.SmileSerializer;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.WorkReceived;
@@ -128,6 +130,29 @@ class RunnerServerWebsocketListenerTest {
 		verify(runnerInformation).setDisconnected(anyInt());
 	}
 
+	@Test
+	void forwardsBinaryResultsWhenNegotiated() {
+		BinarySerializer binarySerializer = new SmileSerializer();
+		RunnerServerWebsocketListener binaryListener = new RunnerServerWebsocketListener(
+			serializer, binarySerializer
+		);
+		binaryListener.setRunnerInformation(runnerInformation);
+		binaryListener.onWebSocketConnect(session);
+
+		BenchmarkResults results = new BenchmarkResults(
+			new RunnerWorkOrder(UUID.randomUUID(), "hash"),
+			"error", Instant.now(), Instant.now()
+		);
+		byte[] serialized = binarySerializer.serialize(results);
+		byte[] payload = new byte[serialized.length + 2];
+		System.arraycopy(serialized, 0, payload, 1, serialized.length);
+
+		binaryListener.onWebSocketBinary(payload, 1, serialized.length);
+
+		verify(stateMachine).onMessageReceived(results.identifier(), results);
+		binaryListener.disconnect();
+	}
+
 	private void verifyForwardedEntity(SentEntity entity) {
 		String serialized = serializer.serialize(entity);
 		String type = serializer.peekType(serialized);
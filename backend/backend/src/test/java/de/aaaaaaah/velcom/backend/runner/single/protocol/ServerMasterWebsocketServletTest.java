@@ -3,12 +3,15 @@ package de.aaaaaaah.velcom.backend.runner.single.protocol;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import de.aaaaaaah.velcom.backend.runner.Dispatcher;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.SimpleJsonSerializer;
+import de.aaaaaaah.velcom.runner.shared.protocol.serialization.SmileSerializer;
 import java.io.IOException;
+import java.util.List;
 import org.eclipse.jetty.websocket.api.WebSocketPolicy;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
@@ -31,7 +34,9 @@ class ServerMasterWebsocketServletTest {
 		dispatcher = mock(Dispatcher.class);
 
 		serializer = new SimpleJsonSerializer();
-		servlet = new ServerMasterWebsocketServlet(dispatcher, serializer, TOKEN);
+		servlet = new ServerMasterWebsocketServlet(
+			dispatcher, serializer, new SmileSerializer(), TOKEN
+		);
 	}
 
 	@Test
@@ -99,4 +104,47 @@ class ServerMasterWebsocketServletTest {
 		((RunnerServerWebsocketListener) servelet).disconnect();
 	}
 
-}
\ No newline at end of file
+	@Test
+	void acceptsBinarySubprotocolIfRequested() {
+		WebSocketCreator creator = captureCreator();
+
+		ServletUpgradeRequest request = mock(ServletUpgradeRequest.class);
+		ServletUpgradeResponse response = mock(ServletUpgradeResponse.class);
+
+		when(request.getHeader("Authorization")).thenReturn(TOKEN);
+		when(request.getSubProtocols()).thenReturn(List.of("other", SmileSerializer.SUBPROTOCOL));
+
+		Object servelet = creator.createWebSocket(request, response);
+
+		verify(response).setAcceptedSubProtocol(SmileSerializer.SUBPROTOCOL);
+		((RunnerServerWebsocketListener) servelet).disconnect();
+	}
+
+	@Test
+	void acceptsNoSubprotocolIfNoneRequested() {
+		WebSocketCreator creator = captureCreator();
+
+		ServletUpgradeRequest request = mock(ServletUpgradeRequest.class);
+		ServletUpgradeResponse response = mock(ServletUpgradeResponse.class);
+
+		when(request.getHeader("Authorization")).thenReturn(TOKEN);
+		when(request.getSubProtocols()).thenReturn(List.of());
+
+		Object servelet = creator.createWebSocket(request, response);
+
+		verify(response, never()).setAcceptedSubProtocol(anyString());
+		((RunnerServerWebsocketListener) servelet).disconnect();
+	}
+
+	private WebSocketCreator captureCreator() {
+		WebSocketServletFactory factory = mock(WebSocketServletFactory.class);
+		when(factory.getPolicy()).thenReturn(mock(WebSocketPolicy.class));
+		servlet.configure(factory);
+
+		ArgumentCaptor<WebSocketCreator> captor = ArgumentCaptor.forClass(WebSocketCreator.class);
+		verify(factory).setCreator(captor.capture());
+
+		return captor.getValue();
+	}
+
+}
@@ -17,17 +17,23 @@ import de.aaaaaaah.velcom.backend.access.entities.RepoId;
 import de.aaaaaaah.velcom.backend.runner.single.ActiveRunnerInformation;
 import de.aaaaaaah.velcom.backend.runner.single.RunnerConnectionManager;
 import de.aaaaaaah.velcom.backend.runner.single.ServerRunnerStateMachine;
+import de.aaaaaaah.velcom.backend.util.CheckedConsumer;
 import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.WorkReceived;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 class PreparingRunnerForWorkStateTest {
 
@@ -129,6 +135,56 @@ class PreparingRunnerForWorkStateTest {
 		);
 	}
 
+	@Test
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	void sendsBundleToRunnersWithMirrors() throws IOException {
+		when(runnerInformation.getRunnerInformation()).thenReturn(Optional.of(
+			new RunnerInformation(
+				"name", "os", 10, 20,
+				RunnerStatusEnum.PREPARING_WORK, "hash",
+				List.of(), Map.of(REPO_ID.getId(), "base")
+			)
+		));
+		when(runnerInformation.getCurrentCommit()).thenReturn(Optional.of(commit));
+		when(repoWriteAccess.canBundleNormalRepo(REPO_ID, COMMIT_HASH)).thenReturn(true);
+		state.onSelected(runnerInformation);
+
+		ArgumentCaptor<CheckedConsumer> writerCaptor = ArgumentCaptor.forClass(CheckedConsumer.class);
+		verify(stateMachine).startWork(
+			eq(commit),
+			eq(new RunnerWorkOrder(
+				REPO_ID.getId(), COMMIT_HASH.getHash(), RepoTransferFormat.BUNDLE
+			)),
+			writerCaptor.capture()
+		);
+
+		OutputStream outputStream = mock(OutputStream.class);
+		((CheckedConsumer<OutputStream, IOException>) writerCaptor.getValue()).accept(outputStream);
+		verify(repoWriteAccess).streamNormalRepoBundle(
+			REPO_ID, COMMIT_HASH, new CommitHash("base"), outputStream
+		);
+	}
+
+	@Test
+	void sendsTarIfCommitCanNotBeBundled() throws IOException {
+		when(runnerInformation.getRunnerInformation()).thenReturn(Optional.of(
+			new RunnerInformation(
+				"name", "os", 10, 20,
+				RunnerStatusEnum.PREPARING_WORK, "hash",
+				List.of(), Map.of()
+			)
+		));
+		when(runnerInformation.getCurrentCommit()).thenReturn(Optional.of(commit));
+		when(repoWriteAccess.canBundleNormalRepo(REPO_ID, COMMIT_HASH)).thenReturn(false);
+		state.onSelected(runnerInformation);
+
+		verify(stateMachine).startWork(
+			eq(commit),
+			eq(new RunnerWorkOrder(REPO_ID.getId(), COMMIT_HASH.getHash(), RepoTransferFormat.TAR)),
+			any()
+		);
+	}
+
 	@Test
 	void forwardsResultsAndIdlesIfNoWork() {
 		// No work to do
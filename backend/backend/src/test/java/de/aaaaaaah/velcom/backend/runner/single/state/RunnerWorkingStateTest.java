@@ -14,8 +14,10 @@ import de.aaaaaaah.velcom.backend.runner.single.ServerRunnerStateMachine;
 import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResultsChunk;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -43,6 +45,13 @@ class RunnerWorkingStateTest {
 		assertThat(workingState.getStatus()).isEqualTo(RunnerStatusEnum.WORKING);
 	}
 
+	@Test
+	void marksRunnerAsWorkingWhenSelected() {
+		workingState.onSelected(runnerInformation);
+
+		verify(runnerInformation).setWorking();
+	}
+
 	@Test
 	void forwardsResults() {
 		BenchmarkResults results = new BenchmarkResults(
@@ -59,6 +68,21 @@ class RunnerWorkingStateTest {
 		verify(stateMachine).onWorkDone(eq(results));
 	}
 
+	@Test
+	void forwardsResultChunks() {
+		BenchmarkResultsChunk chunk = new BenchmarkResultsChunk(
+			new RunnerWorkOrder(UUID.randomUUID(), "hash"), List.of()
+		);
+		RunnerState state = workingState.onMessage(
+			BenchmarkResultsChunk.class.getSimpleName(),
+			chunk,
+			runnerInformation
+		);
+
+		assertThat(state).isEqualTo(workingState);
+		verify(stateMachine).onResultsChunk(eq(chunk));
+	}
+
 	@Test
 	void forwardsInformation() {
 		RunnerInformation information = new RunnerInformation(
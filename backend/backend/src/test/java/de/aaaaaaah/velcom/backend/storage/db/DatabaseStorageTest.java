@@ -0,0 +1,106 @@
+package de.aaaaaaah.velcom.backend.storage.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jooq.codegen.db.tables.Repository.REPOSITORY;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DatabaseStorageTest {
+
+	@TempDir
+	Path testDir;
+	DatabaseStorage databaseStorage;
+
+	@BeforeEach
+	void setUp() {
+		databaseStorage = new DatabaseStorage("jdbc:sqlite:file:" + testDir.resolve("data.db"), 2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		databaseStorage.close();
+	}
+
+	@Test
+	void readContextSeesCommittedWrites() {
+		String id = UUID.randomUUID().toString();
+
+		databaseStorage.acquireWriteContext().insertInto(REPOSITORY)
+			.set(REPOSITORY.ID, id)
+			.set(REPOSITORY.NAME, "name")
+			.set(REPOSITORY.REMOTE_URL, "url")
+			.execute();
+
+		assertThat(databaseStorage.acquireReadContext().fetchExists(
+			REPOSITORY, REPOSITORY.ID.eq(id)
+		)).isTrue();
+	}
+
+	@Test
+	void readContextRejectsWrites() {
+		assertThatThrownBy(() -> databaseStorage.acquireReadContext().insertInto(REPOSITORY)
+			.set(REPOSITORY.ID, UUID.randomUUID().toString())
+			.set(REPOSITORY.NAME, "name")
+			.set(REPOSITORY.REMOTE_URL, "url")
+			.execute()
+		).isInstanceOf(DataAccessException.class);
+	}
+
+	@Test
+	void readsDoNotWaitForOpenWriteTransaction() throws Exception {
+		CountDownLatch transactionOpen = new CountDownLatch(1);
+		CountDownLatch readsDone = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			Future<?> writer = executor.submit(() ->
+				databaseStorage.acquireWriteContext().transaction(configuration -> {
+					configuration.dsl().insertInto(REPOSITORY)
+						.set(REPOSITORY.ID, UUID.randomUUID().toString())
+						.set(REPOSITORY.NAME, "name")
+						.set(REPOSITORY.REMOTE_URL, "url")
+						.execute();
+
+					transactionOpen.countDown();
+					readsDone.await(10, TimeUnit.SECONDS);
+				})
+			);
+
+			assertThat(transactionOpen.await(10, TimeUnit.SECONDS)).isTrue();
+
+			// Both pooled readers are held at once while the writer still holds its transaction
+			List<Integer> counts = new ArrayList<>();
+			databaseStorage.acquireReadContext().connection(first ->
+				databaseStorage.acquireReadContext().connection(second -> {
+					counts.add(DSL.using(first, SQLDialect.SQLITE).fetchCount(REPOSITORY));
+					counts.add(DSL.using(second, SQLDialect.SQLITE).fetchCount(REPOSITORY));
+				})
+			);
+			assertThat(counts).containsExactly(0, 0);
+
+			readsDone.countDown();
+			writer.get(10, TimeUnit.SECONDS);
+
+			assertThat(databaseStorage.acquireReadContext().fetchCount(REPOSITORY)).isEqualTo(1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
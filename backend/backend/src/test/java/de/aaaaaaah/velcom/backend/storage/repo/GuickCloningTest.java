@@ -0,0 +1,59 @@
+package de.aaaaaaah.velcom.backend.storage.repo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.aaaaaaah.velcom.backend.TestCommit;
+import de.aaaaaaah.velcom.backend.TestRepo;
+import java.nio.file.Path;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GuickCloningTest {
+
+	@TempDir
+	Path testDir;
+
+	Path localRepoDir;
+	TestRepo remoteRepo;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		Path remoteRepoDir = testDir.resolve("remote");
+		localRepoDir = testDir.resolve("local");
+
+		remoteRepo = new TestRepo(remoteRepoDir, new TestCommit[]{
+			new TestCommit("Add abc"),
+			new TestCommit("Add bla", "otherbranch")
+		});
+
+		GuickCloning.getInstance().cloneMirror("file://" + remoteRepoDir, localRepoDir);
+	}
+
+	@Test
+	void reportsNothingIfNoRefMoved() throws Exception {
+		assertThat(GuickCloning.getInstance().updateBareRepo(localRepoDir)).isEmpty();
+	}
+
+	@Test
+	void reportsMovedAndNewBranches() throws Exception {
+		RevCommit moved = remoteRepo.commit(new TestCommit("Modify abc", "otherbranch"));
+		RevCommit created = remoteRepo.commit(new TestCommit("Add new", "newbranch"));
+
+		assertThat(GuickCloning.getInstance().updateBareRepo(localRepoDir))
+			.containsExactlyInAnyOrder("refs/heads/otherbranch", "refs/heads/newbranch");
+
+		try (Repository repo = new FileRepositoryBuilder().setGitDir(localRepoDir.toFile())
+			.build()) {
+
+			assertThat(repo.resolve("refs/heads/otherbranch")).isEqualTo(moved.getId());
+			assertThat(repo.resolve("refs/heads/newbranch")).isEqualTo(created.getId());
+		}
+
+		assertThat(GuickCloning.getInstance().updateBareRepo(localRepoDir)).isEmpty();
+	}
+
+}
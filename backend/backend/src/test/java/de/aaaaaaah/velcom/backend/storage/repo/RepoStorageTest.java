@@ -2,7 +2,10 @@ package de.aaaaaaah.velcom.backend.storage.repo;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import de.aaaaaaah.velcom.backend.TestCommit;
@@ -13,6 +16,7 @@ import de.aaaaaaah.velcom.backend.storage.repo.exception.RepositoryAcquisitionEx
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -187,4 +191,71 @@ class RepoStorageTest {
 		);
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testAcquireSharesRepository()
+		throws AddRepositoryException, RepositoryAcquisitionException, IOException {
+
+		repoStorage.addRepository(dirName, cloneUrl);
+
+		try (Repository first = repoStorage.acquireRepository(dirName);
+			Repository second = repoStorage.acquireRepository(dirName)) {
+
+			assertSame(first.getObjectDatabase(), second.getObjectDatabase());
+		}
+	}
+
+	@Test
+	public void testInvalidateKeepsAcquiredRepositoryUsable()
+		throws AddRepositoryException, RepositoryAcquisitionException, IOException {
+
+		repoStorage.addRepository(dirName, cloneUrl);
+
+		try (Repository first = repoStorage.acquireRepository(dirName)) {
+			repoStorage.invalidateRepository(dirName);
+
+			try (Repository second = repoStorage.acquireRepository(dirName)) {
+				assertNotSame(first.getObjectDatabase(), second.getObjectDatabase());
+			}
+
+			try (RevWalk walk = new RevWalk(first)) {
+				RevCommit commit = walk.parseCommit(first.resolve("HEAD"));
+				assertEquals(headTestCommit.getMessage(), commit.getFullMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testCloseAcquiredRepositoryTwice()
+		throws AddRepositoryException, RepositoryAcquisitionException, IOException {
+
+		repoStorage.addRepository(dirName, cloneUrl);
+
+		Repository repo = repoStorage.acquireRepository(dirName);
+		repo.close();
+		// Must neither release the read lock nor the shared repository a second time
+		repo.close();
+
+		repoStorage.deleteRepository(dirName);
+		assertFalse(repoStorage.containsRepository(dirName));
+	}
+
+	@Test
+	public void testAcquiredRepositoryDoesNotBlockOtherRepositories()
+		throws AddRepositoryException, RepositoryAcquisitionException, IOException {
+
+		repoStorage.addRepository(dirName, cloneUrl);
+		repoStorage.addRepository(dirName + "_2", cloneUrl);
+
+		try (Repository ignored = repoStorage.acquireRepository(dirName)) {
+			assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+				repoStorage.deleteRepository(dirName + "_2");
+				repoStorage.addRepository(dirName + "_3", cloneUrl);
+			});
+		}
+
+		assertTrue(repoStorage.containsRepository(dirName));
+		assertFalse(repoStorage.containsRepository(dirName + "_2"));
+		assertTrue(repoStorage.containsRepository(dirName + "_3"));
+	}
+
+}
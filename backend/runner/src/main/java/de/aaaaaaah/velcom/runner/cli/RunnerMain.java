@@ -9,18 +9,27 @@ import de.aaaaaaah.velcom.runner.cli.RunnerCliSpec_Parser.ParseResult;
 import de.aaaaaaah.velcom.runner.cli.RunnerCliSpec_Parser.ParsingFailed;
 import de.aaaaaaah.velcom.runner.cli.RunnerCliSpec_Parser.ParsingSuccess;
 import de.aaaaaaah.velcom.runner.entity.BenchmarkRepoOrganizer;
+import de.aaaaaaah.velcom.runner.entity.GitRepoMirrorOrganizer;
+import de.aaaaaaah.velcom.runner.entity.RepoMirrorOrganizer;
 import de.aaaaaaah.velcom.runner.entity.RunnerConfiguration;
 import de.aaaaaaah.velcom.runner.entity.TempFileBenchmarkRepoOrganizer;
 import de.aaaaaaah.velcom.runner.entity.execution.BenchmarkscriptWorkExecutor;
+import de.aaaaaaah.velcom.runner.entity.execution.output.BenchmarkScriptOutputParser;
 import de.aaaaaaah.velcom.runner.exceptions.ConnectionException;
 import de.aaaaaaah.velcom.runner.exceptions.HandshakeFailureException;
 import de.aaaaaaah.velcom.runner.protocol.ReestablishConnectionListener;
 import de.aaaaaaah.velcom.runner.protocol.WebsocketListener;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.SimpleJsonSerializer;
+import de.aaaaaaah.velcom.runner.shared.protocol.serialization.SmileSerializer;
+import de.aaaaaaah.velcom.runner.shared.util.compression.FileHelper;
 import de.aaaaaaah.velcom.runner.state.RunnerStateMachine;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * The runner main class.
@@ -74,13 +83,15 @@ public class RunnerMain {
 
 		RunnerConfiguration runnerConfiguration = new RunnerConfiguration(
 			new SimpleJsonSerializer(),
+			new SmileSerializer(),
 			configPojo.getRunnerName(),
 			configPojo.getRunnerToken(),
 			websocketListener,
 			new RunnerStateMachine(),
-			new BenchmarkscriptWorkExecutor(),
+			new BenchmarkscriptWorkExecutor(configPojo.getMaxOutputBytes()),
 			configPojo.getServerUrl(),
-			createBenchmarkRepoOrganizer()
+			createBenchmarkRepoOrganizer(),
+			createRepoMirrorOrganizer(configPojo)
 		);
 		websocketListener.setConfiguration(runnerConfiguration);
 
@@ -157,6 +168,23 @@ public class RunnerMain {
 		}
 	}
 
+	private static RepoMirrorOrganizer createRepoMirrorOrganizer(RunnerConfigPojo configPojo) {
+		try {
+			Path mirrorDir;
+			if (configPojo.getRepoMirrorDir().isPresent()) {
+				mirrorDir = configPojo.getRepoMirrorDir().get();
+			} else {
+				mirrorDir = Files.createTempDirectory("velcom-runner-mirrors");
+				FileHelper.deleteOnExit(mirrorDir);
+			}
+			return new GitRepoMirrorOrganizer(mirrorDir);
+		} catch (IOException e) {
+			die(e, "Could not create the repo mirror directory :(");
+			// can not be reached as exit exits
+			return null;
+		}
+	}
+
 	/**
 	 * Exists the program after printing an error message.
 	 *
@@ -182,11 +210,18 @@ public class RunnerMain {
 
 		private String runnerName;
 
+		private String repoMirrorDir;
+
+		private Long maxOutputBytes;
+
 		@JsonCreator
-		public RunnerConfigPojo(URI serverUrl, String runnerToken, String runnerName) {
+		public RunnerConfigPojo(URI serverUrl, String runnerToken, String runnerName,
+			String repoMirrorDir, Long maxOutputBytes) {
 			this.serverUrl = Objects.requireNonNull(serverUrl, "serverUrl can not be null!");
 			this.runnerToken = Objects.requireNonNull(runnerToken, "runnerToken can not be null!");
 			this.runnerName = Objects.requireNonNull(runnerName, "runnerName can not be null!");
+			this.repoMirrorDir = repoMirrorDir;
+			this.maxOutputBytes = maxOutputBytes;
 		}
 
 		public URI getServerUrl() {
@@ -200,5 +235,14 @@ public class RunnerMain {
 		public String getRunnerName() {
 			return runnerName;
 		}
+
+		public Optional<Path> getRepoMirrorDir() {
+			return Optional.ofNullable(repoMirrorDir).map(Paths::get);
+		}
+
+		public long getMaxOutputBytes() {
+			return Optional.ofNullable(maxOutputBytes)
+				.orElse(BenchmarkScriptOutputParser.DEFAULT_MAX_OUTPUT_BYTES);
+		}
 	}
 }
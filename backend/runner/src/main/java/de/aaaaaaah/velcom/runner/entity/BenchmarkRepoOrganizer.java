@@ -26,13 +26,14 @@ public interface BenchmarkRepoOrganizer {
 	Path getBenchmarkScript() throws IOException;
 
 	/**
-	 * Copies the repository from the given path to yourself.
+	 * Moves the repository from the given path to yourself, replacing the current local copy. The
+	 * source does not exist anymore afterwards.
 	 *
 	 * @param source the source file. Must be a <em>folder</em>.
 	 * @param headHash the hash of the head commit
-	 * @throws IOException if an error occurs copying the files
+	 * @throws IOException if an error occurs moving the files
 	 */
-	void copyToYourself(Path source, String headHash) throws IOException;
+	void moveToYourself(Path source, String headHash) throws IOException;
 
 	/**
 	 * Returns true if a local benchmark repo copy exists at {@link #getPathToRepo()}.
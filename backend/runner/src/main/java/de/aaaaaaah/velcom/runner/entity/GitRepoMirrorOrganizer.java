@@ -0,0 +1,138 @@
+package de.aaaaaaah.velcom.runner.entity;
+
+import de.aaaaaaah.velcom.runner.shared.ProgramExecutor;
+import de.aaaaaaah.velcom.runner.shared.ProgramExecutor.ProgramResult;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
+import de.aaaaaaah.velcom.runner.shared.protocol.exceptions.ProgramCancelledException;
+import de.aaaaaaah.velcom.runner.shared.util.compression.FileHelper;
+import de.aaaaaaah.velcom.runner.shared.util.compression.TarHelper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a bare repository per repo in a directory and uses the git executable to apply bundles
+ * and export commits.
+ */
+public class GitRepoMirrorOrganizer implements RepoMirrorOrganizer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GitRepoMirrorOrganizer.class);
+
+	private static final String GIT_EXECUTABLE = "git";
+
+	private final Path rootDir;
+	private final Map<UUID, String> mirrorHeads;
+
+	/**
+	 * Creates a new git repo mirror organizer. Mirrors that already exist in the directory are
+	 * reused.
+	 *
+	 * @param rootDir the directory to store the mirrors in. Is created if it doesn't exist.
+	 * @throws IOException if the directory could not be created or read
+	 */
+	public GitRepoMirrorOrganizer(Path rootDir) throws IOException {
+		this.rootDir = rootDir;
+		this.mirrorHeads = new HashMap<>();
+
+		Files.createDirectories(rootDir);
+		loadExistingMirrors();
+	}
+
+	private void loadExistingMirrors() throws IOException {
+		List<Path> mirrors;
+		try (Stream<Path> files = Files.list(rootDir)) {
+			mirrors = files.filter(Files::isDirectory).collect(Collectors.toList());
+		}
+
+		for (Path mirror : mirrors) {
+			try {
+				UUID repoId = UUID.fromString(mirror.getFileName().toString());
+				mirrorHeads.put(repoId, git(mirror, "rev-parse", "--verify",
+					RepoTransferFormat.BUNDLE_REF + "^{commit}").getStdOut().strip());
+			} catch (IllegalArgumentException | IOException e) {
+				LOGGER.info("Discarding unusable mirror {}", mirror, e);
+				FileHelper.deleteDirectoryOrFile(mirror);
+			}
+		}
+	}
+
+	@Override
+	public synchronized Map<UUID, String> getMirrorHeads() {
+		return Map.copyOf(mirrorHeads);
+	}
+
+	@Override
+	public synchronized void checkout(UUID repoId, String commitHash, Path bundle, Path targetDir)
+		throws IOException {
+
+		Path mirror = rootDir.resolve(repoId.toString());
+		Path archive = Files.createTempFile("velcom-mirror-archive", ".tar");
+
+		try {
+			if (!Files.exists(mirror)) {
+				git(mirror, "init", "--quiet", "--bare");
+			}
+
+			String ref = RepoTransferFormat.BUNDLE_REF;
+			git(mirror, "fetch", "--quiet", "--no-tags",
+				bundle.toAbsolutePath().toString(), "+" + ref + ":" + ref);
+
+			String fetchedHash = git(mirror, "rev-parse", "--verify", ref + "^{commit}")
+				.getStdOut()
+				.strip();
+			if (!fetchedHash.equals(commitHash)) {
+				throw new IOException(
+					"Bundle contained " + fetchedHash + " instead of " + commitHash
+				);
+			}
+			mirrorHeads.put(repoId, commitHash);
+
+			git(mirror, "archive", "--format=tar",
+				"--output=" + archive.toAbsolutePath(), commitHash);
+			TarHelper.untar(archive, targetDir);
+		} catch (IOException e) {
+			LOGGER.warn("Applying bundle for {} failed, discarding the mirror", repoId);
+			mirrorHeads.remove(repoId);
+			FileHelper.deleteDirectoryOrFile(mirror);
+			throw e;
+		} finally {
+			Files.deleteIfExists(archive);
+		}
+	}
+
+	private static ProgramResult git(Path gitDir, String... arguments) throws IOException {
+		String[] command = new String[arguments.length + 2];
+		command[0] = GIT_EXECUTABLE;
+		command[1] = "--git-dir=" + gitDir.toAbsolutePath();
+		System.arraycopy(arguments, 0, command, 2, arguments.length);
+
+		ProgramResult result;
+		try {
+			result = new ProgramExecutor().execute(command).get();
+		} catch (InterruptedException | ProgramCancelledException e) {
+			throw new IOException("Interrupted while executing " + String.join(" ", command), e);
+		} catch (UncheckedIOException e) {
+			// E.g. git is not installed
+			throw e.getCause();
+		}
+
+		if (result.getExitCode() != 0) {
+			throw new IOException(
+				String.join(" ", command) + " failed"
+					+ "\nExit code: " + result.getExitCode()
+					+ "\nStdout: " + result.getStdOut()
+					+ "\nStderr: " + result.getStdErr()
+			);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,33 @@
+package de.aaaaaaah.velcom.runner.entity;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Organizes the local mirrors of the repos the runner benchmarks. The server only sends the
+ * objects a mirror is missing, as a git bundle.
+ */
+public interface RepoMirrorOrganizer {
+
+	/**
+	 * Returns the commit every mirror last received.
+	 *
+	 * @return a map from repo id to the hash of the commit its mirror last received
+	 */
+	Map<UUID, String> getMirrorHeads();
+
+	/**
+	 * Adds the objects in a bundle to the mirror of a repo and writes the working tree of a commit
+	 * to the target directory. If this fails, the mirror is discarded so that the server sends all
+	 * objects next time.
+	 *
+	 * @param repoId the id of the repo
+	 * @param commitHash the hash of the commit in the bundle
+	 * @param bundle the path to the bundle
+	 * @param targetDir the directory to write the commit's files to. Must exist.
+	 * @throws IOException if the bundle could not be applied or the files could not be written
+	 */
+	void checkout(UUID repoId, String commitHash, Path bundle, Path targetDir) throws IOException;
+}
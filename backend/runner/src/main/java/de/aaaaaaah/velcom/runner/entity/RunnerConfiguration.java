@@ -1,6 +1,7 @@
 package de.aaaaaaah.velcom.runner.entity;
 
 import de.aaaaaaah.velcom.runner.protocol.SocketConnectionManager;
+import de.aaaaaaah.velcom.runner.shared.protocol.serialization.BinarySerializer;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.Serializer;
 import de.aaaaaaah.velcom.runner.state.RunnerStateMachine;
 import java.net.URI;
@@ -11,6 +12,7 @@ import java.net.URI;
 public class RunnerConfiguration {
 
 	private final Serializer serializer;
+	private final BinarySerializer binarySerializer;
 	private final String runnerName;
 	private final String runnerToken;
 	private final URI serverUrl;
@@ -18,11 +20,14 @@ public class RunnerConfiguration {
 	private final RunnerStateMachine runnerStateMachine;
 	private final WorkExecutor workExecutor;
 	private final BenchmarkRepoOrganizer benchmarkRepoOrganizer;
+	private final RepoMirrorOrganizer repoMirrorOrganizer;
 
 	/**
 	 * Creates a new runner configuration.
 	 *
 	 * @param serializer the serializer to use
+	 * @param binarySerializer the serializer to use for messages to the server if it accepts its
+	 * 	subprotocol
 	 * @param runnerName the name of the runner
 	 * @param runnerToken the runner authentication token
 	 * @param connectionManager the connection manager to communicate with the server
@@ -30,12 +35,15 @@ public class RunnerConfiguration {
 	 * @param workExecutor the executor to use for received work
 	 * @param serverUrl the url to use for connecting to the server
 	 * @param benchmarkRepoOrganizer the benchmark repo organizer
+	 * @param repoMirrorOrganizer the organizer for the mirrors of the benchmarked repos
 	 */
-	public RunnerConfiguration(Serializer serializer, String runnerName, String runnerToken,
+	public RunnerConfiguration(Serializer serializer, BinarySerializer binarySerializer,
+		String runnerName, String runnerToken,
 		SocketConnectionManager connectionManager, RunnerStateMachine runnerStateMachine,
 		WorkExecutor workExecutor, URI serverUrl,
-		BenchmarkRepoOrganizer benchmarkRepoOrganizer) {
+		BenchmarkRepoOrganizer benchmarkRepoOrganizer, RepoMirrorOrganizer repoMirrorOrganizer) {
 		this.serializer = serializer;
+		this.binarySerializer = binarySerializer;
 		this.runnerName = runnerName;
 		this.runnerToken = runnerToken;
 		this.connectionManager = connectionManager;
@@ -43,6 +51,7 @@ public class RunnerConfiguration {
 		this.workExecutor = workExecutor;
 		this.serverUrl = serverUrl;
 		this.benchmarkRepoOrganizer = benchmarkRepoOrganizer;
+		this.repoMirrorOrganizer = repoMirrorOrganizer;
 	}
 
 	/**
@@ -63,6 +72,15 @@ public class RunnerConfiguration {
 		return serializer;
 	}
 
+	/**
+	 * The serializer for messages to the server, if the server accepted its subprotocol.
+	 *
+	 * @return the binary serializer
+	 */
+	public BinarySerializer getBinarySerializer() {
+		return binarySerializer;
+	}
+
 	/**
 	 * Returns the connection manager to use.
 	 *
@@ -116,4 +134,13 @@ public class RunnerConfiguration {
 	public String getRunnerToken() {
 		return runnerToken;
 	}
+
+	/**
+	 * Returns the organizer for the mirrors of the benchmarked repos.
+	 *
+	 * @return the repo mirror organizer
+	 */
+	public RepoMirrorOrganizer getRepoMirrorOrganizer() {
+		return repoMirrorOrganizer;
+	}
 }
@@ -2,10 +2,12 @@ package de.aaaaaaah.velcom.runner.entity;
 
 import de.aaaaaaah.velcom.runner.shared.util.compression.FileHelper;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Optional;
 
@@ -43,12 +45,23 @@ public class TempFileBenchmarkRepoOrganizer implements BenchmarkRepoOrganizer {
 	}
 
 	@Override
-	public void copyToYourself(Path source, String headHash) throws IOException {
+	public void moveToYourself(Path source, String headHash) throws IOException {
+		Path oldCopy = rootTempDir.resolve("benchmark-repo-old");
+		FileHelper.deleteDirectoryOrFile(oldCopy);
+
 		if (hasLocalCopy()) {
-			FileHelper.deleteDirectoryOrFile(getPathToRepo());
+			Files.move(getPathToRepo(), oldCopy, StandardCopyOption.ATOMIC_MOVE);
+		}
+		try {
+			Files.move(source, getPathToRepo(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			// The source is on a different file system
+			copyDirectory(source, getPathToRepo());
+			FileHelper.deleteDirectoryOrFile(source);
 		}
-		copyDirectory(source, getPathToRepo());
 		this.headHash = headHash;
+
+		FileHelper.deleteDirectoryOrFile(oldCopy);
 	}
 
 	private void copyDirectory(Path source, Path target) throws IOException {
@@ -2,20 +2,22 @@ package de.aaaaaaah.velcom.runner.entity.execution;
 
 import de.aaaaaaah.velcom.runner.entity.BenchmarkFailureInformation;
 import de.aaaaaaah.velcom.runner.entity.BenchmarkRepoOrganizer;
+import de.aaaaaaah.velcom.runner.entity.RepoMirrorOrganizer;
 import de.aaaaaaah.velcom.runner.entity.RunnerConfiguration;
 import de.aaaaaaah.velcom.runner.entity.WorkExecutor;
 import de.aaaaaaah.velcom.runner.entity.execution.output.BenchmarkScriptOutputParser;
 import de.aaaaaaah.velcom.runner.entity.execution.output.BenchmarkScriptOutputParser.BareResult;
 import de.aaaaaaah.velcom.runner.entity.execution.output.OutputParseException;
+import de.aaaaaaah.velcom.runner.entity.execution.output.ParsingOutputConsumer;
 import de.aaaaaaah.velcom.runner.shared.ProgramExecutor;
 import de.aaaaaaah.velcom.runner.shared.ProgramExecutor.FutureProgramResult;
 import de.aaaaaaah.velcom.runner.shared.ProgramExecutor.ProgramResult;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
 import de.aaaaaaah.velcom.runner.shared.protocol.StatusCodeMappings;
 import de.aaaaaaah.velcom.runner.shared.protocol.exceptions.ProgramCancelledException;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
 import de.aaaaaaah.velcom.runner.shared.util.compression.FileHelper;
-import de.aaaaaaah.velcom.runner.shared.util.compression.TarHelper;
 import de.aaaaaaah.velcom.runner.util.ExceptionHelper;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -32,12 +34,27 @@ public class BenchmarkscriptWorkExecutor implements WorkExecutor {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkscriptWorkExecutor.class);
 
+	/**
+	 * The amount of bytes from the beginning of the output that is included in failure reports.
+	 */
+	private static final int OUTPUT_PREVIEW_BYTES = 64 * 1024;
+
 	private final BenchmarkScriptOutputParser benchmarkScriptOutputParser;
 	private FutureProgramResult programResult;
 	private AtomicInteger currentWorkIdentifier;
 
 	public BenchmarkscriptWorkExecutor() {
-		benchmarkScriptOutputParser = new BenchmarkScriptOutputParser();
+		this(BenchmarkScriptOutputParser.DEFAULT_MAX_OUTPUT_BYTES);
+	}
+
+	/**
+	 * Creates a new executor.
+	 *
+	 * @param maxOutputBytes the maximum size of the benchmark script's output in bytes. Larger
+	 * 	outputs are treated as invalid.
+	 */
+	public BenchmarkscriptWorkExecutor(long maxOutputBytes) {
+		benchmarkScriptOutputParser = new BenchmarkScriptOutputParser(maxOutputBytes);
 		currentWorkIdentifier = new AtomicInteger();
 	}
 
@@ -70,7 +87,11 @@ public class BenchmarkscriptWorkExecutor implements WorkExecutor {
 
 		Instant startTime = Instant.now();
 
-		try (var execEnv = new ExecutionEnv(workPath, configuration.getBenchmarkRepoOrganizer())) {
+		try (var execEnv = new ExecutionEnv(
+			workPath,
+			configuration.getBenchmarkRepoOrganizer(),
+			configuration.getRepoMirrorOrganizer()
+		)) {
 			String[] calledCommand = {
 				execEnv.getExecutablePath().toAbsolutePath().toString(),
 				execEnv.unpack(workOrder).toAbsolutePath().toString()
@@ -85,7 +106,10 @@ public class BenchmarkscriptWorkExecutor implements WorkExecutor {
 				return;
 			}
 
-			programResult = new ProgramExecutor().execute(calledCommand);
+			ParsingOutputConsumer output = new ParsingOutputConsumer(
+				benchmarkScriptOutputParser, OUTPUT_PREVIEW_BYTES
+			);
+			programResult = new ProgramExecutor().execute(output, calledCommand);
 
 			ProgramResult result = programResult.get();
 
@@ -94,10 +118,8 @@ public class BenchmarkscriptWorkExecutor implements WorkExecutor {
 			failureInformation.addToGeneral("Stop time", endTime.toString());
 			failureInformation.addToGeneral("Execution time", result.getRuntime().toString());
 			failureInformation.addToGeneral("Exit code", result.getExitCode() + "");
-			failureInformation.addSection(
-				"Stdout",
-				result.getStdOut().isEmpty() ? "<empty>" : result.getStdOut()
-			);
+			String stdOut = output.getOutputPreview();
+			failureInformation.addSection("Stdout", stdOut.isEmpty() ? "<empty>" : stdOut);
 			failureInformation.addSection(
 				"Stderr",
 				result.getStdErr().isEmpty() ? "<empty>" : result.getStdErr()
@@ -129,7 +151,7 @@ public class BenchmarkscriptWorkExecutor implements WorkExecutor {
 				return;
 			}
 
-			BareResult bareResult = benchmarkScriptOutputParser.parse(result.getStdOut());
+			BareResult bareResult = output.getResult();
 
 			String error = bareResult.getError();
 			if (error != null) {
@@ -215,10 +237,12 @@ public class BenchmarkscriptWorkExecutor implements WorkExecutor {
 		private Path workBinaryPath;
 		private Path executablePath;
 		private Path unarchivedWorkPath;
+		private RepoMirrorOrganizer repoMirrorOrganizer;
 
-		private ExecutionEnv(Path workBinaryPath, BenchmarkRepoOrganizer benchmarkRepoOrganizer)
-			throws IOException {
+		private ExecutionEnv(Path workBinaryPath, BenchmarkRepoOrganizer benchmarkRepoOrganizer,
+			RepoMirrorOrganizer repoMirrorOrganizer) throws IOException {
 			this.workBinaryPath = workBinaryPath;
+			this.repoMirrorOrganizer = repoMirrorOrganizer;
 			this.executablePath = benchmarkRepoOrganizer.getBenchmarkScript();
 
 			if (!Files.isExecutable(executablePath)) {
@@ -231,10 +255,22 @@ public class BenchmarkscriptWorkExecutor implements WorkExecutor {
 		}
 
 		public Path unpack(RunnerWorkOrder workOrder) throws IOException {
+			if (workOrder.getTransferFormat() != RepoTransferFormat.BUNDLE) {
+				// Tar archives are already unpacked while they are received
+				unarchivedWorkPath = workBinaryPath;
+				return unarchivedWorkPath;
+			}
+
 			unarchivedWorkPath = Files.createTempDirectory(workOrder.getRepoId().toString());
-			TarHelper.untar(workBinaryPath, unarchivedWorkPath);
 			FileHelper.deleteOnExit(unarchivedWorkPath);
 
+			repoMirrorOrganizer.checkout(
+				workOrder.getRepoId(),
+				workOrder.getCommitHash(),
+				workBinaryPath,
+				unarchivedWorkPath
+			);
+
 			return unarchivedWorkPath;
 		}
 
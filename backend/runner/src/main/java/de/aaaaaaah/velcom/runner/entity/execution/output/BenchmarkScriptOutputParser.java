@@ -1,36 +1,68 @@
 package de.aaaaaaah.velcom.runner.entity.execution.output;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Benchmark;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Metric;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.MetricInterpretation;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map.Entry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The pojo for the output of the benchmark script.
+ * Parses the output of the benchmark script. The output is read incrementally and the values of
+ * each metric are collected without boxing them, so large outputs never exist as a whole in
+ * memory.
  */
 public class BenchmarkScriptOutputParser {
 
+	/**
+	 * The maximum output size used by {@link #BenchmarkScriptOutputParser()}.
+	 */
+	public static final long DEFAULT_MAX_OUTPUT_BYTES = 256L * 1024 * 1024;
+
 	private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkScriptOutputParser.class);
 
-	private ObjectMapper objectMapper = new ObjectMapper()
-		.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
-		.registerModule(new ParameterNamesModule());
+	private static final int INITIAL_RESULTS_CAPACITY = 16;
+
+	private final JsonFactory jsonFactory;
+	private final long maxOutputBytes;
+
+	/**
+	 * Creates a new parser that accepts outputs of up to {@link #DEFAULT_MAX_OUTPUT_BYTES}.
+	 */
+	public BenchmarkScriptOutputParser() {
+		this(DEFAULT_MAX_OUTPUT_BYTES);
+	}
+
+	/**
+	 * Creates a new parser.
+	 *
+	 * @param maxOutputBytes the maximum size of the output in bytes. Larger outputs are rejected.
+	 */
+	public BenchmarkScriptOutputParser(long maxOutputBytes) {
+		if (maxOutputBytes < 1) {
+			throw new IllegalArgumentException(
+				"maxOutputBytes must be positive: " + maxOutputBytes
+			);
+		}
+		this.jsonFactory = new JsonFactory();
+		this.maxOutputBytes = maxOutputBytes;
+	}
 
 	/**
-	 * Parses the benchmark output node to a {@link BenchmarkResults} object.
+	 * Parses the benchmark output to a {@link BenchmarkResults} object.
 	 *
 	 * @param data the textual data
 	 * @return the parsed benchmark results
@@ -39,32 +71,67 @@ public class BenchmarkScriptOutputParser {
 	public BareResult parse(String data) throws OutputParseException {
 		LOGGER.debug("Parsing message '{}'", data);
 
-		JsonNode root;
-		try {
-			root = objectMapper.readTree(data);
-		} catch (JsonProcessingException e) {
+		return parse(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Parses the benchmark output to a {@link BenchmarkResults} object while reading it. The stream
+	 * is not closed and is only read until the end of the root object.
+	 *
+	 * @param data the output
+	 * @return the parsed benchmark results
+	 * @throws OutputParseException if an error occurs or the output is larger than the maximum
+	 * 	output size
+	 */
+	public BareResult parse(InputStream data) throws OutputParseException {
+		try (JsonParser parser = jsonFactory.createParser(new LimitedInputStream(data))) {
+			return parseRoot(parser);
+		} catch (IOException e) {
 			throw new OutputParseException(e.getMessage(), e);
 		}
+	}
 
-		if (!root.isObject()) {
+	private BareResult parseRoot(JsonParser parser) throws IOException {
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
 			throw new OutputParseException("Root is no object");
 		}
-		// the is object check is needed to allow benchmarks named "error"
-		if (root.hasNonNull("error") && !root.get("error").isObject()) {
-			if (!root.get("error").isTextual()) {
-				throw new OutputParseException("Error is no string: " + root);
-			}
-			return new BareResult(Collections.emptyList(), root.get("error").asText());
-		}
+		JsonStreamContext rootContext = parser.getParsingContext();
 
 		List<Benchmark> benchmarks = new ArrayList<>();
+		String error = null;
+		// An error message takes precedence over invalid benchmarks, but it may come after them
+		OutputParseException invalidBenchmark = null;
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+
+			// the is object check is needed to allow benchmarks named "error"
+			if (name.equals("error") && value != JsonToken.START_OBJECT
+				&& value != JsonToken.VALUE_NULL) {
+				if (value != JsonToken.VALUE_STRING) {
+					throw new OutputParseException("Error is no string at " + location(parser));
+				}
+				error = parser.getText();
+				continue;
+			}
 
-		Iterator<Entry<String, JsonNode>> fields = root.fields();
-		while (fields.hasNext()) {
-			Entry<String, JsonNode> field = fields.next();
-			benchmarks.add(parseBenchmark(field.getKey(), field.getValue()));
+			try {
+				benchmarks.add(parseBenchmark(parser, name));
+			} catch (OutputParseException e) {
+				if (invalidBenchmark == null) {
+					invalidBenchmark = e;
+				}
+				skipUntil(parser, rootContext);
+			}
 		}
 
+		if (error != null) {
+			return new BareResult(Collections.emptyList(), error);
+		}
+		if (invalidBenchmark != null) {
+			throw invalidBenchmark;
+		}
 		if (benchmarks.isEmpty()) {
 			throw new OutputParseException("Root element has no benchmarks");
 		}
@@ -72,100 +139,203 @@ public class BenchmarkScriptOutputParser {
 		return new BareResult(benchmarks, null);
 	}
 
-	private Benchmark parseBenchmark(String name, JsonNode node) {
-		if (!node.isObject()) {
-			throw new OutputParseException("benchmark is no object: " + node);
+	private Benchmark parseBenchmark(JsonParser parser, String name) throws IOException {
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			throw new OutputParseException(
+				"Benchmark '" + name + "' is no object at " + location(parser)
+			);
 		}
 
 		List<Metric> metrics = new ArrayList<>();
 
-		Iterator<Entry<String, JsonNode>> fields = node.fields();
-		while (fields.hasNext()) {
-			Entry<String, JsonNode> field = fields.next();
-			metrics.add(parseMetric(field.getKey(), field.getValue()));
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String metricName = parser.getCurrentName();
+			parser.nextToken();
+			metrics.add(parseMetric(parser, name, metricName));
 		}
 
 		if (metrics.isEmpty()) {
-			throw new OutputParseException("Benchmark '" + name + "' has no metric: " + node);
+			throw new OutputParseException("Benchmark '" + name + "' has no metric");
 		}
 
 		return new Benchmark(name, metrics);
 	}
 
-	private Metric parseMetric(String name, JsonNode node) {
-		if (!node.isObject()) {
-			throw new OutputParseException("Metric is no object: " + node);
+	private Metric parseMetric(JsonParser parser, String benchmark, String name)
+		throws IOException {
+
+		String description = "Metric '" + name + "' of benchmark '" + benchmark + "'";
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			throw new OutputParseException(description + " is no object at " + location(parser));
 		}
+		JsonStreamContext metricContext = parser.getParsingContext();
+
+		String error = null;
+		String unit = null;
+		String interpretation = null;
+		double[] results = null;
+		// An error message takes precedence over invalid results, but it may come after them
+		OutputParseException invalidResults = null;
 
-		if (node.hasNonNull("error")) {
-			if (!node.get("error").isTextual()) {
-				throw new OutputParseException("Error is no string: " + node);
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+
+			if (value == JsonToken.VALUE_NULL) {
+				continue;
+			}
+
+			switch (field) {
+				case "error":
+					error = parseString(parser, "Error", description);
+					break;
+				case "unit":
+					unit = parseString(parser, "Unit", description);
+					break;
+				case "resultInterpretation":
+					interpretation = parseString(parser, "Interpretation", description);
+					break;
+				case "results":
+					try {
+						results = parseResults(parser, description);
+					} catch (OutputParseException e) {
+						invalidResults = e;
+						skipUntil(parser, metricContext);
+					}
+					break;
+				default:
+					parser.skipChildren();
 			}
-			return new Metric(
-				name, "", MetricInterpretation.NEUTRAL, List.of(), node.get("error").asText()
-			);
 		}
 
-		if (!node.hasNonNull("unit")) {
-			throw new OutputParseException("Metric has no unit: " + node);
+		if (error != null) {
+			return new Metric(name, "", MetricInterpretation.NEUTRAL, new double[0], error);
 		}
-		if (!node.get("unit").isTextual()) {
-			throw new OutputParseException("Unit is no string: " + node);
+
+		if (unit == null) {
+			throw new OutputParseException(description + " has no unit");
 		}
-		if (!node.hasNonNull("resultInterpretation")) {
-			throw new OutputParseException("Metric has no interpretation: " + node);
+		if (interpretation == null) {
+			throw new OutputParseException(description + " has no interpretation");
 		}
-		if (!node.hasNonNull("results")) {
-			throw new OutputParseException("Metric has no results: " + node);
+		if (invalidResults != null) {
+			throw invalidResults;
+		}
+		if (results == null) {
+			throw new OutputParseException(description + " has no results");
 		}
 
-		String unit = node.get("unit").asText();
-		MetricInterpretation interpretation = parseInterpretation(
-			node.get("resultInterpretation")
-		);
-
-		return new Metric(
-			name, unit, interpretation, parseResults(node.get("results")), null
-		);
+		return new Metric(name, unit, parseInterpretation(interpretation), results, null);
 	}
 
-	private List<Double> parseResults(JsonNode node) {
-		if (!node.isArray()) {
-			throw new OutputParseException("Output is no array: " + node);
+	private double[] parseResults(JsonParser parser, String description) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			throw new OutputParseException(
+				"Results of " + description + " are no array at " + location(parser)
+			);
 		}
-		int size = node.size();
-
-		List<Double> results = new ArrayList<>(size);
 
-		ArrayNode arrayNode = (ArrayNode) node;
+		double[] results = new double[INITIAL_RESULTS_CAPACITY];
+		int size = 0;
 
-		for (int i = 0; i < size; i++) {
-			JsonNode element = arrayNode.get(i);
-			if (!element.isNumber()) {
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
 				throw new OutputParseException(
-					"Expected a number in: " + node + " at position " + i
+					"Expected a number in the results of " + description + " at position " + size
 				);
 			}
-			results.add(element.asDouble());
+			if (size == results.length) {
+				results = Arrays.copyOf(results, results.length * 2);
+			}
+			results[size++] = parser.getDoubleValue();
 		}
 
-		if (results.isEmpty()) {
+		if (size == 0) {
 			throw new OutputParseException("Expected result to have at least one value!");
 		}
 
-		return results;
+		return Arrays.copyOf(results, size);
 	}
 
-	private MetricInterpretation parseInterpretation(JsonNode node) {
-		MetricInterpretation interpretation;
-		try {
-			interpretation = MetricInterpretation.valueOf(node.asText());
-		} catch (IllegalArgumentException e) {
+	private String parseString(JsonParser parser, String field, String description)
+		throws IOException {
+
+		if (parser.currentToken() != JsonToken.VALUE_STRING) {
 			throw new OutputParseException(
-				"Unknown result interpretation " + node.get("interpretation")
+				field + " of " + description + " is no string at " + location(parser)
 			);
 		}
-		return interpretation;
+		return parser.getText();
+	}
+
+	private MetricInterpretation parseInterpretation(String interpretation) {
+		try {
+			return MetricInterpretation.valueOf(interpretation);
+		} catch (IllegalArgumentException e) {
+			throw new OutputParseException("Unknown result interpretation " + interpretation);
+		}
+	}
+
+	/**
+	 * Skips tokens until the parser is back in the given context, i.e. the value the parser was in
+	 * when an error occurred has been read completely.
+	 */
+	private static void skipUntil(JsonParser parser, JsonStreamContext context) throws IOException {
+		while (parser.getParsingContext() != context) {
+			if (parser.nextToken() == null) {
+				throw new OutputParseException("Unexpected end of output");
+			}
+		}
+	}
+
+	private static String location(JsonParser parser) {
+		return "line " + parser.getCurrentLocation().getLineNr()
+			+ ", column " + parser.getCurrentLocation().getColumnNr();
+	}
+
+	/**
+	 * Fails once more than the maximum output size has been read.
+	 */
+	private class LimitedInputStream extends FilterInputStream {
+
+		private long readBytes;
+
+		private LimitedInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if (read >= 0) {
+				countRead(1);
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				countRead(read);
+			}
+			return read;
+		}
+
+		@Override
+		public void close() {
+			// The caller owns the underlying stream
+		}
+
+		private void countRead(int count) throws IOException {
+			readBytes += count;
+			if (readBytes > maxOutputBytes) {
+				throw new IOException(
+					"The output is larger than the maximum of " + maxOutputBytes + " bytes"
+				);
+			}
+		}
 	}
 
 	/**
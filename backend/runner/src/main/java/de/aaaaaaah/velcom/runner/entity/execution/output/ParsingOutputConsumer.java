@@ -0,0 +1,114 @@
+package de.aaaaaaah.velcom.runner.entity.execution.output;
+
+import de.aaaaaaah.velcom.runner.entity.execution.output.BenchmarkScriptOutputParser.BareResult;
+import de.aaaaaaah.velcom.runner.shared.ProgramExecutor.OutputConsumer;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses the output of the benchmark script while it is running. The beginning of the output is
+ * kept around, so it can be shown if the benchmark fails.
+ */
+public class ParsingOutputConsumer implements OutputConsumer {
+
+	private final BenchmarkScriptOutputParser parser;
+	private final int previewBytes;
+	private final ByteArrayOutputStream preview;
+
+	private volatile long outputBytes;
+	private volatile BareResult result;
+	private volatile OutputParseException parseException;
+
+	/**
+	 * Creates a new consumer.
+	 *
+	 * @param parser the parser to use
+	 * @param previewBytes the amount of bytes to keep from the beginning of the output
+	 */
+	public ParsingOutputConsumer(BenchmarkScriptOutputParser parser, int previewBytes) {
+		this.parser = parser;
+		this.previewBytes = previewBytes;
+		this.preview = new ByteArrayOutputStream();
+	}
+
+	@Override
+	public void consume(InputStream output) throws IOException {
+		InputStream recordingOutput = new RecordingInputStream(output);
+		try {
+			result = parser.parse(recordingOutput);
+		} catch (OutputParseException e) {
+			parseException = e;
+		}
+		// Read the rest, so the preview is complete even if the parser stopped early
+		recordingOutput.transferTo(OutputStream.nullOutputStream());
+	}
+
+	/**
+	 * Returns the parsed output. Must only be called after the program finished.
+	 *
+	 * @return the parsed output
+	 * @throws OutputParseException if the output was invalid
+	 */
+	public BareResult getResult() throws OutputParseException {
+		if (parseException != null) {
+			throw parseException;
+		}
+		if (result == null) {
+			throw new OutputParseException("The output was not read");
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the beginning of the output. Must only be called after the program finished.
+	 *
+	 * @return the beginning of the output, with a note if it was truncated
+	 */
+	public String getOutputPreview() {
+		String text = new String(preview.toByteArray(), StandardCharsets.UTF_8);
+		if (outputBytes > preview.size()) {
+			text += "\n[... " + (outputBytes - preview.size()) + " more bytes]";
+		}
+		return text;
+	}
+
+	/**
+	 * Records the first bytes and counts all bytes that are read.
+	 */
+	private class RecordingInputStream extends FilterInputStream {
+
+		private RecordingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if (read >= 0) {
+				record(new byte[]{(byte) read}, 0, 1);
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				record(b, off, read);
+			}
+			return read;
+		}
+
+		private void record(byte[] b, int off, int len) {
+			int remaining = previewBytes - preview.size();
+			if (remaining > 0) {
+				preview.write(b, off, Math.min(remaining, len));
+			}
+			outputBytes += len;
+		}
+	}
+}
@@ -2,7 +2,9 @@ package de.aaaaaaah.velcom.runner.protocol;
 
 import de.aaaaaaah.velcom.runner.exceptions.ConnectionException;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
+import de.aaaaaaah.velcom.runner.shared.protocol.TransferCompression;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Manages the connection to the server.
@@ -36,6 +38,13 @@ public interface SocketConnectionManager {
 	 */
 	boolean isConnected();
 
+	/**
+	 * Returns the compressions binary data received from the server may be compressed with.
+	 *
+	 * @return the supported compressions
+	 */
+	List<TransferCompression> getSupportedCompressions();
+
 	/**
 	 * Adds a new connection state listener.
 	 *
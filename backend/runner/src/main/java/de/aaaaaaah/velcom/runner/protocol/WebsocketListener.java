@@ -5,12 +5,17 @@ import de.aaaaaaah.velcom.runner.exceptions.ConnectionException;
 import de.aaaaaaah.velcom.runner.exceptions.HandshakeFailureException;
 import de.aaaaaaah.velcom.runner.shared.protocol.HeartbeatHandler;
 import de.aaaaaaah.velcom.runner.shared.protocol.HeartbeatHandler.HeartbeatWebsocket;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
 import de.aaaaaaah.velcom.runner.shared.protocol.StatusCodeMappings;
+import de.aaaaaaah.velcom.runner.shared.protocol.TransferCompression;
 import de.aaaaaaah.velcom.runner.shared.protocol.exceptions.SerializationException;
+import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.PrefetchWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.ResetOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.UpdateBenchmarkRepoOrder;
+import de.aaaaaaah.velcom.runner.shared.util.compression.FileHelper;
+import de.aaaaaaah.velcom.runner.shared.util.compression.UntarOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
@@ -22,12 +27,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,22 +47,42 @@ public class WebsocketListener implements WebSocket.Listener, SocketConnectionMa
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(WebsocketListener.class);
 
+	private static final int INFLATER_BUFFER_SIZE = 64 * 1024; // 64 KiB
+
 	private final Object binaryLock;
 	private final Object textLock;
+	private final Object sendLock;
+	private final TransferCompression compression;
 	private RunnerConfiguration configuration;
 	private WebSocket websocket;
 	private Collection<ConnectionStateListener> stateListeners;
 	private OutputStream outputStream;
 	private Path outputFilePath;
+	private volatile RepoTransferFormat expectedTransferFormat;
+	private volatile boolean sendBinaryMessages;
 	private StringBuilder textBuilder;
 	private HeartbeatHandler heartbeatHandler;
 
 	/**
-	 * Creates a new websocket listener.
+	 * Creates a new websocket listener that expects binary data from the server to be compressed
+	 * using {@link TransferCompression#DEFLATE}.
 	 */
 	public WebsocketListener() {
+		this(TransferCompression.DEFLATE);
+	}
+
+	/**
+	 * Creates a new websocket listener.
+	 *
+	 * @param compression the compression the runner advertises and expects binary data from the
+	 * 	server to be compressed with
+	 */
+	public WebsocketListener(TransferCompression compression) {
+		this.compression = compression;
 		this.binaryLock = new Object();
 		this.textLock = new Object();
+		this.sendLock = new Object();
+		this.expectedTransferFormat = RepoTransferFormat.TAR;
 		flushTextBuffer();
 		this.stateListeners = Collections.newSetFromMap(new ConcurrentHashMap<>());
 	}
@@ -76,6 +104,11 @@ public class WebsocketListener implements WebSocket.Listener, SocketConnectionMa
 		disconnectImpl();
 
 		this.websocket = webSocket;
+		// The server only agrees on the subprotocol if it understands binary messages
+		this.sendBinaryMessages = configuration.getBinarySerializer()
+			.getSubprotocol()
+			.equals(webSocket.getSubprotocol());
+		LOGGER.info("Connected, sending {} messages", sendBinaryMessages ? "binary" : "text");
 		configuration.getRunnerStateMachine().onConnectionEstablished(configuration);
 		stateListeners.forEach(it -> it.onStateChange(ConnectionState.CONNECTED));
 		heartbeatHandler = new HeartbeatHandler(this);
@@ -94,12 +127,24 @@ public class WebsocketListener implements WebSocket.Listener, SocketConnectionMa
 				try {
 					switch (configuration.getSerializer().peekType(request)) {
 						case "RunnerWorkOrder":
+							RunnerWorkOrder workOrder = configuration.getSerializer()
+								.deserialize(request, RunnerWorkOrder.class);
+							if (workOrder.getTransferFormat() != RepoTransferFormat.PREFETCHED) {
+								expectedTransferFormat = workOrder.getTransferFormat();
+							}
 							configuration.getRunnerStateMachine().onWorkArrived(
-								configuration.getSerializer()
-									.deserialize(request, RunnerWorkOrder.class),
+								workOrder,
 								configuration
 							);
 							break;
+						case "PrefetchWorkOrder":
+							PrefetchWorkOrder prefetchWorkOrder = configuration.getSerializer()
+								.deserialize(request, PrefetchWorkOrder.class);
+							expectedTransferFormat = prefetchWorkOrder.getWorkOrder()
+								.getTransferFormat();
+							configuration.getRunnerStateMachine()
+								.onPrefetchArrived(prefetchWorkOrder);
+							break;
 						case "ResetOrder":
 							configuration.getRunnerStateMachine().onResetRequested(
 								configuration.getSerializer().deserialize(request, ResetOrder.class)
@@ -108,6 +153,7 @@ public class WebsocketListener implements WebSocket.Listener, SocketConnectionMa
 							);
 							break;
 						case "UpdateBenchmarkRepoOrder":
+							expectedTransferFormat = RepoTransferFormat.TAR;
 							configuration.getRunnerStateMachine().onUpdateBenchmarkRepo(
 								configuration.getSerializer()
 									.deserialize(request, UpdateBenchmarkRepoOrder.class)
@@ -140,19 +186,75 @@ public class WebsocketListener implements WebSocket.Listener, SocketConnectionMa
 
 	private void handleWriteFile(ByteBuffer data, boolean last) throws IOException {
 		if (outputStream == null) {
-			outputFilePath = Files.createTempFile("runner", "");
-			outputStream = Files.newOutputStream(outputFilePath);
+			openOutput();
+		}
+		if (data.hasArray()) {
+			outputStream.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+		} else {
+			byte[] buffer = new byte[data.remaining()];
+			data.get(buffer);
+			outputStream.write(buffer);
 		}
-		byte[] buffer = new byte[data.remaining()];
-		data.get(buffer);
-		outputStream.write(buffer);
 
 		if (last) {
-			flushBinaryBuffer();
+			OutputStream finishedStream = outputStream;
+			outputStream = null;
+			try {
+				finishedStream.close();
+			} catch (IOException e) {
+				FileHelper.deleteDirectoryOrFile(outputFilePath);
+				if (configuration.getRunnerStateMachine().onFileFailed()) {
+					return;
+				}
+				throw e;
+			}
 			configuration.getRunnerStateMachine().onFileReceived(outputFilePath, configuration);
 		}
 	}
 
+	/**
+	 * Opens the stream the next received file is written to. Tar archives are unpacked into a
+	 * temporary directory while they arrive, everything else is saved to a temporary file.
+	 *
+	 * @throws IOException if the temporary file or directory could not be created
+	 */
+	private void openOutput() throws IOException {
+		if (expectedTransferFormat == RepoTransferFormat.TAR) {
+			outputFilePath = Files.createTempDirectory("runner");
+			outputStream = decompress(new UntarOutputStream(outputFilePath));
+		} else {
+			outputFilePath = Files.createTempFile("runner", "");
+			outputStream = decompress(Files.newOutputStream(outputFilePath));
+		}
+	}
+
+	/**
+	 * Wraps the output stream for a received file so that the data is decompressed as it arrives.
+	 *
+	 * @param out the stream writing to the file
+	 * @return the stream the received data should be written to
+	 */
+	private OutputStream decompress(OutputStream out) {
+		switch (compression) {
+			case DEFLATE:
+				return new InflaterOutputStream(out, new Inflater(), INFLATER_BUFFER_SIZE) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							// Not done by InflaterOutputStream for inflaters passed to it
+							inf.end();
+						}
+					}
+				};
+			case NONE:
+				return out;
+			default:
+				throw new IllegalStateException("unknown compression " + compression);
+		}
+	}
+
 	@Override
 	public CompletionStage<?> onPing(WebSocket webSocket, ByteBuffer message) {
 		return WebSocket.Listener.super.onPing(webSocket, message);
@@ -187,11 +289,30 @@ public class WebsocketListener implements WebSocket.Listener, SocketConnectionMa
 
 	//</editor-fold>
 	@Override
-	public void sendEntity(SentEntity entity) {
+	public void sendEntity(SentEntity entity) throws IOException {
 		if (websocket == null) {
 			throw new IllegalStateException("Not connected!");
 		}
-		websocket.sendText(configuration.getSerializer().serialize(entity), true);
+		// The websocket allows only one outstanding message, so senders have to wait for each other
+		synchronized (sendLock) {
+			CompletableFuture<WebSocket> sent;
+			if (sendBinaryMessages) {
+				sent = websocket.sendBinary(
+					ByteBuffer.wrap(configuration.getBinarySerializer().serialize(entity)), true
+				);
+			} else {
+				sent = websocket.sendText(configuration.getSerializer().serialize(entity), true);
+			}
+
+			try {
+				sent.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while sending " + entity.identifier(), e);
+			} catch (ExecutionException e) {
+				throw new IOException("Sending " + entity.identifier() + " failed", e.getCause());
+			}
+		}
 	}
 
 	@Override
@@ -205,6 +326,8 @@ public class WebsocketListener implements WebSocket.Listener, SocketConnectionMa
 		CompletableFuture<WebSocket> future = HttpClient.newHttpClient()
 			.newWebSocketBuilder()
 			.header("Authorization", configuration.getRunnerToken())
+			// Servers that do not know the subprotocol ignore it and get text messages
+			.subprotocols(configuration.getBinarySerializer().getSubprotocol())
 			.buildAsync(configuration.getServerUrl(), this);
 
 		try {
@@ -236,6 +359,11 @@ public class WebsocketListener implements WebSocket.Listener, SocketConnectionMa
 		return websocket != null && !websocket.isInputClosed() && !websocket.isOutputClosed();
 	}
 
+	@Override
+	public List<TransferCompression> getSupportedCompressions() {
+		return List.of(compression);
+	}
+
 	@Override
 	public void addStateListener(ConnectionStateListener listener) {
 		stateListeners.add(listener);
@@ -294,14 +422,19 @@ public class WebsocketListener implements WebSocket.Listener, SocketConnectionMa
 	}
 
 	private void flushBinaryBuffer() {
-		try {
-			if (outputStream != null) {
+		synchronized (binaryLock) {
+			if (outputStream == null) {
+				return;
+			}
+			// The transfer was interrupted, so whatever was received so far is useless
+			try {
 				outputStream.close();
+			} catch (IOException e) {
+				LOGGER.debug("Discarding partially received file failed", e);
+			} finally {
+				outputStream = null;
+				FileHelper.uncheckedDeleteDirectoryOrFile(outputFilePath);
 			}
-		} catch (IOException e) {
-			throw new UncheckedIOException(e);
-		} finally {
-			outputStream = null;
 		}
 	}
 }
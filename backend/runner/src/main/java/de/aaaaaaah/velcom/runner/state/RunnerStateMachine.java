@@ -2,12 +2,24 @@ package de.aaaaaaah.velcom.runner.state;
 
 import de.aaaaaaah.velcom.runner.entity.RunnerConfiguration;
 import de.aaaaaaah.velcom.runner.entity.WorkExecutor.AbortionResult;
+import de.aaaaaaah.velcom.runner.protocol.SocketConnectionManager;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
 import de.aaaaaaah.velcom.runner.shared.protocol.StatusCodeMappings;
+import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.PrefetchWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Benchmark;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Metric;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResultsChunk;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
+import de.aaaaaaah.velcom.runner.shared.util.compression.FileHelper;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,8 +30,18 @@ public class RunnerStateMachine {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(RunnerStateMachine.class);
 
+	/**
+	 * The maximum number of values sent in a single message. The benchmarks of larger results are
+	 * sent in {@link BenchmarkResultsChunk}s, so neither side has to handle one huge message. A
+	 * metric with more values than this is split across multiple chunks.
+	 */
+	static final int MAX_VALUES_PER_MESSAGE = 16_384;
+
 	private RunnerState state;
 	private BenchmarkResults lastResults;
+	private RunnerWorkOrder prefetchedWorkOrder;
+	private Path prefetchedPath;
+	private boolean awaitingPrefetchedFile;
 
 	/**
 	 * Creates a new state machine.
@@ -64,7 +86,10 @@ public class RunnerStateMachine {
 			Runtime.getRuntime().availableProcessors(),
 			Runtime.getRuntime().maxMemory(),
 			state.getStatus(),
-			configuration.getBenchmarkRepoOrganizer().getHeadHash().orElse(null)
+			configuration.getBenchmarkRepoOrganizer().getHeadHash().orElse(null),
+			configuration.getConnectionManager().getSupportedCompressions(),
+			configuration.getRepoMirrorOrganizer().getMirrorHeads(),
+			true
 		));
 	}
 
@@ -76,12 +101,35 @@ public class RunnerStateMachine {
 	 * @param configuration the runner configuration
 	 */
 	public void onFileReceived(Path path, RunnerConfiguration configuration) {
+		if (awaitingPrefetchedFile) {
+			LOGGER.info("Received prefetched repo for {}", prefetchedWorkOrder);
+			awaitingPrefetchedFile = false;
+			prefetchedPath = path;
+			FileHelper.deleteOnExit(path);
+			return;
+		}
 		doWithErrorAndSwitch(
 			() -> state.onFileReceived(path, configuration),
 			configuration
 		);
 	}
 
+	/**
+	 * Called when a file could not be received completely. This is expected for prefetched repos,
+	 * as the server cancels sending them when it resets the runner.
+	 *
+	 * @return true if the file was a prefetched repo. It is discarded and the server sends the repo
+	 * 	again when the runner should work on it.
+	 */
+	public boolean onFileFailed() {
+		if (!awaitingPrefetchedFile) {
+			return false;
+		}
+		LOGGER.info("Receiving prefetched repo for {} failed", prefetchedWorkOrder);
+		discardPrefetchedWork();
+		return true;
+	}
+
 	/**
 	 * Called when the runner receives some work order from the server.
 	 *
@@ -89,12 +137,63 @@ public class RunnerStateMachine {
 	 * @param configuration the runner configuration
 	 */
 	public void onWorkArrived(RunnerWorkOrder workOrder, RunnerConfiguration configuration) {
+		if (workOrder.getTransferFormat() == RepoTransferFormat.PREFETCHED) {
+			doWithErrorAndSwitch(
+				() -> {
+					Path path = takePrefetchedPath(workOrder);
+					// The stored order knows the format the repo was sent in
+					RunnerState newState = state.onWorkArrived(prefetchedWorkOrder, configuration);
+					prefetchedWorkOrder = null;
+					return newState.onFileReceived(path, configuration);
+				},
+				configuration
+			);
+			return;
+		}
+		discardPrefetchedWork();
 		doWithErrorAndSwitch(
 			() -> state.onWorkArrived(workOrder, configuration),
 			configuration
 		);
 	}
 
+	/**
+	 * Called when the server sends the repo of the next work order while the runner is still
+	 * working. The repo is stored until the server tells the runner to start working on it.
+	 *
+	 * @param prefetchWorkOrder the prefetch order
+	 */
+	public void onPrefetchArrived(PrefetchWorkOrder prefetchWorkOrder) {
+		discardPrefetchedWork();
+		LOGGER.info("Prefetching {}", prefetchWorkOrder.getWorkOrder());
+		prefetchedWorkOrder = prefetchWorkOrder.getWorkOrder();
+		awaitingPrefetchedFile = true;
+	}
+
+	private Path takePrefetchedPath(RunnerWorkOrder workOrder) {
+		boolean matches = prefetchedWorkOrder != null
+			&& prefetchedWorkOrder.getRepoId().equals(workOrder.getRepoId())
+			&& prefetchedWorkOrder.getCommitHash().equals(workOrder.getCommitHash());
+		if (!matches || prefetchedPath == null) {
+			throw new IllegalStateException(
+				"Told to start prefetched " + workOrder + " but only have " + prefetchedWorkOrder
+			);
+		}
+		Path path = prefetchedPath;
+		prefetchedPath = null;
+		return path;
+	}
+
+	private void discardPrefetchedWork() {
+		if (prefetchedPath != null) {
+			LOGGER.info("Discarding prefetched repo for {}", prefetchedWorkOrder);
+			FileHelper.uncheckedDeleteDirectoryOrFile(prefetchedPath);
+		}
+		prefetchedWorkOrder = null;
+		prefetchedPath = null;
+		awaitingPrefetchedFile = false;
+	}
+
 	/**
 	 * Called when the server requests a reset.
 	 *
@@ -165,11 +264,70 @@ public class RunnerStateMachine {
 	private void sendResultsIfAny(RunnerConfiguration configuration) throws IOException {
 		if (lastResults != null && configuration.getConnectionManager().isConnected()) {
 			LOGGER.info("Sending results...");
-			configuration.getConnectionManager().sendEntity(lastResults);
+			sendResults(lastResults, configuration.getConnectionManager());
 			lastResults = null;
 		}
 	}
 
+	private static void sendResults(BenchmarkResults results,
+		SocketConnectionManager connectionManager) throws IOException {
+
+		// Benchmark name to the metrics of the benchmark that weren't sent yet
+		Map<String, List<Metric>> pending = new LinkedHashMap<>();
+		int pendingValues = 0;
+
+		for (Benchmark benchmark : results.getBenchmarks()) {
+			if (benchmark.getMetrics().isEmpty()) {
+				pending.putIfAbsent(benchmark.getName(), new ArrayList<>());
+			}
+
+			for (Metric metric : benchmark.getMetrics()) {
+				List<Double> values = metric.getResults();
+				int sentValues = 0;
+
+				// Metrics are only split if they don't fit into a single message on their own
+				do {
+					int remainingValues = values.size() - sentValues;
+					int freeValues = MAX_VALUES_PER_MESSAGE - pendingValues;
+					if (pendingValues > 0 && remainingValues > freeValues) {
+						connectionManager.sendEntity(new BenchmarkResultsChunk(
+							results.getWorkOrder(), toBenchmarks(pending)
+						));
+						pending.clear();
+						pendingValues = 0;
+						freeValues = MAX_VALUES_PER_MESSAGE;
+					}
+
+					int partValues = Math.min(remainingValues, freeValues);
+					Metric part = partValues == values.size() ? metric : new Metric(
+						metric.getName(),
+						metric.getUnit(),
+						metric.getResultInterpretation(),
+						values.subList(sentValues, sentValues + partValues),
+						metric.getError()
+					);
+					pending.computeIfAbsent(benchmark.getName(), it -> new ArrayList<>()).add(part);
+					pendingValues += partValues;
+					sentValues += partValues;
+				} while (sentValues < values.size());
+			}
+		}
+
+		connectionManager.sendEntity(new BenchmarkResults(
+			results.getWorkOrder(),
+			toBenchmarks(pending),
+			results.getError(),
+			results.getStartTime(),
+			results.getEndTime()
+		));
+	}
+
+	private static List<Benchmark> toBenchmarks(Map<String, List<Metric>> metrics) {
+		return metrics.entrySet().stream()
+			.map(entry -> new Benchmark(entry.getKey(), entry.getValue()))
+			.collect(Collectors.toList());
+	}
+
 	private void doWithErrorAndSwitch(IOErrorCallable action, RunnerConfiguration configuration) {
 		try {
 			RunnerState newState = action.run();
@@ -3,9 +3,7 @@ package de.aaaaaaah.velcom.runner.state;
 import de.aaaaaaah.velcom.runner.entity.RunnerConfiguration;
 import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
 import de.aaaaaaah.velcom.runner.shared.util.compression.FileHelper;
-import de.aaaaaaah.velcom.runner.shared.util.compression.TarHelper;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
@@ -32,17 +30,14 @@ public class UpdateBenchmarkRepoState implements RunnerState {
 	@Override
 	public RunnerState onFileReceived(Path path, RunnerConfiguration configuration)
 		throws IOException {
-		Path tempDirectory = Files.createTempDirectory("work-temp");
-		FileHelper.deleteOnExit(tempDirectory);
 		FileHelper.deleteOnExit(path);
 
-		TarHelper.untar(path, tempDirectory);
-		configuration.getBenchmarkRepoOrganizer().copyToYourself(
-			tempDirectory, newRepoHeadHash
-		);
-
-		FileHelper.deleteDirectoryOrFile(tempDirectory);
-		FileHelper.deleteDirectoryOrFile(path);
+		try {
+			// The repo was already unpacked while it was received
+			configuration.getBenchmarkRepoOrganizer().moveToYourself(path, newRepoHeadHash);
+		} finally {
+			FileHelper.deleteDirectoryOrFile(path);
+		}
 		return new IdleState();
 	}
 }
@@ -0,0 +1,107 @@
+package de.aaaaaaah.velcom.runner.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.aaaaaaah.velcom.runner.shared.ProgramExecutor;
+import de.aaaaaaah.velcom.runner.shared.ProgramExecutor.ProgramResult;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GitRepoMirrorOrganizerTest {
+
+	private static final UUID REPO_ID = UUID.randomUUID();
+
+	@TempDir
+	Path tempDir;
+
+	private Path repoPath;
+	private Path mirrorsPath;
+	private GitRepoMirrorOrganizer organizer;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		repoPath = tempDir.resolve("repo");
+		mirrorsPath = tempDir.resolve("mirrors");
+		Files.createDirectories(repoPath);
+
+		git("init", "--quiet");
+		organizer = new GitRepoMirrorOrganizer(mirrorsPath);
+	}
+
+	@Test
+	void appliesFullAndDeltaBundles() throws Exception {
+		String first = commit("file.txt", "Version 1");
+		Path fullBundle = bundle("full.bundle", first, null);
+
+		Path firstTarget = Files.createDirectory(tempDir.resolve("first"));
+		organizer.checkout(REPO_ID, first, fullBundle, firstTarget);
+
+		assertThat(Files.readString(firstTarget.resolve("file.txt"))).isEqualTo("Version 1");
+		assertThat(organizer.getMirrorHeads()).isEqualTo(Map.of(REPO_ID, first));
+
+		String second = commit("file.txt", "Version 2");
+		Path deltaBundle = bundle("delta.bundle", second, first);
+
+		Path secondTarget = Files.createDirectory(tempDir.resolve("second"));
+		organizer.checkout(REPO_ID, second, deltaBundle, secondTarget);
+
+		assertThat(Files.readString(secondTarget.resolve("file.txt"))).isEqualTo("Version 2");
+		assertThat(organizer.getMirrorHeads()).isEqualTo(Map.of(REPO_ID, second));
+
+		// Mirrors survive restarts
+		assertThat(new GitRepoMirrorOrganizer(mirrorsPath).getMirrorHeads())
+			.isEqualTo(Map.of(REPO_ID, second));
+	}
+
+	@Test
+	void discardsMirrorIfBundleCanNotBeApplied() throws Exception {
+		String first = commit("file.txt", "Version 1");
+		String second = commit("file.txt", "Version 2");
+		Path deltaBundle = bundle("delta.bundle", second, first);
+
+		Path target = Files.createDirectory(tempDir.resolve("target"));
+		assertThatThrownBy(() -> organizer.checkout(REPO_ID, second, deltaBundle, target))
+			.isInstanceOf(IOException.class);
+
+		assertThat(organizer.getMirrorHeads()).isEmpty();
+		assertThat(mirrorsPath.resolve(REPO_ID.toString())).doesNotExist();
+	}
+
+	private String commit(String file, String content) throws Exception {
+		Files.writeString(repoPath.resolve(file), content);
+		git("add", file);
+		git("-c", "user.name=Auth", "-c", "user.email=er", "commit", "--quiet", "-m", content);
+		return git("rev-parse", "HEAD").getStdOut().strip();
+	}
+
+	private Path bundle(String name, String commit, String base) throws Exception {
+		Path bundle = tempDir.resolve(name);
+		git("update-ref", RepoTransferFormat.BUNDLE_REF, commit);
+		if (base == null) {
+			git("bundle", "create", bundle.toString(), RepoTransferFormat.BUNDLE_REF);
+		} else {
+			git("bundle", "create", bundle.toString(), RepoTransferFormat.BUNDLE_REF, "^" + base);
+		}
+		return bundle;
+	}
+
+	private ProgramResult git(String... arguments) throws Exception {
+		String[] command = new String[arguments.length + 3];
+		command[0] = "git";
+		command[1] = "-C";
+		command[2] = repoPath.toString();
+		System.arraycopy(arguments, 0, command, 3, arguments.length);
+
+		ProgramResult result = new ProgramExecutor().execute(command).get();
+		assertThat(result.getExitCode()).as(result.getStdErr()).isZero();
+		return result;
+	}
+}
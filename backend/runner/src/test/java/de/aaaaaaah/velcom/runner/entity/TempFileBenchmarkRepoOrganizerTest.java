@@ -10,12 +10,17 @@ import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class TempFileBenchmarkRepoOrganizerTest {
 
+	@TempDir
+	Path tempDir;
+
 	private TempFileBenchmarkRepoOrganizer organizer;
 
 	@BeforeEach
@@ -37,29 +42,18 @@ class TempFileBenchmarkRepoOrganizerTest {
 	}
 
 	@Test
-	void copySetsHeadHash() throws URISyntaxException, IOException {
-		organizer.copyToYourself(
-			Path.of(
-				TempFileBenchmarkRepoOrganizerTest.class.getProtectionDomain()
-					.getCodeSource()
-					.getLocation()
-					.toURI()
-			),
-			"Test"
-		);
+	void moveSetsHeadHash() throws IOException {
+		Path source = Files.createDirectory(tempDir.resolve("empty"));
+
+		organizer.moveToYourself(source, "Test");
+
 		assertThat(organizer.getHeadHash()).hasValue("Test");
+		assertThat(source).doesNotExist();
 	}
 
 	@Test
-	void copiedFile() throws URISyntaxException, IOException {
-		organizer.copyToYourself(
-			Path.of(
-				TempFileBenchmarkRepoOrganizerTest.class
-					.getResource("/benchmark-script/sample-bench-dir")
-					.toURI()
-			),
-			"Test"
-		);
+	void movedFile() throws URISyntaxException, IOException {
+		organizer.moveToYourself(copyResource("sample-bench-dir"), "Test");
 		assertThat(organizer.getHeadHash()).hasValue("Test");
 		assertThat(
 			Files.list(organizer.getPathToRepo()).collect(toList())
@@ -72,23 +66,9 @@ class TempFileBenchmarkRepoOrganizerTest {
 	}
 
 	@Test
-	void copyTwiceOverwrites() throws URISyntaxException, IOException {
-		organizer.copyToYourself(
-			Path.of(
-				TempFileBenchmarkRepoOrganizerTest.class
-					.getResource("/benchmark-script/sample-bench-dir")
-					.toURI()
-			),
-			"Test"
-		);
-		organizer.copyToYourself(
-			Path.of(
-				TempFileBenchmarkRepoOrganizerTest.class
-					.getResource("/benchmark-script/sample-bench-dir-2")
-					.toURI()
-			),
-			"Test2"
-		);
+	void moveTwiceOverwrites() throws URISyntaxException, IOException {
+		organizer.moveToYourself(copyResource("sample-bench-dir"), "Test");
+		organizer.moveToYourself(copyResource("sample-bench-dir-2"), "Test2");
 		assertThat(organizer.getHeadHash()).hasValue("Test2");
 		assertThat(
 			Files.list(organizer.getPathToRepo()).collect(toList())
@@ -100,6 +80,21 @@ class TempFileBenchmarkRepoOrganizerTest {
 		assertThat(readScript).isEqualTo(realScript);
 	}
 
+	private Path copyResource(String name) throws URISyntaxException, IOException {
+		Path source = Path.of(
+			TempFileBenchmarkRepoOrganizerTest.class
+				.getResource("/benchmark-script/" + name)
+				.toURI()
+		);
+		Path target = Files.createDirectory(tempDir.resolve(name));
+		try (Stream<Path> files = Files.list(source)) {
+			for (Path file : files.collect(toList())) {
+				Files.copy(file, target.resolve(file.getFileName()));
+			}
+		}
+		return target;
+	}
+
 	private static String readResource(String path) throws IOException {
 		StringOutputStream stringOutputStream = new StringOutputStream();
 		try (InputStream inputStream = TempFileBenchmarkRepoOrganizerTest.class
@@ -107,6 +107,16 @@ class BenchmarkscriptWorkExecutorTest {
 		assertThat(value.getError()).containsIgnoringCase("command");
 	}
 
+	@Test
+	void benchscriptReturnsTooMuchOutput() throws IOException {
+		executor = new BenchmarkscriptWorkExecutor(1000);
+		var value = executeScript("head -c 100000 /dev/zero | tr '\\0' ' '; echo -n '{}'", 0);
+
+		assertThat(value.isError()).isTrue();
+		assertThat(value.getError()).contains("invalid output");
+		assertThat(value.getError()).contains("maximum of 1000 bytes");
+	}
+
 	@Test
 	void benchscriptExitsWithExitCode() throws IOException {
 		var value = executeScript("exit 142", 0);
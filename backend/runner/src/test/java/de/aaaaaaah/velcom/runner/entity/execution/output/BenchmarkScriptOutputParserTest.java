@@ -8,6 +8,9 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import de.aaaaaaah.velcom.runner.entity.execution.output.BenchmarkScriptOutputParser.BareResult;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Benchmark;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Metric;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.MetricInterpretation;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -130,4 +133,45 @@ class BenchmarkScriptOutputParserTest {
 		assertThat(metric.isError()).isTrue();
 		assertThat(metric.getError()).isEqualTo("Hey");
 	}
-}
\ No newline at end of file
+	@Test
+	void parseLargeStreamedOutput() {
+		StringBuilder data = new StringBuilder("{ \"bench\": { \"metric\": { \"results\": [");
+		for (int i = 0; i < 100_000; i++) {
+			data.append(i == 0 ? "" : ", ").append(i).append(".5");
+		}
+		data.append("], \"unit\": \"s\", \"resultInterpretation\": \"LESS_IS_BETTER\" } } }");
+
+		BareResult result = parser.parse(
+			new ByteArrayInputStream(data.toString().getBytes(StandardCharsets.UTF_8))
+		);
+
+		Metric metric = result.getBenchmarks().get(0).getMetrics().get(0);
+		assertThat(metric.getResults()).hasSize(100_000);
+		assertThat(metric.getResults().get(0)).isEqualTo(0.5);
+		assertThat(metric.getResults().get(99_999)).isEqualTo(99_999.5);
+		assertThat(metric.getResultInterpretation()).isEqualTo(MetricInterpretation.LESS_IS_BETTER);
+	}
+
+	@Test
+	void parseOutputLargerThanMaximum() {
+		String data = "{ \"test\": { \"metric\": { \"results\": [ 1, 2, 3 ],"
+			+ " \"unit\": \"cats\", \"resultInterpretation\": \"NEUTRAL\" } } }";
+
+		assertThat(new BenchmarkScriptOutputParser(data.length()).parse(data).getBenchmarks())
+			.hasSize(1);
+		assertThatThrownBy(() -> new BenchmarkScriptOutputParser(data.length() - 1).parse(data))
+			.isInstanceOf(OutputParseException.class)
+			.hasMessageContaining("maximum");
+	}
+
+	@Test
+	void parseErrorAfterInvalidBenchmark() {
+		BareResult result = parser.parse(
+			"{ \"test\": { \"metric\": { \"results\": [ \"a\" ] } }, \"error\": \"Hey\" }"
+		);
+
+		assertThat(result.getBenchmarks()).isEmpty();
+		assertThat(result.getError()).isEqualTo("Hey");
+	}
+
+}
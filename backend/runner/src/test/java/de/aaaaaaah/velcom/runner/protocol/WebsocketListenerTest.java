@@ -1,12 +1,15 @@
 package de.aaaaaaah.velcom.runner.protocol;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -14,20 +17,30 @@ import static org.mockito.Mockito.when;
 import de.aaaaaaah.velcom.runner.entity.RunnerConfiguration;
 import de.aaaaaaah.velcom.runner.protocol.SocketConnectionManager.ConnectionState;
 import de.aaaaaaah.velcom.runner.protocol.SocketConnectionManager.ConnectionStateListener;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
 import de.aaaaaaah.velcom.runner.shared.protocol.StatusCodeMappings;
+import de.aaaaaaah.velcom.runner.shared.protocol.TransferCompression;
+import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.PrefetchWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.ResetOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.UpdateBenchmarkRepoOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.serialization.SimpleJsonSerializer;
+import de.aaaaaaah.velcom.runner.shared.protocol.serialization.SmileSerializer;
+import de.aaaaaaah.velcom.runner.shared.util.compression.FileHelper;
 import de.aaaaaaah.velcom.runner.state.RunnerStateMachine;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.http.WebSocket;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.UUID;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.zip.DeflaterOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -41,13 +54,14 @@ class WebsocketListenerTest {
 
 	@BeforeEach
 	void setUp() {
-		websocketListener = new WebsocketListener();
+		websocketListener = new WebsocketListener(TransferCompression.NONE);
 		serializer = new SimpleJsonSerializer();
 		configuration = mock(RunnerConfiguration.class);
 		stateMachine = mock(RunnerStateMachine.class);
 
 		when(configuration.getRunnerStateMachine()).thenReturn(stateMachine);
 		when(configuration.getSerializer()).thenReturn(serializer);
+		when(configuration.getBinarySerializer()).thenReturn(new SmileSerializer());
 
 		websocketListener.setConfiguration(configuration);
 	}
@@ -71,6 +85,17 @@ class WebsocketListenerTest {
 		verify(stateMachine).onWorkArrived(eq(workOrder), eq(configuration));
 	}
 
+	@Test
+	void onTextDelegatesToPrefetchArrived() {
+		PrefetchWorkOrder prefetchWorkOrder = new PrefetchWorkOrder(
+			new RunnerWorkOrder(UUID.randomUUID(), "hash")
+		);
+		WebSocket webSocket = mock(WebSocket.class);
+		websocketListener.onText(webSocket, serialize(prefetchWorkOrder), true);
+
+		verify(stateMachine).onPrefetchArrived(eq(prefetchWorkOrder));
+	}
+
 	@Test
 	void onTextDelegatesToUpdateBenchrepo() {
 		String data = serialize(new UpdateBenchmarkRepoOrder("hash"));
@@ -102,6 +127,7 @@ class WebsocketListenerTest {
 	@Test
 	void onBinaryReceiveFile() throws IOException {
 		WebSocket webSocket = mock(WebSocket.class);
+		expectBundle(webSocket);
 		websocketListener.onBinary(webSocket, ByteBuffer.wrap("hello".getBytes()), true);
 
 		ArgumentCaptor<Path> captor = ArgumentCaptor.forClass(Path.class);
@@ -115,6 +141,7 @@ class WebsocketListenerTest {
 	@Test
 	void onBinaryReceiveFileCanHandleChunks() throws IOException {
 		WebSocket webSocket = mock(WebSocket.class);
+		expectBundle(webSocket);
 		String text = "hello world how are you today? $0 chars are hard!";
 
 		ByteBuffer buffer = ByteBuffer.wrap(text.getBytes());
@@ -134,8 +161,66 @@ class WebsocketListenerTest {
 	}
 
 	@Test
-	void sendEntitySerializesIt() {
+	void onBinaryDecompressesDeflatedFile() throws IOException {
+		websocketListener = new WebsocketListener(TransferCompression.DEFLATE);
+		websocketListener.setConfiguration(configuration);
+
 		WebSocket webSocket = mock(WebSocket.class);
+		expectBundle(webSocket);
+		String text = "hello world how are you today? ".repeat(1_000);
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+			out.write(text.getBytes());
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(compressed.toByteArray());
+		int middle = buffer.remaining() / 2;
+		websocketListener.onBinary(webSocket, buffer.slice().limit(middle), false);
+		websocketListener.onBinary(webSocket, buffer.slice().position(middle), true);
+
+		ArgumentCaptor<Path> captor = ArgumentCaptor.forClass(Path.class);
+		verify(stateMachine).onFileReceived(captor.capture(), eq(configuration));
+
+		assertThat(Files.readString(captor.getValue())).isEqualTo(text);
+		assertThat(websocketListener.getSupportedCompressions())
+			.isEqualTo(List.of(TransferCompression.DEFLATE));
+
+		Files.deleteIfExists(captor.getValue());
+	}
+
+	@Test
+	void onBinaryUnpacksTarWhileReceiving() throws IOException {
+		WebSocket webSocket = mock(WebSocket.class);
+		websocketListener.onText(webSocket, serialize(new UpdateBenchmarkRepoOrder("hash")), true);
+
+		ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		byte[] content = "echo hello".getBytes();
+		try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(archive)) {
+			TarArchiveEntry entry = new TarArchiveEntry("bench");
+			entry.setSize(content.length);
+			tarOut.putArchiveEntry(entry);
+			tarOut.write(content);
+			tarOut.closeArchiveEntry();
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(archive.toByteArray());
+		int middle = buffer.remaining() / 2;
+		websocketListener.onBinary(webSocket, buffer.slice().limit(middle), false);
+		websocketListener.onBinary(webSocket, buffer.slice().position(middle), true);
+
+		ArgumentCaptor<Path> captor = ArgumentCaptor.forClass(Path.class);
+		verify(stateMachine).onFileReceived(captor.capture(), eq(configuration));
+
+		assertThat(Files.isDirectory(captor.getValue())).isTrue();
+		assertThat(Files.readString(captor.getValue().resolve("bench"))).isEqualTo("echo hello");
+
+		FileHelper.deleteDirectoryOrFile(captor.getValue());
+	}
+
+	@Test
+	void sendEntitySerializesIt() throws IOException {
+		WebSocket webSocket = mock(WebSocket.class);
+		when(webSocket.sendText(any(), anyBoolean()))
+			.thenReturn(CompletableFuture.completedFuture(webSocket));
 		ResetOrder order = new ResetOrder("Hey");
 
 		websocketListener.onOpen(webSocket);
@@ -144,6 +229,34 @@ class WebsocketListenerTest {
 		verify(webSocket).sendText(serialize(order), true);
 	}
 
+	@Test
+	void sendEntitySendsBinaryIfServerAcceptedSubprotocol() throws IOException {
+		WebSocket webSocket = mock(WebSocket.class);
+		when(webSocket.getSubprotocol()).thenReturn(SmileSerializer.SUBPROTOCOL);
+		when(webSocket.sendBinary(any(), anyBoolean()))
+			.thenReturn(CompletableFuture.completedFuture(webSocket));
+		ResetOrder order = new ResetOrder("Hey");
+
+		websocketListener.onOpen(webSocket);
+		websocketListener.sendEntity(order);
+
+		verify(webSocket).sendBinary(ByteBuffer.wrap(new SmileSerializer().serialize(order)), true);
+		verify(webSocket, never()).sendText(any(), anyBoolean());
+	}
+
+	@Test
+	void sendEntityFailsIfSendingFails() {
+		WebSocket webSocket = mock(WebSocket.class);
+		when(webSocket.sendText(any(), anyBoolean()))
+			.thenReturn(CompletableFuture.failedFuture(new IOException("Broken pipe")));
+
+		websocketListener.onOpen(webSocket);
+
+		assertThatThrownBy(() -> websocketListener.sendEntity(new ResetOrder("Hey")))
+			.isInstanceOf(IOException.class)
+			.hasRootCauseMessage("Broken pipe");
+	}
+
 	@Test
 	void sendPingSendsPing() {
 		WebSocket socket = mockOpenSocket();
@@ -235,6 +348,13 @@ class WebsocketListenerTest {
 		return socket;
 	}
 
+	private void expectBundle(WebSocket webSocket) {
+		RunnerWorkOrder workOrder = new RunnerWorkOrder(
+			UUID.randomUUID(), "hash", RepoTransferFormat.BUNDLE
+		);
+		websocketListener.onText(webSocket, serialize(workOrder), true);
+	}
+
 	private String serialize(SentEntity entity) {
 		return serializer.serialize(entity);
 	}
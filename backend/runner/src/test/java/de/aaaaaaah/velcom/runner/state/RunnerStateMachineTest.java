@@ -1,20 +1,48 @@
 package de.aaaaaaah.velcom.runner.state;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import de.aaaaaaah.velcom.runner.entity.BenchmarkRepoOrganizer;
+import de.aaaaaaah.velcom.runner.entity.RepoMirrorOrganizer;
 import de.aaaaaaah.velcom.runner.entity.RunnerConfiguration;
 import de.aaaaaaah.velcom.runner.entity.WorkExecutor;
 import de.aaaaaaah.velcom.runner.protocol.SocketConnectionManager;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
+import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
+import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.PrefetchWorkOrder;
+import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Benchmark;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Metric;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.MetricInterpretation;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResultsChunk;
 import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.WorkReceived;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 
 class RunnerStateMachineTest {
@@ -32,12 +60,15 @@ class RunnerStateMachineTest {
 		socketConnectionManager = mock(SocketConnectionManager.class);
 		workExecutor = mock(WorkExecutor.class);
 		BenchmarkRepoOrganizer benchmarkRepoOrganizer = mock(BenchmarkRepoOrganizer.class);
+		RepoMirrorOrganizer repoMirrorOrganizer = mock(RepoMirrorOrganizer.class);
 
 		when(configuration.getConnectionManager()).thenReturn(socketConnectionManager);
 		when(configuration.getBenchmarkRepoOrganizer()).thenReturn(benchmarkRepoOrganizer);
 		when(configuration.getWorkExecutor()).thenReturn(workExecutor);
+		when(configuration.getRepoMirrorOrganizer()).thenReturn(repoMirrorOrganizer);
 
 		when(benchmarkRepoOrganizer.getHeadHash()).thenReturn(Optional.empty());
+		when(repoMirrorOrganizer.getMirrorHeads()).thenReturn(Map.of());
 	}
 
 	@Test
@@ -65,4 +96,156 @@ class RunnerStateMachineTest {
 		verify(workExecutor).abortExecution("Hm");
 	}
 
-}
\ No newline at end of file
+	@Test
+	void startsPrefetchedWorkWhenTold(@TempDir Path tempDir) throws Exception {
+		RunnerWorkOrder workOrder = new RunnerWorkOrder(
+			UUID.randomUUID(), "hash", RepoTransferFormat.BUNDLE
+		);
+		Path prefetchedFile = Files.createFile(tempDir.resolve("bundle"));
+		CountDownLatch executionStarted = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			executionStarted.countDown();
+			return null;
+		}).when(workExecutor).startExecution(any(), any(), any(), anyInt());
+
+		runnerStateMachine.onPrefetchArrived(new PrefetchWorkOrder(workOrder));
+		runnerStateMachine.onFileReceived(prefetchedFile, configuration);
+
+		verify(socketConnectionManager, never()).sendEntity(Matchers.isA(WorkReceived.class));
+
+		runnerStateMachine.onWorkArrived(
+			new RunnerWorkOrder(workOrder.getRepoId(), "hash", RepoTransferFormat.PREFETCHED),
+			configuration
+		);
+
+		verify(socketConnectionManager).sendEntity(Matchers.isA(WorkReceived.class));
+		// The work is started in its own thread
+		assertThat(executionStarted.await(5, TimeUnit.SECONDS)).isTrue();
+		verify(workExecutor).startExecution(
+			eq(prefetchedFile), eq(workOrder), eq(configuration), anyInt()
+		);
+	}
+
+	@Test
+	void otherWorkDiscardsPrefetchedRepo(@TempDir Path tempDir) throws IOException {
+		RunnerWorkOrder workOrder = new RunnerWorkOrder(UUID.randomUUID(), "hash");
+		Path prefetchedDir = Files.createDirectory(tempDir.resolve("repo"));
+
+		runnerStateMachine.onPrefetchArrived(new PrefetchWorkOrder(workOrder));
+		runnerStateMachine.onFileReceived(prefetchedDir, configuration);
+		runnerStateMachine.onWorkArrived(
+			new RunnerWorkOrder(UUID.randomUUID(), "other hash"), configuration
+		);
+
+		assertThat(prefetchedDir).doesNotExist();
+	}
+
+	@Test
+	void failedPrefetchedFileIsDiscarded() {
+		RunnerWorkOrder workOrder = new RunnerWorkOrder(UUID.randomUUID(), "hash");
+
+		// Failing to receive any other file is a real error
+		assertThat(runnerStateMachine.onFileFailed()).isFalse();
+
+		runnerStateMachine.onPrefetchArrived(new PrefetchWorkOrder(workOrder));
+		assertThat(runnerStateMachine.onFileFailed()).isTrue();
+
+		// The server sends the repo again when the runner should work on it
+		assertThat(runnerStateMachine.onFileFailed()).isFalse();
+	}
+
+	@Test
+	void sendsSmallResultsInOneMessage() throws IOException {
+		when(socketConnectionManager.isConnected()).thenReturn(true);
+		BenchmarkResults results = new BenchmarkResults(
+			new RunnerWorkOrder(UUID.randomUUID(), "hash"),
+			List.of(new Benchmark("bench", List.of(metric("a", 10), metric("b", 10)))),
+			Instant.now(), Instant.now()
+		);
+
+		runnerStateMachine.onWorkDone(results, configuration);
+
+		verify(socketConnectionManager, never())
+			.sendEntity(Matchers.isA(BenchmarkResultsChunk.class));
+		verify(socketConnectionManager).sendEntity(Matchers.isA(BenchmarkResults.class));
+	}
+
+	@Test
+	void sendsLargeResultsInChunks() throws IOException {
+		when(socketConnectionManager.isConnected()).thenReturn(true);
+		int half = RunnerStateMachine.MAX_VALUES_PER_MESSAGE / 2;
+		RunnerWorkOrder workOrder = new RunnerWorkOrder(UUID.randomUUID(), "hash");
+		BenchmarkResults results = new BenchmarkResults(
+			workOrder,
+			List.of(
+				new Benchmark("first", List.of(metric("a", half), metric("b", half))),
+				new Benchmark("second", List.of(metric("c", half), metric("d", 1)))
+			),
+			Instant.now(), Instant.now()
+		);
+
+		runnerStateMachine.onWorkDone(results, configuration);
+
+		ArgumentCaptor<SentEntity> captor = ArgumentCaptor.forClass(SentEntity.class);
+		verify(socketConnectionManager, atLeastOnce()).sendEntity(captor.capture());
+		List<SentEntity> sent = captor.getAllValues().stream()
+			.filter(it -> !(it instanceof RunnerInformation))
+			.collect(Collectors.toList());
+
+		assertThat(sent).hasSize(2);
+		BenchmarkResultsChunk chunk = (BenchmarkResultsChunk) sent.get(0);
+		BenchmarkResults last = (BenchmarkResults) sent.get(1);
+
+		assertThat(chunk.getWorkOrder()).isEqualTo(workOrder);
+		assertThat(chunk.getBenchmarks()).extracting(Benchmark::getName).containsExactly("first");
+		assertThat(last.getBenchmarks()).extracting(Benchmark::getName).containsExactly("second");
+		assertThat(last.getStartTime()).isEqualTo(results.getStartTime());
+	}
+
+	@Test
+	void splitsMetricsLargerThanMessageLimit() throws IOException {
+		when(socketConnectionManager.isConnected()).thenReturn(true);
+		int max = RunnerStateMachine.MAX_VALUES_PER_MESSAGE;
+		RunnerWorkOrder workOrder = new RunnerWorkOrder(UUID.randomUUID(), "hash");
+		BenchmarkResults results = new BenchmarkResults(
+			workOrder,
+			List.of(new Benchmark("jmh", List.of(metric("small", 1), metric("huge", 2 * max)))),
+			Instant.now(), Instant.now()
+		);
+
+		runnerStateMachine.onWorkDone(results, configuration);
+
+		ArgumentCaptor<SentEntity> captor = ArgumentCaptor.forClass(SentEntity.class);
+		verify(socketConnectionManager, atLeastOnce()).sendEntity(captor.capture());
+		List<List<Benchmark>> sentBenchmarks = captor.getAllValues().stream()
+			.filter(it -> !(it instanceof RunnerInformation))
+			.map(it -> it instanceof BenchmarkResultsChunk
+				? ((BenchmarkResultsChunk) it).getBenchmarks()
+				: ((BenchmarkResults) it).getBenchmarks())
+			.collect(Collectors.toList());
+
+		assertThat(sentBenchmarks).hasSize(3);
+		for (List<Benchmark> benchmarks : sentBenchmarks) {
+			int values = benchmarks.stream()
+				.flatMap(benchmark -> benchmark.getMetrics().stream())
+				.mapToInt(metric -> metric.getResults().size())
+				.sum();
+			assertThat(values).isLessThanOrEqualTo(max);
+		}
+
+		int hugeValues = sentBenchmarks.stream()
+			.flatMap(List::stream)
+			.flatMap(benchmark -> benchmark.getMetrics().stream())
+			.filter(metric -> metric.getName().equals("huge"))
+			.mapToInt(metric -> metric.getResults().size())
+			.sum();
+		assertThat(hugeValues).isEqualTo(2 * max);
+	}
+
+	private static Metric metric(String name, int valueCount) {
+		return new Metric(
+			name, "unit", MetricInterpretation.NEUTRAL, Collections.nCopies(valueCount, 1.0), null
+		);
+	}
+
+}
@@ -1,10 +1,19 @@
 package de.aaaaaaah.velcom.runner.state;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import de.aaaaaaah.velcom.runner.entity.BenchmarkRepoOrganizer;
+import de.aaaaaaah.velcom.runner.entity.RunnerConfiguration;
 import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class UpdateBenchmarkRepoStateTest {
 
@@ -20,4 +29,16 @@ class UpdateBenchmarkRepoStateTest {
 		assertThat(updateBenchmarkRepoState.getStatus()).isEqualTo(RunnerStatusEnum.PREPARING_WORK);
 	}
 
-}
\ No newline at end of file
+	@Test
+	void movesReceivedRepoToOrganizer(@TempDir Path tempDir) throws IOException {
+		Path received = Files.createDirectory(tempDir.resolve("received"));
+		BenchmarkRepoOrganizer organizer = mock(BenchmarkRepoOrganizer.class);
+		RunnerConfiguration configuration = mock(RunnerConfiguration.class);
+		when(configuration.getBenchmarkRepoOrganizer()).thenReturn(organizer);
+
+		assertThat(updateBenchmarkRepoState.onFileReceived(received, configuration))
+			.isInstanceOf(IdleState.class);
+
+		verify(organizer).moveToYourself(received, "hash");
+	}
+}
@@ -4,11 +4,13 @@ import de.aaaaaaah.velcom.runner.shared.protocol.exceptions.ProgramCancelledExce
 import de.aaaaaaah.velcom.runner.shared.util.StringOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +39,27 @@ public class ProgramExecutor {
 	 * @return a future representing the result
 	 */
 	public FutureProgramResult execute(String... command) {
+		StringOutputStream stdOut = new StringOutputStream();
+		return execute(stdOut::getString, output -> output.transferTo(stdOut), command);
+	}
+
+	/**
+	 * Executes a program using the passed command and hands its standard output to the consumer
+	 * while the program is running, instead of collecting it in memory. The standard output of the
+	 * {@link ProgramResult} is always empty. If the future is cancelled <em>with interruption</em>,
+	 * the process is forcefully killed.
+	 *
+	 * @param stdOutConsumer the consumer for the standard output of the program
+	 * @param command the command to execute
+	 * @return a future representing the result
+	 */
+	public FutureProgramResult execute(OutputConsumer stdOutConsumer, String... command) {
+		return execute(() -> "", stdOutConsumer, command);
+	}
+
+	private FutureProgramResult execute(Supplier<String> stdOutText, OutputConsumer stdOutConsumer,
+		String... command) {
+
 		AtomicReference<ProgramResult> reference = new AtomicReference<>();
 		AtomicReference<RuntimeException> collectedException = new AtomicReference<>();
 
@@ -52,16 +75,23 @@ public class ProgramExecutor {
 			}
 			ProcessHandle processHandle = process.toHandle();
 
-			StringOutputStream stdOut = new StringOutputStream();
 			StringOutputStream stdErr = new StringOutputStream();
 
 			// Needs to be in a new thread as it is non-interruptable
 			Thread readerThread = new Thread(() -> {
 				try (InputStream inputStream = process.getInputStream()) {
-					inputStream.transferTo(stdOut);
+					try {
+						stdOutConsumer.consume(inputStream);
+					} finally {
+						// The program blocks on a full pipe if the consumer stopped reading early
+						inputStream.transferTo(OutputStream.nullOutputStream());
+					}
 				} catch (IOException e) {
 					collectedException.set(new UncheckedIOException(e));
 					return;
+				} catch (RuntimeException e) {
+					collectedException.set(e);
+					return;
 				}
 
 				try (InputStream errorStream = process.getErrorStream()) {
@@ -115,7 +145,7 @@ public class ProgramExecutor {
 			reference.set(
 				new ProgramResult(
 					process.exitValue(),
-					stdOut.getString(),
+					stdOutText.get(),
 					stdErr.getString(),
 					Duration.between(startTime, Instant.now())
 				)
@@ -152,6 +182,22 @@ public class ProgramExecutor {
 		};
 	}
 
+	/**
+	 * Consumes the output of a program while it is running.
+	 */
+	@FunctionalInterface
+	public interface OutputConsumer {
+
+		/**
+		 * Consumes the output. The stream is closed afterwards, anything the consumer did not read
+		 * is discarded.
+		 *
+		 * @param output the output of the program
+		 * @throws IOException if an error occurs reading the output
+		 */
+		void consume(InputStream output) throws IOException;
+	}
+
 	/**
 	 * An eventual program result.
 	 */
@@ -0,0 +1,29 @@
+package de.aaaaaaah.velcom.runner.shared.protocol;
+
+/**
+ * The formats the repo belonging to a work order can be sent to the runner in.
+ */
+public enum RepoTransferFormat {
+	/**
+	 * A tar archive of the commit's working tree.
+	 */
+	TAR,
+	/**
+	 * A git bundle containing the commit as {@link #BUNDLE_REF}. It only contains the objects that
+	 * are not already in the runner's mirror of the repo. This is only used for runners advertising
+	 * their mirrors.
+	 */
+	BUNDLE,
+	/**
+	 * No data is sent, the runner already received the repo with a {@link
+	 * de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.PrefetchWorkOrder} while it
+	 * was still busy with its previous work. This is only used for runners that support
+	 * prefetching.
+	 */
+	PREFETCHED;
+
+	/**
+	 * The ref the commit is stored as in a bundle and in the runner's mirror.
+	 */
+	public static final String BUNDLE_REF = "refs/velcom/head";
+}
@@ -0,0 +1,18 @@
+package de.aaaaaaah.velcom.runner.shared.protocol;
+
+/**
+ * The compressions binary transfers (e.g. repo archives) between server and runner can use. The
+ * runner advertises the compressions it can decompress in its {@link
+ * de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation} and the server
+ * picks one of them.
+ */
+public enum TransferCompression {
+	/**
+	 * The data is sent as is.
+	 */
+	NONE,
+	/**
+	 * The data is compressed using the zlib deflate format.
+	 */
+	DEFLATE
+}
@@ -0,0 +1,59 @@
+package de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
+import java.util.Objects;
+
+/**
+ * Sends the repo of the next work order to a runner that is still working on its current one.
+ * The repo follows as binary data in the order's transfer format. The runner only stores it and
+ * starts working on it once it receives the same work order with the {@link
+ * de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat#PREFETCHED} transfer format.
+ */
+public class PrefetchWorkOrder implements SentEntity {
+
+	private final RunnerWorkOrder workOrder;
+
+	/**
+	 * Creates a new prefetch work order.
+	 *
+	 * @param workOrder the work order the repo belongs to
+	 */
+	@JsonCreator
+	public PrefetchWorkOrder(RunnerWorkOrder workOrder) {
+		this.workOrder = Objects.requireNonNull(workOrder, "workOrder can not be null!");
+	}
+
+	/**
+	 * Returns the work order the repo belongs to.
+	 *
+	 * @return the work order the repo belongs to
+	 */
+	public RunnerWorkOrder getWorkOrder() {
+		return workOrder;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		PrefetchWorkOrder that = (PrefetchWorkOrder) o;
+		return Objects.equals(workOrder, that.workOrder);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(workOrder);
+	}
+
+	@Override
+	public String toString() {
+		return "PrefetchWorkOrder{" +
+			"workOrder=" + workOrder +
+			'}';
+	}
+}
@@ -1,6 +1,7 @@
 package de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
 import java.util.Objects;
 import java.util.UUID;
@@ -12,6 +13,7 @@ public class RunnerWorkOrder implements SentEntity {
 
 	private final UUID repoId;
 	private final String commitHash;
+	private final RepoTransferFormat transferFormat;
 
 	/**
 	 * Creates a new {@link RunnerWorkOrder}.
@@ -19,10 +21,23 @@ public class RunnerWorkOrder implements SentEntity {
 	 * @param repoId the id of the repo that should be benchmarked
 	 * @param commitHash the commit hash
 	 */
-	@JsonCreator
 	public RunnerWorkOrder(UUID repoId, String commitHash) {
+		this(repoId, commitHash, RepoTransferFormat.TAR);
+	}
+
+	/**
+	 * Creates a new {@link RunnerWorkOrder}.
+	 *
+	 * @param repoId the id of the repo that should be benchmarked
+	 * @param commitHash the commit hash
+	 * @param transferFormat the format the repo is sent in. If this is null, {@link
+	 * 	RepoTransferFormat#TAR} is used.
+	 */
+	@JsonCreator
+	public RunnerWorkOrder(UUID repoId, String commitHash, RepoTransferFormat transferFormat) {
 		this.repoId = repoId;
 		this.commitHash = commitHash;
+		this.transferFormat = transferFormat == null ? RepoTransferFormat.TAR : transferFormat;
 	}
 
 	/**
@@ -43,6 +58,15 @@ public class RunnerWorkOrder implements SentEntity {
 		return commitHash;
 	}
 
+	/**
+	 * Returns the format the repo is sent in.
+	 *
+	 * @return the transfer format
+	 */
+	public RepoTransferFormat getTransferFormat() {
+		return transferFormat;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
@@ -53,12 +77,13 @@ public class RunnerWorkOrder implements SentEntity {
 		}
 		RunnerWorkOrder workOrder = (RunnerWorkOrder) o;
 		return Objects.equals(repoId, workOrder.repoId) &&
-			Objects.equals(commitHash, workOrder.commitHash);
+			Objects.equals(commitHash, workOrder.commitHash) &&
+			transferFormat == workOrder.transferFormat;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(repoId, commitHash);
+		return Objects.hash(repoId, commitHash, transferFormat);
 	}
 
 	@Override
@@ -66,6 +91,7 @@ public class RunnerWorkOrder implements SentEntity {
 		return "RunnerWorkOrder{" +
 			"repoId=" + repoId +
 			", commitHash='" + commitHash + '\'' +
+			", transferFormat=" + transferFormat +
 			'}';
 	}
 }
@@ -0,0 +1,48 @@
+package de.aaaaaaah.velcom.runner.shared.protocol.serialization;
+
+import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
+import de.aaaaaaah.velcom.runner.shared.protocol.exceptions.SerializationException;
+
+/**
+ * A serializer for the runner protocol's binary messages. Unlike the {@link Serializer} the type of
+ * a message can be read without parsing its payload.
+ */
+public interface BinarySerializer {
+
+	/**
+	 * Returns the websocket subprotocol runner and server agree on during the handshake to use this
+	 * serializer.
+	 *
+	 * @return the name of the websocket subprotocol
+	 */
+	String getSubprotocol();
+
+	/**
+	 * Serializes an arbitrary {@link SentEntity}.
+	 *
+	 * @param o the object
+	 * @return the serialized object
+	 * @throws SerializationException if serialization was not possible
+	 */
+	byte[] serialize(SentEntity o) throws SerializationException;
+
+	/**
+	 * Returns the type ({@link SentEntity#identifier()}) of a serialized input.
+	 *
+	 * @param input the serialized input. Must come from {@link #serialize(SentEntity)}
+	 * @return the type of the serialized input
+	 * @throws SerializationException if the input is malformed
+	 */
+	String peekType(byte[] input) throws SerializationException;
+
+	/**
+	 * Deserializes an arbitrary object. The input must come from {@link #serialize(SentEntity)}.
+	 *
+	 * @param input the serialized input
+	 * @param <T> the type of the object
+	 * @param type the type of the object to deserialize
+	 * @return the deserialized form
+	 * @throws SerializationException if an error occurs deserializing the input
+	 */
+	<T extends SentEntity> T deserialize(byte[] input, Class<T> type) throws SerializationException;
+}
@@ -0,0 +1,112 @@
+package de.aaaaaaah.velcom.runner.shared.protocol.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
+import de.aaaaaaah.velcom.runner.shared.protocol.exceptions.SerializationException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link BinarySerializer} that encodes the payload using Jackson's Smile format.
+ *
+ * <p>A message consists of the length of the type identifier (2 bytes), the UTF-8 encoded type
+ * identifier, the length of the payload (4 bytes) and the payload itself. All lengths are big
+ * endian.
+ */
+public class SmileSerializer implements BinarySerializer {
+
+	/**
+	 * The websocket subprotocol for this serializer.
+	 */
+	public static final String SUBPROTOCOL = "velcom-smile";
+
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * Creates a new smile serializer.
+	 */
+	public SmileSerializer() {
+		this.objectMapper = new ObjectMapper(new SmileFactory())
+			.registerModule(new ParameterNamesModule())
+			.registerModule(new Jdk8Module())
+			.registerModule(new JavaTimeModule());
+	}
+
+	@Override
+	public String getSubprotocol() {
+		return SUBPROTOCOL;
+	}
+
+	@Override
+	public byte[] serialize(SentEntity o) throws SerializationException {
+		byte[] identifier = o.identifier().getBytes(StandardCharsets.UTF_8);
+		if (identifier.length > Short.MAX_VALUE) {
+			throw new SerializationException("Identifier too long: " + o.identifier());
+		}
+
+		byte[] payload;
+		try {
+			payload = objectMapper.writeValueAsBytes(o);
+		} catch (IOException e) {
+			throw new SerializationException("Error serializing value", e);
+		}
+
+		return ByteBuffer.allocate(Short.BYTES + identifier.length + Integer.BYTES + payload.length)
+			.putShort((short) identifier.length)
+			.put(identifier)
+			.putInt(payload.length)
+			.put(payload)
+			.array();
+	}
+
+	@Override
+	public String peekType(byte[] input) throws SerializationException {
+		ByteBuffer buffer = ByteBuffer.wrap(input);
+		return readIdentifier(buffer);
+	}
+
+	@Override
+	public <T extends SentEntity> T deserialize(byte[] input, Class<T> type)
+		throws SerializationException {
+		ByteBuffer buffer = ByteBuffer.wrap(input);
+		readIdentifier(buffer);
+
+		int payloadLength;
+		try {
+			payloadLength = buffer.getInt();
+		} catch (BufferUnderflowException e) {
+			throw new SerializationException("Message ended before the payload length", e);
+		}
+		if (payloadLength != buffer.remaining()) {
+			throw new SerializationException(
+				"Expected " + payloadLength + " payload bytes, got " + buffer.remaining()
+			);
+		}
+
+		try {
+			return objectMapper.readValue(input, buffer.position(), payloadLength, type);
+		} catch (IOException e) {
+			throw new SerializationException("Error deserializing object", e);
+		}
+	}
+
+	private static String readIdentifier(ByteBuffer buffer) {
+		try {
+			short length = buffer.getShort();
+			if (length < 0) {
+				throw new SerializationException("Invalid identifier length " + length);
+			}
+			byte[] identifier = new byte[length];
+			buffer.get(identifier);
+			return new String(identifier, StandardCharsets.UTF_8);
+		} catch (BufferUnderflowException e) {
+			throw new SerializationException("Message ended before the identifier", e);
+		}
+	}
+}
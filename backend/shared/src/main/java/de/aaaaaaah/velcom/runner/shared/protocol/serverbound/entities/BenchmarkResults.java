@@ -6,10 +6,13 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
 import java.time.Instant;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
 
 /**
  * Contains the results of a benchmark.
@@ -224,7 +227,7 @@ public class BenchmarkResults implements SentEntity {
 		private String name;
 		private String unit;
 		private MetricInterpretation resultInterpretation;
-		private List<Double> results;
+		private double[] results;
 
 		/**
 		 * Creates a new metric.
@@ -238,10 +241,32 @@ public class BenchmarkResults implements SentEntity {
 		@JsonCreator
 		public Metric(String name, String unit,
 			MetricInterpretation resultInterpretation, List<Double> results, String error) {
+			this(
+				name,
+				unit,
+				resultInterpretation,
+				results == null
+					? new double[0]
+					: results.stream().mapToDouble(Double::doubleValue).toArray(),
+				error
+			);
+		}
+
+		/**
+		 * Creates a new metric without boxing its values.
+		 *
+		 * @param name the name of the metric
+		 * @param unit the unit of the metric
+		 * @param resultInterpretation the interpretation of the metric
+		 * @param results the values. The array is not copied and must not be modified afterwards.
+		 * @param error the error message
+		 */
+		public Metric(String name, String unit,
+			MetricInterpretation resultInterpretation, double[] results, String error) {
 			this.name = name;
 			this.unit = unit;
 			this.resultInterpretation = resultInterpretation;
-			this.results = results == null ? List.of() : new ArrayList<>(results);
+			this.results = Objects.requireNonNull(results, "results can not be null!");
 			this.error = error;
 		}
 
@@ -299,7 +324,7 @@ public class BenchmarkResults implements SentEntity {
 		 * @return the values
 		 */
 		public List<Double> getResults() {
-			return Collections.unmodifiableList(results);
+			return new ResultsView(results);
 		}
 
 		@Override
@@ -309,8 +334,30 @@ public class BenchmarkResults implements SentEntity {
 				", name='" + name + '\'' +
 				", unit='" + unit + '\'' +
 				", interpretation=" + resultInterpretation +
-				", results=" + results +
+				", results=" + Arrays.toString(results) +
 				'}';
 		}
+
+		/**
+		 * An unmodifiable list backed by the values, so they only need to be boxed when accessed.
+		 */
+		private static class ResultsView extends AbstractList<Double> implements RandomAccess {
+
+			private final double[] values;
+
+			private ResultsView(double[] values) {
+				this.values = values;
+			}
+
+			@Override
+			public Double get(int index) {
+				return values[index];
+			}
+
+			@Override
+			public int size() {
+				return values.length;
+			}
+		}
 	}
 }
@@ -0,0 +1,78 @@
+package de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
+import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Benchmark;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A part of the benchmarks of large results. The runner sends any number of chunks before the
+ * {@link BenchmarkResults} that finish the run. The server adds the benchmarks of all chunks for
+ * the same work order to the ones in the final results.
+ */
+public class BenchmarkResultsChunk implements SentEntity {
+
+	private final RunnerWorkOrder workOrder;
+	private final List<Benchmark> benchmarks;
+
+	/**
+	 * Creates a new {@link BenchmarkResultsChunk} packet.
+	 *
+	 * @param workOrder the work order that initiated the benchmark
+	 * @param benchmarks the benchmarks in this chunk. The metrics of a single benchmark may be
+	 * 	spread over multiple chunks.
+	 */
+	@JsonCreator
+	public BenchmarkResultsChunk(RunnerWorkOrder workOrder, List<Benchmark> benchmarks) {
+		this.workOrder = Objects.requireNonNull(workOrder, "workOrder can not be null!");
+		this.benchmarks = benchmarks == null ? List.of() : new ArrayList<>(benchmarks);
+	}
+
+	/**
+	 * Returns the work order that initiated the benchmark.
+	 *
+	 * @return the work order that initiated the benchmark
+	 */
+	public RunnerWorkOrder getWorkOrder() {
+		return workOrder;
+	}
+
+	/**
+	 * Returns the benchmarks in this chunk.
+	 *
+	 * @return the benchmarks in this chunk
+	 */
+	public List<Benchmark> getBenchmarks() {
+		return Collections.unmodifiableList(benchmarks);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		BenchmarkResultsChunk that = (BenchmarkResultsChunk) o;
+		return Objects.equals(workOrder, that.workOrder) &&
+			Objects.equals(benchmarks, that.benchmarks);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(workOrder, benchmarks);
+	}
+
+	@Override
+	public String toString() {
+		return "BenchmarkResultsChunk{" +
+			"workOrder=" + workOrder +
+			", benchmarks=" + benchmarks.size() +
+			'}';
+	}
+}
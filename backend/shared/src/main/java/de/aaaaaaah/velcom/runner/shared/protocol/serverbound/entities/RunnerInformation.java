@@ -3,8 +3,12 @@ package de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
+import de.aaaaaaah.velcom.runner.shared.protocol.TransferCompression;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Contains information about the runner.
@@ -17,6 +21,47 @@ public class RunnerInformation implements SentEntity {
 	private final long availableMemory;
 	private final RunnerStatusEnum runnerState;
 	private final String currentBenchmarkRepoHash;
+	private final List<TransferCompression> supportedCompressions;
+	private final Map<UUID, String> repoMirrorHeads;
+	private final boolean supportsPrefetching;
+
+	/**
+	 * Creates a new {@link RunnerInformation} packet for a runner that does not support any
+	 * compression for binary transfers.
+	 *
+	 * @param name a unique name for this runner
+	 * @param operatingSystem the operating system of the runner
+	 * @param coreCount the available (online and JVM accessible) core count
+	 * @param availableMemory the available memory
+	 * @param runnerState the current state of the runner
+	 * @param currentBenchmarkRepoHash the current hash of the benchmark repository. May be null.
+	 */
+	public RunnerInformation(String name, String operatingSystem, int coreCount,
+		long availableMemory, RunnerStatusEnum runnerState, String currentBenchmarkRepoHash) {
+		this(name, operatingSystem, coreCount, availableMemory, runnerState,
+			currentBenchmarkRepoHash, List.of(), null);
+	}
+
+	/**
+	 * Creates a new {@link RunnerInformation} packet.
+	 *
+	 * @param name a unique name for this runner
+	 * @param operatingSystem the operating system of the runner
+	 * @param coreCount the available (online and JVM accessible) core count
+	 * @param availableMemory the available memory
+	 * @param runnerState the current state of the runner
+	 * @param currentBenchmarkRepoHash the current hash of the benchmark repository. May be null.
+	 * @param supportedCompressions the compressions the runner can decompress binary transfers
+	 * 	with. May be null if the runner does not know about compressions.
+	 * @param repoMirrorHeads the id of every repo the runner has a local mirror of, mapped to the
+	 * 	hash of the commit the mirror last received. Null if the runner does not keep mirrors.
+	 */
+	public RunnerInformation(String name, String operatingSystem, int coreCount,
+		long availableMemory, RunnerStatusEnum runnerState, String currentBenchmarkRepoHash,
+		List<TransferCompression> supportedCompressions, Map<UUID, String> repoMirrorHeads) {
+		this(name, operatingSystem, coreCount, availableMemory, runnerState,
+			currentBenchmarkRepoHash, supportedCompressions, repoMirrorHeads, false);
+	}
 
 	/**
 	 * Creates a new {@link RunnerInformation} packet.
@@ -27,16 +72,30 @@ public class RunnerInformation implements SentEntity {
 	 * @param availableMemory the available memory
 	 * @param runnerState the current state of the runner
 	 * @param currentBenchmarkRepoHash the current hash of the benchmark repository. May be null.
+	 * @param supportedCompressions the compressions the runner can decompress binary transfers
+	 * 	with. May be null if the runner does not know about compressions.
+	 * @param repoMirrorHeads the id of every repo the runner has a local mirror of, mapped to the
+	 * 	hash of the commit the mirror last received. Null if the runner does not keep mirrors.
+	 * @param supportsPrefetching whether the runner accepts a {@link
+	 * 	de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.PrefetchWorkOrder} while it
+	 * 	is working
 	 */
 	@JsonCreator
 	public RunnerInformation(String name, String operatingSystem, int coreCount,
-		long availableMemory, RunnerStatusEnum runnerState, String currentBenchmarkRepoHash) {
+		long availableMemory, RunnerStatusEnum runnerState, String currentBenchmarkRepoHash,
+		List<TransferCompression> supportedCompressions, Map<UUID, String> repoMirrorHeads,
+		boolean supportsPrefetching) {
 		this.name = name;
 		this.operatingSystem = operatingSystem;
 		this.coreCount = coreCount;
 		this.availableMemory = availableMemory;
 		this.runnerState = runnerState;
 		this.currentBenchmarkRepoHash = currentBenchmarkRepoHash;
+		this.supportedCompressions = supportedCompressions == null
+			? List.of()
+			: List.copyOf(supportedCompressions);
+		this.repoMirrorHeads = repoMirrorHeads == null ? null : Map.copyOf(repoMirrorHeads);
+		this.supportsPrefetching = supportsPrefetching;
 	}
 
 	/**
@@ -93,6 +152,37 @@ public class RunnerInformation implements SentEntity {
 		return Optional.ofNullable(currentBenchmarkRepoHash);
 	}
 
+	/**
+	 * Returns the compressions the runner can decompress binary transfers with.
+	 *
+	 * @return the supported compressions. Empty if the runner only accepts uncompressed data.
+	 */
+	public List<TransferCompression> getSupportedCompressions() {
+		return supportedCompressions;
+	}
+
+	/**
+	 * Returns the commit each of the runner's repo mirrors last received. Repos can be sent as
+	 * {@link de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat#BUNDLE} to runners that
+	 * keep mirrors.
+	 *
+	 * @return a map from repo id to the hash of the commit the mirror last received. Empty if the
+	 * 	runner does not keep repo mirrors.
+	 */
+	public Optional<Map<UUID, String>> getRepoMirrorHeads() {
+		return Optional.ofNullable(repoMirrorHeads);
+	}
+
+	/**
+	 * Returns whether the runner accepts the repo of its next work order while it is still working
+	 * on the current one.
+	 *
+	 * @return true if the runner supports prefetching
+	 */
+	public boolean isSupportsPrefetching() {
+		return supportsPrefetching;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
@@ -107,13 +197,16 @@ public class RunnerInformation implements SentEntity {
 			Objects.equals(name, that.name) &&
 			Objects.equals(operatingSystem, that.operatingSystem) &&
 			runnerState == that.runnerState &&
-			Objects.equals(currentBenchmarkRepoHash, that.currentBenchmarkRepoHash);
+			Objects.equals(currentBenchmarkRepoHash, that.currentBenchmarkRepoHash) &&
+			Objects.equals(supportedCompressions, that.supportedCompressions) &&
+			Objects.equals(repoMirrorHeads, that.repoMirrorHeads) &&
+			supportsPrefetching == that.supportsPrefetching;
 	}
 
 	@Override
 	public int hashCode() {
 		return Objects.hash(name, operatingSystem, coreCount, availableMemory, runnerState,
-			currentBenchmarkRepoHash);
+			currentBenchmarkRepoHash, supportedCompressions, repoMirrorHeads, supportsPrefetching);
 	}
 
 	@Override
@@ -125,6 +218,9 @@ public class RunnerInformation implements SentEntity {
 			", availableMemory=" + availableMemory +
 			", runnerState=" + runnerState +
 			", currentBenchmarkRepoHash='" + currentBenchmarkRepoHash + '\'' +
+			", supportedCompressions=" + supportedCompressions +
+			", repoMirrorHeads=" + repoMirrorHeads +
+			", supportsPrefetching=" + supportsPrefetching +
 			'}';
 	}
 }
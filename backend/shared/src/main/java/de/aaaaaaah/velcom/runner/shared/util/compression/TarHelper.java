@@ -21,27 +21,44 @@ public class TarHelper {
 	 * @throws IOException if an error occurs
 	 */
 	public static void untar(Path tarFile, Path targetDir) throws IOException {
-		try (InputStream fileInput = Files.newInputStream(tarFile);
-			TarArchiveInputStream inputStream = new TarArchiveInputStream(fileInput)) {
+		try (InputStream fileInput = Files.newInputStream(tarFile)) {
+			untar(fileInput, targetDir);
+		}
+	}
+
+	/**
+	 * Unpacks a tape archive read from a stream. Reading stops at the end of the archive, the stream
+	 * is not closed.
+	 *
+	 * @param input the stream to read the archive from
+	 * @param targetDir the target directory to unpack it to
+	 * @throws IOException if an error occurs
+	 */
+	public static void untar(InputStream input, Path targetDir) throws IOException {
+		TarArchiveInputStream inputStream = new TarArchiveInputStream(input);
 
-			TarArchiveEntry entry;
-			while ((entry = inputStream.getNextTarEntry()) != null) {
-				Path entryPath = targetDir.resolve(Path.of(entry.getName()));
-				if (entry.isDirectory()) {
-					Files.createDirectories(entryPath);
-				} else {
-					if (Files.notExists(entryPath.getParent())) {
-						Files.createDirectories(entryPath.getParent());
-					}
-					Files.createFile(entryPath);
-					try (var fileOut = Files.newOutputStream(entryPath)) {
-						IOUtils.copy(inputStream, fileOut);
-					}
-					Files.setPosixFilePermissions(
-						entryPath,
-						PermissionsHelper.fromOctal(entry.getMode())
-					);
+		TarArchiveEntry entry;
+		while ((entry = inputStream.getNextTarEntry()) != null) {
+			Path entryPath = targetDir.resolve(Path.of(entry.getName()));
+			if (entry.isDirectory()) {
+				Files.createDirectories(entryPath);
+			} else if (entry.isSymbolicLink()) {
+				if (Files.notExists(entryPath.getParent())) {
+					Files.createDirectories(entryPath.getParent());
+				}
+				Files.createSymbolicLink(entryPath, Path.of(entry.getLinkName()));
+			} else {
+				if (Files.notExists(entryPath.getParent())) {
+					Files.createDirectories(entryPath.getParent());
+				}
+				Files.createFile(entryPath);
+				try (var fileOut = Files.newOutputStream(entryPath)) {
+					IOUtils.copy(inputStream, fileOut);
 				}
+				Files.setPosixFilePermissions(
+					entryPath,
+					PermissionsHelper.fromOctal(entry.getMode())
+				);
 			}
 		}
 	}
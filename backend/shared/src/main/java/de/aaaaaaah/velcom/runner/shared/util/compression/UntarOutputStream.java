@@ -0,0 +1,161 @@
+package de.aaaaaaah.velcom.runner.shared.util.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An output stream unpacking the tape archive written to it into a directory while it is written.
+ * The archive is unpacked by a background thread, so writing and unpacking overlap. Writes block
+ * if the background thread falls too far behind.
+ *
+ * <p>Closing the stream waits until the archive is fully unpacked and throws any exception
+ * unpacking it caused.
+ */
+public class UntarOutputStream extends OutputStream {
+
+	private static final int MAX_QUEUED_CHUNKS = 64;
+	private static final byte[] END_OF_ARCHIVE = new byte[0];
+
+	private final BlockingQueue<byte[]> chunks;
+	private final Thread untarThread;
+	private volatile IOException failure;
+	private boolean closed;
+
+	/**
+	 * Creates a new untar output stream and starts unpacking in the background.
+	 *
+	 * @param targetDir the directory to unpack the archive to. Must exist.
+	 */
+	public UntarOutputStream(Path targetDir) {
+		this.chunks = new ArrayBlockingQueue<>(MAX_QUEUED_CHUNKS);
+		this.untarThread = new Thread(() -> untar(targetDir), "untar-" + targetDir.getFileName());
+		this.untarThread.setDaemon(true);
+		this.untarThread.start();
+	}
+
+	private void untar(Path targetDir) {
+		ChunkInputStream inputStream = new ChunkInputStream();
+		try {
+			TarHelper.untar(inputStream, targetDir);
+		} catch (IOException e) {
+			failure = e;
+		} catch (RuntimeException e) {
+			failure = new IOException(e);
+		} finally {
+			// Skips the padding after the end of the archive or everything after a failure, so
+			// the writer never blocks on a full queue
+			inputStream.drain();
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		if (len == 0) {
+			return;
+		}
+		enqueue(Arrays.copyOfRange(b, off, off + len));
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		enqueue(END_OF_ARCHIVE);
+		try {
+			untarThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for untar to finish");
+		}
+
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void enqueue(byte[] chunk) throws InterruptedIOException {
+		try {
+			chunks.put(chunk);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while passing data to untar");
+		}
+	}
+
+	/**
+	 * Reads the chunks passed to the untar thread.
+	 */
+	private class ChunkInputStream extends InputStream {
+
+		private byte[] current = new byte[0];
+		private int position;
+		private boolean ended;
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			while (position == current.length) {
+				if (ended || !nextChunk()) {
+					return -1;
+				}
+			}
+
+			int read = Math.min(len, current.length - position);
+			System.arraycopy(current, position, b, off, read);
+			position += read;
+			return read;
+		}
+
+		private boolean nextChunk() throws InterruptedIOException {
+			try {
+				current = chunks.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for data");
+			}
+			position = 0;
+			if (current == END_OF_ARCHIVE) {
+				ended = true;
+			}
+			return !ended;
+		}
+
+		private void drain() {
+			try {
+				while (!ended) {
+					nextChunk();
+				}
+			} catch (InterruptedIOException ignored) {
+				// Nobody is left to wait for
+			}
+		}
+	}
+}
@@ -6,6 +6,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import de.aaaaaaah.velcom.runner.shared.ProgramExecutor.FutureProgramResult;
 import de.aaaaaaah.velcom.runner.shared.ProgramExecutor.ProgramResult;
 import de.aaaaaaah.velcom.runner.shared.protocol.exceptions.ProgramCancelledException;
+import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -58,6 +59,31 @@ class ProgramExecutorTest {
 		assertThat(result.getStdErr()).isEmpty();
 	}
 
+	@Test
+	void streamsStandardOutToConsumer() throws InterruptedException {
+		String output = "Hello".repeat(10_000);
+		StringBuilder consumed = new StringBuilder();
+		ProgramResult result = programExecutor.execute(
+			stdOut -> consumed.append(new String(stdOut.readAllBytes(), StandardCharsets.UTF_8)),
+			"/usr/bin/env", "bash", "-c", "echo -ne '" + output + "'"
+		)
+			.get();
+		assertThat(consumed.toString()).isEqualTo(output);
+		assertThat(result.getStdOut()).isEmpty();
+		assertThat(result.getExitCode()).isZero();
+	}
+
+	@Test
+	void drainsStandardOutTheConsumerDoesNotRead() throws InterruptedException {
+		ProgramResult result = programExecutor.execute(
+			stdOut -> stdOut.read(),
+			"/usr/bin/env", "bash", "-c", "head -c 1000000 /dev/zero; echo -n 'done' 1>&2"
+		)
+			.get();
+		assertThat(result.getExitCode()).isZero();
+		assertThat(result.getStdErr()).isEqualTo("done");
+	}
+
 	@Test
 	void callInvalidProgram() {
 		assertThatThrownBy(
@@ -3,9 +3,16 @@ package de.aaaaaaah.velcom.runner.shared.protocol.serialization;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import de.aaaaaaah.velcom.runner.shared.RunnerStatusEnum;
+import de.aaaaaaah.velcom.runner.shared.protocol.RepoTransferFormat;
 import de.aaaaaaah.velcom.runner.shared.protocol.SentEntity;
+import de.aaaaaaah.velcom.runner.shared.protocol.TransferCompression;
 import de.aaaaaaah.velcom.runner.shared.protocol.exceptions.SerializationException;
+import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.PrefetchWorkOrder;
 import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.RunnerInformation;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,6 +38,41 @@ class SimpleJsonSerializerTest {
 			.isEqualTo(input);
 	}
 
+	@Test
+	void roundtripRunnerInformationWithMirrors() {
+		RunnerInformation input = new RunnerInformation(
+			"name", "os", 4, 1024, RunnerStatusEnum.IDLE, null,
+			List.of(TransferCompression.DEFLATE),
+			Map.of(UUID.randomUUID(), "hash")
+		);
+		String serialized = serializer.serialize(input);
+
+		assertThat(serializer.deserialize(serialized, RunnerInformation.class))
+			.isEqualTo(input);
+	}
+
+	@Test
+	void roundtripPrefetchWorkOrder() {
+		PrefetchWorkOrder input = new PrefetchWorkOrder(
+			new RunnerWorkOrder(UUID.randomUUID(), "hey", RepoTransferFormat.BUNDLE)
+		);
+		String serialized = serializer.serialize(input);
+
+		assertThat(serializer.deserialize(serialized, PrefetchWorkOrder.class))
+			.isEqualTo(input);
+	}
+
+	@Test
+	void roundtripRunnerInformationSupportingPrefetching() {
+		RunnerInformation input = new RunnerInformation(
+			"name", "os", 4, 1024, RunnerStatusEnum.WORKING, null, List.of(), null, true
+		);
+		String serialized = serializer.serialize(input);
+
+		assertThat(serializer.deserialize(serialized, RunnerInformation.class))
+			.isEqualTo(input);
+	}
+
 	@Test
 	void peekType() {
 		RunnerWorkOrder input = new RunnerWorkOrder(UUID.randomUUID(), "hey");
@@ -0,0 +1,99 @@
+package de.aaaaaaah.velcom.runner.shared.protocol.serialization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.aaaaaaah.velcom.runner.shared.protocol.exceptions.SerializationException;
+import de.aaaaaaah.velcom.runner.shared.protocol.runnerbound.entities.RunnerWorkOrder;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Benchmark;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.Metric;
+import de.aaaaaaah.velcom.runner.shared.protocol.serverbound.entities.BenchmarkResults.MetricInterpretation;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SmileSerializerTest {
+
+	private SmileSerializer serializer;
+
+	@BeforeEach
+	void setUp() {
+		serializer = new SmileSerializer();
+	}
+
+	@Test
+	void roundtrip() {
+		RunnerWorkOrder input = new RunnerWorkOrder(UUID.randomUUID(), "hey");
+		byte[] serialized = serializer.serialize(input);
+
+		assertThat(serializer.deserialize(serialized, RunnerWorkOrder.class))
+			.isEqualTo(input);
+	}
+
+	@Test
+	void roundtripLargeResultsSmallerThanJson() {
+		List<Double> values = DoubleStream.iterate(0, it -> it + 0.1)
+			.limit(20_000)
+			.boxed()
+			.collect(Collectors.toList());
+		BenchmarkResults input = new BenchmarkResults(
+			new RunnerWorkOrder(UUID.randomUUID(), "hey"),
+			List.of(new Benchmark("bench", List.of(
+				new Metric("metric", "unit", MetricInterpretation.LESS_IS_BETTER, values, null)
+			))),
+			Instant.ofEpochSecond(10),
+			Instant.ofEpochSecond(20)
+		);
+		byte[] serialized = serializer.serialize(input);
+
+		assertThat(serializer.deserialize(serialized, BenchmarkResults.class))
+			.usingRecursiveComparison()
+			.isEqualTo(input);
+		assertThat(serialized.length)
+			.isLessThan(new SimpleJsonSerializer().serialize(input).length());
+	}
+
+	@Test
+	void peekType() {
+		RunnerWorkOrder input = new RunnerWorkOrder(UUID.randomUUID(), "hey");
+		byte[] serialized = serializer.serialize(input);
+
+		assertThat(serializer.peekType(serialized))
+			.isEqualTo(RunnerWorkOrder.class.getSimpleName());
+	}
+
+	@Test
+	void peekTypeDoesNotNeedPayload() {
+		RunnerWorkOrder input = new RunnerWorkOrder(UUID.randomUUID(), "hey");
+		byte[] serialized = serializer.serialize(input);
+		byte[] header = Arrays.copyOf(serialized, 2 + input.identifier().length());
+
+		assertThat(serializer.peekType(header)).isEqualTo(input.identifier());
+	}
+
+	@Test
+	void deserializeTruncated() {
+		byte[] serialized = serializer.serialize(new RunnerWorkOrder(UUID.randomUUID(), "hey"));
+		byte[] truncated = Arrays.copyOf(serialized, serialized.length - 1);
+
+		assertThatThrownBy(() -> serializer.deserialize(truncated, RunnerWorkOrder.class))
+			.isInstanceOf(SerializationException.class);
+		assertThatThrownBy(() -> serializer.peekType(new byte[]{0, 10, 'a'}))
+			.isInstanceOf(SerializationException.class);
+	}
+
+	@Test
+	void deserializeInvalidPayload() {
+		byte[] input = {0, 1, 'a', 0, 0, 0, 2, 'h', 'i'};
+
+		assertThatThrownBy(() -> serializer.deserialize(input, RunnerWorkOrder.class))
+			.isInstanceOf(SerializationException.class);
+	}
+
+}
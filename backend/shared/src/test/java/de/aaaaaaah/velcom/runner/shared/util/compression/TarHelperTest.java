@@ -14,6 +14,7 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
 import org.apache.commons.compress.utils.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -75,6 +76,25 @@ class TarHelperTest {
 		}
 	}
 
+	@Test
+	void testUntarSymlink() throws IOException {
+		Path output = tempDir.resolve("output");
+		try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(
+			Files.newOutputStream(output))) {
+
+			TarArchiveEntry link = new TarArchiveEntry("dir/link", TarConstants.LF_SYMLINK);
+			link.setLinkName("../target");
+			tarOut.putArchiveEntry(link);
+			tarOut.closeArchiveEntry();
+		}
+
+		TarHelper.untar(output, resultDir);
+
+		Path link = resultDir.resolve("dir").resolve("link");
+		assertThat(Files.isSymbolicLink(link)).isTrue();
+		assertThat(Files.readSymbolicLink(link)).isEqualTo(Path.of("../target"));
+	}
+
 	private void tarTemp() throws IOException {
 		TarArchiveOutputStream output = new TarArchiveOutputStream(
 			Files.newOutputStream(tempDir.resolve("output"))
@@ -0,0 +1,55 @@
+package de.aaaaaaah.velcom.runner.shared.util.compression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UntarOutputStreamTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void unpacksArchiveWrittenInChunks() throws IOException {
+		String content = "hello world\n".repeat(100_000);
+		byte[] archive = tar("dir/file", content);
+
+		try (UntarOutputStream out = new UntarOutputStream(tempDir)) {
+			for (int i = 0; i < archive.length; i += 1000) {
+				out.write(archive, i, Math.min(1000, archive.length - i));
+			}
+		}
+
+		assertThat(Files.readString(tempDir.resolve("dir").resolve("file"))).isEqualTo(content);
+	}
+
+	@Test
+	void closeFailsForInvalidArchive() throws IOException {
+		UntarOutputStream out = new UntarOutputStream(tempDir);
+		out.write("definitely not a tar archive".repeat(100).getBytes(StandardCharsets.UTF_8));
+
+		assertThatThrownBy(out::close).isInstanceOf(IOException.class);
+	}
+
+	private static byte[] tar(String name, String content) throws IOException {
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(result)) {
+			TarArchiveEntry entry = new TarArchiveEntry(name);
+			entry.setSize(bytes.length);
+			tarOut.putArchiveEntry(entry);
+			tarOut.write(bytes);
+			tarOut.closeArchiveEntry();
+		}
+		return result.toByteArray();
+	}
+}
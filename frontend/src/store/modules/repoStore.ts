@@ -72,27 +72,49 @@ export class RepoStore extends VxModule {
     remoteUrl: string
     repoToken: string | undefined
   }) {
-    return axios
-      .post('/repo', {
+    const response = await axios.post(
+      '/repo',
+      {
         name: payload.repoName,
         remote_url: payload.remoteUrl,
         token: payload.repoToken
-      })
-      .then(response => {
-        let item = response.data['repo']
+      },
+      {
+        snackbarTag: 'add repo',
+        hideSuccessSnackbar: true
+      }
+    )
 
-        let repo = new Repo(
-          item.id,
-          item.name,
-          item.branches,
-          item.tracked_branches,
-          item.measurements,
-          item.remote_url
-        )
+    // The repo is cloned in the background, so wait until it was added
+    const repoId: string = response.data.onboarding.repo_id
+    let onboarding = response.data.onboarding
+    while (onboarding.state !== 'DONE') {
+      await new Promise(resolve => setTimeout(resolve, 1000))
 
-        this.setRepo(repo)
-        return repo
+      const statusResponse = await axios.get('/repo/onboarding', {
+        snackbarTag: 'add repo',
+        hideLoadingSnackbar: true,
+        hideSuccessSnackbar: true,
+        params: {
+          repo_id: repoId
+        }
       })
+      onboarding = statusResponse.data.onboarding
+    }
+
+    let item = onboarding.repo
+
+    let repo = new Repo(
+      item.id,
+      item.name,
+      item.branches,
+      item.tracked_branches,
+      item.measurements,
+      item.remote_url
+    )
+
+    this.setRepo(repo)
+    return repo
   }
 
   /**